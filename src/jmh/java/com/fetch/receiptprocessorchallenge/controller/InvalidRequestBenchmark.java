@@ -0,0 +1,111 @@
+package com.fetch.receiptprocessorchallenge.controller;
+
+import com.fetch.receiptprocessorchallenge.dao.ReceiptDAO;
+import com.fetch.receiptprocessorchallenge.dao.ReceiptStoreProperties;
+import com.fetch.receiptprocessorchallenge.dtos.ProcessReceiptRequest;
+import com.fetch.receiptprocessorchallenge.dtos.ProcessReceiptResponse;
+import com.fetch.receiptprocessorchallenge.dtos.ReceiptPointResponse;
+import com.fetch.receiptprocessorchallenge.metrics.ReceiptMetrics;
+import com.fetch.receiptprocessorchallenge.models.Item;
+import com.fetch.receiptprocessorchallenge.service.BenchmarkServices;
+import com.fetch.receiptprocessorchallenge.service.ReceiptBatchService;
+import com.fetch.receiptprocessorchallenge.service.ReceiptService;
+import com.fetch.receiptprocessorchallenge.service.ScoringMode;
+import com.fetch.receiptprocessorchallenge.validation.ReceiptValidator;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.ResponseEntity;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Invalid requests per second from 8 threads, as during a burst of bad traffic,
+ * answered the way the controller used to, by catching the exception the throwing
+ * validator raises (EXCEPTION), and the way it does now, from the `ValidationResult`
+ * (RESULT). The receipts are rejected by the first check (no retailer) and the last
+ * one (a total that does not match the items), the id by the UUID check.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+@State(Scope.Benchmark)
+public class InvalidRequestBenchmark {
+    @Param({"EXCEPTION", "RESULT"})
+    private String path;
+
+    private ReceiptsController controller;
+    private ReceiptValidator validator;
+    private ReceiptService receiptService;
+    private ReceiptBatchService batchService;
+    private ProcessReceiptRequest missingRetailer;
+    private ProcessReceiptRequest wrongTotal;
+
+    @Setup(Level.Trial)
+    public void createController() {
+        ReceiptDAO receiptDAO = new ReceiptDAO(ReceiptStoreProperties.defaults());
+        receiptService = BenchmarkServices.receiptService(receiptDAO, ScoringMode.EAGER);
+        validator = new ReceiptValidator();
+        batchService = BenchmarkServices.batchService(receiptService, validator, receiptDAO, 10_000);
+        controller = new ReceiptsController(receiptService, batchService, null, validator, ReceiptMetrics.disabled(),
+                PointsHttpCache.disabled());
+        missingRetailer = request(null, 1801);
+        wrongTotal = request("M&M Corner Market", 1802);
+    }
+
+    @TearDown(Level.Trial)
+    public void shutdown() {
+        BenchmarkServices.shutdown(batchService);
+    }
+
+    @Benchmark
+    public ResponseEntity<ProcessReceiptResponse> missingRetailer() {
+        return processReceipt(missingRetailer);
+    }
+
+    @Benchmark
+    public ResponseEntity<ProcessReceiptResponse> wrongTotal() {
+        return processReceipt(wrongTotal);
+    }
+
+    @Benchmark
+    public ResponseEntity<ReceiptPointResponse> invalidId() {
+        if (path.equals("RESULT")) {
+            return controller.getReceiptPoints("id-invalid-uuid", false);
+        }
+        try {
+            validator.validateGetReceiptPointRequest("id-invalid-uuid");
+            return ResponseEntity.ok(receiptService.getReceiptPoints("id-invalid-uuid", false));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(ReceiptPointResponse.builder().errorMessage(e.getMessage()).build());
+        }
+    }
+
+    private ResponseEntity<ProcessReceiptResponse> processReceipt(ProcessReceiptRequest request) {
+        if (path.equals("RESULT")) {
+            return controller.processReceipt(request);
+        }
+        try {
+            validator.validateProcessReceiptRequest(request);
+            return ResponseEntity.ok(receiptService.processReceipt(request));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(ProcessReceiptResponse.builder().errorMessage(e.getMessage()).build());
+        }
+    }
+
+    private static ProcessReceiptRequest request(String retailer, long totalCents) {
+        ProcessReceiptRequest request = new ProcessReceiptRequest();
+        request.setRetailer(retailer);
+        request.setPurchaseDate(LocalDate.of(2022, 3, 20));
+        request.setPurchaseTime(LocalTime.of(14, 33));
+        request.setItems(List.of(
+                new Item("Gatorade", 225), new Item("Gatorade", 225),
+                new Item("Emils Cheese Pizza", 1225), new Item("Knorr Creamy Chicken", 126)));
+        request.setTotalCents(totalCents);
+        return request;
+    }
+}
@@ -0,0 +1,88 @@
+package com.fetch.receiptprocessorchallenge.controller;
+
+import com.fetch.receiptprocessorchallenge.dao.ReceiptDAO;
+import com.fetch.receiptprocessorchallenge.dao.ReceiptStoreProperties;
+import com.fetch.receiptprocessorchallenge.dtos.ProcessReceiptRequest;
+import com.fetch.receiptprocessorchallenge.dtos.ProcessReceiptResponse;
+import com.fetch.receiptprocessorchallenge.dtos.ReceiptPointResponse;
+import com.fetch.receiptprocessorchallenge.metrics.ReceiptMetrics;
+import com.fetch.receiptprocessorchallenge.models.Item;
+import com.fetch.receiptprocessorchallenge.service.BenchmarkServices;
+import com.fetch.receiptprocessorchallenge.service.ReceiptService;
+import com.fetch.receiptprocessorchallenge.service.ScoringMode;
+import com.fetch.receiptprocessorchallenge.validation.ReceiptValidator;
+import io.micrometer.prometheusmetrics.PrometheusConfig;
+import io.micrometer.prometheusmetrics.PrometheusMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.ResponseEntity;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of recording metrics on the single receipt endpoints: processing a receipt
+ * and reading its points through the controller, with metrics disabled and with
+ * every meter recording into a Prometheus registry, from 8 threads so that meter
+ * updates contend the way they do under load.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@Threads(8)
+@State(Scope.Benchmark)
+public class MetricsOverheadBenchmark {
+    private static final int MASK = 1023;
+
+    @Param({"false", "true"})
+    private boolean metrics;
+
+    private ReceiptsController controller;
+    private ProcessReceiptRequest request;
+    private String[] ids;
+
+    // A fresh store per iteration keeps its size, and so the cost of a save, comparable.
+    @Setup(Level.Iteration)
+    public void createController() {
+        ReceiptMetrics receiptMetrics = metrics
+                ? new ReceiptMetrics(new PrometheusMeterRegistry(PrometheusConfig.DEFAULT), true)
+                : ReceiptMetrics.disabled();
+        ReceiptDAO receiptDAO = new ReceiptDAO(ReceiptStoreProperties.defaults().toBuilder()
+                .initialCapacity(1 << 20)
+                .build());
+        ReceiptService receiptService = BenchmarkServices.receiptService(receiptDAO, ScoringMode.EAGER, receiptMetrics);
+        controller = new ReceiptsController(receiptService, null, null, new ReceiptValidator(receiptMetrics),
+                receiptMetrics, PointsHttpCache.disabled());
+
+        request = new ProcessReceiptRequest();
+        request.setRetailer("M&M Corner Market");
+        request.setPurchaseDate(LocalDate.of(2022, 3, 20));
+        request.setPurchaseTime(LocalTime.of(14, 33));
+        request.setItems(List.of(
+                new Item("Gatorade", 225), new Item("Gatorade", 225),
+                new Item("Emils Cheese Pizza", 1225), new Item("Knorr Creamy Chicken", 126)));
+        request.setTotalCents(1801);
+        ids = new String[MASK + 1];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = controller.processReceipt(request).getBody().getId();
+        }
+    }
+
+    @Benchmark
+    public ResponseEntity<ProcessReceiptResponse> processReceipt() {
+        return controller.processReceipt(request);
+    }
+
+    @Benchmark
+    public ResponseEntity<ReceiptPointResponse> getReceiptPoints(ThreadIndex index) {
+        return controller.getReceiptPoints(ids[index.next++ & MASK], false);
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadIndex {
+        int next;
+    }
+}
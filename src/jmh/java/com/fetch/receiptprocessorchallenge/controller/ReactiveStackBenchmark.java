@@ -0,0 +1,103 @@
+package com.fetch.receiptprocessorchallenge.controller;
+
+import com.fetch.receiptprocessorchallenge.dao.ReactiveReceiptDAO;
+import com.fetch.receiptprocessorchallenge.dao.ReceiptDAO;
+import com.fetch.receiptprocessorchallenge.dao.ReceiptStoreProperties;
+import com.fetch.receiptprocessorchallenge.dtos.ProcessReceiptRequest;
+import com.fetch.receiptprocessorchallenge.dtos.ProcessReceiptResponse;
+import com.fetch.receiptprocessorchallenge.dtos.ReceiptPointResponse;
+import com.fetch.receiptprocessorchallenge.metrics.ReceiptMetrics;
+import com.fetch.receiptprocessorchallenge.models.Item;
+import com.fetch.receiptprocessorchallenge.service.BenchmarkServices;
+import com.fetch.receiptprocessorchallenge.service.ReceiptBatchService;
+import com.fetch.receiptprocessorchallenge.service.ReceiptService;
+import com.fetch.receiptprocessorchallenge.service.ScoringMode;
+import com.fetch.receiptprocessorchallenge.validation.ReceiptValidator;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.ResponseEntity;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of handling a request in the servlet controller and in the reactive one,
+ * without HTTP: processing a receipt and reading its points from 8 threads against
+ * the in-memory store. The difference is what building and subscribing to the
+ * Reactor pipeline adds per request; connection handling is compared over HTTP with
+ * the load generator's `--idle-connections` option.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@Threads(8)
+@State(Scope.Benchmark)
+public class ReactiveStackBenchmark {
+    private static final int MASK = 1023;
+
+    @Param({"SERVLET", "REACTIVE"})
+    private String stack;
+
+    private ReceiptsController servletController;
+    private ReactiveReceiptsController reactiveController;
+    private ReceiptBatchService batchService;
+    private ProcessReceiptRequest request;
+    private String[] ids;
+
+    // A fresh store per iteration keeps its size, and so the cost of a save, comparable.
+    @Setup(Level.Iteration)
+    public void createController() {
+        ReceiptDAO receiptDAO = new ReceiptDAO(ReceiptStoreProperties.defaults().toBuilder()
+                .initialCapacity(1 << 20)
+                .build());
+        ReceiptService receiptService = BenchmarkServices.receiptService(receiptDAO, ScoringMode.EAGER);
+        ReceiptValidator validator = new ReceiptValidator();
+        batchService = BenchmarkServices.batchService(receiptService, validator, receiptDAO, 10_000);
+        servletController = new ReceiptsController(receiptService, batchService, null, validator,
+                ReceiptMetrics.disabled(), PointsHttpCache.disabled());
+        reactiveController = new ReactiveReceiptsController(BenchmarkServices.reactiveReceiptService(receiptService,
+                batchService, validator, new ReactiveReceiptDAO(receiptDAO)), validator, ReceiptMetrics.disabled(),
+                PointsHttpCache.disabled());
+
+        request = new ProcessReceiptRequest();
+        request.setRetailer("M&M Corner Market");
+        request.setPurchaseDate(LocalDate.of(2022, 3, 20));
+        request.setPurchaseTime(LocalTime.of(14, 33));
+        request.setItems(List.of(
+                new Item("Gatorade", 225), new Item("Gatorade", 225),
+                new Item("Emils Cheese Pizza", 1225), new Item("Knorr Creamy Chicken", 126)));
+        request.setTotalCents(1801);
+        ids = new String[MASK + 1];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = processReceipt().getBody().getId();
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void shutdown() {
+        BenchmarkServices.shutdown(batchService);
+    }
+
+    @Benchmark
+    public ResponseEntity<ProcessReceiptResponse> processReceipt() {
+        return stack.equals("REACTIVE")
+                ? reactiveController.processReceipt(request).block()
+                : servletController.processReceipt(request);
+    }
+
+    @Benchmark
+    public ResponseEntity<ReceiptPointResponse> getReceiptPoints(ThreadIndex index) {
+        String id = ids[index.next++ & MASK];
+        return stack.equals("REACTIVE")
+                ? reactiveController.getReceiptPoints(id, false).block()
+                : servletController.getReceiptPoints(id, false);
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadIndex {
+        int next;
+    }
+}
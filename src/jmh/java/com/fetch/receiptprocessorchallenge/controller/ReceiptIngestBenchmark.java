@@ -0,0 +1,88 @@
+package com.fetch.receiptprocessorchallenge.controller;
+
+import com.fetch.receiptprocessorchallenge.dao.ReceiptDAO;
+import com.fetch.receiptprocessorchallenge.dao.ReceiptStoreProperties;
+import com.fetch.receiptprocessorchallenge.dtos.ProcessReceiptBatchResponse;
+import com.fetch.receiptprocessorchallenge.dtos.ProcessReceiptRequest;
+import com.fetch.receiptprocessorchallenge.metrics.ReceiptMetrics;
+import com.fetch.receiptprocessorchallenge.models.Item;
+import com.fetch.receiptprocessorchallenge.service.BenchmarkServices;
+import com.fetch.receiptprocessorchallenge.service.ReceiptBatchService;
+import com.fetch.receiptprocessorchallenge.service.ReceiptService;
+import com.fetch.receiptprocessorchallenge.service.ScoringMode;
+import com.fetch.receiptprocessorchallenge.validation.ReceiptValidator;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares ingest throughput of the single `/receipts/process` path against
+ * `/receipts/process/batch`, in receipts per second, through the controller,
+ * validator, scoring and store (without the HTTP layer).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class ReceiptIngestBenchmark {
+    private static final int BATCH_SIZE = 1_000;
+
+    private List<ProcessReceiptRequest> requests;
+    private ReceiptBatchService batchService;
+    private ReceiptsController controller;
+
+    @Setup(Level.Trial)
+    public void createRequests() {
+        requests = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            ProcessReceiptRequest request = new ProcessReceiptRequest();
+            request.setRetailer("M&M Corner Market " + i);
+            request.setPurchaseDate(LocalDate.of(2022, 3, 1 + i % 28));
+            request.setPurchaseTime(LocalTime.of(i % 24, i % 60));
+            request.setItems(List.of(
+                    new Item("Gatorade", 225), new Item("Gatorade", 225),
+                    new Item("Emils Cheese Pizza", 1225), new Item("Knorr Creamy Chicken", 126)));
+            request.setTotalCents(1801);
+            requests.add(request);
+        }
+    }
+
+    // A fresh store per iteration keeps the map size, and so the cost of a save, comparable.
+    @Setup(Level.Iteration)
+    public void createController() {
+        ReceiptDAO receiptDAO = new ReceiptDAO(ReceiptStoreProperties.defaults().toBuilder()
+                .initialCapacity(1 << 20)
+                .build());
+        ReceiptValidator validator = new ReceiptValidator();
+        ReceiptService receiptService = BenchmarkServices.receiptService(receiptDAO, ScoringMode.EAGER);
+        batchService = BenchmarkServices.batchService(receiptService, validator, receiptDAO, BATCH_SIZE);
+        controller = new ReceiptsController(receiptService, batchService, null, validator, ReceiptMetrics.disabled(),
+                PointsHttpCache.disabled());
+    }
+
+    @TearDown(Level.Iteration)
+    public void shutdown() {
+        BenchmarkServices.shutdown(batchService);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void single(Blackhole blackhole) {
+        for (ProcessReceiptRequest request : requests) {
+            blackhole.consume(controller.processReceipt(request));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public ProcessReceiptBatchResponse batch() {
+        return controller.processReceiptBatch(requests).getBody();
+    }
+}
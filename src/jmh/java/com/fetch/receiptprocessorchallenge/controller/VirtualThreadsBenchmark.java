@@ -0,0 +1,95 @@
+package com.fetch.receiptprocessorchallenge.controller;
+
+import com.fetch.receiptprocessorchallenge.dao.ReceiptDAO;
+import com.fetch.receiptprocessorchallenge.dao.ReceiptStoreProperties;
+import com.fetch.receiptprocessorchallenge.dtos.ProcessReceiptRequest;
+import com.fetch.receiptprocessorchallenge.metrics.ReceiptMetrics;
+import com.fetch.receiptprocessorchallenge.models.Item;
+import com.fetch.receiptprocessorchallenge.service.BenchmarkServices;
+import com.fetch.receiptprocessorchallenge.service.ReceiptService;
+import com.fetch.receiptprocessorchallenge.service.ScoringMode;
+import com.fetch.receiptprocessorchallenge.validation.ReceiptValidator;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Requests per second with 2,000 requests in flight, each processing a receipt and
+ * reading its points through the controller, against a store that takes
+ * `latencyMillis` per access. Requests run on a pool of 200 platform threads, as
+ * in Tomcat's default configuration, or on one virtual thread each, as with
+ * `spring.threads.virtual.enabled=true`.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class VirtualThreadsBenchmark {
+    private static final int CONCURRENT_REQUESTS = 2_000;
+    private static final int PLATFORM_THREADS = 200;
+
+    @Param({"PLATFORM", "VIRTUAL"})
+    private String threads;
+
+    @Param({"1", "10"})
+    private long latencyMillis;
+
+    private ExecutorService executor;
+    private ReceiptsController controller;
+    private ProcessReceiptRequest request;
+
+    @Setup(Level.Trial)
+    public void createController() {
+        executor = threads.equals("VIRTUAL")
+                ? Executors.newVirtualThreadPerTaskExecutor()
+                : Executors.newFixedThreadPool(PLATFORM_THREADS);
+        ReceiptDAO receiptDAO = new ReceiptDAO(ReceiptStoreProperties.defaults().toBuilder()
+                .initialCapacity(1 << 20)
+                .simulatedLatencyMs(latencyMillis)
+                .build());
+        ReceiptService receiptService = BenchmarkServices.receiptService(receiptDAO, ScoringMode.EAGER);
+        controller = new ReceiptsController(receiptService, null, null, new ReceiptValidator(),
+                ReceiptMetrics.disabled(), PointsHttpCache.disabled());
+
+        request = new ProcessReceiptRequest();
+        request.setRetailer("M&M Corner Market");
+        request.setPurchaseDate(LocalDate.of(2022, 3, 20));
+        request.setPurchaseTime(LocalTime.of(14, 33));
+        request.setItems(List.of(
+                new Item("Gatorade", 225), new Item("Gatorade", 225),
+                new Item("Emils Cheese Pizza", 1225), new Item("Knorr Creamy Chicken", 126)));
+        request.setTotalCents(1801);
+    }
+
+    @TearDown(Level.Trial)
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CONCURRENT_REQUESTS)
+    public int processAndRead() throws InterruptedException, ExecutionException {
+        List<Future<Integer>> responses = new ArrayList<>(CONCURRENT_REQUESTS);
+        for (int i = 0; i < CONCURRENT_REQUESTS; i++) {
+            responses.add(executor.submit(() -> {
+                String id = controller.processReceipt(request).getBody().getId();
+                return controller.getReceiptPoints(id, false).getBody().getPoints();
+            }));
+        }
+        int points = 0;
+        for (Future<Integer> response : responses) {
+            points += response.get();
+        }
+        return points;
+    }
+}
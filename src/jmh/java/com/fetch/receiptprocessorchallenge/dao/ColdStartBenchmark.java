@@ -0,0 +1,97 @@
+package com.fetch.receiptprocessorchallenge.dao;
+
+import com.fetch.receiptprocessorchallenge.models.Item;
+import com.fetch.receiptprocessorchallenge.models.Receipt;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Time from opening a durable store until the first lookup is answered, restoring
+ * either from the write-ahead log alone or from a memory-mapped snapshot.
+ * The 10M case needs about 2 GB of free disk in `java.io.tmpdir` and a 4 GB heap.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class ColdStartBenchmark {
+
+    @Param({"1000000", "10000000"})
+    private int size;
+
+    @Param({"LOG", "SNAPSHOT"})
+    private String restoreFrom;
+
+    private Path directory;
+    private UUID firstId;
+    private ReceiptDAO restored;
+
+    @Setup(Level.Trial)
+    public void fill() throws IOException {
+        directory = Files.createTempDirectory("receipt-cold-start-benchmark");
+        ReceiptDAO receiptDAO = open(size);
+        Receipt template = Receipt.builder()
+                .retailer("M&M Corner Market")
+                .purchaseDate(LocalDate.of(2022, 3, 20))
+                .purchaseTime(LocalTime.of(14, 33))
+                .items(List.of(new Item("Gatorade", 225), new Item("Gatorade", 225)))
+                .totalCents(450)
+                .build();
+        firstId = UUID.randomUUID();
+        receiptDAO.save(template.toBuilder().id(firstId).build());
+        for (int i = 1; i < size; i++) {
+            receiptDAO.save(template.toBuilder().id(UUID.randomUUID()).build());
+        }
+        if (restoreFrom.equals("SNAPSHOT")) {
+            receiptDAO.snapshot();
+        }
+        receiptDAO.close();
+    }
+
+    @Benchmark
+    public Receipt openAndFindFirst() {
+        // A snapshot serves the old receipts itself, so the in-memory tier is not presized for them.
+        restored = open(restoreFrom.equals("LOG") ? size : ReceiptStoreProperties.DEFAULT_INITIAL_CAPACITY);
+        return restored.findById(firstId.getMostSignificantBits(), firstId.getLeastSignificantBits());
+    }
+
+    @TearDown(Level.Iteration)
+    public void closeRestored() {
+        if (restored != null) {
+            restored.close();
+            restored = null;
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void delete() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    private ReceiptDAO open(int initialCapacity) {
+        return new ReceiptDAO(ReceiptStoreProperties.defaults().toBuilder()
+                .mode(StoreMode.BINARY)
+                .initialCapacity(initialCapacity)
+                .wal(ReceiptStoreProperties.Wal.defaults().toBuilder()
+                        .directory(directory.toString())
+                        .durability(WalDurability.ASYNC)
+                        .build())
+                .build());
+    }
+}
@@ -0,0 +1,81 @@
+package com.fetch.receiptprocessorchallenge.dao;
+
+import com.fetch.receiptprocessorchallenge.models.Item;
+import com.fetch.receiptprocessorchallenge.models.Receipt;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of a purchase range query by the number of receipts it returns, through the
+ * `PurchaseTimeIndex` of a store holding 1M receipts, against a scan of every stored
+ * receipt, in each store mode. One receipt is purchased every minute, so a range of
+ * n minutes holds n receipts.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class PurchaseRangeQueryBenchmark {
+    private static final int SIZE = 1_000_000;
+    private static final LocalDateTime FIRST_PURCHASE = LocalDate.of(2022, 1, 1).atStartOfDay();
+    private static final List<Item> ITEMS = List.of(new Item("Gatorade", 225), new Item("Emils Cheese Pizza", 1225));
+
+    @Param({"OBJECT", "BINARY"})
+    private StoreMode mode;
+
+    @Param({"10", "100", "1000"})
+    private int results;
+
+    private ReceiptDAO receiptDAO;
+    private LocalDateTime from;
+    private LocalDateTime to;
+
+    @Setup(Level.Trial)
+    public void fill() {
+        receiptDAO = new ReceiptDAO(ReceiptStoreProperties.defaults().toBuilder()
+                .mode(mode)
+                .initialCapacity(SIZE)
+                .build());
+        for (int i = 0; i < SIZE; i++) {
+            LocalDateTime purchased = FIRST_PURCHASE.plusMinutes(i);
+            receiptDAO.save(Receipt.builder()
+                    .id(UUID.randomUUID())
+                    .retailer("Retailer " + i % 100)
+                    .purchaseDate(purchased.toLocalDate())
+                    .purchaseTime(LocalTime.of(purchased.getHour(), purchased.getMinute()))
+                    .items(ITEMS)
+                    .totalCents(1450)
+                    .points(i % 100)
+                    .build());
+        }
+        // A range in the middle of the store.
+        from = FIRST_PURCHASE.plusMinutes(SIZE / 2);
+        to = from.plusMinutes(results - 1);
+    }
+
+    @Benchmark
+    public List<Receipt> index() {
+        return receiptDAO.findByPurchaseTime(from, to, null, null, results);
+    }
+
+    @Benchmark
+    public List<Receipt> scan() {
+        List<Receipt> found = new ArrayList<>();
+        receiptDAO.forEach(receipt -> {
+            LocalDateTime purchased = LocalDateTime.of(receipt.getPurchaseDate(), receipt.getPurchaseTime());
+            if (!purchased.isBefore(from) && !purchased.isAfter(to)) {
+                found.add(receipt);
+            }
+        });
+        return found;
+    }
+}
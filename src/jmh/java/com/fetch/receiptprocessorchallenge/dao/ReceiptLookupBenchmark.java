@@ -0,0 +1,61 @@
+package com.fetch.receiptprocessorchallenge.dao;
+
+import com.fetch.receiptprocessorchallenge.models.Receipt;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lookup latency of the primitive `UuidIndex`-backed store against the
+ * previous `HashMap<String, Receipt>`, starting from the id string as it
+ * arrives on the GET path. Memory per key is measured in `UuidIndexTest`.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ReceiptLookupBenchmark {
+    private static final int MASK = 1023;
+
+    @Param({"10000", "1000000"})
+    private int size;
+
+    private Map<String, Receipt> hashMap;
+    private ReceiptDAO receiptDAO;
+    private String[] queryIds;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void fill() {
+        hashMap = new HashMap<>(size * 2);
+        receiptDAO = new ReceiptDAO(ReceiptStoreProperties.defaults().toBuilder().initialCapacity(size).build());
+        queryIds = new String[MASK + 1];
+        for (int i = 0; i < size; i++) {
+            UUID id = UUID.randomUUID();
+            Receipt receipt = Receipt.builder().id(id).build();
+            hashMap.put(id.toString(), receipt);
+            receiptDAO.save(receipt);
+            if (i <= MASK) {
+                // Ids arrive as strings parsed from the request path; their cached
+                // hash codes after the first pass slightly favor the HashMap.
+                queryIds[i] = new String(id.toString().toCharArray());
+            }
+        }
+    }
+
+    @Benchmark
+    public Receipt hashMapStringKey() {
+        return hashMap.get(queryIds[next++ & MASK]);
+    }
+
+    @Benchmark
+    public Receipt uuidIndex() {
+        String id = queryIds[next++ & MASK];
+        return receiptDAO.findById(ReceiptIds.mostSignificantBits(id), ReceiptIds.leastSignificantBits(id));
+    }
+}
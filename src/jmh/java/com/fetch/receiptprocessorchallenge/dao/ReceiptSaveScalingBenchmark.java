@@ -0,0 +1,83 @@
+package com.fetch.receiptprocessorchallenge.dao;
+
+import com.fetch.receiptprocessorchallenge.models.Item;
+import com.fetch.receiptprocessorchallenge.models.Receipt;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time for 1 to 16 threads to save 50,000 receipts each into an empty in-memory store,
+ * presized for all of them, so the scaling of `ReceiptDAO.save` with the number of
+ * writers shows as the time per round staying flat while the threads double.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class ReceiptSaveScalingBenchmark {
+    private static final int PER_THREAD = 50_000;
+
+    @Param({"1", "2", "4", "8", "16"})
+    private int threads;
+
+    private ExecutorService executor;
+    private Receipt template;
+    private ReceiptDAO receiptDAO;
+
+    @Setup(Level.Trial)
+    public void start() {
+        executor = Executors.newFixedThreadPool(threads);
+        template = Receipt.builder()
+                .retailer("M&M Corner Market")
+                .purchaseDate(LocalDate.of(2022, 3, 20))
+                .purchaseTime(LocalTime.of(14, 33))
+                .items(List.of(new Item("Gatorade", 225), new Item("Gatorade", 225)))
+                .totalCents(450)
+                .build();
+    }
+
+    @Setup(Level.Invocation)
+    public void open() {
+        receiptDAO = new ReceiptDAO(ReceiptStoreProperties.defaults().toBuilder()
+                .initialCapacity(threads * PER_THREAD)
+                .build());
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    @Benchmark
+    public int saveConcurrently() throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>(threads);
+        for (int t = 0; t < threads; t++) {
+            long threadBits = t;
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < PER_THREAD; i++) {
+                    receiptDAO.save(template.toBuilder().id(new UUID(threadBits, i + 1)).build());
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        return receiptDAO.size();
+    }
+}
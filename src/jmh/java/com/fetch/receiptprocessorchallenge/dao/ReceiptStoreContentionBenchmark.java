@@ -0,0 +1,78 @@
+package com.fetch.receiptprocessorchallenge.dao;
+
+import com.fetch.receiptprocessorchallenge.models.Item;
+import com.fetch.receiptprocessorchallenge.models.Receipt;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of `ReceiptDAO.save` and `findById` while both run at the same
+ * time: 4 writer threads save new receipts while 12 reader threads look up
+ * receipts saved before the measurement, in each store mode.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Group)
+public class ReceiptStoreContentionBenchmark {
+    private static final int PRELOADED = 1 << 16;
+    private static final int MASK = PRELOADED - 1;
+    private static final List<Item> ITEMS = List.of(new Item("Gatorade", 225), new Item("Emils Cheese Pizza", 1225));
+
+    @Param({"OBJECT", "BINARY"})
+    private StoreMode mode;
+
+    private ReceiptDAO receiptDAO;
+    private long[] ids;
+
+    // A fresh store per iteration keeps its size, and so the cost of a save, comparable.
+    @Setup(Level.Iteration)
+    public void fill() {
+        receiptDAO = new ReceiptDAO(ReceiptStoreProperties.defaults().toBuilder()
+                .mode(mode)
+                .initialCapacity(1 << 20)
+                .build());
+        ids = new long[2 * PRELOADED];
+        for (int i = 0; i < PRELOADED; i++) {
+            Receipt receipt = receipt(UUID.randomUUID());
+            receiptDAO.save(receipt);
+            ids[2 * i] = receipt.getId().getMostSignificantBits();
+            ids[2 * i + 1] = receipt.getId().getLeastSignificantBits();
+        }
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(4)
+    public Receipt save() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return receiptDAO.save(receipt(new UUID(random.nextLong(), random.nextLong())));
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(12)
+    public Receipt findById() {
+        int i = ThreadLocalRandom.current().nextInt() & MASK;
+        return receiptDAO.findById(ids[2 * i], ids[2 * i + 1]);
+    }
+
+    private static Receipt receipt(UUID id) {
+        return Receipt.builder()
+                .id(id)
+                .retailer("M&M Corner Market")
+                .purchaseDate(LocalDate.of(2022, 3, 20))
+                .purchaseTime(LocalTime.of(14, 33))
+                .items(ITEMS)
+                .totalCents(1450)
+                .build();
+    }
+}
@@ -0,0 +1,77 @@
+package com.fetch.receiptprocessorchallenge.dao;
+
+import com.fetch.receiptprocessorchallenge.models.Item;
+import com.fetch.receiptprocessorchallenge.models.Receipt;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Ingest throughput of the durable store for each `WalDurability`, with concurrent
+ * writers so that SYNC group commit can share fsyncs. `none` is the in-memory baseline.
+ * Results depend heavily on the disk holding `java.io.tmpdir`.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(16)
+@State(Scope.Benchmark)
+public class WalIngestBenchmark {
+
+    @Param({"none", "SYNC", "BATCH", "ASYNC"})
+    private String durability;
+
+    private Path walDirectory;
+    private ReceiptDAO receiptDAO;
+    private Receipt template;
+
+    @Setup(Level.Trial)
+    public void open() throws IOException {
+        template = Receipt.builder()
+                .retailer("M&M Corner Market")
+                .purchaseDate(LocalDate.of(2022, 3, 20))
+                .purchaseTime(LocalTime.of(14, 33))
+                .items(List.of(new Item("Gatorade", 225), new Item("Gatorade", 225)))
+                .totalCents(450)
+                .build();
+        if (durability.equals("none")) {
+            receiptDAO = new ReceiptDAO(ReceiptStoreProperties.defaults().toBuilder().initialCapacity(1 << 20).build());
+        } else {
+            walDirectory = Files.createTempDirectory("receipt-wal-benchmark");
+            receiptDAO = new ReceiptDAO(ReceiptStoreProperties.defaults().toBuilder()
+                    .wal(ReceiptStoreProperties.Wal.defaults().toBuilder()
+                            .directory(walDirectory.toString())
+                            .durability(WalDurability.valueOf(durability))
+                            .build())
+                    .build());
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void close() throws IOException {
+        receiptDAO.close();
+        if (walDirectory != null) {
+            try (Stream<Path> files = Files.walk(walDirectory)) {
+                for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                    Files.delete(file);
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public Receipt save() {
+        return receiptDAO.save(template.toBuilder().id(UUID.randomUUID()).build());
+    }
+}
@@ -0,0 +1,108 @@
+package com.fetch.receiptprocessorchallenge.json;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fetch.receiptprocessorchallenge.dtos.ProcessReceiptRequest;
+import com.fetch.receiptprocessorchallenge.models.Item;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * `ProcessReceiptRequestDeserializer` against Jackson's default data binding of the same
+ * class, across item counts: reading a valid body, a body whose purchase date does not
+ * exist, which data binding rejects with an exception and the deserializer reads as a value
+ * for the validator, and a body whose items are not an array, which both reject.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ReceiptDeserializerBenchmark {
+    @Param({"STREAMING", "DATA_BINDING"})
+    private String deserializer;
+
+    @Param({"1", "5", "25", "100"})
+    private int itemCount;
+
+    private ObjectReader reader;
+    private byte[] json;
+    private byte[] invalidDate;
+    private byte[] malformed;
+
+    // Puts data binding back in place of the class-level deserializer.
+    @JsonDeserialize(using = JsonDeserializer.None.class)
+    private abstract static class DataBound {
+    }
+
+    @Setup(Level.Trial)
+    public void createRequests() throws IOException {
+        JsonMapper.Builder builder = JsonMapper.builder()
+                .findAndAddModules()
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        if ("DATA_BINDING".equals(deserializer)) {
+            builder.addMixIn(ProcessReceiptRequest.class, DataBound.class);
+        }
+        ObjectMapper mapper = builder.build();
+        reader = mapper.readerFor(ProcessReceiptRequest.class);
+
+        List<Item> items = new ArrayList<>(itemCount);
+        long totalCents = 0;
+        for (int i = 0; i < itemCount; i++) {
+            long priceCents = 125 + 137L * i;
+            items.add(new Item("Emils Cheese Pizza " + i, priceCents));
+            totalCents += priceCents;
+        }
+        ProcessReceiptRequest request = new ProcessReceiptRequest();
+        request.setRetailer("M&M Corner Market");
+        request.setPurchaseDate(LocalDate.of(2022, 3, 20));
+        request.setPurchaseTime(LocalTime.of(14, 33));
+        request.setItems(items);
+        request.setTotalCents(totalCents);
+        json = mapper.writeValueAsBytes(request);
+        if (!request.equals(reader.readValue(json))) {
+            throw new IllegalStateException("The request does not survive a JSON round trip: "
+                    + new String(json, StandardCharsets.UTF_8));
+        }
+        String text = new String(json, StandardCharsets.UTF_8);
+        invalidDate = text.replace("2022-03-20", "2022-02-30").getBytes(StandardCharsets.UTF_8);
+        malformed = text.replace("\"items\":[", "\"items\":\"Pepsi\",\"other\":[")
+                .getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public ProcessReceiptRequest read() throws IOException {
+        return reader.readValue(json);
+    }
+
+    @Benchmark
+    public Object readInvalidDate() throws IOException {
+        try {
+            return reader.readValue(invalidDate);
+        } catch (JsonProcessingException e) {
+            return e;
+        }
+    }
+
+    @Benchmark
+    public Object readMalformed() throws IOException {
+        try {
+            return reader.readValue(malformed);
+        } catch (JsonProcessingException e) {
+            return e;
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.fetch.receiptprocessorchallenge.json;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.cfg.MapperBuilder;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import com.fetch.receiptprocessorchallenge.dtos.ProcessReceiptRequest;
+import com.fetch.receiptprocessorchallenge.models.Item;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bytes on the wire and Jackson cost of a `ProcessReceiptRequest`, alone and in a batch
+ * of 100, encoded as JSON, Smile and CBOR, across item counts. The receipts are those of
+ * `ReceiptJsonBenchmark`, and every mapper is configured like Spring Boot's JSON mapper.
+ * The encoded sizes are printed once per trial, since they do not vary between runs.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ReceiptEncodingBenchmark {
+    private static final int BATCH_SIZE = 100;
+
+    @Param({"JSON", "SMILE", "CBOR"})
+    private String format;
+
+    @Param({"1", "5", "25", "100"})
+    private int itemCount;
+
+    private ObjectReader reader;
+    private ObjectWriter writer;
+    private ObjectReader batchReader;
+    private ObjectWriter batchWriter;
+    private ProcessReceiptRequest request;
+    private List<ProcessReceiptRequest> batch;
+    private byte[] encoded;
+    private byte[] encodedBatch;
+
+    @Setup(Level.Trial)
+    public void encode() throws IOException {
+        ObjectMapper mapper = switch (format) {
+            case "JSON" -> configure(JsonMapper.builder());
+            case "SMILE" -> configure(SmileMapper.builder());
+            case "CBOR" -> configure(CBORMapper.builder());
+            default -> throw new IllegalArgumentException("Unknown format " + format);
+        };
+        TypeReference<List<ProcessReceiptRequest>> batchType = new TypeReference<>() {};
+        reader = mapper.readerFor(ProcessReceiptRequest.class);
+        writer = mapper.writerFor(ProcessReceiptRequest.class);
+        batchReader = mapper.readerFor(batchType);
+        batchWriter = mapper.writerFor(batchType);
+
+        batch = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            batch.add(request(i));
+        }
+        request = batch.get(0);
+        encoded = writer.writeValueAsBytes(request);
+        encodedBatch = batchWriter.writeValueAsBytes(batch);
+        if (!request.equals(reader.readValue(encoded)) || !batch.equals(batchReader.readValue(encodedBatch))) {
+            throw new IllegalStateException("The requests do not survive a " + format + " round trip.");
+        }
+        System.out.printf("%n%s, %d items: %d bytes per receipt, %d bytes per batch of %d%n",
+                format, itemCount, encoded.length, encodedBatch.length, BATCH_SIZE);
+    }
+
+    @Benchmark
+    public ProcessReceiptRequest read() throws IOException {
+        return reader.readValue(encoded);
+    }
+
+    @Benchmark
+    public byte[] write() throws IOException {
+        return writer.writeValueAsBytes(request);
+    }
+
+    @Benchmark
+    public List<ProcessReceiptRequest> readBatch() throws IOException {
+        return batchReader.readValue(encodedBatch);
+    }
+
+    @Benchmark
+    public byte[] writeBatch() throws IOException {
+        return batchWriter.writeValueAsBytes(batch);
+    }
+
+    private static ObjectMapper configure(MapperBuilder<?, ?> builder) {
+        return builder.findAndAddModules()
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+    }
+
+    private ProcessReceiptRequest request(int receipt) {
+        List<Item> items = new ArrayList<>(itemCount);
+        long totalCents = 0;
+        for (int i = 0; i < itemCount; i++) {
+            long priceCents = 125 + 137L * i + receipt;
+            items.add(new Item("Emils Cheese Pizza " + i, priceCents));
+            totalCents += priceCents;
+        }
+        ProcessReceiptRequest request = new ProcessReceiptRequest();
+        request.setRetailer("M&M Corner Market");
+        request.setPurchaseDate(LocalDate.of(2022, 3, 20).plusDays(receipt));
+        request.setPurchaseTime(LocalTime.of(14, 33));
+        request.setItems(items);
+        request.setTotalCents(totalCents);
+        return request;
+    }
+}
@@ -0,0 +1,84 @@
+package com.fetch.receiptprocessorchallenge.json;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fetch.receiptprocessorchallenge.dtos.ProcessReceiptRequest;
+import com.fetch.receiptprocessorchallenge.models.Item;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson cost of a `ProcessReceiptRequest`: reading it from the request
+ * body bytes, writing it back and the full round trip, across item counts.
+ * The mapper is configured like Spring Boot's, so dates, times and cent
+ * amounts go through the same (de)serializers and formats.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ReceiptJsonBenchmark {
+    @Param({"1", "5", "25", "100"})
+    private int itemCount;
+
+    private ObjectReader reader;
+    private ObjectWriter writer;
+    private ProcessReceiptRequest request;
+    private byte[] json;
+
+    @Setup(Level.Trial)
+    public void createRequest() throws JsonProcessingException {
+        ObjectMapper mapper = JsonMapper.builder()
+                .findAndAddModules()
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+        reader = mapper.readerFor(ProcessReceiptRequest.class);
+        writer = mapper.writerFor(ProcessReceiptRequest.class);
+
+        List<Item> items = new ArrayList<>(itemCount);
+        long totalCents = 0;
+        for (int i = 0; i < itemCount; i++) {
+            long priceCents = 125 + 137L * i;
+            items.add(new Item("Emils Cheese Pizza " + i, priceCents));
+            totalCents += priceCents;
+        }
+        request = new ProcessReceiptRequest();
+        request.setRetailer("M&M Corner Market");
+        request.setPurchaseDate(LocalDate.of(2022, 3, 20));
+        request.setPurchaseTime(LocalTime.of(14, 33));
+        request.setItems(items);
+        request.setTotalCents(totalCents);
+        json = writer.writeValueAsBytes(request);
+        if (!request.equals(reader.readValue(json))) {
+            throw new IllegalStateException("The request does not survive a JSON round trip: "
+                    + new String(json, StandardCharsets.UTF_8));
+        }
+    }
+
+    @Benchmark
+    public ProcessReceiptRequest read() throws Exception {
+        return reader.readValue(json);
+    }
+
+    @Benchmark
+    public byte[] write() throws JsonProcessingException {
+        return writer.writeValueAsBytes(request);
+    }
+
+    @Benchmark
+    public ProcessReceiptRequest roundTrip() throws Exception {
+        return reader.readValue(writer.writeValueAsBytes(request));
+    }
+}
@@ -0,0 +1,60 @@
+package com.fetch.receiptprocessorchallenge.rules;
+
+import com.fetch.receiptprocessorchallenge.models.Item;
+import com.fetch.receiptprocessorchallenge.models.Receipt;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of scoring one receipt with the built-in rules, which is what
+ * `ReceiptService.calculatePoints` runs for every receipt, across item counts.
+ * The per-item rules dominate as receipts grow.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PointsScoringBenchmark {
+    private static final String[] DESCRIPTIONS = {
+            "Mountain Dew 12PK", "Emils Cheese Pizza", "Knorr Creamy Chicken",
+            "Doritos Nacho Cheese", "   Klarbrunn 12-PK 12 FL OZ  "};
+
+    @Param({"1", "5", "25", "100"})
+    private int itemCount;
+
+    private PointsRuleEngine engine;
+    private Receipt receipt;
+
+    @Setup(Level.Trial)
+    public void createReceipt() {
+        engine = PointsRuleEngine.withDefaultRules();
+        List<Item> items = new ArrayList<>(itemCount);
+        long totalCents = 0;
+        for (int i = 0; i < itemCount; i++) {
+            long priceCents = 125 + 137L * i;
+            items.add(new Item(DESCRIPTIONS[i % DESCRIPTIONS.length], priceCents));
+            totalCents += priceCents;
+        }
+        receipt = Receipt.builder()
+                .id(UUID.randomUUID())
+                .retailer("M&M Corner Market")
+                .purchaseDate(LocalDate.of(2022, 3, 21))
+                .purchaseTime(LocalTime.of(14, 33))
+                .items(items)
+                .totalCents(totalCents)
+                .build();
+    }
+
+    @Benchmark
+    public int score() {
+        return engine.score(receipt);
+    }
+}
@@ -0,0 +1,49 @@
+package com.fetch.receiptprocessorchallenge.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fetch.receiptprocessorchallenge.dao.ReactiveReceiptDAO;
+import com.fetch.receiptprocessorchallenge.dao.ReceiptDAO;
+import com.fetch.receiptprocessorchallenge.metrics.ReceiptMetrics;
+import com.fetch.receiptprocessorchallenge.rules.PointsRuleEngine;
+import com.fetch.receiptprocessorchallenge.validation.ReceiptValidator;
+
+/**
+ * Wires services for benchmarks outside of a Spring context.
+ * Service constructors are package-private, so benchmarks in other
+ * packages create them through this class.
+ */
+public final class BenchmarkServices {
+
+    private BenchmarkServices() {
+    }
+
+    public static ReceiptService receiptService(ReceiptDAO receiptDAO, ScoringMode scoringMode) {
+        return ReceiptService.builder(receiptDAO).scoringMode(scoringMode).build();
+    }
+
+    public static ReceiptService receiptService(ReceiptDAO receiptDAO, ScoringMode scoringMode,
+                                                ReceiptMetrics receiptMetrics) {
+        return ReceiptService.builder(receiptDAO)
+                .pointsRuleEngine(new PointsRuleEngine(PointsRuleEngine.defaultRules(), receiptMetrics))
+                .scoringMode(scoringMode)
+                .receiptMetrics(receiptMetrics)
+                .build();
+    }
+
+    public static ReceiptBatchService batchService(ReceiptService receiptService, ReceiptValidator validator,
+                                                   ReceiptDAO receiptDAO, int maxBatchSize) {
+        return new ReceiptBatchService(receiptService, validator, receiptDAO, 0, 256, maxBatchSize);
+    }
+
+    public static ReactiveReceiptService reactiveReceiptService(ReceiptService receiptService,
+                                                                ReceiptBatchService batchService,
+                                                                ReceiptValidator validator,
+                                                                ReactiveReceiptDAO reactiveReceiptDAO) {
+        return new ReactiveReceiptService(receiptService, batchService, validator, reactiveReceiptDAO,
+                ReceiptMetrics.disabled(), new ObjectMapper().findAndRegisterModules());
+    }
+
+    public static void shutdown(ReceiptBatchService batchService) {
+        batchService.shutdown();
+    }
+}
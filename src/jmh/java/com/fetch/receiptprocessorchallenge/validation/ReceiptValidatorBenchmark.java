@@ -0,0 +1,65 @@
+package com.fetch.receiptprocessorchallenge.validation;
+
+import com.fetch.receiptprocessorchallenge.dtos.ProcessReceiptRequest;
+import com.fetch.receiptprocessorchallenge.models.Item;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of validating a receipt on the process path, for a valid receipt
+ * and for receipts rejected by the first check (no retailer) and the last
+ * one (a total that does not match the items). Every check runs for every
+ * receipt, and a rejection costs one `ValidationResult`; with a baseline taken
+ * before validation stopped throwing, `jmhCompare` shows the difference.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ReceiptValidatorBenchmark {
+    private ReceiptValidator validator;
+    private ProcessReceiptRequest valid;
+    private ProcessReceiptRequest missingRetailer;
+    private ProcessReceiptRequest wrongTotal;
+
+    @Setup(Level.Trial)
+    public void createRequests() {
+        validator = new ReceiptValidator();
+        valid = request("M&M Corner Market", 1801);
+        missingRetailer = request(null, 1801);
+        wrongTotal = request("M&M Corner Market", 1802);
+    }
+
+    @Benchmark
+    public ValidationResult validReceipt() {
+        return validator.validate(valid);
+    }
+
+    @Benchmark
+    public ValidationResult missingRetailer() {
+        return validator.validate(missingRetailer);
+    }
+
+    @Benchmark
+    public ValidationResult wrongTotal() {
+        return validator.validate(wrongTotal);
+    }
+
+    private static ProcessReceiptRequest request(String retailer, long totalCents) {
+        ProcessReceiptRequest request = new ProcessReceiptRequest();
+        request.setRetailer(retailer);
+        request.setPurchaseDate(LocalDate.of(2022, 3, 20));
+        request.setPurchaseTime(LocalTime.of(14, 33));
+        request.setItems(List.of(
+                new Item("Gatorade", 225), new Item("Gatorade", 225),
+                new Item("Emils Cheese Pizza", 1225), new Item("Knorr Creamy Chicken", 126)));
+        request.setTotalCents(totalCents);
+        return request;
+    }
+}
@@ -0,0 +1,187 @@
+package com.fetch.receiptprocessorchallenge.loadtest;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps many mostly idle HTTP/1.1 keep-alive connections open to the server, the way
+ * a gateway in front of it does, so their cost to the server can be measured and
+ * the load runs see the server while it holds them.
+ *
+ * Every connection is a plain socket on its own virtual thread. It sends
+ * `GET /actuator/health` when opened and again every interval, so the server's
+ * keep-alive timeout does not close it, and is otherwise idle.
+ */
+final class IdleConnections implements AutoCloseable {
+    // Connections being opened at once, so the server's accept backlog does not overflow.
+    private static final int MAX_CONNECTING = 256;
+
+    private final String host;
+    private final int port;
+    private final Duration interval;
+    private final Duration timeout;
+    private final byte[] request;
+    private final ExecutorService threads = Executors.newVirtualThreadPerTaskExecutor();
+    private final Set<Socket> sockets = ConcurrentHashMap.newKeySet();
+    private final LongAdder failed = new LongAdder();
+    private final AtomicReference<String> lastError = new AtomicReference<>();
+    private volatile boolean closed;
+
+    IdleConnections(URI url, Duration interval, Duration timeout) {
+        this.host = url.getHost();
+        this.port = url.getPort() > 0 ? url.getPort() : 80;
+        this.interval = interval;
+        this.timeout = timeout;
+        this.request = ("GET " + url.getPath() + "/actuator/health HTTP/1.1\r\nHost: " + host + ":" + port + "\r\n\r\n")
+                .getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Opens the connections and waits until each has been answered once or has failed.
+     * @param count connections to open
+     * */
+    void open(int count) throws InterruptedException {
+        Semaphore connecting = new Semaphore(MAX_CONNECTING);
+        CountDownLatch answered = new CountDownLatch(count);
+        for (int i = 0; i < count; i++) {
+            connecting.acquire();
+            threads.execute(() -> hold(connecting, answered));
+        }
+        answered.await();
+    }
+
+    /**
+     * @return connections currently open and answered at least once
+     * */
+    int openCount() {
+        return sockets.size();
+    }
+
+    /**
+     * @return connections that could not be opened or were closed by the server
+     * */
+    long failedCount() {
+        return failed.sum();
+    }
+
+    String lastError() {
+        return lastError.get();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        for (Socket socket : sockets) {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // Closing anyway.
+            }
+        }
+        threads.shutdownNow();
+    }
+
+    private void hold(Semaphore connecting, CountDownLatch answered) {
+        boolean opened = false;
+        Socket socket = new Socket();
+        try (socket) {
+            socket.connect(new InetSocketAddress(host, port), (int) timeout.toMillis());
+            socket.setSoTimeout((int) timeout.toMillis());
+            InputStream in = new BufferedInputStream(socket.getInputStream());
+            OutputStream out = socket.getOutputStream();
+            while (!closed) {
+                out.write(request);
+                out.flush();
+                readResponse(in);
+                if (!opened) {
+                    opened = true;
+                    sockets.add(socket);
+                    connecting.release();
+                    answered.countDown();
+                }
+                Thread.sleep(interval.toMillis());
+            }
+        } catch (IOException e) {
+            if (!closed) {
+                failed.increment();
+                lastError.set(e.toString());
+            }
+        } catch (InterruptedException e) {
+            // Closed.
+        } finally {
+            sockets.remove(socket);
+            if (!opened) {
+                connecting.release();
+                answered.countDown();
+            }
+        }
+    }
+
+    /**
+     * Reads one HTTP/1.1 response, with a `Content-Length` or chunked body, and discards it.
+     * */
+    private static void readResponse(InputStream in) throws IOException {
+        String status = readLine(in);
+        if (!status.startsWith("HTTP/1.1 200")) {
+            throw new IOException("Unexpected response " + status);
+        }
+        long contentLength = 0;
+        boolean chunked = false;
+        for (String header = readLine(in); !header.isEmpty(); header = readLine(in)) {
+            String lower = header.toLowerCase(Locale.ROOT);
+            if (lower.startsWith("content-length:")) {
+                contentLength = Long.parseLong(header.substring("content-length:".length()).trim());
+            } else if (lower.startsWith("transfer-encoding:") && lower.contains("chunked")) {
+                chunked = true;
+            }
+        }
+        if (!chunked) {
+            in.skipNBytes(contentLength);
+            return;
+        }
+        for (long size = chunkSize(readLine(in)); size > 0; size = chunkSize(readLine(in))) {
+            in.skipNBytes(size);
+            readLine(in);
+        }
+        // Trailers, up to the blank line that ends the response.
+        while (!readLine(in).isEmpty()) {
+            // Ignored.
+        }
+    }
+
+    private static long chunkSize(String line) {
+        int extension = line.indexOf(';');
+        return Long.parseLong((extension < 0 ? line : line.substring(0, extension)).trim(), 16);
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream(64);
+        for (int b = in.read(); b != '\n'; b = in.read()) {
+            if (b < 0) {
+                throw new EOFException("Connection closed by the server");
+            }
+            if (b != '\r') {
+                line.write(b);
+            }
+        }
+        return line.toString(StandardCharsets.US_ASCII);
+    }
+}
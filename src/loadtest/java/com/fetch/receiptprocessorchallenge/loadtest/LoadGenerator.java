@@ -0,0 +1,400 @@
+package com.fetch.receiptprocessorchallenge.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramLogWriter;
+import org.HdrHistogram.Recorder;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-loop HTTP load generator for a running receipt processor.
+ *
+ * For every configured rate, requests are started on a fixed schedule, one every
+ * 1/rate seconds, whether or not earlier ones have completed. A request is either a
+ * POST of a receipt to `/receipts/process` or, with probability `--read-ratio`, a GET
+ * of the points of a receipt saved earlier in the run. Latency is measured from the
+ * time the schedule says a request should start, not from when it was actually sent,
+ * so a server (or client) that falls behind shows up as queueing delay instead of
+ * silently lowering the offered load (coordinated omission).
+ *
+ * With `--revalidate`, a GET of points read before sends the `ETag` it got back as
+ * `If-None-Match`, like a client or CDN cache would, and a 304 counts as a success.
+ * `--hot-ids` limits the reads to the most recently saved receipts, so repeat reads of
+ * the same receipts, which these caches and the server's points cache serve, are common.
+ *
+ * Latencies are recorded in HdrHistograms per endpoint and reported as a percentile
+ * distribution with the achieved throughput. Stepping through increasing rates with
+ * `--rates` shows where each endpoint saturates: throughput stops following the rate
+ * and the tail latency climbs.
+ *
+ * With `--idle-connections`, that many mostly idle keep-alive connections are opened
+ * first and held during the whole run, as a gateway in front of the service would
+ * hold them. The growth of the server's memory and thread count while opening them is
+ * read from its `/actuator/prometheus` endpoint and reported per connection.
+ *
+ * Run with `./gradlew loadTest --args="--rates=1000,5000,10000 --read-ratio=0.8"`.
+ */
+public final class LoadGenerator {
+    private static final int KNOWN_IDS = 1 << 16;
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+    private final LoadTestOptions options;
+    private final ReceiptSource receipts;
+    private final HttpClient client;
+    private final ObjectMapper mapper = new ObjectMapper();
+    // Ids of receipts saved during the run, overwritten in a ring once full.
+    private final AtomicReferenceArray<String> knownIds = new AtomicReferenceArray<>(KNOWN_IDS);
+    // The ETag of the last points read of the receipt in the same slot, with --revalidate.
+    private final AtomicReferenceArray<String> knownEtags = new AtomicReferenceArray<>(KNOWN_IDS);
+    private final AtomicLong saved = new AtomicLong();
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    LoadGenerator(LoadTestOptions options) {
+        this.options = options;
+        this.receipts = options.replay == null ? ReceiptSource.synthetic() : ReceiptSource.replay(options.replay);
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(options.timeout)
+                .build();
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        LoadTestOptions options;
+        try {
+            options = LoadTestOptions.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(LoadTestOptions.USAGE);
+            System.exit(2);
+            return;
+        }
+        new LoadGenerator(options).run();
+    }
+
+    void run() throws IOException, InterruptedException {
+        IdleConnections idleConnections = options.idleConnections > 0 ? openIdleConnections() : null;
+        try {
+            List<Step> steps = new ArrayList<>();
+            for (double rate : options.rates) {
+                Step step = runStep(rate);
+                step.report(System.out);
+                steps.add(step);
+            }
+            if (options.histogramLog != null) {
+                writeHistogramLog(steps);
+            }
+        } finally {
+            if (idleConnections != null) {
+                System.out.printf("%d of %d idle connections were still open at the end%n",
+                        idleConnections.openCount(), options.idleConnections);
+                idleConnections.close();
+            }
+        }
+    }
+
+    private IdleConnections openIdleConnections() throws InterruptedException {
+        ServerStats before = ServerStats.read(client, options);
+        IdleConnections idleConnections = new IdleConnections(options.url, options.idleInterval, options.timeout);
+        idleConnections.open(options.idleConnections);
+        int open = idleConnections.openCount();
+        System.out.printf("Opened %d idle keep-alive connections, %d failed%n", open, idleConnections.failedCount());
+        if (idleConnections.lastError() != null) {
+            System.out.printf("  last error: %s%n", idleConnections.lastError());
+        }
+        ServerStats after = ServerStats.read(client, options);
+        if (before == null || after == null) {
+            System.out.printf("Server memory is not reported, %s/actuator/prometheus cannot be read%n%n", options.url);
+        } else if (open > 0) {
+            // Heap use moves with garbage collection too, so compare several runs before reading much into it.
+            System.out.printf("Server while holding them: heap %+.1f MB, non-heap %+.1f MB, %+d threads "
+                            + "(%.1f KB of memory per connection)%n%n",
+                    (after.heapBytes - before.heapBytes) / 1e6, (after.nonHeapBytes - before.nonHeapBytes) / 1e6,
+                    after.threads - before.threads,
+                    (after.heapBytes + after.nonHeapBytes - before.heapBytes - before.nonHeapBytes) / 1e3 / open);
+        }
+        return idleConnections;
+    }
+
+    private Step runStep(double rate) {
+        System.out.printf("Running %.0f requests/s for %d s after a %d s warm-up against %s%n",
+                rate, options.duration.toSeconds(), options.warmup.toSeconds(), options.url);
+        long warmupNanos = options.warmup.toNanos();
+        long totalNanos = warmupNanos + options.duration.toNanos();
+        double intervalNanos = TimeUnit.SECONDS.toNanos(1) / rate;
+        long start = System.nanoTime();
+        Step warmup = new Step(rate, start, warmupNanos);
+        Step step = new Step(rate, start + warmupNanos, options.duration.toNanos());
+        for (long i = 0; ; i++) {
+            // Computed from the start every time, so rounding never adds up to drift.
+            long offset = (long) (i * intervalNanos);
+            if (offset >= totalNanos) {
+                break;
+            }
+            long intendedStart = start + offset;
+            long wait = intendedStart - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            send(intendedStart, offset < warmupNanos ? warmup : step);
+        }
+        awaitInFlight();
+        return step;
+    }
+
+    private void send(long intendedStart, Step step) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String id = null;
+        int slot = -1;
+        long savedCount = saved.get();
+        if (random.nextDouble() < options.readRatio && savedCount > 0) {
+            // One of the most recently saved receipts, counting back from the last one.
+            int window = options.hotIds > 0 ? Math.min(options.hotIds, KNOWN_IDS) : KNOWN_IDS;
+            slot = (int) ((savedCount - 1 - random.nextInt((int) Math.min(savedCount, window))) & (KNOWN_IDS - 1));
+            id = knownIds.get(slot);
+        }
+        boolean read = id != null;
+        Endpoint endpoint = read ? step.points : step.process;
+        HttpRequest request = read
+                ? pointsRequest(id, options.revalidate ? knownEtags.get(slot) : null)
+                : HttpRequest.newBuilder(URI.create(options.url + "/receipts/process"))
+                        .timeout(options.timeout)
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofByteArray(receipts.next()))
+                        .build();
+        if (inFlight.incrementAndGet() > options.maxInFlight) {
+            inFlight.decrementAndGet();
+            endpoint.dropped.increment();
+            return;
+        }
+        String readId = id;
+        int readSlot = slot;
+        client.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray()).whenComplete((response, failure) -> {
+            long completed = System.nanoTime();
+            endpoint.latency.recordValue(completed - intendedStart);
+            step.lastCompletion.accumulateAndGet(completed, Math::max);
+            inFlight.decrementAndGet();
+            if (failure != null) {
+                endpoint.fail(failure.toString());
+            } else if (read && options.revalidate && response.statusCode() == 304) {
+                endpoint.succeeded.increment();
+                endpoint.notModified.increment();
+            } else if (response.statusCode() != 200) {
+                endpoint.fail("HTTP " + response.statusCode() + ": " + new String(response.body()));
+            } else {
+                endpoint.succeeded.increment();
+                if (!read) {
+                    remember(response.body());
+                } else if (options.revalidate) {
+                    rememberEtag(readSlot, readId, response);
+                }
+            }
+        });
+    }
+
+    private HttpRequest pointsRequest(String id, String etag) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(options.url + "/receipts/" + id + "/points"))
+                .timeout(options.timeout)
+                .GET();
+        if (etag != null) {
+            builder.header("If-None-Match", etag);
+        }
+        return builder.build();
+    }
+
+    private void remember(byte[] body) {
+        try {
+            String id = mapper.readTree(body).path("id").asText(null);
+            if (id != null) {
+                int slot = (int) (saved.getAndIncrement() & (KNOWN_IDS - 1));
+                // Cleared first, so the new receipt is not read with the tag of the one it replaces.
+                knownEtags.set(slot, null);
+                knownIds.set(slot, id);
+            }
+        } catch (IOException e) {
+            // The POST is still counted as successful; its receipt is just never read back.
+        }
+    }
+
+    private void rememberEtag(int slot, String id, HttpResponse<byte[]> response) {
+        response.headers().firstValue("ETag").ifPresent(etag -> {
+            // The slot may have been handed to a newer receipt while the read was in flight.
+            if (id.equals(knownIds.get(slot))) {
+                knownEtags.set(slot, etag);
+            }
+        });
+    }
+
+    private void awaitInFlight() {
+        long deadline = System.nanoTime() + options.timeout.toNanos() + TimeUnit.SECONDS.toNanos(1);
+        while (inFlight.get() > 0 && System.nanoTime() < deadline) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(10));
+        }
+    }
+
+    private void writeHistogramLog(List<Step> steps) throws IOException {
+        try (PrintStream out = new PrintStream(Files.newOutputStream(options.histogramLog))) {
+            HistogramLogWriter writer = new HistogramLogWriter(out);
+            writer.outputLogFormatVersion();
+            writer.outputComment("Latencies in nanoseconds, tagged with endpoint@rate");
+            writer.outputLegend();
+            for (Step step : steps) {
+                for (Endpoint endpoint : List.of(step.process, step.points)) {
+                    Histogram histogram = endpoint.histogram();
+                    histogram.setTag(String.format("%s@%.0f", endpoint.tag, step.rate));
+                    writer.outputIntervalHistogram(histogram);
+                }
+            }
+        }
+        System.out.printf("Wrote histograms to %s%n", options.histogramLog);
+    }
+
+    /**
+     * Memory in use and live threads of the server JVM, from its Prometheus endpoint.
+     * */
+    private static final class ServerStats {
+        long heapBytes;
+        long nonHeapBytes;
+        long threads;
+
+        /**
+         * @return the current stats, or null when the endpoint cannot be read
+         * */
+        static ServerStats read(HttpClient client, LoadTestOptions options) throws InterruptedException {
+            HttpRequest request = HttpRequest.newBuilder(URI.create(options.url + "/actuator/prometheus"))
+                    .timeout(options.timeout)
+                    .GET()
+                    .build();
+            HttpResponse<String> response;
+            try {
+                response = client.send(request, HttpResponse.BodyHandlers.ofString());
+            } catch (IOException e) {
+                return null;
+            }
+            if (response.statusCode() != 200) {
+                return null;
+            }
+            ServerStats stats = new ServerStats();
+            for (String line : response.body().split("\n")) {
+                if (line.startsWith("jvm_memory_used_bytes{")) {
+                    long bytes = (long) Double.parseDouble(line.substring(line.lastIndexOf(' ') + 1));
+                    if (line.contains("area=\"heap\"")) {
+                        stats.heapBytes += bytes;
+                    } else {
+                        stats.nonHeapBytes += bytes;
+                    }
+                } else if (line.startsWith("jvm_threads_live_threads ")) {
+                    stats.threads = (long) Double.parseDouble(line.substring(line.lastIndexOf(' ') + 1));
+                }
+            }
+            return stats;
+        }
+    }
+
+    /**
+     * Results of one rate.
+     * */
+    private static final class Step {
+        final double rate;
+        final long startNanos;
+        final long durationNanos;
+        final AtomicLong lastCompletion = new AtomicLong(Long.MIN_VALUE);
+        final Endpoint process = new Endpoint("process", "POST /receipts/process");
+        final Endpoint points = new Endpoint("points", "GET /receipts/{id}/points");
+
+        Step(double rate, long startNanos, long durationNanos) {
+            this.rate = rate;
+            this.startNanos = startNanos;
+            this.durationNanos = durationNanos;
+        }
+
+        void report(PrintStream out) {
+            // A saturated service completes the scheduled requests late, which stretches the step.
+            long elapsedNanos = lastCompletion.get() == Long.MIN_VALUE
+                    ? durationNanos
+                    : Math.max(durationNanos, lastCompletion.get() - startNanos);
+            double seconds = elapsedNanos / 1e9;
+            double scheduledSeconds = durationNanos / 1e9;
+            long offered = 0;
+            long succeeded = 0;
+            for (Endpoint endpoint : List.of(process, points)) {
+                Histogram histogram = endpoint.histogram();
+                offered += histogram.getTotalCount() + endpoint.dropped.sum();
+                succeeded += endpoint.succeeded.sum();
+                out.printf("%n%s: %d completed (%.1f/s), %d errors, %d dropped%n", endpoint.name,
+                        histogram.getTotalCount(), histogram.getTotalCount() / seconds,
+                        endpoint.errors.sum(), endpoint.dropped.sum());
+                if (endpoint.notModified.sum() > 0) {
+                    out.printf("  %d answered 304 Not Modified (%.1f%% of completed)%n", endpoint.notModified.sum(),
+                            100.0 * endpoint.notModified.sum() / histogram.getTotalCount());
+                }
+                if (endpoint.lastError.get() != null) {
+                    out.printf("  last error: %s%n", endpoint.lastError.get());
+                }
+                if (histogram.getTotalCount() == 0) {
+                    continue;
+                }
+                out.printf("  latency ms: p50 %.3f, p99 %.3f, p99.9 %.3f, max %.3f%n",
+                        histogram.getValueAtPercentile(50) / NANOS_PER_MILLI,
+                        histogram.getValueAtPercentile(99) / NANOS_PER_MILLI,
+                        histogram.getValueAtPercentile(99.9) / NANOS_PER_MILLI,
+                        histogram.getMaxValue() / NANOS_PER_MILLI);
+                histogram.outputPercentileDistribution(out, 5, NANOS_PER_MILLI);
+            }
+            double throughput = succeeded / seconds;
+            out.printf("%nOffered %.1f requests/s, %.1f requests/s succeeded%s%n%n", offered / scheduledSeconds,
+                    throughput, throughput < 0.95 * rate ? " - the service is saturated" : "");
+        }
+    }
+
+    /**
+     * Latency and outcome counts of one endpoint at one rate; updated from HTTP client threads.
+     * */
+    private static final class Endpoint {
+        final String tag;
+        final String name;
+        final Recorder latency = new Recorder(3);
+        final LongAdder succeeded = new LongAdder();
+        final LongAdder errors = new LongAdder();
+        final LongAdder dropped = new LongAdder();
+        final LongAdder notModified = new LongAdder();
+        final AtomicReference<String> lastError = new AtomicReference<>();
+        private Histogram histogram;
+
+        Endpoint(String tag, String name) {
+            this.tag = tag;
+            this.name = name;
+        }
+
+        void fail(String error) {
+            errors.increment();
+            lastError.set(error);
+        }
+
+        /**
+         * @return every latency recorded, collected on the first call once the step is over
+         * */
+        Histogram histogram() {
+            if (histogram == null) {
+                histogram = latency.getIntervalHistogram();
+            }
+            return histogram;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.fetch.receiptprocessorchallenge.loadtest;
+
+import java.net.URI;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+
+/**
+ * Command line options of the `LoadGenerator`, given as `--name=value`.
+ */
+final class LoadTestOptions {
+    static final String USAGE = String.join(System.lineSeparator(),
+            "Options (all optional):",
+            "  --url=http://localhost:8080   base URL of the running instance",
+            "  --rates=1000                  comma-separated request rates per second, run one after another",
+            "  --duration-seconds=30         measured time per rate",
+            "  --warmup-seconds=5            unmeasured time at the start of every rate",
+            "  --read-ratio=0.5              share of requests that GET points instead of POSTing a receipt",
+            "  --hot-ids=0                   GET points only of this many most recently saved receipts, 0 for the last 65536",
+            "  --revalidate=false            send the ETag of an earlier read as If-None-Match, and count 304 as success",
+            "  --replay=receipts.jsonl       POST the receipts in this NDJSON file, in a loop, instead of synthetic ones",
+            "  --timeout-seconds=10          time after which a request counts as failed",
+            "  --max-in-flight=10000         requests in flight after which new ones are not sent but counted as dropped",
+            "  --histogram-log=latency.hlog  also write the histograms in HdrHistogram log format",
+            "  --idle-connections=0          keep this many mostly idle keep-alive connections open during the run",
+            "  --idle-interval-seconds=10    how often each idle connection sends a request, to outlast keep-alive timeouts");
+
+    URI url = URI.create("http://localhost:8080");
+    double[] rates = {1000};
+    Duration duration = Duration.ofSeconds(30);
+    Duration warmup = Duration.ofSeconds(5);
+    double readRatio = 0.5;
+    int hotIds;
+    boolean revalidate;
+    Path replay;
+    Duration timeout = Duration.ofSeconds(10);
+    int maxInFlight = 10_000;
+    Path histogramLog;
+    int idleConnections;
+    Duration idleInterval = Duration.ofSeconds(10);
+
+    static LoadTestOptions parse(String[] args) {
+        LoadTestOptions options = new LoadTestOptions();
+        for (String arg : args) {
+            int equals = arg.indexOf('=');
+            if (!arg.startsWith("--") || equals < 0) {
+                throw new IllegalArgumentException(String.format("Option %s must be given as --name=value.", arg));
+            }
+            String name = arg.substring(2, equals);
+            String value = arg.substring(equals + 1);
+            try {
+                switch (name) {
+                    case "url" -> options.url = URI.create(value.endsWith("/") ? value.substring(0, value.length() - 1) : value);
+                    case "rates" -> options.rates = Arrays.stream(value.split(",")).mapToDouble(Double::parseDouble).toArray();
+                    case "duration-seconds" -> options.duration = Duration.ofSeconds(Long.parseLong(value));
+                    case "warmup-seconds" -> options.warmup = Duration.ofSeconds(Long.parseLong(value));
+                    case "read-ratio" -> options.readRatio = Double.parseDouble(value);
+                    case "hot-ids" -> options.hotIds = Integer.parseInt(value);
+                    case "revalidate" -> options.revalidate = parseBoolean(name, value);
+                    case "replay" -> options.replay = Path.of(value);
+                    case "timeout-seconds" -> options.timeout = Duration.ofSeconds(Long.parseLong(value));
+                    case "max-in-flight" -> options.maxInFlight = Integer.parseInt(value);
+                    case "histogram-log" -> options.histogramLog = Path.of(value);
+                    case "idle-connections" -> options.idleConnections = Integer.parseInt(value);
+                    case "idle-interval-seconds" -> options.idleInterval = Duration.ofSeconds(Long.parseLong(value));
+                    default -> throw new IllegalArgumentException(String.format("Unknown option --%s.", name));
+                }
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException(String.format("Option --%s must be a number, not %s.", name, value));
+            }
+        }
+        if (Arrays.stream(options.rates).anyMatch(rate -> rate <= 0)) {
+            throw new IllegalArgumentException("Rates must be greater than 0.");
+        }
+        if (options.readRatio < 0 || options.readRatio > 1) {
+            throw new IllegalArgumentException("Read ratio must be between 0 and 1.");
+        }
+        if (options.hotIds < 0) {
+            throw new IllegalArgumentException("Hot ids must not be negative.");
+        }
+        if (options.duration.isZero() || options.duration.isNegative() || options.warmup.isNegative()) {
+            throw new IllegalArgumentException("Duration must be greater than 0 and warm-up must not be negative.");
+        }
+        if (options.maxInFlight <= 0) {
+            throw new IllegalArgumentException("Max in flight must be greater than 0.");
+        }
+        if (options.idleConnections < 0 || options.idleInterval.isZero() || options.idleInterval.isNegative()) {
+            throw new IllegalArgumentException("Idle connections must not be negative and their interval must be greater than 0.");
+        }
+        return options;
+    }
+
+    private static boolean parseBoolean(String name, String value) {
+        if (!value.equals("true") && !value.equals("false")) {
+            throw new IllegalArgumentException(String.format("Option --%s must be true or false, not %s.", name, value));
+        }
+        return Boolean.parseBoolean(value);
+    }
+}
@@ -0,0 +1,78 @@
+package com.fetch.receiptprocessorchallenge.loadtest;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Supplies the JSON bodies POSTed to `/receipts/process`.
+ * Only called from the pacing thread, so implementations need not be thread-safe.
+ */
+interface ReceiptSource {
+    byte[] next();
+
+    /**
+     * @return random receipts that pass validation, with 1 to 10 items
+     * */
+    static ReceiptSource synthetic() {
+        String[] retailers = {"Target", "M&M Corner Market", "Walgreens", "Whole Foods 365", "7-Eleven"};
+        String[] descriptions = {"Mountain Dew 12PK", "Emils Cheese Pizza", "Knorr Creamy Chicken",
+                "Doritos Nacho Cheese", "Klarbrunn 12-PK 12 FL OZ", "Gatorade", "Pepsi - 12-oz"};
+        LocalDate firstDay = LocalDate.of(2022, 1, 1);
+        return () -> {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            StringBuilder json = new StringBuilder(512)
+                    .append("{\"retailer\":\"").append(retailers[random.nextInt(retailers.length)])
+                    .append("\",\"purchaseDate\":\"").append(firstDay.plusDays(random.nextInt(365)))
+                    .append(String.format("\",\"purchaseTime\":\"%02d:%02d\",\"items\":[",
+                            random.nextInt(24), random.nextInt(60)));
+            long totalCents = 0;
+            int itemCount = 1 + random.nextInt(10);
+            for (int i = 0; i < itemCount; i++) {
+                long priceCents = 1 + random.nextInt(5_000);
+                totalCents += priceCents;
+                json.append(i == 0 ? "" : ",")
+                        .append("{\"shortDescription\":\"").append(descriptions[random.nextInt(descriptions.length)])
+                        .append("\",\"price\":\"").append(amount(priceCents)).append("\"}");
+            }
+            json.append("],\"total\":\"").append(amount(totalCents)).append("\"}");
+            return json.toString().getBytes(StandardCharsets.UTF_8);
+        };
+    }
+
+    /**
+     * @param file NDJSON file with one receipt per line, as accepted by `/receipts/import`
+     * @return the receipts of the file, starting over after the last one
+     * */
+    static ReceiptSource replay(Path file) {
+        List<byte[]> receipts = new ArrayList<>();
+        try {
+            for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                if (!line.isBlank()) {
+                    receipts.add(line.getBytes(StandardCharsets.UTF_8));
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(String.format("Receipts to replay cannot be read from %s.", file), e);
+        }
+        if (receipts.isEmpty()) {
+            throw new IllegalArgumentException(String.format("%s holds no receipts to replay.", file));
+        }
+        int[] next = {0};
+        return () -> {
+            byte[] receipt = receipts.get(next[0]);
+            next[0] = (next[0] + 1) % receipts.size();
+            return receipt;
+        };
+    }
+
+    private static String amount(long cents) {
+        return String.format("%d.%02d", cents / 100, cents % 100);
+    }
+}
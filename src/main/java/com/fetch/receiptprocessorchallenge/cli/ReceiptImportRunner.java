@@ -0,0 +1,66 @@
+package com.fetch.receiptprocessorchallenge.cli;
+
+import com.fetch.receiptprocessorchallenge.service.ImportSummary;
+import com.fetch.receiptprocessorchallenge.service.ReceiptImportService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Command line mode that imports an NDJSON file of receipts on startup, e.g.
+ * `java -jar app.jar --receipts.import.file=backfill.jsonl`.
+ *
+ * Per-line results are written to `receipts.import.output`
+ * (defaults to the input path with a `.results.jsonl` suffix).
+ * With `receipts.import.exit=true` the application exits once the import is done,
+ * otherwise it keeps serving the imported receipts.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty("receipts.import.file")
+public class ReceiptImportRunner implements ApplicationRunner {
+    private final ReceiptImportService _receiptImportService;
+    private final ConfigurableApplicationContext _context;
+    private final Path _input;
+    private final Path _output;
+    private final boolean _exit;
+
+    @Autowired
+    ReceiptImportRunner(ReceiptImportService receiptImportService,
+                        ConfigurableApplicationContext context,
+                        @Value("${receipts.import.file}") String input,
+                        @Value("${receipts.import.output:}") String output,
+                        @Value("${receipts.import.exit:false}") boolean exit) {
+        _receiptImportService = receiptImportService;
+        _context = context;
+        _input = Path.of(input);
+        _output = output.isEmpty() ? Path.of(input + ".results.jsonl") : Path.of(output);
+        _exit = exit;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws IOException {
+        log.info("Importing receipts from {}, writing results to {}", _input, _output);
+        ImportSummary summary;
+        try (InputStream in = Files.newInputStream(_input);
+             OutputStream out = new BufferedOutputStream(Files.newOutputStream(_output))) {
+            summary = _receiptImportService.importReceipts(in, out);
+        }
+        if (_exit) {
+            System.exit(SpringApplication.exit(_context, () -> summary.getFailed() == 0 ? 0 : 1));
+        }
+    }
+}
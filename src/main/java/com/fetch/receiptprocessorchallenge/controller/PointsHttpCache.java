@@ -0,0 +1,146 @@
+package com.fetch.receiptprocessorchallenge.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * HTTP caching of the points of a receipt, which never change once it is stored.
+ *
+ * A points response without a breakdown carries a strong `ETag` made from the receipt id
+ * and a long-lived `Cache-Control`, so clients and shared caches can keep it. A request
+ * whose `If-None-Match` lists that tag is answered with 304 from the id alone, before the
+ * store is read. The tag also names the format, since JSON and Smile bodies differ and
+ * the format is picked from `Accept`, which the responses therefore `Vary` on.
+ *
+ * A breakdown is calculated with the rules active now, which can be reloaded, so it gets
+ * no validators. Neither do errors. Receipts are not deleted, but without a write-ahead
+ * log a restart forgets them, while clients keep the points they cached.
+ */
+@Component
+class PointsHttpCache {
+    static final long DEFAULT_MAX_AGE_SECONDS = 31_536_000;
+    private static final String SMILE_SUFFIX = "-smile";
+
+    private final boolean _enabled;
+    private final CacheControl _cacheControl;
+
+    @Autowired
+    PointsHttpCache(@Value("${receipts.points.http-cache.enabled:true}") boolean enabled,
+                    @Value("${receipts.points.http-cache.max-age-seconds:" + DEFAULT_MAX_AGE_SECONDS + "}") long maxAgeSeconds) {
+        if (maxAgeSeconds < 0) {
+            throw new IllegalArgumentException("The points max age must not be negative.");
+        }
+        _enabled = enabled;
+        _cacheControl = CacheControl.maxAge(maxAgeSeconds, TimeUnit.SECONDS).cachePublic().immutable();
+    }
+
+    /**
+     * @return caching that adds no headers, for controllers created outside Spring
+     * */
+    static PointsHttpCache disabled() {
+        return new PointsHttpCache(false, 0);
+    }
+
+    /**
+     * @param id the parsed receipt id
+     * @param breakdown whether the points per rule were asked for
+     * @param accept the `Accept` header, or null
+     * @return the entity tag of the points response, or null when it is not cached
+     * */
+    String etag(UUID id, boolean breakdown, String accept) {
+        if (!_enabled || breakdown) {
+            return null;
+        }
+        // The canonical form, so every spelling of an id shares a tag.
+        return '"' + id.toString() + (prefersSmile(accept) ? SMILE_SUFFIX : "") + '"';
+    }
+
+    /**
+     * Weak comparison, as `If-None-Match` calls for, so a tag a cache weakened still matches.
+     * `*` is not taken as a match, since it would need the receipt to exist.
+     *
+     * @param ifNoneMatch the `If-None-Match` header, or null
+     * @param etag the entity tag of the response, or null when it has none
+     * @return true when the client already has the response
+     * */
+    static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null || etag == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            candidate = candidate.trim();
+            if (candidate.startsWith("W/")) {
+                candidate = candidate.substring(2);
+            }
+            if (candidate.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return 304 with the headers the full response would have had
+     * */
+    <T> ResponseEntity<T> notModified(String etag) {
+        return headers(ResponseEntity.status(HttpStatus.NOT_MODIFIED), etag).build();
+    }
+
+    /**
+     * @param etag the entity tag of the response, or null when it is not cached
+     * @return 200 with the caching headers
+     * */
+    ResponseEntity.BodyBuilder ok(String etag) {
+        return etag == null ? ResponseEntity.ok() : headers(ResponseEntity.ok(), etag);
+    }
+
+    private ResponseEntity.BodyBuilder headers(ResponseEntity.BodyBuilder builder, String etag) {
+        return builder.eTag(etag).cacheControl(_cacheControl).varyBy(HttpHeaders.ACCEPT);
+    }
+
+    /**
+     * Picks the format like content negotiation does with the JSON converter ahead of the
+     * Smile one: the most preferred type that either can write decides, and wildcards and
+     * an absent header get JSON.
+     *
+     * @return true when the response to this `Accept` header is written as Smile
+     * */
+    static boolean prefersSmile(String accept) {
+        if (accept == null || !accept.contains("smile")) {
+            return false;
+        }
+        List<MediaType> types;
+        try {
+            types = new ArrayList<>(MediaType.parseMediaTypes(accept));
+        } catch (InvalidMediaTypeException e) {
+            return false;
+        }
+        // A stable sort, so types of equal quality keep the order they were sent in.
+        types.sort(Comparator.comparingDouble(MediaType::getQualityValue).reversed());
+        for (MediaType type : types) {
+            if (type.getQualityValue() == 0) {
+                return false;
+            }
+            if (type.isCompatibleWith(MediaType.APPLICATION_JSON)) {
+                return false;
+            }
+            if (type.isCompatibleWith(SmileCodecConfiguration.APPLICATION_SMILE)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,250 @@
+package com.fetch.receiptprocessorchallenge.controller;
+
+import com.fetch.receiptprocessorchallenge.dao.ReceiptIds;
+import com.fetch.receiptprocessorchallenge.dtos.ImportLineResponse;
+import com.fetch.receiptprocessorchallenge.dtos.ProcessReceiptBatchResponse;
+import com.fetch.receiptprocessorchallenge.dtos.ProcessReceiptRequest;
+import com.fetch.receiptprocessorchallenge.dtos.ProcessReceiptResponse;
+import com.fetch.receiptprocessorchallenge.dtos.ReceiptPageResponse;
+import com.fetch.receiptprocessorchallenge.dtos.ReceiptPointResponse;
+import com.fetch.receiptprocessorchallenge.dtos.ReceiptPointsBatchResponse;
+import com.fetch.receiptprocessorchallenge.dtos.ReceiptStatsResponse;
+import com.fetch.receiptprocessorchallenge.metrics.ReceiptMetrics;
+import com.fetch.receiptprocessorchallenge.service.ReactiveReceiptService;
+import com.fetch.receiptprocessorchallenge.service.ReceiptDeduplicator;
+import com.fetch.receiptprocessorchallenge.validation.ReceiptValidator;
+import com.fetch.receiptprocessorchallenge.validation.ValidationResult;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * WebFlux counterpart of `ReceiptsController`, active with the `reactive` profile.
+ * Serves the same `/receipts` endpoints with the same validation, status codes and
+ * bodies, but returns `Mono`s and `Flux`es so requests are handled on Netty's event
+ * loops without a thread per request.
+ */
+@RestController
+@RequestMapping("/receipts")
+@Profile("reactive")
+public class ReactiveReceiptsController {
+    private final ReactiveReceiptService _reactiveReceiptService;
+    private final ReceiptValidator _receiptValidator;
+    private final ReceiptMetrics _receiptMetrics;
+    private final PointsHttpCache _pointsHttpCache;
+
+    @Autowired
+    ReactiveReceiptsController(ReactiveReceiptService reactiveReceiptService,
+                               ReceiptValidator receiptValidator,
+                               ReceiptMetrics receiptMetrics,
+                               PointsHttpCache pointsHttpCache) {
+        _reactiveReceiptService = reactiveReceiptService;
+        _receiptValidator = receiptValidator;
+        _receiptMetrics = receiptMetrics;
+        _pointsHttpCache = pointsHttpCache;
+    }
+
+    /**
+     * Calculates and retrieves the reward points for a given receipt ID,
+     * for a request without conditional or `Accept` headers.
+     *
+     * @param id The receipt ID, which must be a valid UUID string.
+     * @param breakdown Whether to include the points awarded by each active rule.
+     * @return The calculated receipt points.
+     */
+    public Mono<ResponseEntity<ReceiptPointResponse>> getReceiptPoints(String id, boolean breakdown) {
+        return getReceiptPoints(id, breakdown, null, null);
+    }
+
+    /**
+     * GET endpoint to calculate and retrieve the reward points
+     * for a given receipt ID, with the caching headers of `ReceiptsController`.
+     *
+     * @param id The receipt ID, which must be a valid UUID string.
+     * @param breakdown Whether to include the points awarded by each active rule.
+     * @param ifNoneMatch The optional `If-None-Match` header.
+     * @param accept The optional `Accept` header, which picks the format the `ETag` names.
+     * @return The calculated receipt points, or 304 when the client already has them.
+     */
+    @GetMapping("/{id}/points")
+    public Mono<ResponseEntity<ReceiptPointResponse>> getReceiptPoints(
+            @PathVariable String id,
+            @RequestParam(defaultValue = "false") boolean breakdown,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        long started = _receiptMetrics.start();
+        // Parsed once, for the validator, the entity tag and the store lookup.
+        UUID receiptId = ReceiptIds.parse(id);
+        ValidationResult validation = _receiptValidator.validateId(id, receiptId);
+        if (!validation.isValid()) {
+            _receiptMetrics.recordPointsRequest(started, false);
+            return Mono.just(ResponseEntity.badRequest().body(ReceiptPointResponse.builder()
+                    .errorMessage(validation.getErrorMessage()).errors(validation.getErrors()).build()));
+        }
+        String etag = _pointsHttpCache.etag(receiptId, breakdown, accept);
+        if (PointsHttpCache.matches(ifNoneMatch, etag)) {
+            _receiptMetrics.recordPointsRequest(started, true);
+            return Mono.just(_pointsHttpCache.notModified(etag));
+        }
+        return _reactiveReceiptService.getReceiptPoints(receiptId, breakdown)
+                .map(response -> {
+                    _receiptMetrics.recordPointsRequest(started, true);
+                    return _pointsHttpCache.ok(etag).body(response);
+                })
+                .onErrorResume(Exception.class, e -> {
+                    _receiptMetrics.recordPointsRequest(started, false);
+                    return Mono.just(ReceiptsController.errorResponse(e).body(ReceiptPointResponse.builder()
+                            .errorMessage(e.getMessage()).build()));
+                });
+    }
+
+    /**
+     * GET endpoint to retrieve the points of many receipts at once, such as
+     * `/receipts/points?ids=<id>,<id>`. The receipts are looked up in one pass over the store.
+     *
+     * @param ids The receipt IDs, at most `ReceiptService.MAX_POINTS_IDS`.
+     * @return The points of each receipt in request order, with the IDs no receipt has marked `notFound`.
+     */
+    @GetMapping("/points")
+    public Mono<ResponseEntity<ReceiptPointsBatchResponse>> getReceiptPointsBatch(@RequestParam List<String> ids) {
+        return _reactiveReceiptService.getReceiptPoints(ids)
+                .map(ResponseEntity::ok)
+                .onErrorResume(Exception.class, e -> Mono.just(ReceiptsController.errorResponse(e)
+                        .body(ReceiptPointsBatchResponse.builder().errorMessage(e.getMessage()).build())));
+    }
+
+    /**
+     * POST endpoint to retrieve the points of many receipts at once, for lists of IDs
+     * too long for a query string.
+     *
+     * @param ids The receipt IDs as a JSON array, at most `ReceiptService.MAX_POINTS_IDS`.
+     * @return The points of each receipt in request order, with the IDs no receipt has marked `notFound`.
+     */
+    @PostMapping("/points")
+    public Mono<ResponseEntity<ReceiptPointsBatchResponse>> postReceiptPointsBatch(@RequestBody List<String> ids) {
+        return getReceiptPointsBatch(ids);
+    }
+
+    /**
+     * GET endpoint to list the receipts purchased in a range, with their points, a page at a time.
+     * Receipts are read from a purchase time index, so a page costs the same however many are stored.
+     *
+     * @param from First purchase date (`2022-01-01`) or date and time (`2022-01-01T13:00`), optional.
+     * @param to Last purchase date or date and time, inclusive, optional.
+     * @param retailer Only the receipts of this retailer, optional.
+     * @param cursor The `next` cursor of the previous page, absent for the first page.
+     * @param pageSize Most receipts on the page.
+     * @return The page of receipts, ordered by purchase date and time.
+     */
+    @GetMapping
+    public Mono<ResponseEntity<ReceiptPageResponse>> findReceipts(
+            @RequestParam(required = false) String from,
+            @RequestParam(required = false) String to,
+            @RequestParam(required = false) String retailer,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "100") int pageSize) {
+        return _reactiveReceiptService.findReceipts(from, to, retailer, cursor, pageSize)
+                .map(ResponseEntity::ok)
+                .onErrorResume(Exception.class, e -> Mono.just(ResponseEntity.badRequest()
+                        .body(ReceiptPageResponse.builder().errorMessage(e.getMessage()).build())));
+    }
+
+    /**
+     * GET endpoint to retrieve receipt and points counts in total, per retailer,
+     * per purchase date and per hour of purchase. They are kept up to date as receipts
+     * are saved, so answering does not walk the stored receipts.
+     *
+     * @param retailers How many retailers to include, those with the most receipts.
+     * @return The receipt stats.
+     */
+    @GetMapping("/stats")
+    public Mono<ResponseEntity<ReceiptStatsResponse>> getStats(@RequestParam(defaultValue = "10") int retailers) {
+        return _reactiveReceiptService.getStats(retailers)
+                .map(ResponseEntity::ok)
+                .onErrorResume(Exception.class, e -> Mono.just(ResponseEntity.badRequest()
+                        .body(ReceiptStatsResponse.builder().errorMessage(e.getMessage()).build())));
+    }
+
+    /**
+     * Processes and stores a receipt sent without an `Idempotency-Key`.
+     *
+     * @param request The receipt data to be processed and saved.
+     * @return The processed receipt with a unique identifier.
+     */
+    public Mono<ResponseEntity<ProcessReceiptResponse>> processReceipt(ProcessReceiptRequest request) {
+        return processReceipt(request, null);
+    }
+
+    /**
+     * POST endpoint to process and store a receipt in the database.
+     * A retry carrying the same `Idempotency-Key` header, or in dedup mode the same receipt,
+     * returns the id of the receipt stored the first time instead of storing it again.
+     *
+     * @param request The receipt data to be processed and saved.
+     * @param idempotencyKey The optional `Idempotency-Key` header.
+     * @return The processed receipt with a unique identifier.
+     */
+    @PostMapping("/process")
+    public Mono<ResponseEntity<ProcessReceiptResponse>> processReceipt(
+            @RequestBody ProcessReceiptRequest request,
+            @RequestHeader(value = ReceiptDeduplicator.IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
+        long started = _receiptMetrics.start();
+        ValidationResult validation = _receiptValidator.validate(request);
+        _receiptMetrics.recordValidation(started);
+        if (!validation.isValid()) {
+            _receiptMetrics.recordProcessRequest(started, false);
+            return Mono.just(ResponseEntity.badRequest().body(ProcessReceiptResponse.builder()
+                    .errorMessage(validation.getErrorMessage()).errors(validation.getErrors()).build()));
+        }
+        return _reactiveReceiptService.processReceipt(request, idempotencyKey)
+                .map(response -> {
+                    _receiptMetrics.recordProcessRequest(started, true);
+                    return ResponseEntity.ok(response);
+                })
+                .onErrorResume(Exception.class, e -> {
+                    _receiptMetrics.recordProcessRequest(started, false);
+                    return Mono.just(ReceiptsController.errorResponse(e).body(ProcessReceiptResponse.builder()
+                            .errorMessage(e.getMessage()).build()));
+                });
+    }
+
+    /**
+     * POST endpoint to process and store many receipts in one request.
+     *
+     * Each receipt is validated independently, so the response carries
+     * either an id or an error message for every receipt, in input order.
+     *
+     * @param requests The receipts to be processed and saved, decoded as they arrive.
+     * @return The per-receipt results.
+     */
+    @PostMapping("/process/batch")
+    public Mono<ResponseEntity<ProcessReceiptBatchResponse>> processReceiptBatch(@RequestBody Flux<ProcessReceiptRequest> requests) {
+        return _reactiveReceiptService.processReceipts(requests)
+                .map(ResponseEntity::ok)
+                .onErrorResume(Exception.class, e -> Mono.just(ReceiptsController.errorResponse(e)
+                        .body(ProcessReceiptBatchResponse.builder().errorMessage(e.getMessage()).build())));
+    }
+
+    /**
+     * POST endpoint to bulk import receipts sent as NDJSON, one receipt per line.
+     *
+     * The body is decoded line by line and the result of each line, an id or an error message,
+     * is streamed back as NDJSON; lines are only read as fast as receipts are stored.
+     *
+     * @param lines The lines of the NDJSON request body.
+     * @return The per-line results.
+     */
+    @PostMapping(value = "/import", consumes = MediaType.APPLICATION_NDJSON_VALUE,
+            produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<ImportLineResponse> importReceipts(@RequestBody Flux<String> lines) {
+        return _reactiveReceiptService.importReceipts(lines);
+    }
+}
@@ -0,0 +1,21 @@
+package com.fetch.receiptprocessorchallenge.controller;
+
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+/**
+ * Runs the `reactive` profile on Netty. Tomcat is on the classpath for the servlet
+ * stack, and Spring Boot prefers it for a reactive application too unless a server
+ * factory is declared.
+ */
+@Configuration(proxyBeanMethods = false)
+@Profile("reactive")
+class ReactiveServerConfiguration {
+
+    @Bean
+    NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+        return new NettyReactiveWebServerFactory();
+    }
+}
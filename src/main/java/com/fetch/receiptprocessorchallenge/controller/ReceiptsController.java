@@ -1,153 +1,288 @@
 package com.fetch.receiptprocessorchallenge.controller;
 
+import com.fetch.receiptprocessorchallenge.dao.ReceiptIds;
+import com.fetch.receiptprocessorchallenge.dtos.ProcessReceiptBatchResponse;
 import com.fetch.receiptprocessorchallenge.dtos.ProcessReceiptRequest;
 import com.fetch.receiptprocessorchallenge.dtos.ProcessReceiptResponse;
+import com.fetch.receiptprocessorchallenge.dtos.ReceiptPageResponse;
 import com.fetch.receiptprocessorchallenge.dtos.ReceiptPointResponse;
-import com.fetch.receiptprocessorchallenge.models.Item;
+import com.fetch.receiptprocessorchallenge.dtos.ReceiptPointsBatchResponse;
+import com.fetch.receiptprocessorchallenge.dtos.ReceiptStatsResponse;
+import com.fetch.receiptprocessorchallenge.metrics.ReceiptMetrics;
+import com.fetch.receiptprocessorchallenge.service.ReceiptBatchService;
+import com.fetch.receiptprocessorchallenge.service.ReceiptDeduplicator;
+import com.fetch.receiptprocessorchallenge.service.ReceiptImportService;
 import com.fetch.receiptprocessorchallenge.service.ReceiptService;
+import com.fetch.receiptprocessorchallenge.service.ServiceOverloadedException;
+import com.fetch.receiptprocessorchallenge.validation.ReceiptValidator;
+import com.fetch.receiptprocessorchallenge.validation.ValidationResult;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-import java.time.LocalDate;
-import java.time.LocalTime;
-import java.time.format.DateTimeFormatter;
-import java.time.format.DateTimeParseException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
 import java.util.UUID;
 
 /**
  * Controller class for handling Receipt API endpoints.
  * Exposes endpoints under the `/receipts` path
  * for processing and retrieving receipt data.
+ * The latency of the single receipt endpoints is recorded in `ReceiptMetrics`.
+ * Invalid requests are answered from the validator's `ValidationResult` without
+ * throwing, with the first broken rule as `errorMessage` and all of them as `errors`.
+ * A receipt turned away by a full scoring queue, or points still being calculated after
+ * the configured wait, are answered with 503 and a `Retry-After` header.
+ * Points carry the caching headers of `PointsHttpCache`.
+ * With the `reactive` profile, `ReactiveReceiptsController` serves these endpoints instead.
  */
 @RestController
 @RequestMapping("/receipts")
+@Profile("!reactive")
 public class ReceiptsController {
     private final ReceiptService _receiptService;
-    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd");
-    private static final DateTimeFormatter TIME_FORMATTER = DateTimeFormatter.ofPattern("HH:mm");
+    private final ReceiptBatchService _receiptBatchService;
+    private final ReceiptImportService _receiptImportService;
+    private final ReceiptValidator _receiptValidator;
+    private final ReceiptMetrics _receiptMetrics;
+    private final PointsHttpCache _pointsHttpCache;
 
     @Autowired
-    ReceiptsController(ReceiptService receiptService) {
+    ReceiptsController(ReceiptService receiptService,
+                       ReceiptBatchService receiptBatchService,
+                       ReceiptImportService receiptImportService,
+                       ReceiptValidator receiptValidator,
+                       ReceiptMetrics receiptMetrics,
+                       PointsHttpCache pointsHttpCache) {
         _receiptService = receiptService;
+        _receiptBatchService = receiptBatchService;
+        _receiptImportService = receiptImportService;
+        _receiptValidator = receiptValidator;
+        _receiptMetrics = receiptMetrics;
+        _pointsHttpCache = pointsHttpCache;
     }
 
 
+    /**
+     * Calculates and retrieves the reward points for a given receipt ID,
+     * for a request without conditional or `Accept` headers.
+     *
+     * @param id The receipt ID, which must be a valid UUID string.
+     * @param breakdown Whether to include the points awarded by each active rule.
+     * @return The calculated receipt points.
+     */
+    public ResponseEntity<ReceiptPointResponse> getReceiptPoints(String id, boolean breakdown) {
+        return getReceiptPoints(id, breakdown, null, null);
+    }
+
     /**
      * GET endpoint to calculate and retrieve the reward points
      * for a given receipt ID.
+     * Points without a breakdown carry an `ETag`, and a request whose `If-None-Match`
+     * matches it is answered with 304 without reading the store.
      *
      * @param id The receipt ID, which must be a valid UUID string.
-     * @return The calculated receipt points.
+     * @param breakdown Whether to include the points awarded by each active rule.
+     * @param ifNoneMatch The optional `If-None-Match` header.
+     * @param accept The optional `Accept` header, which picks the format the `ETag` names.
+     * @return The calculated receipt points, or 304 when the client already has them.
      */
     @GetMapping("/{id}/points")
-    public ResponseEntity<ReceiptPointResponse> getReceiptPoints(@PathVariable String id) {
+    public ResponseEntity<ReceiptPointResponse> getReceiptPoints(
+            @PathVariable String id,
+            @RequestParam(defaultValue = "false") boolean breakdown,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        long started = _receiptMetrics.start();
+        // Parsed once, for the validator, the entity tag and the store lookup.
+        UUID receiptId = ReceiptIds.parse(id);
+        ValidationResult validation = _receiptValidator.validateId(id, receiptId);
+        if (!validation.isValid()) {
+            _receiptMetrics.recordPointsRequest(started, false);
+            return ResponseEntity.badRequest().body(ReceiptPointResponse.builder()
+                    .errorMessage(validation.getErrorMessage()).errors(validation.getErrors()).build());
+        }
+        String etag = _pointsHttpCache.etag(receiptId, breakdown, accept);
+        if (PointsHttpCache.matches(ifNoneMatch, etag)) {
+            _receiptMetrics.recordPointsRequest(started, true);
+            return _pointsHttpCache.notModified(etag);
+        }
         try {
-            validateGetReceiptPointRequest(id);
-            return ResponseEntity.ok(_receiptService.getReceiptPoints(id));
+            ReceiptPointResponse response = _receiptService.getReceiptPoints(receiptId, breakdown);
+            _receiptMetrics.recordPointsRequest(started, true);
+            return _pointsHttpCache.ok(etag).body(response);
         } catch (Exception e) {
-            return ResponseEntity.badRequest().body(ReceiptPointResponse.builder()
+            _receiptMetrics.recordPointsRequest(started, false);
+            return errorResponse(e).body(ReceiptPointResponse.builder()
+                    .errorMessage(e.getMessage()).build());
+        }
+    }
+
+    /**
+     * GET endpoint to retrieve the points of many receipts at once, such as
+     * `/receipts/points?ids=<id>,<id>`. The receipts are looked up in one pass over the store.
+     *
+     * @param ids The receipt IDs, at most `ReceiptService.MAX_POINTS_IDS`.
+     * @return The points of each receipt in request order, with the IDs no receipt has marked `notFound`.
+     */
+    @GetMapping("/points")
+    public ResponseEntity<ReceiptPointsBatchResponse> getReceiptPointsBatch(@RequestParam List<String> ids) {
+        try {
+            return ResponseEntity.ok(_receiptService.getReceiptPoints(ids));
+        } catch (Exception e) {
+            return errorResponse(e).body(ReceiptPointsBatchResponse.builder()
                     .errorMessage(e.getMessage()).build());
         }
     }
 
     /**
-     * Validates the `getReceiptPoint` request using the following logic:
-     * 1. Ensures the receipt ID is present.
-     * 2. Verifies that the provided ID is a valid UUID format.
+     * POST endpoint to retrieve the points of many receipts at once, for lists of IDs
+     * too long for a query string.
      *
-     * The receipt ID follows the UUID format for uniqueness and consistency.
+     * @param ids The receipt IDs as a JSON array, at most `ReceiptService.MAX_POINTS_IDS`.
+     * @return The points of each receipt in request order, with the IDs no receipt has marked `notFound`.
+     */
+    @PostMapping("/points")
+    public ResponseEntity<ReceiptPointsBatchResponse> postReceiptPointsBatch(@RequestBody List<String> ids) {
+        return getReceiptPointsBatch(ids);
+    }
+
+    /**
+     * GET endpoint to list the receipts purchased in a range, with their points, a page at a time.
+     * Receipts are read from a purchase time index, so a page costs the same however many are stored.
      *
-     * @param id The receipt ID to validate.
-     * @throws RuntimeException if the ID is missing or not a valid UUID.
+     * @param from First purchase date (`2022-01-01`) or date and time (`2022-01-01T13:00`), optional.
+     * @param to Last purchase date or date and time, inclusive, optional.
+     * @param retailer Only the receipts of this retailer, optional.
+     * @param cursor The `next` cursor of the previous page, absent for the first page.
+     * @param pageSize Most receipts on the page.
+     * @return The page of receipts, ordered by purchase date and time.
      */
-    private void validateGetReceiptPointRequest(String id) {
-        if (id == null) {
-            throw new RuntimeException("Id should be present.");
+    @GetMapping
+    public ResponseEntity<ReceiptPageResponse> findReceipts(
+            @RequestParam(required = false) String from,
+            @RequestParam(required = false) String to,
+            @RequestParam(required = false) String retailer,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "100") int pageSize) {
+        try {
+            return ResponseEntity.ok(_receiptService.findReceipts(from, to, retailer, cursor, pageSize));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(ReceiptPageResponse.builder()
+                    .errorMessage(e.getMessage()).build());
         }
+    }
+
+    /**
+     * GET endpoint to retrieve receipt and points counts in total, per retailer,
+     * per purchase date and per hour of purchase. They are kept up to date as receipts
+     * are saved, so answering does not walk the stored receipts.
+     *
+     * @param retailers How many retailers to include, those with the most receipts.
+     * @return The receipt stats.
+     */
+    @GetMapping("/stats")
+    public ResponseEntity<ReceiptStatsResponse> getStats(@RequestParam(defaultValue = "10") int retailers) {
         try {
-            UUID.fromString(id);
-        } catch (IllegalArgumentException e) {
-            throw new RuntimeException("The provided id is not a valid uuid.");
+            return ResponseEntity.ok(_receiptService.getStats(retailers));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(ReceiptStatsResponse.builder()
+                    .errorMessage(e.getMessage()).build());
         }
     }
 
+    /**
+     * Processes and stores a receipt sent without an `Idempotency-Key`.
+     *
+     * @param request The receipt data to be processed and saved.
+     * @return The processed receipt with a unique identifier.
+     */
+    public ResponseEntity<ProcessReceiptResponse> processReceipt(ProcessReceiptRequest request) {
+        return processReceipt(request, null);
+    }
+
     /**
      * POST endpoint to process and store a receipt in the database.
+     * A retry carrying the same `Idempotency-Key` header, or in dedup mode the same receipt,
+     * returns the id of the receipt stored the first time instead of storing it again.
      *
      * @param request The receipt data to be processed and saved.
+     * @param idempotencyKey The optional `Idempotency-Key` header.
      * @return The processed receipt with a unique identifier.
      */
     @PostMapping("/process")
-    public ResponseEntity<ProcessReceiptResponse> processReceipt(@RequestBody ProcessReceiptRequest request) {
+    public ResponseEntity<ProcessReceiptResponse> processReceipt(
+            @RequestBody ProcessReceiptRequest request,
+            @RequestHeader(value = ReceiptDeduplicator.IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
+        long started = _receiptMetrics.start();
+        ValidationResult validation = _receiptValidator.validate(request);
+        _receiptMetrics.recordValidation(started);
+        if (!validation.isValid()) {
+            _receiptMetrics.recordProcessRequest(started, false);
+            return ResponseEntity.badRequest().body(ProcessReceiptResponse.builder()
+                    .errorMessage(validation.getErrorMessage()).errors(validation.getErrors()).build());
+        }
         try {
-            validateProcessReceiptRequest(request);
-            return ResponseEntity.ok(_receiptService.processReceipt(request));
+            ProcessReceiptResponse response = _receiptService.processReceipt(request, idempotencyKey);
+            _receiptMetrics.recordProcessRequest(started, true);
+            return ResponseEntity.ok(response);
         } catch (Exception e) {
-            return ResponseEntity.badRequest().body(ProcessReceiptResponse.builder()
+            _receiptMetrics.recordProcessRequest(started, false);
+            return errorResponse(e).body(ProcessReceiptResponse.builder()
                     .errorMessage(e.getMessage()).build());
         }
     }
 
     /**
-     * Validates the `processReceipt` request based on the following criteria:
+     * POST endpoint to process and store many receipts in one request.
      *
-     * 1. Ensures the retailer name is provided and valid.
-     * 2. Validates the purchase date format (yyyy-MM-dd).
-     * 3. Validates the purchase time format (HH:mm).
-     * 4. Ensures at least one item is present in the receipt.
-     * 5. Validates that each item has a description and a price greater than zero.
-     * 6. Ensures the total amount is greater than zero.
-     * 7. Verifies that the total amount matches the sum of all item prices.
+     * Each receipt is validated independently, so the response carries
+     * either an id or an error message for every receipt, in input order.
      *
-     * @param request The receipt object to validate.
-     * @throws RuntimeException if any validation rule is violated.
+     * @param requests The receipts to be processed and saved.
+     * @return The per-receipt results.
      */
-    private void validateProcessReceiptRequest(ProcessReceiptRequest request) {
-        if (request.getRetailer() == null || request.getRetailer().isEmpty()) {
-            throw new IllegalArgumentException("Retailer name is required.");
-        }
-
-        if (request.getPurchaseDate() == null) {
-            throw new IllegalArgumentException("Purchase date is required.");
-        }
-        try {
-            LocalDate.parse(request.getPurchaseDate().toString(), DATE_FORMATTER);
-        } catch (DateTimeParseException e) {
-            throw new IllegalArgumentException("Purchase date must be in the format yyyy-MM-dd");
-        }
-
-        if (request.getPurchaseTime() == null) {
-            throw new IllegalArgumentException("Purchase time is required.");
-        }
+    @PostMapping("/process/batch")
+    public ResponseEntity<ProcessReceiptBatchResponse> processReceiptBatch(@RequestBody List<ProcessReceiptRequest> requests) {
         try {
-            LocalTime.parse(request.getPurchaseTime().toString(), TIME_FORMATTER);
-        } catch (DateTimeParseException e) {
-            throw new IllegalArgumentException("Purchase time must be in the format HH:mm");
-        }
-
-        if (request.getItems() == null || request.getItems().isEmpty()) {
-            throw new IllegalArgumentException("At least one item is required.");
-        }
-
-        double calculatedTotal = 0.0;
-
-        for (Item item : request.getItems()) {
-            if (item.getShortDescription() == null || item.getShortDescription().isEmpty()) {
-                throw new IllegalArgumentException("Item description is required.");
-            }
-            if (item.getPrice() == null || item.getPrice() < 0) {
-                throw new IllegalArgumentException("Item price must be greater than 0.");
-            }
-            calculatedTotal += item.getPrice();
+            return ResponseEntity.ok(_receiptBatchService.processReceipts(requests));
+        } catch (Exception e) {
+            return errorResponse(e).body(ProcessReceiptBatchResponse.builder()
+                    .errorMessage(e.getMessage()).build());
         }
+    }
 
-        if (request.getTotal() == null || request.getTotal() < 0) {
-            throw new IllegalArgumentException("Total amount must be greater than 0.");
-        }
+    /**
+     * POST endpoint to bulk import receipts sent as NDJSON, one receipt per line.
+     *
+     * The body is read line by line and the result of each line, an id or an error message,
+     * is streamed back as NDJSON while the import runs, so arbitrarily large files can be sent.
+     *
+     * @param body The NDJSON request body.
+     * @param response The response the per-line results are streamed to.
+     * @throws IOException if the body cannot be read or the results cannot be written.
+     */
+    @PostMapping(value = "/import", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public void importReceipts(InputStream body, HttpServletResponse response) throws IOException {
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        _receiptImportService.importReceipts(body, response.getOutputStream());
+    }
 
-        if (Math.abs(calculatedTotal - request.getTotal()) > 0.01) { // allow 0.01 error difference
-            throw new IllegalArgumentException("Total amount does not match the sum of item prices.");
+    /**
+     * @param e the error a request failed with
+     * @return 503 with a `Retry-After` header when the service is overloaded, 400 otherwise
+     */
+    static ResponseEntity.BodyBuilder errorResponse(Exception e) {
+        if (e instanceof ServiceOverloadedException overloaded) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(overloaded.getRetryAfterSeconds()));
         }
+        return ResponseEntity.badRequest();
     }
 }
@@ -0,0 +1,54 @@
+package com.fetch.receiptprocessorchallenge.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.boot.web.codec.CodecCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.json.Jackson2SmileDecoder;
+import org.springframework.http.codec.json.Jackson2SmileEncoder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+/**
+ * Lets the `/receipts` endpoints exchange Jackson Smile, a binary encoding of the same
+ * documents as JSON, with callers that send `Content-Type` or `Accept` set to
+ * `application/x-jackson-smile`. JSON stays the default for every other request.
+ *
+ * Spring registers a Smile converter on its own once Smile is on the classpath, but with a
+ * mapper of its own. These replace it with one built by Spring Boot's `Jackson2ObjectMapperBuilder`,
+ * so dates, times and amounts are written exactly like in JSON. On the servlet stack the bean
+ * takes the place of Spring's converter, after the JSON one; on the reactive stack it replaces
+ * the default Smile codecs, which also come after JSON.
+ */
+@Configuration(proxyBeanMethods = false)
+class SmileCodecConfiguration {
+    static final String APPLICATION_SMILE_VALUE = "application/x-jackson-smile";
+    static final MediaType APPLICATION_SMILE = MediaType.parseMediaType(APPLICATION_SMILE_VALUE);
+
+    @Bean
+    @Profile("!reactive")
+    MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2SmileHttpMessageConverter(smileMapper(builder));
+    }
+
+    @Bean
+    @Profile("reactive")
+    CodecCustomizer smileCodecCustomizer(Jackson2ObjectMapperBuilder builder) {
+        ObjectMapper mapper = smileMapper(builder);
+        return configurer -> {
+            configurer.defaultCodecs().jackson2SmileDecoder(new Jackson2SmileDecoder(mapper));
+            configurer.defaultCodecs().jackson2SmileEncoder(new Jackson2SmileEncoder(mapper));
+        };
+    }
+
+    /**
+     * @param builder Spring Boot's builder, a new one per injection point
+     * @return a Smile mapper configured like the application's JSON mapper
+     */
+    static ObjectMapper smileMapper(Jackson2ObjectMapperBuilder builder) {
+        return builder.factory(new SmileFactory()).build();
+    }
+}
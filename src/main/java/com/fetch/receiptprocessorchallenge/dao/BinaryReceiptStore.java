@@ -0,0 +1,89 @@
+package com.fetch.receiptprocessorchallenge.dao;
+
+import com.fetch.receiptprocessorchallenge.models.Receipt;
+
+import java.nio.ByteBuffer;
+import java.util.function.Consumer;
+
+/**
+ * Keeps every receipt as a compact `ReceiptCodec` record inside `SlabAllocator`
+ * slabs and decodes it only when it is read. This replaces the per-receipt
+ * object graph (boxed doubles, java.time objects, item list) with a single
+ * run of bytes that the garbage collector never has to trace.
+ *
+ * The primitive `UuidIndex` maps the two halves of a receipt id to its record
+ * address. A record is fully written before its address is published in the
+ * index, so readers never see a partial record.
+ */
+class BinaryReceiptStore implements ReceiptStore {
+    private final SlabAllocator slabs;
+    private final UuidIndex index;
+
+    BinaryReceiptStore(int initialCapacity, int segmentCount, int slabSize, boolean direct) {
+        slabs = new SlabAllocator(slabSize, direct);
+        index = new UuidIndex(initialCapacity, segmentCount);
+    }
+
+    @Override
+    public void save(Receipt receipt) {
+        byte[] record = ReceiptCodec.encode(receipt);
+        long address = slabs.allocate(record.length);
+        slabs.write(address, record);
+        index.put(receipt.getId().getMostSignificantBits(), receipt.getId().getLeastSignificantBits(), address);
+    }
+
+    @Override
+    public Receipt findById(long msb, long lsb) {
+        long address = index.get(msb, lsb);
+        if (address == UuidIndex.MISSING) {
+            return null;
+        }
+        return ReceiptCodec.decode(slabs.slab(address), SlabAllocator.offset(address));
+    }
+
+    @Override
+    public boolean contains(long msb, long lsb) {
+        return index.get(msb, lsb) != UuidIndex.MISSING;
+    }
+
+    @Override
+    public boolean savePoints(long msb, long lsb, int points) {
+        long address = index.get(msb, lsb);
+        // Slabs start empty and every record is a multiple of 4 bytes, so the points are aligned.
+        return address != UuidIndex.MISSING
+                && ReceiptCodec.memoizePoints(slabs.slab(address), SlabAllocator.offset(address), points);
+    }
+
+    @Override
+    public int size() {
+        return index.size();
+    }
+
+    @Override
+    public long estimatedMemoryBytes() {
+        return slabs.capacity() + index.tableBytes();
+    }
+
+    /**
+     * Walks the records slab by slab. The unused end of a slab, and space allocated
+     * but not written yet, reads as a zero length and ends the walk of that slab.
+     * */
+    @Override
+    public void forEach(Consumer<Receipt> action) {
+        long end = slabs.end();
+        int lastSlab = SlabAllocator.slabIndex(end);
+        for (int slabIndex = 0; slabIndex <= lastSlab; slabIndex++) {
+            ByteBuffer slab = slabs.slab((long) slabIndex << 32);
+            int limit = slabIndex == lastSlab ? SlabAllocator.offset(end) : slab.capacity();
+            int offset = 0;
+            while (offset + 4 <= limit) {
+                int length = ReceiptCodec.recordLength(slab, offset);
+                if (length <= 0) {
+                    break;
+                }
+                action.accept(ReceiptCodec.decode(slab, offset));
+                offset += length;
+            }
+        }
+    }
+}
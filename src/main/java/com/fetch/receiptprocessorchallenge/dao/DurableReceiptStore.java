@@ -0,0 +1,349 @@
+package com.fetch.receiptprocessorchallenge.dao;
+
+import com.fetch.receiptprocessorchallenge.models.Receipt;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Makes another `ReceiptStore` durable with a `WriteAheadLog` and optional `ReceiptSnapshot`s.
+ *
+ * On creation the newest snapshot in the log directory is memory-mapped and serves
+ * lookups right away, as a read-only tier behind the in-memory store; only the log
+ * segments written after it are replayed into memory. A background thread then pages
+ * the snapshot in, so early lookups are not slowed by disk reads for long.
+ *
+ * The recovered receipts are reported to a `Recovery` as they are recovered: those of
+ * the log while it is replayed, and those of the snapshot on the background thread, as
+ * the file holds them, so points memoized since it was opened are not reported twice.
+ *
+ * Every save is appended to the log as a `ReceiptCodec` record and applied to the
+ * in-memory store only once the log acknowledges it, so a receipt is never readable
+ * before it is as durable as configured. Memoized points are logged too, but without
+ * waiting, as losing them only means calculating them again, and only by the call that
+ * stored them.
+ *
+ * Snapshots are taken periodically in the background. Saves, and memoized points, hold
+ * a shared gate from append to apply, and a snapshot takes it exclusively only to roll the log to a new
+ * segment; every receipt logged in an earlier segment is then in memory, so the
+ * snapshot covers those segments and they are deleted once it is written.
+ */
+@Slf4j
+class DurableReceiptStore implements ReceiptStore {
+    private static final int POINTS_RECORD_SIZE = 20;
+    private static final String SNAPSHOT_PREFIX = "receipts-";
+
+    private final ReceiptStore store;
+    private final WriteAheadLog wal;
+    private final Path directory;
+    private final ReceiptSnapshot snapshot;
+    private final ReentrantReadWriteLock snapshotGate = new ReentrantReadWriteLock();
+    private final ScheduledExecutorService snapshotter;
+    private final Recovery recovery;
+
+    /**
+     * Told about the receipts recovered on creation. Calls come from the creating thread
+     * and the warm-up thread at the same time.
+     * */
+    interface Recovery {
+        /**
+         * A receipt recovered from the log or the snapshot, with the points it was saved with.
+         * */
+        void recovered(Receipt receipt);
+
+        /**
+         * Points recovered from the log for a receipt that was recovered without them.
+         * */
+        void scored(Receipt receipt, int points);
+
+        /**
+         * Every receipt has been recovered; called on creation when there is no snapshot.
+         * */
+        void warmed();
+    }
+
+    /**
+     * @param store in-memory store the log is replayed into
+     * @param wal the log, not replayed or started yet
+     * @param directory holding the log and the snapshots
+     * @param snapshotIntervalSeconds how often a snapshot is taken, 0 to never take one
+     * @param recovery told about the recovered receipts
+     * */
+    DurableReceiptStore(ReceiptStore store, WriteAheadLog wal, Path directory, long snapshotIntervalSeconds,
+                        Recovery recovery) {
+        this.store = store;
+        this.wal = wal;
+        this.directory = directory;
+        this.recovery = recovery;
+        deleteIncompleteSnapshots();
+        Path latest = latestSnapshot();
+        snapshot = latest == null ? null : ReceiptSnapshot.open(latest, true);
+        if (snapshot != null) {
+            log.info("Serving {} receipts from snapshot {}", snapshot.size(), latest);
+            Thread warmUp = new Thread(this::warmUp, "receipt-snapshot-warm-up");
+            warmUp.setDaemon(true);
+            warmUp.start();
+        }
+        wal.replay(snapshot == null ? 0 : snapshot.walSegment(), this::apply);
+        wal.start();
+        if (snapshot == null) {
+            recovery.warmed();
+        }
+        if (snapshotIntervalSeconds > 0) {
+            snapshotter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "receipt-snapshot");
+                thread.setDaemon(true);
+                return thread;
+            });
+            snapshotter.scheduleWithFixedDelay(this::snapshotQuietly, snapshotIntervalSeconds,
+                    snapshotIntervalSeconds, TimeUnit.SECONDS);
+        } else {
+            snapshotter = null;
+        }
+    }
+
+    @Override
+    public void save(Receipt receipt) {
+        byte[] record = ReceiptCodec.encode(receipt);
+        snapshotGate.readLock().lock();
+        try {
+            wal.awaitDurable(wal.append(WriteAheadLog.SAVE, record));
+            store.save(receipt);
+        } finally {
+            snapshotGate.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void saveAll(Collection<Receipt> receipts) {
+        snapshotGate.readLock().lock();
+        try {
+            long last = 0;
+            for (Receipt receipt : receipts) {
+                last = wal.append(WriteAheadLog.SAVE, ReceiptCodec.encode(receipt));
+            }
+            // Records are acknowledged in order, so waiting for the last one covers the whole batch.
+            wal.awaitDurable(last);
+            store.saveAll(receipts);
+        } finally {
+            snapshotGate.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Receipt findById(long msb, long lsb) {
+        Receipt receipt = store.findById(msb, lsb);
+        if (receipt == null && snapshot != null) {
+            receipt = snapshot.findById(msb, lsb);
+        }
+        return receipt;
+    }
+
+    @Override
+    public void findAllById(long[] msbs, long[] lsbs, Receipt[] found) {
+        store.findAllById(msbs, lsbs, found);
+        if (snapshot != null) {
+            for (int i = 0; i < found.length; i++) {
+                if (found[i] == null) {
+                    found[i] = snapshot.findById(msbs[i], lsbs[i]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Held in the gate like a save, so a snapshot rolling the log in between cannot
+     * delete the segment holding the points before they are in the receipt it writes.
+     * The points are applied first, so only the call that stored them logs them.
+     * */
+    @Override
+    public boolean savePoints(long msb, long lsb, int points) {
+        snapshotGate.readLock().lock();
+        try {
+            if (!applyPoints(msb, lsb, points)) {
+                return false;
+            }
+            wal.append(WriteAheadLog.POINTS,
+                    ByteBuffer.allocate(POINTS_RECORD_SIZE).putLong(msb).putLong(lsb).putInt(points).array());
+            return true;
+        } finally {
+            snapshotGate.readLock().unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        // Replay skips receipts that are already in the snapshot, so the tiers do not overlap.
+        return store.size() + (snapshot == null ? 0 : snapshot.size());
+    }
+
+    /**
+     * The mapped snapshot is included, as it is fully paged in once warmed up.
+     * */
+    @Override
+    public long estimatedMemoryBytes() {
+        return store.estimatedMemoryBytes() + (snapshot == null ? 0 : snapshot.mappedBytes());
+    }
+
+    @Override
+    public void forEach(Consumer<Receipt> action) {
+        if (snapshot != null) {
+            snapshot.forEach(action);
+        }
+        store.forEach(action);
+    }
+
+    @Override
+    public void close() {
+        if (snapshotter != null) {
+            snapshotter.shutdown();
+            try {
+                snapshotter.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        wal.close();
+    }
+
+    /**
+     * Writes a snapshot of every receipt saved so far and deletes the log segments and older snapshots it covers.
+     * */
+    void snapshot() {
+        long started = System.nanoTime();
+        long walSegment;
+        snapshotGate.writeLock().lock();
+        try {
+            walSegment = wal.roll();
+        } finally {
+            snapshotGate.writeLock().unlock();
+        }
+
+        Path file = directory.resolve(String.format("%s%020d%s", SNAPSHOT_PREFIX, walSegment, ReceiptSnapshot.SUFFIX));
+        Path temporary = directory.resolve(file.getFileName() + ".tmp");
+        int expected = size();
+        try {
+            // Room for receipts saved meanwhile, within what one snapshot holds.
+            int maxCount = (int) Math.min(expected + expected / 4L, Math.max(expected, ReceiptSnapshot.MAX_RECEIPTS));
+            ReceiptSnapshot.write(temporary, walSegment, maxCount, this::forEach);
+            Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            deleteQuietly(temporary);
+            throw new UncheckedIOException(String.format("Receipt snapshot %s cannot be written.", file), e);
+        } catch (RuntimeException e) {
+            deleteQuietly(temporary);
+            throw e;
+        }
+
+        wal.deleteSegmentsBefore(walSegment);
+        for (Path older : snapshots()) {
+            if (!older.equals(file)) {
+                // A mapped snapshot stays readable after its file is deleted.
+                deleteQuietly(older);
+            }
+        }
+        log.info("Wrote snapshot {} of about {} receipts in {} ms", file, expected,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+    }
+
+    private void snapshotQuietly() {
+        try {
+            snapshot();
+        } catch (RuntimeException e) {
+            log.warn("Receipt snapshot failed, the write-ahead log is kept: {}", e.getMessage());
+        }
+    }
+
+    private void warmUp() {
+        try {
+            snapshot.warmUp();
+            snapshot.forEachAsWritten(recovery::recovered);
+            recovery.warmed();
+        } catch (RuntimeException e) {
+            log.warn("Receipt snapshot warm-up failed, its receipts are not all recovered: {}", e.getMessage());
+        }
+    }
+
+    private void apply(byte type, ByteBuffer buffer, int offset, int length) {
+        if (type == WriteAheadLog.SAVE) {
+            // A receipt saved while the snapshot was written can be in both; the snapshot copy serves it.
+            if (snapshot == null || !snapshot.contains(buffer.getLong(offset + 4), buffer.getLong(offset + 12))) {
+                Receipt receipt = ReceiptCodec.decode(buffer, offset);
+                store.save(receipt);
+                recovery.recovered(receipt);
+            }
+        } else if (type == WriteAheadLog.POINTS) {
+            long msb = buffer.getLong(offset);
+            long lsb = buffer.getLong(offset + 8);
+            int points = buffer.getInt(offset + 16);
+            if (applyPoints(msb, lsb, points)) {
+                // A budgeted store may have dropped the receipt since, and its points with it.
+                Receipt receipt = findById(msb, lsb);
+                if (receipt != null) {
+                    recovery.scored(receipt, points);
+                }
+            }
+        } else {
+            throw new IllegalStateException(String.format("Unknown write-ahead log record type %d.", type));
+        }
+    }
+
+    /**
+     * @return true when the points were stored by this call
+     * */
+    private boolean applyPoints(long msb, long lsb, int points) {
+        // Replay keeps a receipt in one tier only, and both ignore receipts they do not hold.
+        return store.savePoints(msb, lsb, points) || (snapshot != null && snapshot.savePoints(msb, lsb, points));
+    }
+
+    private Path latestSnapshot() {
+        List<Path> snapshots = snapshots();
+        return snapshots.isEmpty() ? null : snapshots.get(snapshots.size() - 1);
+    }
+
+    private List<Path> snapshots() {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> isSnapshot(path, ReceiptSnapshot.SUFFIX)).sorted().toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException(String.format("Receipt snapshot directory %s cannot be read.", directory), e);
+        }
+    }
+
+    private void deleteIncompleteSnapshots() {
+        try (Stream<Path> files = Files.list(directory)) {
+            files.filter(path -> isSnapshot(path, ReceiptSnapshot.SUFFIX + ".tmp"))
+                    .forEach(DurableReceiptStore::deleteQuietly);
+        } catch (IOException e) {
+            throw new UncheckedIOException(String.format("Receipt snapshot directory %s cannot be read.", directory), e);
+        }
+    }
+
+    /**
+     * Only the files this store names are taken, so other files sharing the directory are left alone.
+     * */
+    private static boolean isSnapshot(Path path, String suffix) {
+        String name = path.getFileName().toString();
+        return name.startsWith(SNAPSHOT_PREFIX) && name.endsWith(suffix);
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("{} could not be deleted: {}", path, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.fetch.receiptprocessorchallenge.dao;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Append-only arena of object references addressed by a `long` slot,
+ * so objects can be referenced from a primitive `UuidIndex`.
+ *
+ * Slots are handed out with an atomic increment and live in fixed-size chunks;
+ * the lock is only taken to add chunks. A slot costs one reference.
+ */
+final class ObjectArena<T> {
+    private static final int CHUNK_BITS = 14;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    private static final int ARRAY_HEADER_BYTES = 16;
+    private static final int REFERENCE_BYTES = 4;
+
+    private final AtomicLong nextSlot = new AtomicLong();
+    private final ReentrantLock growLock = new ReentrantLock();
+    private volatile Object[][] chunks;
+
+    ObjectArena(int expectedSize) {
+        int chunkCount = Math.max(1, (expectedSize + CHUNK_SIZE - 1) / CHUNK_SIZE);
+        Object[][] initial = new Object[chunkCount][];
+        for (int i = 0; i < chunkCount; i++) {
+            initial[i] = new Object[CHUNK_SIZE];
+        }
+        chunks = initial;
+    }
+
+    /**
+     * Stores the value in a new slot. The value becomes visible to other threads
+     * once the slot is published through a synchronizing structure such as the index.
+     * @return the slot
+     * */
+    long add(T value) {
+        long slot = nextSlot.getAndIncrement();
+        int chunk = (int) (slot >>> CHUNK_BITS);
+        Object[][] current = chunks;
+        if (chunk >= current.length) {
+            current = grow(chunk);
+        }
+        current[chunk][(int) (slot & CHUNK_MASK)] = value;
+        return slot;
+    }
+
+    @SuppressWarnings("unchecked")
+    T get(long slot) {
+        return (T) chunks[(int) (slot >>> CHUNK_BITS)][(int) (slot & CHUNK_MASK)];
+    }
+
+    /**
+     * @return the bytes of the slot chunks, assuming compressed references
+     * */
+    long referenceBytes() {
+        return (long) chunks.length * (ARRAY_HEADER_BYTES + (long) CHUNK_SIZE * REFERENCE_BYTES);
+    }
+
+    /**
+     * Calls the action for every value added so far; slots still being filled are skipped.
+     * */
+    @SuppressWarnings("unchecked")
+    void forEach(Consumer<T> action) {
+        long end = nextSlot.get();
+        Object[][] current = chunks;
+        for (long slot = 0; slot < end; slot++) {
+            int chunk = (int) (slot >>> CHUNK_BITS);
+            if (chunk >= current.length) {
+                current = chunks;
+                if (chunk >= current.length) {
+                    // The remaining slots are still being added.
+                    return;
+                }
+            }
+            Object value = current[chunk][(int) (slot & CHUNK_MASK)];
+            if (value != null) {
+                action.accept((T) value);
+            }
+        }
+    }
+
+    private Object[][] grow(int chunk) {
+        growLock.lock();
+        try {
+            Object[][] current = chunks;
+            if (chunk < current.length) {
+                return current;
+            }
+            Object[][] grown = Arrays.copyOf(current, Math.max(chunk + 1, current.length * 2));
+            for (int i = current.length; i < grown.length; i++) {
+                grown[i] = new Object[CHUNK_SIZE];
+            }
+            chunks = grown;
+            return grown;
+        } finally {
+            growLock.unlock();
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.fetch.receiptprocessorchallenge.dao;
+
+import com.fetch.receiptprocessorchallenge.models.Item;
+import com.fetch.receiptprocessorchallenge.models.Receipt;
+
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Keeps the `Receipt` objects in an `ObjectArena`, indexed by the two
+ * halves of their UUID in a primitive `UuidIndex`. Saves only lock one
+ * index segment, so there is no global lock on the save path, and
+ * lookups do not allocate.
+ *
+ * The memory of the receipt objects is estimated from their shape when they are saved,
+ * so the estimate costs a few additions instead of a walk of the object graph.
+ */
+class ObjectReceiptStore implements ReceiptStore {
+    // Shallow sizes with compressed references and 8-byte alignment, as on a 64-bit JVM below 32 GB of heap.
+    private static final int RECEIPT_BYTES = 48;
+    private static final int UUID_BYTES = 32;
+    private static final int LOCAL_DATE_BYTES = 24;
+    private static final int LOCAL_TIME_BYTES = 24;
+    private static final int POINTS_BYTES = 16;
+    private static final int ITEM_BYTES = 24;
+    private static final int LIST_BYTES = 24;
+    private static final int STRING_BYTES = 24;
+    private static final int ARRAY_HEADER_BYTES = 16;
+    private static final int REFERENCE_BYTES = 4;
+
+    private final UuidIndex index;
+    private final ObjectArena<Receipt> receipts;
+    private final LongAdder receiptBytes = new LongAdder();
+
+    ObjectReceiptStore(int initialCapacity, int segmentCount) {
+        index = new UuidIndex(initialCapacity, segmentCount);
+        receipts = new ObjectArena<>(initialCapacity);
+    }
+
+    @Override
+    public void save(Receipt receipt) {
+        long slot = receipts.add(receipt);
+        index.put(receipt.getId().getMostSignificantBits(), receipt.getId().getLeastSignificantBits(), slot);
+        receiptBytes.add(estimateBytes(receipt));
+    }
+
+    @Override
+    public Receipt findById(long msb, long lsb) {
+        long slot = index.get(msb, lsb);
+        return slot == UuidIndex.MISSING ? null : receipts.get(slot);
+    }
+
+    @Override
+    public boolean contains(long msb, long lsb) {
+        return index.get(msb, lsb) != UuidIndex.MISSING;
+    }
+
+    @Override
+    public boolean savePoints(long msb, long lsb, int points) {
+        Receipt receipt = findById(msb, lsb);
+        return receipt != null && receipt.memoizePoints(points);
+    }
+
+    @Override
+    public int size() {
+        return index.size();
+    }
+
+    @Override
+    public long estimatedMemoryBytes() {
+        return index.tableBytes() + receipts.referenceBytes() + receiptBytes.sum();
+    }
+
+    @Override
+    public void forEach(Consumer<Receipt> action) {
+        receipts.forEach(action);
+    }
+
+    /**
+     * @return the approximate retained size of the receipt; shared strings and items are counted once per receipt
+     * */
+    static long estimateBytes(Receipt receipt) {
+        long bytes = RECEIPT_BYTES + UUID_BYTES + LOCAL_DATE_BYTES + LOCAL_TIME_BYTES + POINTS_BYTES
+                + stringBytes(receipt.getRetailer());
+        List<Item> items = receipt.getItems();
+        if (items != null) {
+            bytes += LIST_BYTES + align(ARRAY_HEADER_BYTES + (long) items.size() * REFERENCE_BYTES);
+            for (Item item : items) {
+                bytes += ITEM_BYTES + stringBytes(item.getShortDescription());
+            }
+        }
+        return bytes;
+    }
+
+    private static long stringBytes(String value) {
+        // Compact strings hold one byte per Latin-1 character; others take two, which this undercounts.
+        return value == null ? 0 : STRING_BYTES + align(ARRAY_HEADER_BYTES + value.length());
+    }
+
+    private static long align(long bytes) {
+        return (bytes + 7) & ~7L;
+    }
+}
@@ -0,0 +1,120 @@
+package com.fetch.receiptprocessorchallenge.dao;
+
+import com.fetch.receiptprocessorchallenge.models.Receipt;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Base64;
+
+/**
+ * Position of a receipt in the `PurchaseTimeIndex`: its purchase date and time as seconds
+ * since the epoch, then its id to order receipts purchased in the same minute.
+ *
+ * The key of the last receipt of a page, encoded with `toCursor`, is where the next page starts,
+ * so pages stay stable while receipts are saved, and a page is found without skipping the
+ * ones before it.
+ */
+public final class PurchaseKey implements Comparable<PurchaseKey> {
+    private static final int CURSOR_BYTES = 3 * Long.BYTES;
+
+    private final long purchaseSecond;
+    private final long msb;
+    private final long lsb;
+
+    private PurchaseKey(long purchaseSecond, long msb, long lsb) {
+        this.purchaseSecond = purchaseSecond;
+        this.msb = msb;
+        this.lsb = lsb;
+    }
+
+    /**
+     * @return the key of a receipt, or null when it has no purchase date or time
+     * */
+    public static PurchaseKey of(Receipt receipt) {
+        if (receipt.getPurchaseDate() == null || receipt.getPurchaseTime() == null) {
+            return null;
+        }
+        return new PurchaseKey(purchaseSecond(LocalDateTime.of(receipt.getPurchaseDate(), receipt.getPurchaseTime())),
+                receipt.getId().getMostSignificantBits(), receipt.getId().getLeastSignificantBits());
+    }
+
+    /**
+     * @return a key before every receipt purchased at the given time
+     * */
+    static PurchaseKey first(LocalDateTime purchased) {
+        return new PurchaseKey(purchaseSecond(purchased), Long.MIN_VALUE, Long.MIN_VALUE);
+    }
+
+    /**
+     * @return a key after every receipt purchased at the given time
+     * */
+    static PurchaseKey last(LocalDateTime purchased) {
+        return new PurchaseKey(purchaseSecond(purchased), Long.MAX_VALUE, Long.MAX_VALUE);
+    }
+
+    /**
+     * @param cursor a cursor returned by `toCursor`
+     * @return the key it encodes
+     * @throws IllegalArgumentException if it is not a cursor
+     * */
+    public static PurchaseKey fromCursor(String cursor) {
+        byte[] bytes;
+        try {
+            bytes = Base64.getUrlDecoder().decode(cursor);
+        } catch (IllegalArgumentException e) {
+            bytes = null;
+        }
+        if (bytes == null || bytes.length != CURSOR_BYTES) {
+            throw new IllegalArgumentException("The page cursor is not valid.");
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        return new PurchaseKey(buffer.getLong(), buffer.getLong(), buffer.getLong());
+    }
+
+    /**
+     * @return an opaque, URL safe encoding of the key
+     * */
+    public String toCursor() {
+        byte[] bytes = ByteBuffer.allocate(CURSOR_BYTES).putLong(purchaseSecond).putLong(msb).putLong(lsb).array();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    long getMostSignificantBits() {
+        return msb;
+    }
+
+    long getLeastSignificantBits() {
+        return lsb;
+    }
+
+    private static long purchaseSecond(LocalDateTime purchased) {
+        // Purchase times carry no zone; UTC only turns them into a number that sorts the same way.
+        return purchased.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    @Override
+    public int compareTo(PurchaseKey other) {
+        int c = Long.compare(purchaseSecond, other.purchaseSecond);
+        if (c == 0) {
+            c = Long.compare(msb, other.msb);
+        }
+        return c != 0 ? c : Long.compare(lsb, other.lsb);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof PurchaseKey other
+                && purchaseSecond == other.purchaseSecond && msb == other.msb && lsb == other.lsb;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(purchaseSecond) * 31 + Long.hashCode(lsb);
+    }
+
+    @Override
+    public String toString() {
+        return toCursor();
+    }
+}
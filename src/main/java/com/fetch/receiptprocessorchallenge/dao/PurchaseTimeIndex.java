@@ -0,0 +1,89 @@
+package com.fetch.receiptprocessorchallenge.dao;
+
+import com.fetch.receiptprocessorchallenge.models.Receipt;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Secondary index of the stored receipts ordered by purchase date and time, so the receipts
+ * purchased in a range are found by walking that range only, not every stored receipt.
+ *
+ * Every receipt is a `PurchaseKey` in a `ConcurrentSkipListSet`, which takes concurrent adds
+ * without locking and can be walked in order while saves continue. Each retailer has its own
+ * skip list as well, so a range of one retailer does not walk the receipts of the others.
+ * A key is added after its receipt is stored, so every key walked resolves to a receipt,
+ * unless the receipt was dropped from a store with a memory budget while it was walked.
+ */
+final class PurchaseTimeIndex {
+    // Heap measured per key, with a node in both sets and their share of the index levels,
+    // and per retailer for its own set and map entry.
+    private static final long ENTRY_BYTES = 112;
+    private static final long RETAILER_BYTES = 184;
+
+    private final ConcurrentSkipListSet<PurchaseKey> all = new ConcurrentSkipListSet<>();
+    private final ConcurrentHashMap<String, ConcurrentSkipListSet<PurchaseKey>> byRetailer = new ConcurrentHashMap<>();
+    private final LongAdder size = new LongAdder();
+
+    void add(Receipt receipt) {
+        PurchaseKey key = PurchaseKey.of(receipt);
+        if (key == null || !all.add(key)) {
+            return;
+        }
+        size.increment();
+        if (receipt.getRetailer() != null) {
+            ConcurrentSkipListSet<PurchaseKey> keys = byRetailer.get(receipt.getRetailer());
+            if (keys == null) {
+                keys = byRetailer.computeIfAbsent(receipt.getRetailer(), r -> new ConcurrentSkipListSet<>());
+            }
+            keys.add(key);
+        }
+    }
+
+    /**
+     * Removes the key of a receipt that left the store; the empty set of its retailer is kept.
+     * */
+    void remove(Receipt receipt) {
+        PurchaseKey key = PurchaseKey.of(receipt);
+        if (key == null || !all.remove(key)) {
+            return;
+        }
+        size.decrement();
+        if (receipt.getRetailer() != null) {
+            ConcurrentSkipListSet<PurchaseKey> keys = byRetailer.get(receipt.getRetailer());
+            if (keys != null) {
+                keys.remove(key);
+            }
+        }
+    }
+
+    /**
+     * @param from first purchase time of the range, inclusive
+     * @param to last purchase time of the range, inclusive
+     * @param retailer only the receipts of this retailer, or null for all
+     * @param after the key the range continues after, or null to start at `from`
+     * @return a live, ordered view of the keys in the range
+     * */
+    NavigableSet<PurchaseKey> range(LocalDateTime from, LocalDateTime to, String retailer, PurchaseKey after) {
+        NavigableSet<PurchaseKey> keys = retailer == null ? all : byRetailer.get(retailer);
+        if (keys == null) {
+            return Collections.emptyNavigableSet();
+        }
+        PurchaseKey first = PurchaseKey.first(from);
+        PurchaseKey last = PurchaseKey.last(to);
+        if (after != null && after.compareTo(first) >= 0) {
+            return after.compareTo(last) >= 0
+                    ? Collections.emptyNavigableSet()
+                    : keys.subSet(after, false, last, true);
+        }
+        return first.compareTo(last) > 0 ? Collections.emptyNavigableSet() : keys.subSet(first, true, last, true);
+    }
+
+    long estimatedMemoryBytes() {
+        return size.sum() * ENTRY_BYTES + byRetailer.size() * RETAILER_BYTES;
+    }
+}
@@ -0,0 +1,97 @@
+package com.fetch.receiptprocessorchallenge.dao;
+
+import com.fetch.receiptprocessorchallenge.models.Receipt;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.Collection;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+
+/**
+ * Non-blocking view of `ReceiptDAO` for the reactive stack of the `reactive` profile.
+ *
+ * The in-memory stores never wait for I/O, so their calls run on the subscribing
+ * thread, usually a Netty event loop. When the store may block, with a write-ahead
+ * log or a simulated latency, every call is moved to the bounded elastic scheduler
+ * instead, so an event loop never waits for an fsync.
+ */
+@Repository
+@Profile("reactive")
+public class ReactiveReceiptDAO {
+    private final ReceiptDAO receiptDAO;
+    private final Scheduler scheduler;
+
+    @Autowired
+    public ReactiveReceiptDAO(ReceiptDAO receiptDAO) {
+        this(receiptDAO, receiptDAO.mayBlock() ? Schedulers.boundedElastic() : Schedulers.immediate());
+    }
+
+    ReactiveReceiptDAO(ReceiptDAO receiptDAO, Scheduler scheduler) {
+        this.receiptDAO = receiptDAO;
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Saves the receipt to the DB
+     * @param receipt to be saved
+     * @return the saved receipt, once it is stored
+     * */
+    public Mono<Receipt> save(Receipt receipt) {
+        return Mono.fromCallable(() -> receiptDAO.save(receipt)).subscribeOn(scheduler);
+    }
+
+    /**
+     * Saves all the receipts to the DB in one bulk insert
+     * @param receipts to be saved
+     * @return completes once they are stored
+     * */
+    public Mono<Void> saveAll(Collection<Receipt> receipts) {
+        return Mono.<Void>fromRunnable(() -> receiptDAO.saveAll(receipts)).subscribeOn(scheduler);
+    }
+
+    /**
+     * Find the receipt by the two halves of its UUID
+     * @param msb most significant bits of the receipt id
+     * @param lsb least significant bits of the receipt id
+     * @return the receipt, or empty when it is not found
+     * */
+    public Mono<Receipt> findById(long msb, long lsb) {
+        return Mono.fromCallable(() -> receiptDAO.findById(msb, lsb)).subscribeOn(scheduler);
+    }
+
+    /**
+     * Runs work that calls `ReceiptDAO` more than once, such as a range query that also memoizes
+     * points, on the scheduler the single calls run on
+     * @param work the calls to make
+     * @return the result of the work
+     * */
+    public <T> Mono<T> call(Callable<T> work) {
+        return Mono.fromCallable(work).subscribeOn(scheduler);
+    }
+
+    /**
+     * Stores the memoized points of a saved receipt, unless it has points already, and
+     * counts them in the statistics, like `ReceiptDAO.savePoints(receipt, points)`
+     * @param receipt the saved receipt, read unscored
+     * @param points its calculated points
+     * @return whether this call stored the points
+     * */
+    public Mono<Boolean> savePoints(Receipt receipt, int points) {
+        return Mono.fromCallable(() -> receiptDAO.savePoints(receipt, points)).subscribeOn(scheduler);
+    }
+
+    /**
+     * Stores the memoized points of a saved receipt, unless it has points already
+     * @param id receiptId
+     * @param points calculated points
+     * @return whether this call stored the points
+     * */
+    public Mono<Boolean> savePoints(UUID id, int points) {
+        return Mono.fromCallable(() -> receiptDAO.savePoints(id, points)).subscribeOn(scheduler);
+    }
+}
@@ -0,0 +1,173 @@
+package com.fetch.receiptprocessorchallenge.dao;
+
+import com.fetch.receiptprocessorchallenge.models.Item;
+import com.fetch.receiptprocessorchallenge.models.Receipt;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Encodes a `Receipt` into a compact binary record and back.
+ *
+ * Record layout (big-endian):
+ * <pre>
+ *  int   record length in bytes, including this field
+ *  long  id, most significant bits
+ *  long  id, least significant bits
+ *  int   points, UNSCORED when not calculated yet
+ *  long  total in cents
+ *  int   purchase date as epoch day
+ *  int   purchase time as second of day
+ *  int   retailer length, followed by the UTF-8 bytes
+ *  int   item count, followed by for each item:
+ *        long price in cents, int description length, UTF-8 bytes
+ *  zero padding up to a multiple of 4 bytes
+ * </pre>
+ * Absent values are written as sentinels (-1 lengths, MIN_VALUE numbers) so a
+ * record always decodes back to an equal receipt; amounts are already cents.
+ *
+ * The padding keeps the points of records laid end to end from an aligned start
+ * 4-byte aligned, so `memoizePoints` can compare and set them atomically.
+ */
+final class ReceiptCodec {
+    static final int POINTS_OFFSET = 20;
+    static final int UNSCORED = Integer.MIN_VALUE;
+
+    private static final int HEADER_SIZE = 40;
+    private static final int NULL_LENGTH = -1;
+    private static final int NULL_INT = Integer.MIN_VALUE;
+    private static final VarHandle INTS = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.BIG_ENDIAN);
+
+    private ReceiptCodec() {
+    }
+
+    /**
+     * Encodes the receipt into a new record.
+     * @param receipt to encode
+     * @return the record bytes
+     * */
+    static byte[] encode(Receipt receipt) {
+        UUID id = receipt.getId();
+        byte[] retailer = utf8(receipt.getRetailer());
+        List<Item> items = receipt.getItems();
+        int itemCount = items == null ? NULL_LENGTH : items.size();
+
+        byte[][] descriptions = new byte[Math.max(itemCount, 0)][];
+        int size = HEADER_SIZE + 4 + length(retailer) + 4;
+        for (int i = 0; i < descriptions.length; i++) {
+            descriptions[i] = utf8(items.get(i).getShortDescription());
+            size += 8 + 4 + length(descriptions[i]);
+        }
+        size = (size + 3) & ~3;
+
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putInt(size);
+        buffer.putLong(id.getMostSignificantBits());
+        buffer.putLong(id.getLeastSignificantBits());
+        buffer.putInt(receipt.getPoints() == null ? UNSCORED : receipt.getPoints());
+        buffer.putLong(receipt.getTotalCents());
+        buffer.putInt(receipt.getPurchaseDate() == null ? NULL_INT : (int) receipt.getPurchaseDate().toEpochDay());
+        buffer.putInt(receipt.getPurchaseTime() == null ? NULL_INT : receipt.getPurchaseTime().toSecondOfDay());
+        putString(buffer, retailer);
+        buffer.putInt(itemCount);
+        for (int i = 0; i < descriptions.length; i++) {
+            buffer.putLong(items.get(i).getPriceCents());
+            putString(buffer, descriptions[i]);
+        }
+        return buffer.array();
+    }
+
+    /**
+     * Decodes the record starting at `offset`, using absolute reads only
+     * so that the buffer can be shared between threads.
+     * @param buffer holding the record
+     * @param offset of the record
+     * @return the decoded receipt
+     * */
+    static Receipt decode(ByteBuffer buffer, int offset) {
+        long msb = buffer.getLong(offset + 4);
+        long lsb = buffer.getLong(offset + 12);
+        int points = buffer.getInt(POINTS_OFFSET + offset);
+        long totalCents = buffer.getLong(offset + 24);
+        int epochDay = buffer.getInt(offset + 32);
+        int secondOfDay = buffer.getInt(offset + 36);
+
+        int position = offset + HEADER_SIZE;
+        String retailer = getString(buffer, position);
+        position += 4 + Math.max(buffer.getInt(position), 0);
+
+        int itemCount = buffer.getInt(position);
+        position += 4;
+        List<Item> items = null;
+        if (itemCount != NULL_LENGTH) {
+            items = new ArrayList<>(itemCount);
+            for (int i = 0; i < itemCount; i++) {
+                long priceCents = buffer.getLong(position);
+                String description = getString(buffer, position + 8);
+                position += 8 + 4 + Math.max(buffer.getInt(position + 8), 0);
+                items.add(new Item(description, priceCents));
+            }
+        }
+
+        return Receipt.builder()
+                .id(new UUID(msb, lsb))
+                .retailer(retailer)
+                .purchaseDate(epochDay == NULL_INT ? null : LocalDate.ofEpochDay(epochDay))
+                .purchaseTime(secondOfDay == NULL_INT ? null : LocalTime.ofSecondOfDay(secondOfDay))
+                .items(items)
+                .totalCents(totalCents)
+                .points(points == UNSCORED ? null : points)
+                .build();
+    }
+
+    /**
+     * Writes the points into a record with a compare-and-set, unless it has points already.
+     * @param buffer holding the record
+     * @param offset of the record, a multiple of 4 from an aligned start
+     * @param points calculated points
+     * @return true when this call wrote them
+     * @throws IllegalStateException if the points of the record are not 4-byte aligned
+     * */
+    static boolean memoizePoints(ByteBuffer buffer, int offset, int points) {
+        return INTS.compareAndSet(buffer, offset + POINTS_OFFSET, UNSCORED, points);
+    }
+
+    static int recordLength(ByteBuffer buffer, int offset) {
+        return buffer.getInt(offset);
+    }
+
+    private static byte[] utf8(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int length(byte[] bytes) {
+        return bytes == null ? 0 : bytes.length;
+    }
+
+    private static void putString(ByteBuffer buffer, byte[] bytes) {
+        if (bytes == null) {
+            buffer.putInt(NULL_LENGTH);
+        } else {
+            buffer.putInt(bytes.length);
+            buffer.put(bytes);
+        }
+    }
+
+    private static String getString(ByteBuffer buffer, int position) {
+        int length = buffer.getInt(position);
+        if (length == NULL_LENGTH) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(position + 4, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -1,18 +1,109 @@
 package com.fetch.receiptprocessorchallenge.dao;
 
 import com.fetch.receiptprocessorchallenge.models.Receipt;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 
+import java.nio.file.Path;
+import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
 
 /**
  * Repository class for managing Receipt CRUD operations.
- * This implementation uses a HashMap as an in-memory database
- * to store and retrieve receipt data efficiently.
+ * This implementation keeps receipts in an in-memory database
+ * that request threads can save to and read from concurrently.
+ *
+ * The `receipts.store.mode` property selects how receipts are held:
+ * as objects (`ObjectReceiptStore`) or as compact binary records
+ * in `ByteBuffer` slabs (`BinaryReceiptStore`). Both are keyed by the
+ * two `long` halves of the receipt UUID in a primitive `UuidIndex`.
+ *
+ * When `receipts.store.wal.directory` is set, every save is also appended to a
+ * `WriteAheadLog` there, which is replayed on startup so receipts survive restarts.
+ * With `receipts.store.wal.snapshot-interval-seconds`, the store is also snapshotted
+ * there periodically and a restart serves lookups from the memory-mapped snapshot.
+ *
+ * For load tests, `receipts.store.simulated-latency-ms` delays every store access
+ * as if the store were remote. No method blocks a thread while holding a monitor, so
+ * callers on virtual threads never pin their carrier thread.
+ *
+ * Saves and scores are also counted in `ReceiptStatistics`, so stats are read without
+ * walking the store, and every saved receipt is added to a `PurchaseTimeIndex`, so a range
+ * of purchase dates is found without walking it either. Receipts recovered from the
+ * write-ahead log are counted and indexed as the log is replayed on startup, and those of
+ * a snapshot in the background afterwards, so startup does not walk the store. Until then
+ * the store is warming: the statistics and the purchase time index miss some receipts.
+ *
+ * With `receipts.store.memory-budget-bytes`, the in-memory store is a `TieredReceiptStore`
+ * that evicts the coldest receipts once the budget is exceeded, to spill files in
+ * `receipts.store.spill.directory` that lookups still read, or out of the store. Receipts
+ * leaving the store are removed from the purchase time index and passed to the drop
+ * listeners; the statistics keep them.
  */
 @Repository
 public class ReceiptDAO {
-    private final Map<String, Receipt> receipts = new HashMap<>();
+    private static final int MIN_GENERATION_SLAB_SIZE = 64 * 1024;
+
+    private final ReceiptStore store;
+    private final DurableReceiptStore durableStore;
+    private final TieredReceiptStore tieredStore;
+    private final boolean blocking;
+    private final ReceiptStatistics statistics = new ReceiptStatistics();
+    private final PurchaseTimeIndex purchaseIndex = new PurchaseTimeIndex();
+    private final List<Consumer<Receipt>> dropListeners = new CopyOnWriteArrayList<>();
+    private volatile boolean warming;
+
+    @Autowired
+    public ReceiptDAO(ReceiptStoreProperties properties) {
+        StoreMode mode = properties.mode();
+        int initialCapacity = properties.initialCapacity();
+        ReceiptStoreProperties.Binary binary = properties.binary();
+        ReceiptStoreProperties.Wal wal = properties.wal();
+        ReceiptStoreProperties.Spill spill = properties.spill();
+        if (initialCapacity <= 0) {
+            throw new IllegalArgumentException("Store initial capacity must be greater than 0.");
+        }
+        if (wal.isEnabled() && spill.isEnabled() && sameDirectory(wal.directory(), spill.directory())) {
+            throw new IllegalArgumentException("The spill directory must not be the write-ahead log directory.");
+        }
+        // Enough lock stripes that concurrent saves rarely land on the same segment.
+        int segments = properties.segments();
+        int segmentCount = segments > 0 ? segments : 4 * Runtime.getRuntime().availableProcessors();
+        ReceiptStore memoryStore;
+        long memoryBudgetBytes = properties.memoryBudgetBytes();
+        if (memoryBudgetBytes > 0) {
+            // Slabs of a quarter generation at most, so a new generation does not start out full.
+            int generationSlabSize = (int) Math.max(MIN_GENERATION_SLAB_SIZE,
+                    Math.min(binary.slabSize(), TieredReceiptStore.generationBytes(memoryBudgetBytes) / 4));
+            tieredStore = new TieredReceiptStore(
+                    () -> newMemoryStore(mode, initialCapacity, segmentCount, generationSlabSize, binary.direct()),
+                    memoryBudgetBytes,
+                    spill.isEnabled() ? Path.of(spill.directory()) : null,
+                    spill.ttlSeconds(), this::dropped);
+            memoryStore = tieredStore;
+        } else {
+            tieredStore = null;
+            memoryStore = newMemoryStore(mode, initialCapacity, segmentCount, binary.slabSize(), binary.direct());
+        }
+        ReceiptStore baseStore;
+        if (!wal.isEnabled()) {
+            durableStore = null;
+            baseStore = memoryStore;
+        } else {
+            Path directory = Path.of(wal.directory());
+            warming = true;
+            durableStore = new DurableReceiptStore(memoryStore,
+                    new WriteAheadLog(directory, wal.segmentSize(), wal.durability(), wal.syncIntervalMs()),
+                    directory, wal.snapshotIntervalSeconds(), new Recovery());
+            baseStore = durableStore;
+        }
+        long simulatedLatencyMillis = properties.simulatedLatencyMs();
+        store = simulatedLatencyMillis > 0 ? new SimulatedLatencyReceiptStore(baseStore, simulatedLatencyMillis) : baseStore;
+        blocking = durableStore != null || simulatedLatencyMillis > 0 || (tieredStore != null && tieredStore.spills());
+    }
 
     /**
      * Saves the receipt to the DB
@@ -20,16 +111,245 @@ public class ReceiptDAO {
      * @return receipt
      * */
     public Receipt save(Receipt receipt) {
-        receipts.put(receipt.getId(), receipt);
-        return receipts.get(receipt.getId());
+        store.save(receipt);
+        saved(receipt);
+        return receipt;
+    }
+
+    /**
+     * Saves all the receipts to the DB in one bulk insert
+     * @param receipts to be saved
+     * */
+    public void saveAll(Collection<Receipt> receipts) {
+        store.saveAll(receipts);
+        for (Receipt receipt : receipts) {
+            saved(receipt);
+        }
     }
 
     /**
      * Find the receipt by given id
      * @param id receiptId
-     * @return optional receipt
+     * @return optional receipt, empty when the id is unknown or not a valid UUID
      * */
     public Optional<Receipt> findById(String id) {
-        return Optional.ofNullable(receipts.get(id));
+        if (!ReceiptIds.isValid(id)) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(store.findById(ReceiptIds.mostSignificantBits(id), ReceiptIds.leastSignificantBits(id)));
+    }
+
+    /**
+     * Find the receipt by the two halves of its UUID, without allocating in OBJECT mode
+     * @param msb most significant bits of the receipt id
+     * @param lsb least significant bits of the receipt id
+     * @return the receipt, or null when it is not found
+     * */
+    public Receipt findById(long msb, long lsb) {
+        return store.findById(msb, lsb);
+    }
+
+    /**
+     * Find many receipts by the two halves of their UUIDs in one pass over the store
+     * @param msbs most significant bits of the receipt ids
+     * @param lsbs least significant bits of the receipt ids, in the same order
+     * @return the receipt of each id, or null where it is not found
+     * */
+    public Receipt[] findAllById(long[] msbs, long[] lsbs) {
+        Receipt[] found = new Receipt[msbs.length];
+        store.findAllById(msbs, lsbs, found);
+        return found;
+    }
+
+    /**
+     * Finds the receipts purchased in a range, ordered by purchase date and time, then id.
+     * Only the receipts of the range are walked, in the purchase time index.
+     * @param from first purchase date and time, inclusive
+     * @param to last purchase date and time, inclusive
+     * @param retailer only the receipts of this retailer, or null for all
+     * @param after the key of the last receipt of the previous page, or null for the first page
+     * @param limit most receipts to return
+     * @return the receipts found
+     * */
+    public List<Receipt> findByPurchaseTime(LocalDateTime from, LocalDateTime to, String retailer,
+                                            PurchaseKey after, int limit) {
+        List<Receipt> receipts = new ArrayList<>(Math.min(limit, 1024));
+        Iterator<PurchaseKey> keys = purchaseIndex.range(from, to, retailer, after).iterator();
+        while (receipts.size() < limit && keys.hasNext()) {
+            PurchaseKey key = keys.next();
+            Receipt receipt = store.findById(key.getMostSignificantBits(), key.getLeastSignificantBits());
+            if (receipt != null) {
+                receipts.add(receipt);
+            }
+        }
+        return receipts;
+    }
+
+    /**
+     * Stores the memoized points of a saved receipt, unless it has points already, and
+     * counts them in the statistics. The store compares and sets them, so of concurrent
+     * first scorings of a receipt only the one that stored its points counts them.
+     * The receipt passed is not changed, unless it is the stored instance itself.
+     * @param receipt the saved receipt, read unscored
+     * @param points its calculated points
+     * @return true when this call stored the points
+     * */
+    public boolean savePoints(Receipt receipt, int points) {
+        if (!savePoints(receipt.getId(), points)) {
+            return false;
+        }
+        statistics.scored(receipt, points);
+        return true;
+    }
+
+    /**
+     * Stores the memoized points of a saved receipt, unless it has points already,
+     * without counting them in the statistics
+     * @param id receiptId
+     * @param points calculated points
+     * @return true when this call stored the points
+     * */
+    public boolean savePoints(UUID id, int points) {
+        return store.savePoints(id.getMostSignificantBits(), id.getLeastSignificantBits(), points);
+    }
+
+    /**
+     * Counts of the saved receipts and their points, kept up to date at every save
+     * @return the live statistics
+     * */
+    public ReceiptStatistics statistics() {
+        return statistics;
+    }
+
+    /**
+     * Whether the receipts of a snapshot are still being counted and indexed after a restart;
+     * until they are, the statistics and purchase time ranges miss some of them
+     * @return true while warming
+     * */
+    public boolean isWarming() {
+        return warming;
+    }
+
+    /**
+     * Residency, hit and spill counts of the store, when it has a memory budget
+     * @return the live statistics, or null when the store is unbounded
+     * */
+    public TierStatistics tierStatistics() {
+        return tieredStore == null ? null : tieredStore.statistics();
+    }
+
+    /**
+     * Number of receipts currently stored
+     * @return receipt count
+     * */
+    public int size() {
+        return store.size();
+    }
+
+    /**
+     * Estimated memory held by the store, including a mapped snapshot, the statistics and the purchase time index
+     * @return bytes
+     * */
+    public long estimatedMemoryBytes() {
+        return store.estimatedMemoryBytes() + statistics.estimatedMemoryBytes() + purchaseIndex.estimatedMemoryBytes();
+    }
+
+    /**
+     * Whether a store call can block the calling thread, waiting for the write-ahead log,
+     * spill files or a simulated latency; in-memory stores only take short lock-striped
+     * critical sections
+     * @return true when calls may block
+     * */
+    public boolean mayBlock() {
+        return blocking;
+    }
+
+    /**
+     * Registers an action called with every receipt that leaves the store, evicted over the
+     * memory budget without a spill directory or in a spill file older than its TTL. It is
+     * called on the thread that evicts or expires the receipt.
+     * @param listener called with each dropped receipt
+     * */
+    public void addDropListener(Consumer<Receipt> listener) {
+        dropListeners.add(listener);
+    }
+
+    /**
+     * Calls the action for every stored receipt, walking the whole store
+     * @param action called with each receipt
+     * */
+    void forEach(Consumer<Receipt> action) {
+        store.forEach(action);
+    }
+
+    /**
+     * Writes a snapshot of the store now, instead of waiting for the snapshot interval
+     * */
+    void snapshot() {
+        if (durableStore == null) {
+            throw new IllegalStateException("Snapshots need the write-ahead log to be enabled.");
+        }
+        durableStore.snapshot();
+    }
+
+    /**
+     * Evicts down to the memory budget now, instead of waiting for the evictor thread
+     * */
+    void enforceMemoryBudget() {
+        if (tieredStore == null) {
+            throw new IllegalStateException("Eviction needs a memory budget to be set.");
+        }
+        tieredStore.enforceBudget();
+    }
+
+    private static ReceiptStore newMemoryStore(StoreMode mode, int initialCapacity, int segmentCount,
+                                               int slabSize, boolean direct) {
+        return mode == StoreMode.BINARY
+                ? new BinaryReceiptStore(initialCapacity, segmentCount, slabSize, direct)
+                : new ObjectReceiptStore(initialCapacity, segmentCount);
+    }
+
+    private static boolean sameDirectory(String first, String second) {
+        return Path.of(first).toAbsolutePath().normalize().equals(Path.of(second).toAbsolutePath().normalize());
+    }
+
+    private void saved(Receipt receipt) {
+        statistics.saved(receipt);
+        purchaseIndex.add(receipt);
+    }
+
+    private void dropped(Receipt receipt) {
+        purchaseIndex.remove(receipt);
+        for (Consumer<Receipt> listener : dropListeners) {
+            listener.accept(receipt);
+        }
+    }
+
+    /**
+     * Counts and indexes the receipts the write-ahead log and snapshot recover.
+     * */
+    private final class Recovery implements DurableReceiptStore.Recovery {
+        @Override
+        public void recovered(Receipt receipt) {
+            saved(receipt);
+        }
+
+        @Override
+        public void scored(Receipt receipt, int points) {
+            statistics.scored(receipt, points);
+        }
+
+        @Override
+        public void warmed() {
+            warming = false;
+        }
+    }
+
+    /**
+     * Flushes and closes the write-ahead log, if any
+     * */
+    @PreDestroy
+    public void close() {
+        store.close();
     }
 }
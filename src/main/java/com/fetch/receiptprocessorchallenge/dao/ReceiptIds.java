@@ -0,0 +1,177 @@
+package com.fetch.receiptprocessorchallenge.dao;
+
+import java.util.UUID;
+
+/**
+ * Parses receipt ids, which are UUID strings, into their two `long` halves.
+ *
+ * The canonical 36-character form is parsed in place without allocating. The shorter
+ * forms `UUID.fromString` also takes, five dash-separated groups of at most 8, 4, 4, 4
+ * and 12 hex digits with leading zeros left out, are parsed by hand too, so checking an
+ * id never throws and allocates nothing.
+ */
+public final class ReceiptIds {
+    private static final int CANONICAL_LENGTH = 36;
+    private static final int[] GROUP_DIGITS = {8, 4, 4, 4, 12};
+
+    private ReceiptIds() {
+    }
+
+    /**
+     * @return true when the id is a valid UUID string
+     * */
+    public static boolean isValid(String id) {
+        if (id == null) {
+            return false;
+        }
+        if (id.length() == CANONICAL_LENGTH) {
+            return hasDashes(id) && (parseHex(id, 0, 8) | parseHex(id, 9, 13) | parseHex(id, 14, 18)
+                    | parseHex(id, 19, 23) | parseHex(id, 24, 36)) >= 0;
+        }
+        return (group(id, 0) | group(id, 1) | group(id, 2) | group(id, 3) | group(id, 4)) >= 0;
+    }
+
+    /**
+     * Parses the id in one pass, for callers that need both halves and to know it is valid.
+     *
+     * @return the UUID, or null when the id is null or not a valid UUID string
+     * */
+    public static UUID parse(String id) {
+        if (id == null) {
+            return null;
+        }
+        long high;
+        long mid;
+        long low;
+        long clockSeq;
+        long node;
+        if (id.length() == CANONICAL_LENGTH) {
+            if (!hasDashes(id)) {
+                return null;
+            }
+            high = parseHex(id, 0, 8);
+            mid = parseHex(id, 9, 13);
+            low = parseHex(id, 14, 18);
+            clockSeq = parseHex(id, 19, 23);
+            node = parseHex(id, 24, 36);
+        } else {
+            high = group(id, 0);
+            mid = group(id, 1);
+            low = group(id, 2);
+            clockSeq = group(id, 3);
+            node = group(id, 4);
+        }
+        if ((high | mid | low | clockSeq | node) < 0) {
+            return null;
+        }
+        return new UUID(high << 32 | mid << 16 | low, clockSeq << 48 | node);
+    }
+
+    /**
+     * @return the UUID the id is a string of
+     * @throws IllegalArgumentException if the id is not a valid UUID
+     * */
+    public static UUID toUuid(String id) {
+        UUID uuid = parse(id);
+        if (uuid == null) {
+            throw invalid(id);
+        }
+        return uuid;
+    }
+
+    /**
+     * @return the most significant 64 bits of the UUID
+     * @throws IllegalArgumentException if the id is not a valid UUID
+     * */
+    public static long mostSignificantBits(String id) {
+        if (id.length() == CANONICAL_LENGTH) {
+            long high = parseHex(id, 0, 8);
+            long mid = parseHex(id, 9, 13);
+            long low = parseHex(id, 14, 18);
+            if (!hasDashes(id) || (high | mid | low) < 0) {
+                throw invalid(id);
+            }
+            return high << 32 | mid << 16 | low;
+        }
+        long high = group(id, 0);
+        long mid = group(id, 1);
+        long low = group(id, 2);
+        if ((high | mid | low | group(id, 3) | group(id, 4)) < 0) {
+            throw invalid(id);
+        }
+        return high << 32 | mid << 16 | low;
+    }
+
+    /**
+     * @return the least significant 64 bits of the UUID
+     * @throws IllegalArgumentException if the id is not a valid UUID
+     * */
+    public static long leastSignificantBits(String id) {
+        if (id.length() == CANONICAL_LENGTH) {
+            long high = parseHex(id, 19, 23);
+            long low = parseHex(id, 24, 36);
+            if (!hasDashes(id) || (high | low) < 0) {
+                throw invalid(id);
+            }
+            return high << 48 | low;
+        }
+        long high = group(id, 3);
+        long low = group(id, 4);
+        if ((group(id, 0) | group(id, 1) | group(id, 2) | high | low) < 0) {
+            throw invalid(id);
+        }
+        return high << 48 | low;
+    }
+
+    private static boolean hasDashes(String id) {
+        return id.charAt(8) == '-' && id.charAt(13) == '-' && id.charAt(18) == '-' && id.charAt(23) == '-';
+    }
+
+    private static IllegalArgumentException invalid(String id) {
+        return new IllegalArgumentException("Invalid UUID string: " + id);
+    }
+
+    /**
+     * @return the value of a group of a short-form id, or -1 if the id is not a valid short form
+     * */
+    private static long group(String id, int group) {
+        if (id.length() > CANONICAL_LENGTH) {
+            return -1;
+        }
+        int from = 0;
+        for (int i = 0; i < group; i++) {
+            from = id.indexOf('-', from) + 1;
+            if (from == 0) {
+                return -1;
+            }
+        }
+        // The last group runs to the end; a dash in it fails the hex parse.
+        int to = group == GROUP_DIGITS.length - 1 ? id.length() : id.indexOf('-', from);
+        if (to - from < 1 || to - from > GROUP_DIGITS[group]) {
+            return -1;
+        }
+        return parseHex(id, from, to);
+    }
+
+    /**
+     * @return the value of the hex digits in `[from, to)`, or -1 if any is not a hex digit
+     * */
+    private static long parseHex(String id, int from, int to) {
+        long value = 0;
+        for (int i = from; i < to; i++) {
+            char c = id.charAt(i);
+            int digit;
+            if (c >= '0' && c <= '9') {
+                digit = c - '0';
+            } else if (c >= 'a' && c <= 'f') {
+                digit = c - 'a' + 10;
+            } else if (c >= 'A' && c <= 'F') {
+                digit = c - 'A' + 10;
+            } else {
+                return -1;
+            }
+            value = value << 4 | digit;
+        }
+        return value;
+    }
+}
@@ -0,0 +1,439 @@
+package com.fetch.receiptprocessorchallenge.dao;
+
+import com.fetch.receiptprocessorchallenge.models.Receipt;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Read-only snapshot of the receipt store in a memory-mapped file.
+ *
+ * File layout (big-endian):
+ * <pre>
+ *  header   int magic, int version, long first write-ahead log segment not covered,
+ *           long receipt count, int table capacity, int chunk size, long records offset
+ *  table    open-addressing hash table of (long msb, long lsb, long record address) slots
+ *  records  `ReceiptCodec` records in fixed-size chunks; a record never spans two chunks
+ * </pre>
+ * Opening a snapshot only maps the file, so lookups can be served immediately: a
+ * lookup probes the mapped table and decodes the one record it points to. The file
+ * is mapped copy-on-write, which lets memoized points be written into a record
+ * without ever changing the file. On request the records are mapped read-only as
+ * well, so they can still be walked as they were written.
+ *
+ * Like the records, the table is mapped in chunks, as one buffer cannot span more than
+ * 2 GB; a snapshot holds at most `MAX_RECEIPTS` receipts, the table's int capacity
+ * at its highest load factor.
+ *
+ * A mapping lasts until `close`, or until the buffers are collected, which may take
+ * long after the file is deleted; until then its disk blocks are not freed either.
+ */
+final class ReceiptSnapshot {
+    static final String SUFFIX = ".snapshot";
+
+    // "RSNP"
+    private static final int MAGIC = 0x52534E50;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 40;
+    private static final int SLOT_SIZE = 24;
+    private static final int CHUNK_SIZE = 1 << 30;
+    // 768 MB of slots per table chunk, so a slot's offset in its chunk is an int.
+    private static final int TABLE_CHUNK_SHIFT = 25;
+    private static final int MAX_CAPACITY = 1 << 30;
+    private static final int WRITE_BUFFER_SIZE = 1024 * 1024;
+    private static final double MAX_LOAD_FACTOR = 0.75;
+    static final int MAX_RECEIPTS = (int) (MAX_CAPACITY * MAX_LOAD_FACTOR);
+    // Unsafe.invokeCleaner, the only way to unmap a buffer before it is collected, or null when unavailable.
+    private static final MethodHandle UNMAP = unmapper();
+
+    private final long walSegment;
+    private final int count;
+    private final int mask;
+    private final MappedByteBuffer[] table;
+    private final MappedByteBuffer[] chunks;
+    // The records without memoized points, or null when not asked for.
+    private final MappedByteBuffer[] written;
+    // Snapshots written before records were padded can hold unaligned records, whose points are set under it.
+    private final ReentrantLock unalignedPoints = new ReentrantLock();
+
+    private ReceiptSnapshot(long walSegment, int count, int capacity, MappedByteBuffer[] table,
+                            MappedByteBuffer[] chunks, MappedByteBuffer[] written) {
+        this.walSegment = walSegment;
+        this.count = count;
+        this.mask = capacity - 1;
+        this.table = table;
+        this.chunks = chunks;
+        this.written = written;
+    }
+
+    /**
+     * Maps an existing snapshot file, to be read with its memoized points only.
+     * @param file written by `write`
+     * @return the mapped snapshot
+     * */
+    static ReceiptSnapshot open(Path file) {
+        return open(file, false);
+    }
+
+    /**
+     * Maps an existing snapshot file.
+     * @param file written by `write`
+     * @param asWritten whether to map the records read-only too, for `forEachAsWritten`
+     * @return the mapped snapshot
+     * */
+    static ReceiptSnapshot open(Path file, boolean asWritten) {
+        // Copy-on-write mappings need a writable channel, although the file is never written.
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // Read rather than mapped, so no mapping is left for the collector to release.
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            readFully(channel, header, 0);
+            if (header.hasRemaining() || header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+                throw new IllegalStateException(String.format("%s is not a receipt snapshot.", file));
+            }
+            long walSegment = header.getLong(8);
+            int count = (int) header.getLong(16);
+            int capacity = header.getInt(24);
+            int chunkSize = header.getInt(28);
+            long recordsOffset = header.getLong(32);
+
+            MappedByteBuffer[] table = mapTable(channel, FileChannel.MapMode.PRIVATE, capacity);
+            long recordsLength = channel.size() - recordsOffset;
+            MappedByteBuffer[] chunks = new MappedByteBuffer[(int) ((recordsLength + chunkSize - 1) / chunkSize)];
+            MappedByteBuffer[] written = asWritten ? new MappedByteBuffer[chunks.length] : null;
+            for (int i = 0; i < chunks.length; i++) {
+                long start = (long) i * chunkSize;
+                long length = Math.min(chunkSize, recordsLength - start);
+                chunks[i] = channel.map(FileChannel.MapMode.PRIVATE, recordsOffset + start, length);
+                if (asWritten) {
+                    // Both mappings share the page cache until a record is written to.
+                    written[i] = channel.map(FileChannel.MapMode.READ_ONLY, recordsOffset + start, length);
+                }
+            }
+            // Mappings stay valid after the channel is closed.
+            return new ReceiptSnapshot(walSegment, count, capacity, table, chunks, written);
+        } catch (IOException e) {
+            throw new UncheckedIOException(String.format("Receipt snapshot %s cannot be opened.", file), e);
+        }
+    }
+
+    /**
+     * Writes a snapshot of the receipts supplied by `source` to a new file.
+     * A receipt supplied more than once is stored once, with its last version.
+     * @param file to create
+     * @param walSegment first write-ahead log segment whose records are not all in the snapshot
+     * @param maxCount expected number of receipts `source` supplies, at most `MAX_RECEIPTS`; the table is sized for twice as many
+     * @param source calls its argument once per receipt
+     * */
+    static void write(Path file, long walSegment, int maxCount, Consumer<Consumer<Receipt>> source) {
+        int capacity = tableCapacity(maxCount);
+        long recordsOffset = HEADER_SIZE + (long) capacity * SLOT_SIZE;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer[] table = mapTable(channel, FileChannel.MapMode.READ_WRITE, capacity);
+            long[] written = new long[2];
+            try {
+                ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE);
+                source.accept(receipt -> {
+                    try {
+                        byte[] record = ReceiptCodec.encode(receipt);
+                        long position = written[0];
+                        if (position % CHUNK_SIZE + record.length > CHUNK_SIZE) {
+                            position += CHUNK_SIZE - position % CHUNK_SIZE;
+                        }
+                        if (put(table, capacity - 1, receipt.getId().getMostSignificantBits(),
+                                receipt.getId().getLeastSignificantBits(), position)) {
+                            // Receipts saved while the snapshot is written may exceed maxCount; keep the table sparse.
+                            if (++written[1] > capacity * MAX_LOAD_FACTOR) {
+                                throw new IllegalStateException("The snapshot source supplied more receipts than expected.");
+                            }
+                        }
+                        if (position != written[0] || buffer.remaining() < record.length) {
+                            flush(channel, buffer, recordsOffset + written[0] - buffer.position());
+                        }
+                        if (record.length > buffer.capacity()) {
+                            writeFully(channel, ByteBuffer.wrap(record), recordsOffset + position);
+                        } else {
+                            buffer.put(record);
+                        }
+                        written[0] = position + record.length;
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                flush(channel, buffer, recordsOffset + written[0] - buffer.position());
+                for (MappedByteBuffer tableChunk : table) {
+                    tableChunk.force();
+                }
+            } finally {
+                // At once rather than whenever the collector finds the buffers.
+                for (MappedByteBuffer tableChunk : table) {
+                    unmap(tableChunk);
+                }
+            }
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE)
+                    .putInt(MAGIC)
+                    .putInt(VERSION)
+                    .putLong(walSegment)
+                    .putLong(written[1])
+                    .putInt(capacity)
+                    .putInt(CHUNK_SIZE)
+                    .putLong(recordsOffset)
+                    .flip();
+            writeFully(channel, header, 0);
+            channel.force(true);
+        } catch (IOException e) {
+            throw new UncheckedIOException(String.format("Receipt snapshot %s cannot be written.", file), e);
+        }
+    }
+
+    /**
+     * @return the first write-ahead log segment to replay on top of this snapshot
+     * */
+    long walSegment() {
+        return walSegment;
+    }
+
+    int size() {
+        return count;
+    }
+
+    Receipt findById(long msb, long lsb) {
+        long address = find(msb, lsb);
+        if (address == UuidIndex.MISSING) {
+            return null;
+        }
+        return ReceiptCodec.decode(chunks[(int) (address / CHUNK_SIZE)], (int) (address % CHUNK_SIZE));
+    }
+
+    boolean contains(long msb, long lsb) {
+        return find(msb, lsb) != UuidIndex.MISSING;
+    }
+
+    /**
+     * Writes memoized points into the mapped record with a compare-and-set; the file itself is not changed.
+     * @return false when the receipt is not in the snapshot or has points already
+     * */
+    boolean savePoints(long msb, long lsb, int points) {
+        long address = find(msb, lsb);
+        if (address == UuidIndex.MISSING) {
+            return false;
+        }
+        MappedByteBuffer chunk = chunks[(int) (address / CHUNK_SIZE)];
+        int offset = (int) (address % CHUNK_SIZE);
+        // The records start 8-byte aligned, so a record at a multiple of 4 has aligned points.
+        if (offset % 4 == 0) {
+            return ReceiptCodec.memoizePoints(chunk, offset, points);
+        }
+        unalignedPoints.lock();
+        try {
+            if (chunk.getInt(offset + ReceiptCodec.POINTS_OFFSET) != ReceiptCodec.UNSCORED) {
+                return false;
+            }
+            chunk.putInt(offset + ReceiptCodec.POINTS_OFFSET, points);
+            return true;
+        } finally {
+            unalignedPoints.unlock();
+        }
+    }
+
+    /**
+     * @return the bytes of the file that are mapped
+     * */
+    long mappedBytes() {
+        long bytes = 0;
+        for (MappedByteBuffer tableChunk : table) {
+            bytes += tableChunk.capacity();
+        }
+        for (MappedByteBuffer chunk : chunks) {
+            bytes += chunk.capacity();
+        }
+        return bytes;
+    }
+
+    void forEach(Consumer<Receipt> action) {
+        forEach(chunks, action);
+    }
+
+    /**
+     * Walks the receipts as the file holds them, without the points memoized since it was opened.
+     * */
+    void forEachAsWritten(Consumer<Receipt> action) {
+        if (written == null) {
+            throw new IllegalStateException("The snapshot was not opened to be read as written.");
+        }
+        forEach(written, action);
+    }
+
+    /**
+     * Unmaps the file at once, returning its address space, and its disk blocks once it is
+     * deleted. The caller makes sure no lookup or walk is still reading the snapshot, as
+     * reading an unmapped buffer crashes the JVM. Where buffers cannot be unmapped the
+     * mapping is left to the garbage collector.
+     * */
+    void close() {
+        for (MappedByteBuffer tableChunk : table) {
+            unmap(tableChunk);
+        }
+        for (int i = 0; i < chunks.length; i++) {
+            unmap(chunks[i]);
+            if (written != null) {
+                unmap(written[i]);
+            }
+        }
+    }
+
+    /**
+     * Reads the whole mapping into memory, so later lookups do not fault pages in from disk.
+     * */
+    void warmUp() {
+        for (MappedByteBuffer chunk : chunks) {
+            chunk.load();
+        }
+        for (MappedByteBuffer tableChunk : table) {
+            tableChunk.load();
+        }
+    }
+
+    private void forEach(MappedByteBuffer[] records, Consumer<Receipt> action) {
+        for (int slot = 0; slot <= mask; slot++) {
+            MappedByteBuffer tableChunk = table[slot >>> TABLE_CHUNK_SHIFT];
+            int base = offset(slot);
+            if (tableChunk.getLong(base) != 0 || tableChunk.getLong(base + 8) != 0) {
+                long address = tableChunk.getLong(base + 16);
+                action.accept(ReceiptCodec.decode(records[(int) (address / CHUNK_SIZE)], (int) (address % CHUNK_SIZE)));
+            }
+        }
+    }
+
+    private long find(long msb, long lsb) {
+        if (msb == 0 && lsb == 0) {
+            return UuidIndex.MISSING;
+        }
+        int slot = UuidIndex.hash(msb, lsb) & mask;
+        for (int probes = 0; probes <= mask; probes++) {
+            MappedByteBuffer tableChunk = table[slot >>> TABLE_CHUNK_SHIFT];
+            int base = offset(slot);
+            long keyMsb = tableChunk.getLong(base);
+            long keyLsb = tableChunk.getLong(base + 8);
+            if (keyMsb == msb && keyLsb == lsb) {
+                return tableChunk.getLong(base + 16);
+            }
+            if (keyMsb == 0 && keyLsb == 0) {
+                return UuidIndex.MISSING;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return UuidIndex.MISSING;
+    }
+
+    /**
+     * @return true when the key was not in the table yet
+     * */
+    private static boolean put(ByteBuffer[] table, int mask, long msb, long lsb, long address) {
+        int slot = UuidIndex.hash(msb, lsb) & mask;
+        while (true) {
+            ByteBuffer tableChunk = table[slot >>> TABLE_CHUNK_SHIFT];
+            int base = offset(slot);
+            long keyMsb = tableChunk.getLong(base);
+            long keyLsb = tableChunk.getLong(base + 8);
+            if (keyMsb == msb && keyLsb == lsb) {
+                tableChunk.putLong(base + 16, address);
+                return false;
+            }
+            if (keyMsb == 0 && keyLsb == 0) {
+                tableChunk.putLong(base, msb);
+                tableChunk.putLong(base + 8, lsb);
+                tableChunk.putLong(base + 16, address);
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    /**
+     * Sized for a load factor of at most 0.5, so probes stay short without a resize.
+     * */
+    private static int tableCapacity(int maxCount) {
+        if (maxCount > MAX_RECEIPTS) {
+            throw new IllegalArgumentException(String.format("A snapshot holds at most %d receipts.", MAX_RECEIPTS));
+        }
+        int capacity = 16;
+        // Above half of the largest capacity, the load factor goes up to its maximum instead.
+        while (capacity < 2L * maxCount && capacity < MAX_CAPACITY) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    private static MappedByteBuffer[] mapTable(FileChannel channel, FileChannel.MapMode mode, int capacity)
+            throws IOException {
+        int chunkSlots = Math.min(capacity, 1 << TABLE_CHUNK_SHIFT);
+        MappedByteBuffer[] table = new MappedByteBuffer[capacity / chunkSlots];
+        for (int i = 0; i < table.length; i++) {
+            table[i] = channel.map(mode, HEADER_SIZE + (long) i * chunkSlots * SLOT_SIZE, (long) chunkSlots * SLOT_SIZE);
+        }
+        return table;
+    }
+
+    private static int offset(int slot) {
+        return (slot & ((1 << TABLE_CHUNK_SHIFT) - 1)) * SLOT_SIZE;
+    }
+
+    private static void unmap(ByteBuffer buffer) {
+        if (UNMAP == null) {
+            return;
+        }
+        try {
+            UNMAP.invokeExact(buffer);
+        } catch (Throwable e) {
+            throw new IllegalStateException("A receipt snapshot buffer cannot be unmapped.", e);
+        }
+    }
+
+    private static MethodHandle unmapper() {
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            return MethodHandles.lookup()
+                    .findVirtual(unsafeClass, "invokeCleaner", MethodType.methodType(void.class, ByteBuffer.class))
+                    .bindTo(theUnsafe.get(null));
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        buffer.flip();
+        writeFully(channel, buffer, position);
+        buffer.clear();
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                return;
+            }
+            position += read;
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+}
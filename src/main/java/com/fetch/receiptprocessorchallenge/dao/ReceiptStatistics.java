@@ -0,0 +1,142 @@
+package com.fetch.receiptprocessorchallenge.dao;
+
+import com.fetch.receiptprocessorchallenge.models.Receipt;
+
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Receipt and points counts in total, per retailer, per purchase date and per hour of
+ * purchase, updated as receipts are saved and scored, so reading them never walks the store.
+ *
+ * Every bucket is a pair of `LongAdder`s: concurrent saves add to per-thread cells instead of
+ * contending on a single counter. The bucket of a new retailer or date is created once with
+ * `computeIfAbsent`; after that saves only look it up.
+ *
+ * A count is exact once the saves adding to it have returned. A read racing saves may see a
+ * receipt in one bucket and not yet in another.
+ */
+public final class ReceiptStatistics {
+    public static final int HOURS = 24;
+    // Heap measured per bucket: its map entry, the pair of adders and the counts holding them.
+    private static final long BUCKET_BYTES = 128;
+
+    private final Counts total = new Counts();
+    private final LongAdder scored = new LongAdder();
+    private final ConcurrentHashMap<String, Counts> byRetailer = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<LocalDate, Counts> byDate = new ConcurrentHashMap<>();
+    private final Counts[] byHour = new Counts[HOURS];
+
+    ReceiptStatistics() {
+        for (int hour = 0; hour < HOURS; hour++) {
+            byHour[hour] = new Counts();
+        }
+    }
+
+    /**
+     * Counts a saved receipt, and its points when it was scored before it was saved.
+     * */
+    void saved(Receipt receipt) {
+        Integer points = receipt.getPoints();
+        add(receipt, 1, points == null ? 0 : points);
+        if (points != null) {
+            scored.increment();
+        }
+    }
+
+    /**
+     * Counts the points of a saved receipt that was scored after it was saved.
+     * */
+    void scored(Receipt receipt, int points) {
+        add(receipt, 0, points);
+        scored.increment();
+    }
+
+    /**
+     * @return receipts and points over all saved receipts
+     * */
+    public Counts getTotal() {
+        return total;
+    }
+
+    /**
+     * @return the number of saved receipts whose points are counted, fewer than the receipts
+     * in LAZY scoring mode until every receipt has been read
+     * */
+    public long getScoredReceipts() {
+        return scored.sum();
+    }
+
+    /**
+     * @return a live view of the counts per retailer name
+     * */
+    public Map<String, Counts> getByRetailer() {
+        return byRetailer;
+    }
+
+    /**
+     * @return a live view of the counts per purchase date
+     * */
+    public Map<LocalDate, Counts> getByDate() {
+        return byDate;
+    }
+
+    /**
+     * @param hour hour of the purchase time, 0 to 23
+     * @return the counts of receipts purchased in that hour
+     * */
+    public Counts getByHour(int hour) {
+        return byHour[hour];
+    }
+
+    long estimatedMemoryBytes() {
+        return (1 + HOURS + byRetailer.size() + byDate.size()) * BUCKET_BYTES;
+    }
+
+    private void add(Receipt receipt, long receipts, long points) {
+        total.add(receipts, points);
+        // Receipts are validated before they are saved; the checks only spare partial test receipts.
+        if (receipt.getRetailer() != null) {
+            bucket(byRetailer, receipt.getRetailer()).add(receipts, points);
+        }
+        if (receipt.getPurchaseDate() != null) {
+            bucket(byDate, receipt.getPurchaseDate()).add(receipts, points);
+        }
+        if (receipt.getPurchaseTime() != null) {
+            byHour[receipt.getPurchaseTime().getHour()].add(receipts, points);
+        }
+    }
+
+    private static <K> Counts bucket(ConcurrentHashMap<K, Counts> buckets, K key) {
+        // A plain get first: computeIfAbsent may lock the bin even when the bucket exists.
+        Counts counts = buckets.get(key);
+        return counts != null ? counts : buckets.computeIfAbsent(key, k -> new Counts());
+    }
+
+    /**
+     * Receipt and points counters of one bucket.
+     * */
+    public static final class Counts {
+        private final LongAdder receipts = new LongAdder();
+        private final LongAdder points = new LongAdder();
+
+        private void add(long receiptCount, long pointCount) {
+            if (receiptCount != 0) {
+                receipts.add(receiptCount);
+            }
+            if (pointCount != 0) {
+                points.add(pointCount);
+            }
+        }
+
+        public long getReceipts() {
+            return receipts.sum();
+        }
+
+        public long getPoints() {
+            return points.sum();
+        }
+    }
+}
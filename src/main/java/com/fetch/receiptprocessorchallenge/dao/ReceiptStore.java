@@ -0,0 +1,74 @@
+package com.fetch.receiptprocessorchallenge.dao;
+
+import com.fetch.receiptprocessorchallenge.models.Receipt;
+
+import java.util.Collection;
+import java.util.function.Consumer;
+
+/**
+ * Storage backend behind `ReceiptDAO`.
+ * Implementations must be safe for concurrent use by request threads.
+ */
+interface ReceiptStore {
+
+    void save(Receipt receipt);
+
+    default void saveAll(Collection<Receipt> receipts) {
+        for (Receipt receipt : receipts) {
+            save(receipt);
+        }
+    }
+
+    /**
+     * @param msb most significant bits of the receipt id
+     * @param lsb least significant bits of the receipt id
+     * @return the stored receipt, or null when there is none with the given id
+     */
+    Receipt findById(long msb, long lsb);
+
+    /**
+     * @return true when a receipt with the given id is stored
+     */
+    default boolean contains(long msb, long lsb) {
+        return findById(msb, lsb) != null;
+    }
+
+    /**
+     * Looks up many receipts in one call, which a store behind a round trip answers in one.
+     *
+     * @param msbs most significant bits of the receipt ids
+     * @param lsbs least significant bits of the receipt ids, in the same order
+     * @param found filled with the stored receipt of each id, or null when there is none
+     */
+    default void findAllById(long[] msbs, long[] lsbs, Receipt[] found) {
+        for (int i = 0; i < found.length; i++) {
+            found[i] = findById(msbs[i], lsbs[i]);
+        }
+    }
+
+    /**
+     * Records the memoized points of an already stored receipt, with a compare-and-set
+     * from unscored, so of concurrent first scorings of a receipt exactly one stores its points.
+     *
+     * @return true when this call stored the points; false when the receipt had points already or is not stored
+     */
+    boolean savePoints(long msb, long lsb, int points);
+
+    int size();
+
+    /**
+     * @return an estimate of the bytes held by the stored receipts and the structures indexing them
+     */
+    long estimatedMemoryBytes();
+
+    /**
+     * Calls the action for every stored receipt. Receipts saved while this runs may or may not be included.
+     */
+    void forEach(Consumer<Receipt> action);
+
+    /**
+     * Releases resources such as open files; the store is not used afterwards.
+     */
+    default void close() {
+    }
+}
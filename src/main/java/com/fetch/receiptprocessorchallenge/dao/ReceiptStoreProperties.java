@@ -0,0 +1,90 @@
+package com.fetch.receiptprocessorchallenge.dao;
+
+import lombok.Builder;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * The `receipts.store` properties that configure a `ReceiptDAO`.
+ *
+ * Outside Spring, start from `defaults()`, which has the values an unset property binds to,
+ * and change what the store needs with `toBuilder()`, e.g.
+ * `ReceiptStoreProperties.defaults().toBuilder().mode(StoreMode.BINARY).build()`.
+ *
+ * @param mode how receipts are held in memory
+ * @param initialCapacity how many receipts the store is sized for up front
+ * @param segments lock stripes of the store, or 0 for 4 per processor
+ * @param simulatedLatencyMs delay of every store access, as if the store were remote, or 0 for none
+ * @param memoryBudgetBytes heap the in-memory receipts may use before the coldest are evicted, or 0 for no limit
+ */
+@ConfigurationProperties("receipts.store")
+@Builder(toBuilder = true, builderMethodName = "")
+public record ReceiptStoreProperties(@DefaultValue("OBJECT") StoreMode mode,
+                                     @DefaultValue("" + ReceiptStoreProperties.DEFAULT_INITIAL_CAPACITY) int initialCapacity,
+                                     int segments,
+                                     @DefaultValue Binary binary,
+                                     @DefaultValue Wal wal,
+                                     long simulatedLatencyMs,
+                                     long memoryBudgetBytes,
+                                     @DefaultValue Spill spill) {
+    static final int DEFAULT_INITIAL_CAPACITY = 1024;
+    static final int DEFAULT_SLAB_SIZE = 64 * 1024 * 1024;
+    static final long DEFAULT_WAL_SEGMENT_SIZE = 64 * 1024 * 1024;
+    static final long DEFAULT_WAL_SYNC_INTERVAL_MS = 10;
+
+    /**
+     * @return the properties of an in-memory OBJECT store, without a log, latency or memory budget
+     * */
+    public static ReceiptStoreProperties defaults() {
+        return new ReceiptStoreProperties(StoreMode.OBJECT, DEFAULT_INITIAL_CAPACITY, 0,
+                Binary.defaults(), Wal.defaults(), 0, 0, Spill.defaults());
+    }
+
+    /**
+     * @param slabSize bytes per slab of a BINARY store
+     * @param direct whether BINARY slabs are allocated off-heap
+     */
+    @Builder(toBuilder = true, builderMethodName = "")
+    public record Binary(@DefaultValue("" + DEFAULT_SLAB_SIZE) int slabSize, boolean direct) {
+        public static Binary defaults() {
+            return new Binary(DEFAULT_SLAB_SIZE, false);
+        }
+    }
+
+    /**
+     * @param directory where the write-ahead log is kept, or empty to keep receipts in memory only
+     * @param durability when saves are fsynced
+     * @param segmentSize bytes per log segment
+     * @param syncIntervalMs how often BATCH and ASYNC logs are fsynced
+     * @param snapshotIntervalSeconds how often the store is snapshotted next to the log, or 0 for never
+     */
+    @Builder(toBuilder = true, builderMethodName = "")
+    public record Wal(String directory,
+                      @DefaultValue("SYNC") WalDurability durability,
+                      @DefaultValue("" + DEFAULT_WAL_SEGMENT_SIZE) long segmentSize,
+                      @DefaultValue("" + DEFAULT_WAL_SYNC_INTERVAL_MS) long syncIntervalMs,
+                      long snapshotIntervalSeconds) {
+        public static Wal defaults() {
+            return new Wal("", WalDurability.SYNC, DEFAULT_WAL_SEGMENT_SIZE, DEFAULT_WAL_SYNC_INTERVAL_MS, 0);
+        }
+
+        boolean isEnabled() {
+            return directory != null && !directory.isBlank();
+        }
+    }
+
+    /**
+     * @param directory where receipts evicted over the memory budget are spilled, or empty to drop them
+     * @param ttlSeconds age after which a spill file is deleted, dropping its receipts, or 0 to keep it
+     */
+    @Builder(toBuilder = true, builderMethodName = "")
+    public record Spill(String directory, long ttlSeconds) {
+        public static Spill defaults() {
+            return new Spill("", 0);
+        }
+
+        boolean isEnabled() {
+            return directory != null && !directory.isBlank();
+        }
+    }
+}
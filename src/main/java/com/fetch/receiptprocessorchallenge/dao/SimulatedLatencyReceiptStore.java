@@ -0,0 +1,80 @@
+package com.fetch.receiptprocessorchallenge.dao;
+
+import com.fetch.receiptprocessorchallenge.models.Receipt;
+
+import java.util.Collection;
+import java.util.function.Consumer;
+
+/**
+ * Adds a fixed delay to every save and lookup of another `ReceiptStore`, to stand in
+ * for the network or disk round trip of a remote store in load tests. A bulk save or
+ * lookup pays it once, like a single round trip. Request threads block in
+ * `Thread.sleep`, which parks a virtual thread instead of its carrier.
+ */
+class SimulatedLatencyReceiptStore implements ReceiptStore {
+    private final ReceiptStore store;
+    private final long latencyMillis;
+
+    SimulatedLatencyReceiptStore(ReceiptStore store, long latencyMillis) {
+        this.store = store;
+        this.latencyMillis = latencyMillis;
+    }
+
+    @Override
+    public void save(Receipt receipt) {
+        pause();
+        store.save(receipt);
+    }
+
+    @Override
+    public void saveAll(Collection<Receipt> receipts) {
+        pause();
+        store.saveAll(receipts);
+    }
+
+    @Override
+    public Receipt findById(long msb, long lsb) {
+        pause();
+        return store.findById(msb, lsb);
+    }
+
+    @Override
+    public void findAllById(long[] msbs, long[] lsbs, Receipt[] found) {
+        pause();
+        store.findAllById(msbs, lsbs, found);
+    }
+
+    @Override
+    public boolean savePoints(long msb, long lsb, int points) {
+        pause();
+        return store.savePoints(msb, lsb, points);
+    }
+
+    @Override
+    public int size() {
+        return store.size();
+    }
+
+    @Override
+    public long estimatedMemoryBytes() {
+        return store.estimatedMemoryBytes();
+    }
+
+    @Override
+    public void forEach(Consumer<Receipt> action) {
+        store.forEach(action);
+    }
+
+    @Override
+    public void close() {
+        store.close();
+    }
+
+    private void pause() {
+        try {
+            Thread.sleep(latencyMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
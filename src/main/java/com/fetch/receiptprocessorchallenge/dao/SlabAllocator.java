@@ -0,0 +1,117 @@
+package com.fetch.receiptprocessorchallenge.dao;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Append-only allocator handing out space in large `ByteBuffer` slabs,
+ * allocated on-heap or off-heap (direct).
+ *
+ * An address packs the slab index in the high 32 bits and the offset within
+ * the slab in the low 32 bits. Allocation is a CAS on a shared cursor; the lock
+ * is only taken when the current slab is full and a new one must be added.
+ * Records never move and are only accessed with absolute reads and writes,
+ * so concurrent writers of different records do not interfere.
+ */
+final class SlabAllocator {
+    private final int slabSize;
+    private final boolean direct;
+    private final AtomicLong cursor;
+    private final ReentrantLock growLock = new ReentrantLock();
+    private volatile ByteBuffer[] slabs;
+
+    SlabAllocator(int slabSize, boolean direct) {
+        if (slabSize <= 0) {
+            throw new IllegalArgumentException("Slab size must be greater than 0.");
+        }
+        this.slabSize = slabSize;
+        this.direct = direct;
+        this.slabs = new ByteBuffer[]{newSlab()};
+        this.cursor = new AtomicLong(0);
+    }
+
+    /**
+     * Reserves `length` contiguous bytes.
+     * @param length of the record
+     * @return the address of the reserved space
+     * */
+    long allocate(int length) {
+        if (length > slabSize) {
+            throw new IllegalArgumentException(
+                    String.format("Record of %d bytes does not fit in a slab of %d bytes.", length, slabSize));
+        }
+        while (true) {
+            long current = cursor.get();
+            int offset = offset(current);
+            if (offset + length <= slabSize) {
+                if (cursor.compareAndSet(current, current + length)) {
+                    return current;
+                }
+            } else {
+                addSlab(slabIndex(current));
+            }
+        }
+    }
+
+    /**
+     * Writes the record bytes at an address returned by `allocate`.
+     * */
+    void write(long address, byte[] record) {
+        slab(address).put(offset(address), record);
+    }
+
+    /**
+     * @return the slab holding the given address; read it at `offset(address)`
+     * */
+    ByteBuffer slab(long address) {
+        return slabs[slabIndex(address)];
+    }
+
+    /**
+     * @return the total bytes reserved by the slabs
+     * */
+    long capacity() {
+        return (long) slabs.length * slabSize;
+    }
+
+    /**
+     * @return the address the next allocation would start at; everything before it has been handed out
+     * */
+    long end() {
+        return cursor.get();
+    }
+
+    static int offset(long address) {
+        return (int) address;
+    }
+
+    static int slabIndex(long address) {
+        return (int) (address >>> 32);
+    }
+
+    /**
+     * Moves the cursor to a fresh slab, unless another thread already did.
+     * The slab is published before the cursor so that every address handed out
+     * afterwards resolves to an existing slab.
+     * */
+    private void addSlab(int fullSlab) {
+        growLock.lock();
+        try {
+            if (slabIndex(cursor.get()) != fullSlab) {
+                return;
+            }
+            ByteBuffer[] grown = Arrays.copyOf(slabs, slabs.length + 1);
+            grown[grown.length - 1] = newSlab();
+            slabs = grown;
+            cursor.set((long) (fullSlab + 1) << 32);
+        } finally {
+            growLock.unlock();
+        }
+    }
+
+    private ByteBuffer newSlab() {
+        return direct ? ByteBuffer.allocateDirect(slabSize) : ByteBuffer.allocate(slabSize);
+    }
+}
@@ -0,0 +1,13 @@
+package com.fetch.receiptprocessorchallenge.dao;
+
+/**
+ * How `ReceiptDAO` keeps receipts in memory.
+ *
+ * OBJECT stores the `Receipt` objects themselves.
+ * BINARY packs every receipt into a compact binary record inside large
+ * `ByteBuffer` slabs and decodes it only when it is read.
+ */
+public enum StoreMode {
+    OBJECT,
+    BINARY
+}
@@ -0,0 +1,134 @@
+package com.fetch.receiptprocessorchallenge.dao;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Residency, hit and spill counts of a store with a memory budget, read when metrics
+ * are scraped. Lookups and evictions add to `LongAdder`s, so counting them does not
+ * contend; residency is read from the tiers when asked for.
+ */
+public final class TierStatistics {
+    private final TieredReceiptStore store;
+    private final LongAdder memoryHits = new LongAdder();
+    private final LongAdder diskHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder promoted = new LongAdder();
+    private final LongAdder spilledReceipts = new LongAdder();
+    private final LongAdder spilledBytes = new LongAdder();
+    private final LongAdder expired = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    TierStatistics(TieredReceiptStore store) {
+        this.store = store;
+    }
+
+    void memoryHit() {
+        memoryHits.increment();
+    }
+
+    void diskHit() {
+        diskHits.increment();
+    }
+
+    void miss() {
+        misses.increment();
+    }
+
+    void promoted(long receipts) {
+        promoted.add(receipts);
+    }
+
+    void spilled(long receipts, long bytes) {
+        spilledReceipts.add(receipts);
+        spilledBytes.add(bytes);
+    }
+
+    void expired(long receipts) {
+        expired.add(receipts);
+    }
+
+    void dropped() {
+        dropped.increment();
+    }
+
+    /**
+     * @return receipts held in memory
+     * */
+    public long getResidentReceipts() {
+        return store.residentReceipts();
+    }
+
+    /**
+     * @return estimated memory held by the receipts in memory, kept near the budget
+     * */
+    public long getResidentBytes() {
+        return store.residentBytes();
+    }
+
+    /**
+     * @return receipts currently in spill files
+     * */
+    public long getSpilledReceipts() {
+        return store.spilledReceipts();
+    }
+
+    public int getSpillFiles() {
+        return store.spillFiles();
+    }
+
+    /**
+     * @return lookups found in memory
+     * */
+    public long getMemoryHits() {
+        return memoryHits.sum();
+    }
+
+    /**
+     * @return lookups read back from a spill file
+     * */
+    public long getDiskHits() {
+        return diskHits.sum();
+    }
+
+    /**
+     * @return lookups of receipts in no tier: unknown, dropped or expired
+     * */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * @return receipts read while in an old generation, and so kept in memory when it was evicted
+     * */
+    public long getPromotedReceipts() {
+        return promoted.sum();
+    }
+
+    /**
+     * @return receipts written to spill files since startup
+     * */
+    public long getSpillWrittenReceipts() {
+        return spilledReceipts.sum();
+    }
+
+    /**
+     * @return bytes written to spill files since startup
+     * */
+    public long getSpillWrittenBytes() {
+        return spilledBytes.sum();
+    }
+
+    /**
+     * @return spilled receipts deleted with their file once it outlived the TTL
+     * */
+    public long getExpiredReceipts() {
+        return expired.sum();
+    }
+
+    /**
+     * @return receipts that left the store, evicted without a spill directory or expired
+     * */
+    public long getDroppedReceipts() {
+        return dropped.sum();
+    }
+}
@@ -0,0 +1,692 @@
+package com.fetch.receiptprocessorchallenge.dao;
+
+import com.fetch.receiptprocessorchallenge.models.Receipt;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
+
+/**
+ * Keeps the in-memory receipts within a memory budget, evicting the coldest ones to a
+ * disk tier, or dropping them, when it is exceeded.
+ *
+ * Receipts are saved into the newest of up to `GENERATIONS` in-memory stores, each of
+ * the configured mode. When it holds an eighth of the budget a new one is started, and
+ * while the generations hold more than the budget the oldest is evicted. Eviction is
+ * an approximate LRU with a second chance, like CLOCK: a lookup served by an older
+ * generation sets the receipt's bit in that generation's access bitmap, and receipts
+ * whose bit is set are copied into the newest generation instead of being evicted.
+ * The bitmap is hashed by id, so a collision only gives a cold receipt a second chance.
+ *
+ * Evicted receipts are written to a `ReceiptSnapshot` file in the spill directory,
+ * which is memory-mapped and read on lookups after every generation; spill files older
+ * than the TTL are deleted. Without a spill directory evicted receipts are dropped.
+ * Receipts leaving the store are passed to the drop listener. Spill files are a cache,
+ * not durable storage: they are deleted on startup and when the store is closed.
+ * Lookups count themselves in as readers of a spill file, so an expired one is unmapped
+ * as soon as the last lookup still reading it is done, and its disk space and address
+ * space are returned then rather than whenever the collector finds the buffers.
+ *
+ * The generations and spill files are published together in an immutable `Tiers`, so a
+ * lookup walks one consistent list without locking. An evicted receipt is in the disk
+ * tier, or promoted, before the generation holding it is unpublished, so it is never
+ * missing in between.
+ *
+ * Generations are started and evicted on a dedicated evictor thread; a save that finds
+ * the newest generation full only signals it. Saves wait for the evictor only once the
+ * generations exceed the budget by more than a generation, which holds back ingest
+ * while the disk catches up.
+ */
+@Slf4j
+final class TieredReceiptStore implements ReceiptStore {
+    static final int GENERATIONS = 8;
+    private static final String SPILL_PREFIX = "spill-";
+    // Not `ReceiptSnapshot.SUFFIX`, so spill files are never taken for snapshots of a write-ahead log.
+    static final String SPILL_SUFFIX = ".spill";
+    // Saves check whether the newest generation is full once in this many, on average.
+    private static final int CHECK_INTERVAL = 16;
+    private static final int ACCESS_BITS = 1 << 16;
+    // How long a save held back by the budget waits before checking it again, in case a signal was missed.
+    private static final long BACKPRESSURE_WAIT_MILLIS = 10;
+
+    private final Supplier<ReceiptStore> generations;
+    private final long budgetBytes;
+    private final long generationBytes;
+    private final long hardLimitBytes;
+    private final Path spillDirectory;
+    private final long ttlNanos;
+    private final Consumer<Receipt> dropListener;
+    private final TierStatistics statistics = new TierStatistics(this);
+    private final ReentrantLock tiersLock = new ReentrantLock();
+    private final ReentrantLock evictLock = new ReentrantLock();
+    private final ReentrantLock budgetLock = new ReentrantLock();
+    private final Condition evicted = budgetLock.newCondition();
+    private final AtomicBoolean evictionScheduled = new AtomicBoolean();
+    private final AtomicLong spillSequence = new AtomicLong();
+    private final ExecutorService evictor;
+    private final ScheduledExecutorService expirer;
+    private volatile Tiers tiers;
+
+    /**
+     * @param generations creates an empty in-memory store for a new generation
+     * @param budgetBytes most memory the generations hold, as estimated by their stores
+     * @param spillDirectory where evicted receipts are written, or null to drop them
+     * @param ttlSeconds how long a spill file is kept, 0 to keep it until the store is closed
+     * @param dropListener called with every receipt that leaves the store
+     * */
+    TieredReceiptStore(Supplier<ReceiptStore> generations, long budgetBytes, Path spillDirectory, long ttlSeconds,
+                       Consumer<Receipt> dropListener) {
+        if (budgetBytes <= 0) {
+            throw new IllegalArgumentException("Store memory budget must be greater than 0.");
+        }
+        this.generations = generations;
+        this.budgetBytes = budgetBytes;
+        this.generationBytes = generationBytes(budgetBytes);
+        // Room for the newest generation to fill while the evictor writes out the oldest.
+        this.hardLimitBytes = budgetBytes + generationBytes;
+        this.spillDirectory = spillDirectory;
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+        this.dropListener = dropListener;
+        if (spillDirectory != null) {
+            try {
+                Files.createDirectories(spillDirectory);
+            } catch (IOException e) {
+                throw new UncheckedIOException(String.format("Spill directory %s cannot be created.", spillDirectory), e);
+            }
+            deleteSpillFiles();
+        }
+        tiers = new Tiers(new Generation[]{new Generation(generations.get())}, new Spill[0]);
+        evictor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "receipt-eviction");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (spillDirectory != null && ttlSeconds > 0) {
+            expirer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "receipt-spill-expiry");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long period = Math.max(1, ttlSeconds / 4);
+            expirer.scheduleWithFixedDelay(this::expireQuietly, period, period, TimeUnit.SECONDS);
+        } else {
+            expirer = null;
+        }
+    }
+
+    /**
+     * Size of one generation for a budget, for stores that reserve memory up front.
+     * */
+    static long generationBytes(long budgetBytes) {
+        return Math.max(1, budgetBytes / GENERATIONS);
+    }
+
+    @Override
+    public void save(Receipt receipt) {
+        Generation active = tiers.generations[0];
+        // A save that read the tiers long ago may find its generation already being evicted.
+        while (!active.save(receipt)) {
+            active = tiers.generations[0];
+        }
+        if (ThreadLocalRandom.current().nextInt(CHECK_INTERVAL) == 0
+                && active.store.estimatedMemoryBytes() >= generationBytes) {
+            scheduleEviction();
+            if (residentBytes() > hardLimitBytes) {
+                awaitEviction();
+            }
+        }
+    }
+
+    @Override
+    public Receipt findById(long msb, long lsb) {
+        Tiers current = tiers;
+        Generation[] resident = current.generations;
+        for (int i = 0; i < resident.length; i++) {
+            Receipt receipt = resident[i].store.findById(msb, lsb);
+            if (receipt != null) {
+                if (i > 0) {
+                    resident[i].accessed(msb, lsb);
+                }
+                statistics.memoryHit();
+                return receipt;
+            }
+        }
+        for (Spill spill : current.spills) {
+            if (!spill.acquire()) {
+                continue;
+            }
+            Receipt receipt;
+            try {
+                receipt = spill.snapshot.findById(msb, lsb);
+            } finally {
+                spill.release();
+            }
+            if (receipt != null) {
+                statistics.diskHit();
+                return receipt;
+            }
+        }
+        statistics.miss();
+        return null;
+    }
+
+    /**
+     * The points are written to every tier holding the receipt, as one may be evicting it.
+     * A receipt is only in two tiers while the oldest generation is copied into the newest
+     * one, or into a spill file, so the generations are walked from the oldest and the first
+     * tier holding the receipt decides whether this call stored its points. A copy taken
+     * between two calls that each read the tiers before and after the oldest generation was
+     * unpublished can still let both store them.
+     * */
+    @Override
+    public boolean savePoints(long msb, long lsb, int points) {
+        Tiers current = tiers;
+        boolean decided = false;
+        boolean stored = false;
+        for (int i = current.generations.length - 1; i >= 0; i--) {
+            ReceiptStore store = current.generations[i].store;
+            boolean won = store.savePoints(msb, lsb, points);
+            if (!decided && (won || store.contains(msb, lsb))) {
+                decided = true;
+                stored = won;
+            }
+        }
+        for (Spill spill : current.spills) {
+            if (!spill.acquire()) {
+                continue;
+            }
+            try {
+                boolean won = spill.snapshot.savePoints(msb, lsb, points);
+                if (!decided && (won || spill.snapshot.contains(msb, lsb))) {
+                    decided = true;
+                    stored = won;
+                }
+            } finally {
+                spill.release();
+            }
+        }
+        return stored;
+    }
+
+    /**
+     * A receipt being promoted or spilled may be counted twice.
+     * */
+    @Override
+    public int size() {
+        return (int) Math.min(Integer.MAX_VALUE, residentReceipts() + spilledReceipts());
+    }
+
+    /**
+     * The mapped spill files are included, as the receipts read from them are paged in.
+     * */
+    @Override
+    public long estimatedMemoryBytes() {
+        long bytes = residentBytes();
+        for (Spill spill : tiers.spills) {
+            bytes += spill.snapshot.mappedBytes();
+        }
+        return bytes;
+    }
+
+    /**
+     * Walks the generations from the newest, then the spill files. A receipt being
+     * promoted or spilled may be passed twice.
+     * */
+    @Override
+    public void forEach(Consumer<Receipt> action) {
+        Tiers current = tiers;
+        for (Generation generation : current.generations) {
+            generation.store.forEach(action);
+        }
+        for (Spill spill : current.spills) {
+            if (!spill.acquire()) {
+                continue;
+            }
+            try {
+                spill.snapshot.forEach(action);
+            } finally {
+                spill.release();
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        if (expirer != null) {
+            expirer.shutdownNow();
+        }
+        // An eviction under way finishes first, so its spill file is not cut off midway.
+        evictor.shutdown();
+        try {
+            evictor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        evictLock.lock();
+        try {
+            for (Generation generation : tiers.generations) {
+                generation.store.close();
+            }
+            for (Spill spill : tiers.spills) {
+                publish(current -> current.withoutSpill(spill));
+                spill.release();
+            }
+            if (spillDirectory != null) {
+                deleteSpillFiles();
+            }
+        } finally {
+            evictLock.unlock();
+        }
+    }
+
+    TierStatistics statistics() {
+        return statistics;
+    }
+
+    /**
+     * @return true when evicted receipts are written to disk, which saves may wait for and lookups read
+     * */
+    boolean spills() {
+        return spillDirectory != null;
+    }
+
+    long residentReceipts() {
+        long receipts = 0;
+        for (Generation generation : tiers.generations) {
+            receipts += generation.store.size();
+        }
+        return receipts;
+    }
+
+    long residentBytes() {
+        long bytes = 0;
+        for (Generation generation : tiers.generations) {
+            bytes += generation.store.estimatedMemoryBytes();
+        }
+        return bytes;
+    }
+
+    long spilledReceipts() {
+        long receipts = 0;
+        for (Spill spill : tiers.spills) {
+            receipts += spill.snapshot.size();
+        }
+        return receipts;
+    }
+
+    int spillFiles() {
+        return tiers.spills.length;
+    }
+
+    int generationCount() {
+        return tiers.generations.length;
+    }
+
+    /**
+     * Deletes the spill files older than the TTL, dropping their receipts.
+     * */
+    void expire() {
+        long now = System.nanoTime();
+        evictLock.lock();
+        try {
+            for (Spill spill : tiers.spills) {
+                if (now - spill.spilledAt >= ttlNanos) {
+                    publish(current -> current.withoutSpill(spill));
+                    try {
+                        spill.snapshot.forEach(this::drop);
+                        deleteQuietly(spill.file);
+                        statistics.expired(spill.snapshot.size());
+                    } finally {
+                        // Unmapped now, or by the last lookup that read the tiers before they changed.
+                        spill.release();
+                    }
+                }
+            }
+        } finally {
+            evictLock.unlock();
+        }
+    }
+
+    /**
+     * Starts a new generation once the newest is full, then evicts until the budget is met.
+     * Runs on the evictor thread, or on the caller to settle the store at once.
+     * */
+    void enforceBudget() {
+        evictLock.lock();
+        try {
+            // Cleared under the lock, so a save finding it unset while the lock is free knows no eviction is due.
+            evictionScheduled.set(false);
+            int kept = 1;
+            if (tiers.generations[0].store.estimatedMemoryBytes() >= generationBytes) {
+                publish(current -> current.withNewest(new Generation(generations.get())));
+                // Reads only mark receipts of older generations, so the one rolled just now waits for a later run.
+                kept = 2;
+            }
+            while (tiers.generations.length > kept
+                    && (tiers.generations.length > GENERATIONS + 1 || residentBytes() > budgetBytes)) {
+                boolean done = evict(tiers.generations[tiers.generations.length - 1]);
+                signalEvicted();
+                if (!done) {
+                    break;
+                }
+            }
+        } finally {
+            evictLock.unlock();
+        }
+        signalEvicted();
+    }
+
+    /**
+     * Hands the newest generation, found full, to the evictor; a signal while one is pending is merged into it.
+     * */
+    private void scheduleEviction() {
+        if (evictionScheduled.compareAndSet(false, true)) {
+            try {
+                evictor.execute(this::enforceBudgetQuietly);
+            } catch (RejectedExecutionException e) {
+                // The store is closed.
+                evictionScheduled.set(false);
+            }
+        }
+    }
+
+    /**
+     * Holds a save back while the generations exceed the budget by more than a generation,
+     * until the evictor brings them under it or has nothing left to evict.
+     * */
+    private void awaitEviction() {
+        budgetLock.lock();
+        try {
+            while (residentBytes() > hardLimitBytes && (evictionScheduled.get() || evictLock.isLocked())) {
+                evicted.await(BACKPRESSURE_WAIT_MILLIS, TimeUnit.MILLISECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            budgetLock.unlock();
+        }
+    }
+
+    private void signalEvicted() {
+        budgetLock.lock();
+        try {
+            evicted.signalAll();
+        } finally {
+            budgetLock.unlock();
+        }
+    }
+
+    private void enforceBudgetQuietly() {
+        try {
+            enforceBudget();
+        } catch (RuntimeException e) {
+            log.warn("Receipts could not be evicted", e);
+        }
+    }
+
+    /**
+     * @return false when the generation could not be spilled and is kept in memory
+     * */
+    private boolean evict(Generation oldest) {
+        oldest.closeToSaves();
+        oldest.freezeAccessed();
+        Tiers current = tiers;
+        long[] promotedCount = {0};
+        // The newest generation takes the promoted receipts without a fullness check;
+        // the next save that samples it rolls it if they filled it.
+        ReceiptStore newest = current.generations[0].store;
+        Spill spill = null;
+        if (spillDirectory != null) {
+            Path file = spillDirectory.resolve(String.format("%s%020d%s", SPILL_PREFIX,
+                    spillSequence.incrementAndGet(), SPILL_SUFFIX));
+            try {
+                ReceiptSnapshot.write(file, 0, Math.max(1, oldest.store.size()), sink -> oldest.store.forEach(receipt -> {
+                    if (oldest.wasAccessed(receipt)) {
+                        newest.save(receipt);
+                        promotedCount[0]++;
+                    } else {
+                        sink.accept(receipt);
+                    }
+                }));
+                spill = new Spill(ReceiptSnapshot.open(file), file, System.nanoTime());
+                statistics.spilled(spill.snapshot.size(), Files.size(file));
+            } catch (IOException | UncheckedIOException e) {
+                log.warn("Receipts cannot be spilled to {}; keeping them in memory", file, e);
+                deleteQuietly(file);
+                oldest.openToSaves();
+                return false;
+            }
+        } else {
+            oldest.store.forEach(receipt -> {
+                if (oldest.wasAccessed(receipt)) {
+                    newest.save(receipt);
+                    promotedCount[0]++;
+                }
+            });
+        }
+        Spill added = spill;
+        publish(tiersNow -> tiersNow.withoutOldest(oldest, added));
+        statistics.promoted(promotedCount[0]);
+        if (added == null) {
+            oldest.store.forEach(receipt -> {
+                if (!oldest.wasAccessed(receipt)) {
+                    drop(receipt);
+                }
+            });
+        }
+        oldest.store.close();
+        return true;
+    }
+
+    private void drop(Receipt receipt) {
+        statistics.dropped();
+        dropListener.accept(receipt);
+    }
+
+    private void publish(UnaryOperator<Tiers> change) {
+        tiersLock.lock();
+        try {
+            tiers = change.apply(tiers);
+        } finally {
+            tiersLock.unlock();
+        }
+    }
+
+    private void expireQuietly() {
+        try {
+            expire();
+        } catch (RuntimeException e) {
+            log.warn("Spill files could not be expired", e);
+        }
+    }
+
+    private void deleteSpillFiles() {
+        try (Stream<Path> files = Files.list(spillDirectory)) {
+            files.filter(file -> isSpillFile(file.getFileName().toString()))
+                    .forEach(TieredReceiptStore::deleteQuietly);
+        } catch (IOException e) {
+            throw new UncheckedIOException(String.format("Spill directory %s cannot be listed.", spillDirectory), e);
+        }
+    }
+
+    private static boolean isSpillFile(String name) {
+        return name.startsWith(SPILL_PREFIX) && name.endsWith(SPILL_SUFFIX);
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            // A mapped spill file stays readable after it is deleted, until it is unmapped.
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Spill file {} cannot be deleted", file, e);
+        }
+    }
+
+    /**
+     * An in-memory store and the bitmap of its receipts read since it stopped being the newest.
+     *
+     * A save announces itself in `saving` before checking `evicting`, and eviction sets
+     * `evicting` before waiting for `saving` to drain; both are volatile, so either the
+     * save sees the eviction and goes to the newest generation, or eviction sees the save.
+     * */
+    private static final class Generation {
+        private final ReceiptStore store;
+        private final AtomicLongArray accessed = new AtomicLongArray(ACCESS_BITS / Long.SIZE);
+        // The bitmap as eviction found it, so a read racing it cannot split the promoted and dropped receipts.
+        private long[] frozen;
+        // An exact count, unlike a LongAdder whose sum may miss a save racing it.
+        private final AtomicInteger saving = new AtomicInteger();
+        private volatile boolean evicting;
+
+        private Generation(ReceiptStore store) {
+            this.store = store;
+        }
+
+        /**
+         * @return false when the generation is being evicted and the receipt was not saved
+         * */
+        private boolean save(Receipt receipt) {
+            saving.incrementAndGet();
+            try {
+                if (evicting) {
+                    return false;
+                }
+                store.save(receipt);
+                return true;
+            } finally {
+                saving.decrementAndGet();
+            }
+        }
+
+        /**
+         * Turns saves away and waits for those in progress, which take microseconds.
+         * */
+        private void closeToSaves() {
+            evicting = true;
+            while (saving.get() != 0) {
+                Thread.onSpinWait();
+            }
+        }
+
+        private void openToSaves() {
+            evicting = false;
+        }
+
+        private void accessed(long msb, long lsb) {
+            int bit = UuidIndex.hash(msb, lsb) & (ACCESS_BITS - 1);
+            long mask = 1L << bit;
+            // Hot receipts are read often; only the first read writes the shared word.
+            if ((accessed.get(bit >>> 6) & mask) == 0) {
+                accessed.getAndAccumulate(bit >>> 6, mask, (word, m) -> word | m);
+            }
+        }
+
+        /**
+         * Fixes the receipts read so far as those `wasAccessed` reports; called by eviction only.
+         * */
+        private void freezeAccessed() {
+            frozen = new long[accessed.length()];
+            for (int i = 0; i < frozen.length; i++) {
+                frozen[i] = accessed.get(i);
+            }
+        }
+
+        private boolean wasAccessed(Receipt receipt) {
+            int bit = UuidIndex.hash(receipt.getId().getMostSignificantBits(),
+                    receipt.getId().getLeastSignificantBits()) & (ACCESS_BITS - 1);
+            return (frozen[bit >>> 6] & (1L << bit)) != 0;
+        }
+    }
+
+    /**
+     * A mapped spill file and the count of its readers, one of which is the published
+     * tiers until the file is taken out of them. The last reader to leave unmaps it, and
+     * a lookup that finds no readers left skips the file, whose receipts are gone anyway.
+     * */
+    private static final class Spill {
+        private final ReceiptSnapshot snapshot;
+        private final Path file;
+        private final long spilledAt;
+        private final AtomicInteger readers = new AtomicInteger(1);
+
+        private Spill(ReceiptSnapshot snapshot, Path file, long spilledAt) {
+            this.snapshot = snapshot;
+            this.file = file;
+            this.spilledAt = spilledAt;
+        }
+
+        /**
+         * @return false when the file is unmapped, or about to be, and must not be read
+         * */
+        private boolean acquire() {
+            int count;
+            do {
+                count = readers.get();
+                if (count == 0) {
+                    return false;
+                }
+            } while (!readers.compareAndSet(count, count + 1));
+            return true;
+        }
+
+        private void release() {
+            if (readers.decrementAndGet() == 0) {
+                snapshot.close();
+            }
+        }
+    }
+
+    /**
+     * The generations, newest first, and the spill files, newest first, at one point in time.
+     * */
+    private static final class Tiers {
+        private final Generation[] generations;
+        private final Spill[] spills;
+
+        private Tiers(Generation[] generations, Spill[] spills) {
+            this.generations = generations;
+            this.spills = spills;
+        }
+
+        private Tiers withNewest(Generation newest) {
+            Generation[] next = new Generation[generations.length + 1];
+            next[0] = newest;
+            System.arraycopy(generations, 0, next, 1, generations.length);
+            return new Tiers(next, spills);
+        }
+
+        private Tiers withoutOldest(Generation oldest, Spill spill) {
+            Generation[] next = Arrays.stream(generations).filter(g -> g != oldest).toArray(Generation[]::new);
+            if (spill == null) {
+                return new Tiers(next, spills);
+            }
+            Spill[] nextSpills = new Spill[spills.length + 1];
+            nextSpills[0] = spill;
+            System.arraycopy(spills, 0, nextSpills, 1, spills.length);
+            return new Tiers(next, nextSpills);
+        }
+
+        private Tiers withoutSpill(Spill spill) {
+            return new Tiers(generations, Arrays.stream(spills).filter(s -> s != spill).toArray(Spill[]::new));
+        }
+    }
+}
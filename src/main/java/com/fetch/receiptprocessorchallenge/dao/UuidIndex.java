@@ -0,0 +1,223 @@
+package com.fetch.receiptprocessorchallenge.dao;
+
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Concurrent hash index from a UUID, held as its two `long` halves, to a `long` value.
+ *
+ * The table is split into lock-striped segments, each an open-addressing
+ * (linear probing) table over primitive arrays, so a key costs two longs
+ * and a value one long, with no per-entry objects. Writers take their
+ * segment's write lock only. Readers first probe under an optimistic stamp
+ * and fall back to the read lock only when a write raced with them,
+ * so lookups neither block nor allocate.
+ *
+ * The nil UUID (both halves 0) marks free slots and cannot be used as a key.
+ * Values must not be negative; `MISSING` is returned for absent keys.
+ */
+final class UuidIndex {
+    static final long MISSING = -1L;
+
+    private static final float LOAD_FACTOR = 0.75f;
+    private static final int MIN_SEGMENT_CAPACITY = 16;
+
+    private final Segment[] segments;
+    private final int segmentShift;
+
+    /**
+     * @param expectedSize number of keys to presize for
+     * @param segmentCount number of lock stripes, rounded up to a power of two
+     * */
+    UuidIndex(int expectedSize, int segmentCount) {
+        int segmentBits = 32 - Integer.numberOfLeadingZeros(Math.max(1, segmentCount) - 1);
+        segments = new Segment[1 << segmentBits];
+        segmentShift = 32 - segmentBits;
+        int perSegment = (int) Math.ceil(Math.max(1, expectedSize) / (double) segments.length / LOAD_FACTOR);
+        for (int i = 0; i < segments.length; i++) {
+            segments[i] = new Segment(tableSize(perSegment));
+        }
+    }
+
+    /**
+     * @return the value mapped to the key, or MISSING
+     * */
+    long get(long msb, long lsb) {
+        if (msb == 0 && lsb == 0) {
+            return MISSING;
+        }
+        int hash = hash(msb, lsb);
+        Segment segment = segmentFor(hash);
+        long stamp = segment.tryOptimisticRead();
+        if (stamp != 0) {
+            long value = segment.table.find(msb, lsb, hash);
+            if (segment.validate(stamp)) {
+                return value;
+            }
+        }
+        stamp = segment.readLock();
+        try {
+            return segment.table.find(msb, lsb, hash);
+        } finally {
+            segment.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Maps the key to the value, replacing any previous mapping.
+     * @return the previous value, or MISSING
+     * */
+    long put(long msb, long lsb, long value) {
+        if (msb == 0 && lsb == 0) {
+            throw new IllegalArgumentException("The nil UUID cannot be used as a key.");
+        }
+        if (value < 0) {
+            throw new IllegalArgumentException("Index values must not be negative.");
+        }
+        int hash = hash(msb, lsb);
+        Segment segment = segmentFor(hash);
+        long stamp = segment.writeLock();
+        try {
+            return segment.put(msb, lsb, hash, value);
+        } finally {
+            segment.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * @return the number of keys; exact only when no writes are in flight
+     * */
+    int size() {
+        long size = 0;
+        for (Segment segment : segments) {
+            size += segment.size;
+        }
+        return (int) Math.min(size, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @return the bytes held by the index tables
+     * */
+    long tableBytes() {
+        long bytes = 0;
+        for (Segment segment : segments) {
+            bytes += (long) segment.table.values.length * (3 * Long.BYTES);
+        }
+        return bytes;
+    }
+
+    private Segment segmentFor(int hash) {
+        return segments.length == 1 ? segments[0] : segments[hash >>> segmentShift];
+    }
+
+    /**
+     * Mixes both halves so sequential or low-entropy ids still spread across
+     * segments (high bits) and slots (low bits).
+     * */
+    static int hash(long msb, long lsb) {
+        long h = msb * 0x9E3779B97F4A7C15L + lsb;
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return (int) h;
+    }
+
+    private static int tableSize(int capacity) {
+        int size = MIN_SEGMENT_CAPACITY;
+        while (size < capacity) {
+            size <<= 1;
+        }
+        return size;
+    }
+
+    /**
+     * Key and value arrays are kept together in one immutable-reference holder,
+     * so an optimistic reader racing with a resize always sees a consistent pair.
+     * */
+    private static final class Table {
+        final long[] keys;
+        final long[] values;
+        final int mask;
+
+        Table(int capacity) {
+            keys = new long[capacity * 2];
+            values = new long[capacity];
+            mask = capacity - 1;
+        }
+
+        long find(long msb, long lsb, int hash) {
+            int slot = hash & mask;
+            for (int probes = 0; probes <= mask; probes++) {
+                long keyMsb = keys[slot * 2];
+                long keyLsb = keys[slot * 2 + 1];
+                if (keyMsb == msb && keyLsb == lsb) {
+                    return values[slot];
+                }
+                if (keyMsb == 0 && keyLsb == 0) {
+                    return MISSING;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return MISSING;
+        }
+    }
+
+    private static final class Segment extends StampedLock {
+        // Written under the write lock; read optimistically.
+        Table table;
+        volatile int size;
+        int threshold;
+
+        Segment(int capacity) {
+            table = new Table(capacity);
+            threshold = (int) (capacity * LOAD_FACTOR);
+        }
+
+        long put(long msb, long lsb, int hash, long value) {
+            if (size >= threshold) {
+                resize();
+            }
+            Table t = table;
+            int slot = hash & t.mask;
+            while (true) {
+                long keyMsb = t.keys[slot * 2];
+                long keyLsb = t.keys[slot * 2 + 1];
+                if (keyMsb == msb && keyLsb == lsb) {
+                    long previous = t.values[slot];
+                    t.values[slot] = value;
+                    return previous;
+                }
+                if (keyMsb == 0 && keyLsb == 0) {
+                    t.values[slot] = value;
+                    t.keys[slot * 2 + 1] = lsb;
+                    t.keys[slot * 2] = msb;
+                    size++;
+                    return MISSING;
+                }
+                slot = (slot + 1) & t.mask;
+            }
+        }
+
+        private void resize() {
+            Table old = table;
+            Table grown = new Table((old.mask + 1) * 2);
+            for (int slot = 0; slot <= old.mask; slot++) {
+                long msb = old.keys[slot * 2];
+                long lsb = old.keys[slot * 2 + 1];
+                if (msb == 0 && lsb == 0) {
+                    continue;
+                }
+                int target = hash(msb, lsb) & grown.mask;
+                while (grown.keys[target * 2] != 0 || grown.keys[target * 2 + 1] != 0) {
+                    target = (target + 1) & grown.mask;
+                }
+                grown.keys[target * 2] = msb;
+                grown.keys[target * 2 + 1] = lsb;
+                grown.values[target] = old.values[slot];
+            }
+            table = grown;
+            threshold = (int) ((grown.mask + 1) * LOAD_FACTOR);
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.fetch.receiptprocessorchallenge.dao;
+
+/**
+ * When a save is acknowledged by the write-ahead log.
+ *
+ * SYNC waits until the record is fsynced; concurrent saves share one fsync (group commit).
+ * BATCH waits until the record is written to the operating system; the log is fsynced
+ * every sync interval, so a power loss can lose up to one interval of saves but a process crash cannot.
+ * ASYNC only queues the record; it is written and fsynced in the background, so a crash can lose
+ * the saves still queued.
+ */
+public enum WalDurability {
+    SYNC,
+    BATCH,
+    ASYNC
+}
@@ -0,0 +1,486 @@
+package com.fetch.receiptprocessorchallenge.dao;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only, segmented and checksummed write-ahead log on local disk.
+ *
+ * Segment files are named `receipts-<sequence>.wal` and start with a magic number
+ * and format version. Each record is framed as
+ * <pre>
+ *  int   payload length
+ *  int   CRC32C of the type and payload
+ *  byte  record type
+ *        payload
+ * </pre>
+ * Callers frame and checksum their records and queue them; a single writer thread
+ * drains everything queued since its last write with one write call and, depending
+ * on the `WalDurability`, one fsync. Concurrent appends therefore share the cost
+ * of an fsync (group commit) instead of paying one each.
+ *
+ * Replay stops at the first record that is incomplete or fails its checksum. In the
+ * last segment that is a write torn by a crash, so the tail is truncated and logged;
+ * anywhere else the log is corrupt and replay fails.
+ */
+@Slf4j
+final class WriteAheadLog {
+    static final byte SAVE = 1;
+    static final byte POINTS = 2;
+
+    // "RWAL"
+    private static final int MAGIC = 0x5257414C;
+    private static final int VERSION = 1;
+    private static final int SEGMENT_HEADER_SIZE = 8;
+    private static final int RECORD_HEADER_SIZE = 9;
+    private static final String SEGMENT_PREFIX = "receipts-";
+    private static final String SEGMENT_SUFFIX = ".wal";
+    private static final int WRITE_BUFFER_SIZE = 1024 * 1024;
+    // Appenders wait for the writer once this much is queued, so ASYNC mode cannot run out of memory.
+    private static final long MAX_PENDING_BYTES = 64L * 1024 * 1024;
+
+    /**
+     * Receives the records of the log, in order, during replay.
+     */
+    interface RecordConsumer {
+        /**
+         * @param type the record type
+         * @param buffer holding the record; only valid during the call
+         * @param offset of the payload in the buffer
+         * @param length of the payload
+         * */
+        void accept(byte type, ByteBuffer buffer, int offset, int length);
+    }
+
+    private final Path directory;
+    private final long segmentSize;
+    private final WalDurability durability;
+    private final long syncIntervalNanos;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition pendingCondition = lock.newCondition();
+    private final Condition completedCondition = lock.newCondition();
+    // Guarded by lock.
+    private List<byte[]> pending = new ArrayList<>();
+    private long pendingBytes;
+    private long appendedSeq;
+    private long writtenSeq;
+    private long syncedSeq;
+    private IOException failure;
+    private boolean closed;
+    private boolean rollRequested;
+    private long rolledSegment;
+
+    // Owned by the writer thread once it is started.
+    private final ByteBuffer writeBuffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE);
+    private long nextSegment;
+    private FileChannel segment;
+    private long segmentPosition;
+    private volatile Thread writer;
+
+    /**
+     * @param directory holding the segment files, created if missing
+     * @param segmentSize size in bytes after which a new segment is started
+     * @param durability when appends are acknowledged
+     * @param syncIntervalMillis how often BATCH and ASYNC logs are fsynced
+     * */
+    WriteAheadLog(Path directory, long segmentSize, WalDurability durability, long syncIntervalMillis) {
+        if (segmentSize <= SEGMENT_HEADER_SIZE + RECORD_HEADER_SIZE) {
+            throw new IllegalArgumentException("Write-ahead log segment size is too small.");
+        }
+        if (syncIntervalMillis <= 0) {
+            throw new IllegalArgumentException("Write-ahead log sync interval must be greater than 0.");
+        }
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.durability = durability;
+        this.syncIntervalNanos = TimeUnit.MILLISECONDS.toNanos(syncIntervalMillis);
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException(String.format("Write-ahead log directory %s cannot be created.", directory), e);
+        }
+    }
+
+    /**
+     * Reads every record of the existing segments, truncating a torn tail. Must be called before `start`.
+     * @param consumer receiving the records
+     * @return the number of records replayed
+     * */
+    long replay(RecordConsumer consumer) {
+        return replay(0, consumer);
+    }
+
+    /**
+     * Reads every record of the segments numbered `fromSegment` or higher, truncating a torn tail.
+     * Must be called before `start`.
+     * @param fromSegment first segment to replay, e.g. the first one not covered by a snapshot
+     * @param consumer receiving the records
+     * @return the number of records replayed
+     * */
+    long replay(long fromSegment, RecordConsumer consumer) {
+        long started = System.nanoTime();
+        long records = 0;
+        List<Path> segments = segments();
+        for (int i = 0; i < segments.size(); i++) {
+            if (sequence(segments.get(i)) >= fromSegment) {
+                records += replaySegment(segments.get(i), i == segments.size() - 1, consumer);
+            }
+        }
+        if (!segments.isEmpty()) {
+            nextSegment = sequence(segments.get(segments.size() - 1)) + 1;
+        }
+        log.info("Replayed {} write-ahead log records from {} segments in {} ms", records, segments.size(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+        return records;
+    }
+
+    /**
+     * Opens a new segment and starts the writer thread.
+     * */
+    void start() {
+        try {
+            openSegment();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Write-ahead log segment cannot be created.", e);
+        }
+        writer = new Thread(this::writeLoop, "receipt-wal-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Queues a record for writing without waiting for it.
+     * @param type the record type
+     * @param payload the record payload
+     * @return the sequence number of the record, to pass to `awaitDurable`
+     * */
+    long append(byte type, byte[] payload) {
+        byte[] record = frame(type, payload);
+        lock.lock();
+        try {
+            while (pendingBytes >= MAX_PENDING_BYTES && failure == null && !closed) {
+                completedCondition.awaitUninterruptibly();
+            }
+            checkWritable();
+            pending.add(record);
+            pendingBytes += record.length;
+            pendingCondition.signal();
+            return ++appendedSeq;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits until the record with the given sequence number is as durable as the log's `WalDurability` requires.
+     * @param seq returned by `append`
+     * @throws UncheckedIOException if the log could not be written
+     * */
+    void awaitDurable(long seq) {
+        if (durability == WalDurability.ASYNC) {
+            return;
+        }
+        lock.lock();
+        try {
+            // Records queued before close() are still written, so only a write failure ends the wait early.
+            while ((durability == WalDurability.SYNC ? syncedSeq : writtenSeq) < seq) {
+                checkFailure();
+                completedCondition.awaitUninterruptibly();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Makes the writer close the current segment after writing what is queued and continue in a new one.
+     * @return the number of the new segment; every record appended before this call is in an earlier one
+     * */
+    long roll() {
+        lock.lock();
+        try {
+            checkWritable();
+            rollRequested = true;
+            pendingCondition.signal();
+            while (rollRequested) {
+                checkFailure();
+                completedCondition.awaitUninterruptibly();
+            }
+            return rolledSegment;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Deletes the segments numbered lower than `segment`, e.g. once a snapshot covers them.
+     * @param segment first segment to keep
+     * */
+    void deleteSegmentsBefore(long segment) {
+        for (Path path : segments()) {
+            if (sequence(path) < segment) {
+                try {
+                    Files.delete(path);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(String.format("Write-ahead log segment %s cannot be deleted.", path), e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes and fsyncs every queued record, then stops the writer thread and closes the segment.
+     * */
+    void close() {
+        lock.lock();
+        try {
+            closed = true;
+            pendingCondition.signal();
+        } finally {
+            lock.unlock();
+        }
+        if (writer != null) {
+            try {
+                writer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void checkWritable() {
+        checkFailure();
+        if (writer == null || closed) {
+            throw new IllegalStateException("The write-ahead log is not open.");
+        }
+    }
+
+    private void checkFailure() {
+        if (failure != null) {
+            throw new UncheckedIOException("Receipt could not be written to the write-ahead log.", failure);
+        }
+    }
+
+    private void writeLoop() {
+        List<byte[]> draining = new ArrayList<>();
+        long lastSync = System.nanoTime();
+        boolean unsynced = false;
+        while (true) {
+            List<byte[]> batch;
+            long batchSeq;
+            boolean closing;
+            boolean roll;
+            lock.lock();
+            try {
+                if (pending.isEmpty() && !closed && !rollRequested) {
+                    pendingCondition.awaitNanos(syncIntervalNanos);
+                }
+                batch = pending;
+                pending = draining;
+                pendingBytes = 0;
+                batchSeq = appendedSeq;
+                closing = closed;
+                roll = rollRequested;
+            } catch (InterruptedException e) {
+                // Only close() stops the writer.
+                continue;
+            } finally {
+                lock.unlock();
+            }
+
+            try {
+                if (!batch.isEmpty()) {
+                    write(batch);
+                    unsynced = true;
+                }
+                boolean sync = durability == WalDurability.SYNC || closing
+                        || System.nanoTime() - lastSync >= syncIntervalNanos;
+                if ((sync || roll) && unsynced) {
+                    segment.force(false);
+                    unsynced = false;
+                    lastSync = System.nanoTime();
+                }
+                if (roll && !closing) {
+                    segment.close();
+                    openSegment();
+                }
+                lock.lock();
+                try {
+                    writtenSeq = batchSeq;
+                    if (!unsynced) {
+                        syncedSeq = batchSeq;
+                    }
+                    if (roll) {
+                        rollRequested = false;
+                        rolledSegment = nextSegment - 1;
+                    }
+                    completedCondition.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+                if (closing) {
+                    segment.close();
+                    return;
+                }
+            } catch (IOException e) {
+                log.error("Write-ahead log write failed, no more receipts can be saved", e);
+                lock.lock();
+                try {
+                    failure = e;
+                    completedCondition.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+                return;
+            }
+            batch.clear();
+            draining = batch;
+        }
+    }
+
+    private void write(List<byte[]> batch) throws IOException {
+        for (int i = 0; i < batch.size(); i++) {
+            byte[] record = batch.get(i);
+            if (segmentPosition + writeBuffer.position() + record.length > segmentSize
+                    && segmentPosition + writeBuffer.position() > SEGMENT_HEADER_SIZE) {
+                flushWriteBuffer();
+                segment.force(false);
+                segment.close();
+                openSegment();
+            }
+            if (record.length > writeBuffer.remaining()) {
+                flushWriteBuffer();
+            }
+            if (record.length > writeBuffer.capacity()) {
+                writeFully(ByteBuffer.wrap(record));
+            } else {
+                writeBuffer.put(record);
+            }
+        }
+        flushWriteBuffer();
+    }
+
+    private void flushWriteBuffer() throws IOException {
+        writeBuffer.flip();
+        writeFully(writeBuffer);
+        writeBuffer.clear();
+    }
+
+    private void writeFully(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            segmentPosition += segment.write(buffer);
+        }
+    }
+
+    private void openSegment() throws IOException {
+        Path path = directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, nextSegment++, SEGMENT_SUFFIX));
+        segment = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        segmentPosition = 0;
+        ByteBuffer header = ByteBuffer.allocate(SEGMENT_HEADER_SIZE).putInt(MAGIC).putInt(VERSION).flip();
+        writeFully(header);
+        // Make the new file itself durable, so replay never finds a segment missing from the directory.
+        segment.force(true);
+    }
+
+    private long replaySegment(Path path, boolean last, RecordConsumer consumer) {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IllegalStateException(String.format("Write-ahead log segment %s is too large.", path));
+            }
+            ByteBuffer buffer = ByteBuffer.allocate((int) size);
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // Keep reading until the whole segment is in the buffer.
+            }
+            int limit = buffer.position();
+            if (limit < SEGMENT_HEADER_SIZE) {
+                // A crash while the segment was being created; it holds no records.
+                if (!last) {
+                    throw new IllegalStateException(String.format("Write-ahead log segment %s is corrupt.", path));
+                }
+                log.warn("Removing incomplete write-ahead log segment {}", path);
+                Files.delete(path);
+                return 0;
+            }
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+                throw new IllegalStateException(String.format("%s is not a write-ahead log segment.", path));
+            }
+
+            int position = SEGMENT_HEADER_SIZE;
+            long records = 0;
+            while (position + RECORD_HEADER_SIZE <= limit) {
+                int length = buffer.getInt(position);
+                if (length < 0 || length > limit - position - RECORD_HEADER_SIZE
+                        || checksum(buffer.array(), position + 8, length + 1) != buffer.getInt(position + 4)) {
+                    break;
+                }
+                consumer.accept(buffer.get(position + 8), buffer, position + RECORD_HEADER_SIZE, length);
+                position += RECORD_HEADER_SIZE + length;
+                records++;
+            }
+
+            if (position < limit) {
+                if (!last) {
+                    throw new IllegalStateException(
+                            String.format("Write-ahead log segment %s is corrupt at offset %d.", path, position));
+                }
+                log.warn("Truncating torn write-ahead log tail of {} at offset {} ({} bytes)", path, position,
+                        limit - position);
+                channel.truncate(position);
+                channel.force(true);
+            }
+            return records;
+        } catch (IOException e) {
+            throw new UncheckedIOException(String.format("Write-ahead log segment %s cannot be read.", path), e);
+        }
+    }
+
+    private List<Path> segments() {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(WriteAheadLog::isSegment).sorted().toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException(String.format("Write-ahead log directory %s cannot be read.", directory), e);
+        }
+    }
+
+    private static boolean isSegment(Path path) {
+        String name = path.getFileName().toString();
+        return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+    }
+
+    private static long sequence(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private static byte[] frame(byte type, byte[] payload) {
+        byte[] record = new byte[RECORD_HEADER_SIZE + payload.length];
+        record[8] = type;
+        System.arraycopy(payload, 0, record, RECORD_HEADER_SIZE, payload.length);
+        ByteBuffer.wrap(record)
+                .putInt(0, payload.length)
+                .putInt(4, checksum(record, 8, payload.length + 1));
+        return record;
+    }
+
+    private static int checksum(byte[] bytes, int offset, int length) {
+        CRC32C crc = new CRC32C();
+        crc.update(bytes, offset, length);
+        return (int) crc.getValue();
+    }
+}
@@ -0,0 +1,22 @@
+package com.fetch.receiptprocessorchallenge.dtos;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import com.fetch.receiptprocessorchallenge.validation.ValidationError;
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@JsonPropertyOrder({"line", "id", "errorMessage", "errors"})
+public class ImportLineResponse {
+    // 1-based line number in the NDJSON input.
+    private long line;
+    private String id;
+    private String errorMessage;
+    // Every rule the receipt breaks, when it was rejected by validation.
+    private List<ValidationError> errors;
+}
@@ -0,0 +1,16 @@
+package com.fetch.receiptprocessorchallenge.dtos;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ProcessReceiptBatchResponse {
+    // One result per submitted receipt, in input order.
+    private List<ProcessReceiptResponse> results;
+    private String errorMessage;
+}
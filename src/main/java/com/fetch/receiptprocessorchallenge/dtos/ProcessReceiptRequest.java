@@ -1,17 +1,30 @@
 package com.fetch.receiptprocessorchallenge.dtos;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fetch.receiptprocessorchallenge.json.CentsDeserializer;
+import com.fetch.receiptprocessorchallenge.json.CentsSerializer;
+import com.fetch.receiptprocessorchallenge.json.ProcessReceiptRequestDeserializer;
 import com.fetch.receiptprocessorchallenge.models.Item;
+import com.fetch.receiptprocessorchallenge.models.Money;
 import lombok.Data;
 
 import java.time.LocalDate;
 import java.time.LocalTime;
 import java.util.List;
 
+// Read by a streaming deserializer; the field annotations apply when it is bypassed.
 @Data
+@JsonDeserialize(using = ProcessReceiptRequestDeserializer.class)
 public class ProcessReceiptRequest {
     private String retailer;
     private LocalDate purchaseDate;
     private LocalTime purchaseTime;
     private List<Item> items;
-    private Double total;
+    // Total in cents, exchanged in JSON as the decimal "total" ("9.00").
+    @JsonProperty("total")
+    @JsonDeserialize(using = CentsDeserializer.class)
+    @JsonSerialize(using = CentsSerializer.class)
+    private long totalCents = Money.MISSING;
 }
@@ -1,13 +1,18 @@
 package com.fetch.receiptprocessorchallenge.dtos;
 
 import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fetch.receiptprocessorchallenge.validation.ValidationError;
 import lombok.Builder;
 import lombok.Data;
 
+import java.util.List;
+
 @Data
 @Builder
 @JsonInclude(JsonInclude.Include.NON_NULL)
 public class ProcessReceiptResponse {
     private String id;
     private String errorMessage;
+    // Every rule the receipt breaks, when it was rejected by validation.
+    private List<ValidationError> errors;
 }
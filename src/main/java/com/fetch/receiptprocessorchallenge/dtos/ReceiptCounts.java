@@ -0,0 +1,12 @@
+package com.fetch.receiptprocessorchallenge.dtos;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class ReceiptCounts {
+    private long receipts;
+    // Points of the scored receipts among them.
+    private long points;
+}
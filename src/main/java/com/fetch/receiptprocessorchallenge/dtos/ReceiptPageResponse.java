@@ -0,0 +1,18 @@
+package com.fetch.receiptprocessorchallenge.dtos;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ReceiptPageResponse {
+    // Ordered by purchase date and time.
+    private List<ReceiptResponse> receipts;
+    // Cursor of the next page, absent on the last page.
+    private String next;
+    private String errorMessage;
+}
@@ -1,13 +1,25 @@
 package com.fetch.receiptprocessorchallenge.dtos;
 
 import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fetch.receiptprocessorchallenge.validation.ValidationError;
 import lombok.Builder;
 import lombok.Data;
 
+import java.util.List;
+import java.util.Map;
+
 @Data
 @Builder
 @JsonInclude(JsonInclude.Include.NON_NULL)
 public class ReceiptPointResponse {
+    // The receipt id, only in the results of a multi-get.
+    private String id;
     private Integer points;
+    // True when no receipt has the id, only in the results of a multi-get.
+    private Boolean notFound;
+    // Points per active rule, only when requested.
+    private Map<String, Integer> breakdown;
     private String errorMessage;
+    // The rule the id breaks, when it was rejected by validation.
+    private List<ValidationError> errors;
 }
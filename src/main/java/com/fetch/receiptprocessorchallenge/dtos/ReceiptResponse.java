@@ -0,0 +1,29 @@
+package com.fetch.receiptprocessorchallenge.dtos;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fetch.receiptprocessorchallenge.json.CentsSerializer;
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+@Data
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ReceiptResponse {
+    private String id;
+    private String retailer;
+    private LocalDate purchaseDate;
+    // Written as "13:01", like in requests.
+    @JsonFormat(pattern = "HH:mm")
+    private LocalTime purchaseTime;
+    // Total in cents, written as the decimal "total" ("9.00") like in requests.
+    @JsonProperty("total")
+    @JsonSerialize(using = CentsSerializer.class)
+    private Long totalCents;
+    private Integer points;
+}
@@ -0,0 +1,26 @@
+package com.fetch.receiptprocessorchallenge.dtos;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.Map;
+
+@Data
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ReceiptStatsResponse {
+    private Long receipts;
+    // Receipts whose points are counted; in LAZY scoring mode, those read at least once.
+    private Long scoredReceipts;
+    private Long points;
+    // The retailers with the most receipts, most first.
+    private Map<String, ReceiptCounts> byRetailer;
+    // Every purchase date, oldest first.
+    private Map<String, ReceiptCounts> byDate;
+    // Every hour of the day, 0 to 23, by purchase time.
+    private Map<Integer, ReceiptCounts> byHour;
+    // True while the receipts of a snapshot are still being counted after a restart, absent otherwise.
+    private Boolean warming;
+    private String errorMessage;
+}
@@ -0,0 +1,50 @@
+package com.fetch.receiptprocessorchallenge.json;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.fetch.receiptprocessorchallenge.models.Money;
+
+import java.io.IOException;
+
+/**
+ * Reads a money amount, sent as a decimal string ("2.25") or a JSON number (2.25),
+ * into cents. The token text is parsed exactly rather than through `double`.
+ *
+ * Amounts that cannot be represented in cents become `Money.INVALID` instead of
+ * failing the whole payload, so validation can report them like any other rule.
+ */
+public class CentsDeserializer extends StdDeserializer<Long> {
+
+    public CentsDeserializer() {
+        super(Long.class);
+    }
+
+    @Override
+    public Long deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+        return readCents(parser);
+    }
+
+    /**
+     * Reads the amount at the current token from the parser's own text buffer.
+     * @param parser a parser on the amount's value token, left on its last token
+     * @return the amount in cents, MISSING for null, or INVALID
+     * */
+    static long readCents(JsonParser parser) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token == JsonToken.VALUE_STRING || token == JsonToken.VALUE_NUMBER_INT || token == JsonToken.VALUE_NUMBER_FLOAT) {
+            return Money.parseCents(parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength());
+        }
+        if (token == JsonToken.VALUE_NULL) {
+            return Money.MISSING;
+        }
+        parser.skipChildren();
+        return Money.INVALID;
+    }
+
+    @Override
+    public Long getNullValue(DeserializationContext context) {
+        return Money.MISSING;
+    }
+}
@@ -0,0 +1,27 @@
+package com.fetch.receiptprocessorchallenge.json;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.fetch.receiptprocessorchallenge.models.Money;
+
+import java.io.IOException;
+
+/**
+ * Writes an amount in cents as a decimal string ("2.25"), the format the API accepts.
+ */
+public class CentsSerializer extends StdSerializer<Long> {
+
+    public CentsSerializer() {
+        super(Long.class);
+    }
+
+    @Override
+    public void serialize(Long cents, JsonGenerator generator, SerializerProvider provider) throws IOException {
+        if (cents == null || !Money.isPresent(cents)) {
+            generator.writeNull();
+        } else {
+            generator.writeString(Money.format(cents));
+        }
+    }
+}
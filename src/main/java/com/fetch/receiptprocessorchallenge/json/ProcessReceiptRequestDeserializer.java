@@ -0,0 +1,212 @@
+package com.fetch.receiptprocessorchallenge.json;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.fetch.receiptprocessorchallenge.dtos.ProcessReceiptRequest;
+import com.fetch.receiptprocessorchallenge.models.Item;
+import com.fetch.receiptprocessorchallenge.models.Money;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.Month;
+import java.time.Year;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads a `ProcessReceiptRequest` straight from the token stream instead of through
+ * Jackson's data binding: fields are matched by name and set directly, items are built
+ * with their constructor, and dates, times and amounts are parsed from the parser's own
+ * character buffer into their values without an intermediate string.
+ *
+ * Input of the wrong shape, such as items that are not an array of objects, fails at the
+ * offending token, before the rest of the body is read. Well-formed values that break a
+ * rule are kept for `ReceiptValidator` instead, so a request still gets every violation
+ * reported at once: an amount that is not a decimal becomes `Money.INVALID` and a date or
+ * time that does not exist or is not in `yyyy-MM-dd` or `HH:mm` becomes `INVALID_DATE`
+ * or `INVALID_TIME`, which the validator rejects. Unknown fields follow the mapper's
+ * `FAIL_ON_UNKNOWN_PROPERTIES` setting, like with data binding.
+ */
+public class ProcessReceiptRequestDeserializer extends StdDeserializer<ProcessReceiptRequest> {
+    // Outside the years "yyyy-MM-dd" can carry, so rejected as an invalid purchase date.
+    static final LocalDate INVALID_DATE = LocalDate.MIN;
+    // Has nanoseconds, which "HH:mm" cannot carry, so rejected as an invalid purchase time.
+    static final LocalTime INVALID_TIME = LocalTime.MAX;
+
+    private static final int INITIAL_ITEMS = 8;
+
+    public ProcessReceiptRequestDeserializer() {
+        super(ProcessReceiptRequest.class);
+    }
+
+    @Override
+    public ProcessReceiptRequest deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token == JsonToken.START_OBJECT) {
+            token = parser.nextToken();
+        } else if (token != JsonToken.FIELD_NAME && token != JsonToken.END_OBJECT) {
+            return (ProcessReceiptRequest) context.handleUnexpectedToken(ProcessReceiptRequest.class, parser);
+        }
+        ProcessReceiptRequest request = new ProcessReceiptRequest();
+        for (; token == JsonToken.FIELD_NAME; token = parser.nextToken()) {
+            String field = parser.currentName();
+            parser.nextToken();
+            switch (field) {
+                case "retailer" -> request.setRetailer(readString(parser, context));
+                case "purchaseDate" -> request.setPurchaseDate(readDate(parser, context));
+                case "purchaseTime" -> request.setPurchaseTime(readTime(parser, context));
+                case "items" -> request.setItems(readItems(parser, context));
+                case "total" -> request.setTotalCents(CentsDeserializer.readCents(parser));
+                default -> context.handleUnknownProperty(parser, this, ProcessReceiptRequest.class, field);
+            }
+        }
+        return request;
+    }
+
+    private List<Item> readItems(JsonParser parser, DeserializationContext context) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (token != JsonToken.START_ARRAY) {
+            context.reportInputMismatch(this, "items must be an array, not %s", token);
+        }
+        List<Item> items = new ArrayList<>(INITIAL_ITEMS);
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+            if (token == JsonToken.START_OBJECT) {
+                items.add(readItem(parser, context));
+            } else if (token == JsonToken.VALUE_NULL) {
+                // Reported by the validator as an item without description or price.
+                items.add(new Item(null, Money.MISSING));
+            } else {
+                context.reportInputMismatch(this, "An item must be an object, not %s", token);
+            }
+        }
+        return items;
+    }
+
+    private Item readItem(JsonParser parser, DeserializationContext context) throws IOException {
+        String shortDescription = null;
+        long priceCents = Money.MISSING;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            switch (field) {
+                case "shortDescription" -> shortDescription = readString(parser, context);
+                case "price" -> priceCents = CentsDeserializer.readCents(parser);
+                default -> context.handleUnknownProperty(parser, this, Item.class, field);
+            }
+        }
+        return new Item(shortDescription, priceCents);
+    }
+
+    private static String readString(JsonParser parser, DeserializationContext context) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token == JsonToken.VALUE_STRING) {
+            return parser.getText();
+        }
+        if (token == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (token.isScalarValue()) {
+            // Numbers and booleans are taken as their text, as data binding does.
+            return parser.getValueAsString();
+        }
+        return (String) context.handleUnexpectedToken(String.class, parser);
+    }
+
+    /**
+     * Reads "yyyy-MM-dd" from the text buffer. Other strings, numbers and arrays are left
+     * to Jackson's `LocalDate` deserializer, so every form data binding accepts still is.
+     * */
+    private static LocalDate readDate(JsonParser parser, DeserializationContext context) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (token != JsonToken.VALUE_STRING) {
+            return context.readValue(parser, LocalDate.class);
+        }
+        if (parser.getTextLength() == 10) {
+            return parseDate(parser.getTextCharacters(), parser.getTextOffset());
+        }
+        try {
+            return context.readValue(parser, LocalDate.class);
+        } catch (JsonMappingException e) {
+            return INVALID_DATE;
+        }
+    }
+
+    /**
+     * Reads "HH:mm" from the text buffer. Other forms, such as times with seconds, are
+     * left to Jackson's `LocalTime` deserializer.
+     * */
+    private static LocalTime readTime(JsonParser parser, DeserializationContext context) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (token != JsonToken.VALUE_STRING) {
+            return context.readValue(parser, LocalTime.class);
+        }
+        if (parser.getTextLength() == 5) {
+            return parseTime(parser.getTextCharacters(), parser.getTextOffset());
+        }
+        try {
+            return context.readValue(parser, LocalTime.class);
+        } catch (JsonMappingException e) {
+            return INVALID_TIME;
+        }
+    }
+
+    /**
+     * @return the date of the 10 characters at offset, or INVALID_DATE unless they are a "yyyy-MM-dd" date that exists
+     * */
+    static LocalDate parseDate(char[] chars, int offset) {
+        if (chars[offset + 4] != '-' || chars[offset + 7] != '-') {
+            return INVALID_DATE;
+        }
+        int year = digits(chars, offset, 4);
+        int month = digits(chars, offset + 5, 2);
+        int day = digits(chars, offset + 8, 2);
+        if (year < 0 || month < 1 || month > 12 || day < 1
+                || day > Month.of(month).length(Year.isLeap(year))) {
+            return INVALID_DATE;
+        }
+        return LocalDate.of(year, month, day);
+    }
+
+    /**
+     * @return the time of the 5 characters at offset, or INVALID_TIME unless they are an "HH:mm" time
+     * */
+    static LocalTime parseTime(char[] chars, int offset) {
+        if (chars[offset + 2] != ':') {
+            return INVALID_TIME;
+        }
+        int hour = digits(chars, offset, 2);
+        int minute = digits(chars, offset + 3, 2);
+        if (hour < 0 || hour > 23 || minute < 0 || minute > 59) {
+            return INVALID_TIME;
+        }
+        return LocalTime.of(hour, minute);
+    }
+
+    /**
+     * @return the value of count decimal digits, or -1 if one of them is not a digit
+     * */
+    private static int digits(char[] chars, int offset, int count) {
+        int value = 0;
+        for (int i = offset; i < offset + count; i++) {
+            char c = chars[i];
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+}
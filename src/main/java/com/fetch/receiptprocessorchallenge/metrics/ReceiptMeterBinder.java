@@ -0,0 +1,174 @@
+package com.fetch.receiptprocessorchallenge.metrics;
+
+import com.fetch.receiptprocessorchallenge.dao.ReceiptDAO;
+import com.fetch.receiptprocessorchallenge.dao.TierStatistics;
+import com.fetch.receiptprocessorchallenge.service.PointsCache;
+import com.fetch.receiptprocessorchallenge.service.ReceiptDeduplicator;
+import com.fetch.receiptprocessorchallenge.service.ReceiptService;
+import com.fetch.receiptprocessorchallenge.service.ScoringMode;
+import com.fetch.receiptprocessorchallenge.service.ScoringQueue;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.BaseUnits;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Exposes the receipt store size and estimated memory as gauges and the scoring
+ * and dedup hit and miss counts as counters. They are read from the store and the
+ * services when metrics are scraped, so they cost nothing on the request path.
+ * A store with a memory budget also exposes its residency, hit ratio and spill I/O,
+ * and ASYNC scoring the depth of the scoring queue and the receipts it turned away.
+ * An enabled points cache exposes its hits and misses.
+ */
+@Component
+public class ReceiptMeterBinder implements MeterBinder {
+    private final ReceiptDAO _receiptDao;
+    private final ReceiptService _receiptService;
+    private final ReceiptDeduplicator _deduplicator;
+
+    ReceiptMeterBinder(ReceiptDAO receiptDAO, ReceiptService receiptService) {
+        this(receiptDAO, receiptService, null);
+    }
+
+    @Autowired
+    ReceiptMeterBinder(ReceiptDAO receiptDAO, ReceiptService receiptService, ReceiptDeduplicator deduplicator) {
+        _receiptDao = receiptDAO;
+        _receiptService = receiptService;
+        _deduplicator = deduplicator;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("receipts.store.size", _receiptDao, ReceiptDAO::size)
+                .description("Receipts in the store")
+                .register(registry);
+        Gauge.builder("receipts.store.memory", _receiptDao, ReceiptDAO::estimatedMemoryBytes)
+                .description("Estimated memory held by the receipt store")
+                .baseUnit(BaseUnits.BYTES)
+                .register(registry);
+        FunctionCounter.builder("receipts.scoring.hits", _receiptService, ReceiptService::getScoringHits)
+                .description("Points requests answered from a stored score")
+                .register(registry);
+        FunctionCounter.builder("receipts.scoring.misses", _receiptService, ReceiptService::getScoringMisses)
+                .description("Points requests that had to calculate the score")
+                .register(registry);
+        TierStatistics tiers = _receiptDao.tierStatistics();
+        if (tiers != null) {
+            bindTiers(registry, tiers);
+        }
+        if (_receiptService.getScoringMode() == ScoringMode.ASYNC) {
+            bindScoringQueue(registry, _receiptService.getScoringQueue());
+        }
+        PointsCache pointsCache = _receiptService.getPointsCache();
+        if (pointsCache != null && pointsCache.isEnabled()) {
+            bindPointsCache(registry, pointsCache);
+        }
+        if (_deduplicator == null) {
+            return;
+        }
+        FunctionCounter.builder("receipts.dedup.hits", _deduplicator, ReceiptDeduplicator::getHits)
+                .description("Receipts answered with the id of a receipt processed before instead of being stored")
+                .register(registry);
+        FunctionCounter.builder("receipts.dedup.misses", _deduplicator, ReceiptDeduplicator::getMisses)
+                .description("Receipts checked for duplicates and stored as new ones")
+                .register(registry);
+        Gauge.builder("receipts.dedup.index.size", _deduplicator, ReceiptDeduplicator::size)
+                .description("Fingerprints and idempotency keys held to recognize duplicates")
+                .register(registry);
+        Gauge.builder("receipts.dedup.index.memory", _deduplicator, ReceiptDeduplicator::estimatedMemoryBytes)
+                .description("Estimated memory held by the fingerprints and idempotency keys")
+                .baseUnit(BaseUnits.BYTES)
+                .register(registry);
+        Gauge.builder("receipts.dedup.saved.memory", this, ReceiptMeterBinder::dedupSavedBytes)
+                .description("Estimated store memory the duplicates would have taken")
+                .baseUnit(BaseUnits.BYTES)
+                .register(registry);
+    }
+
+    private static void bindTiers(MeterRegistry registry, TierStatistics tiers) {
+        Gauge.builder("receipts.store.resident", tiers, TierStatistics::getResidentReceipts)
+                .description("Receipts held in memory")
+                .register(registry);
+        Gauge.builder("receipts.store.resident.memory", tiers, TierStatistics::getResidentBytes)
+                .description("Estimated memory held by the receipts in memory, kept within the budget")
+                .baseUnit(BaseUnits.BYTES)
+                .register(registry);
+        Gauge.builder("receipts.store.spilled", tiers, TierStatistics::getSpilledReceipts)
+                .description("Receipts evicted to spill files")
+                .register(registry);
+        Gauge.builder("receipts.store.spill.files", tiers, TierStatistics::getSpillFiles)
+                .description("Spill files read by lookups")
+                .register(registry);
+        FunctionCounter.builder("receipts.store.lookups", tiers, TierStatistics::getMemoryHits)
+                .description("Receipt lookups by the tier that answered them")
+                .tag("tier", "memory")
+                .register(registry);
+        FunctionCounter.builder("receipts.store.lookups", tiers, TierStatistics::getDiskHits)
+                .description("Receipt lookups by the tier that answered them")
+                .tag("tier", "disk")
+                .register(registry);
+        FunctionCounter.builder("receipts.store.lookups", tiers, TierStatistics::getMisses)
+                .description("Receipt lookups by the tier that answered them")
+                .tag("tier", "none")
+                .register(registry);
+        Gauge.builder("receipts.store.hit.ratio", tiers, ReceiptMeterBinder::memoryHitRatio)
+                .description("Share of the receipts found that were found in memory")
+                .register(registry);
+        FunctionCounter.builder("receipts.store.spill.written", tiers, TierStatistics::getSpillWrittenReceipts)
+                .description("Receipts written to spill files")
+                .register(registry);
+        FunctionCounter.builder("receipts.store.spill.written.bytes", tiers, TierStatistics::getSpillWrittenBytes)
+                .description("Bytes written to spill files")
+                .baseUnit(BaseUnits.BYTES)
+                .register(registry);
+        FunctionCounter.builder("receipts.store.promoted", tiers, TierStatistics::getPromotedReceipts)
+                .description("Receipts kept in memory at eviction because they were read")
+                .register(registry);
+        FunctionCounter.builder("receipts.store.dropped", tiers, TierStatistics::getDroppedReceipts)
+                .description("Receipts that left the store, evicted without a spill directory or expired")
+                .register(registry);
+    }
+
+    private static void bindPointsCache(MeterRegistry registry, PointsCache pointsCache) {
+        FunctionCounter.builder("receipts.points.cache.lookups", pointsCache, PointsCache::getHits)
+                .description("Points lookups by whether the points cache had them")
+                .tag("result", "hit")
+                .register(registry);
+        FunctionCounter.builder("receipts.points.cache.lookups", pointsCache, PointsCache::getMisses)
+                .description("Points lookups by whether the points cache had them")
+                .tag("result", "miss")
+                .register(registry);
+        Gauge.builder("receipts.points.cache.size", pointsCache, PointsCache::getSize)
+                .description("Receipts the points cache keeps the points of")
+                .register(registry);
+    }
+
+    private static void bindScoringQueue(MeterRegistry registry, ScoringQueue scoringQueue) {
+        Gauge.builder("receipts.scoring.queue.depth", scoringQueue, ScoringQueue::getDepth)
+                .description("Stored receipts waiting to be scored, or being scored")
+                .register(registry);
+        Gauge.builder("receipts.scoring.queue.capacity", scoringQueue, ScoringQueue::getCapacity)
+                .description("Receipts the scoring queue holds before new receipts are turned away")
+                .register(registry);
+        FunctionCounter.builder("receipts.scoring.queue.rejected", scoringQueue, ScoringQueue::getRejected)
+                .description("Receipts turned away with 503 because the scoring queue was full")
+                .register(registry);
+    }
+
+    private static double memoryHitRatio(TierStatistics tiers) {
+        long memory = tiers.getMemoryHits();
+        long found = memory + tiers.getDiskHits();
+        return found == 0 ? 1 : (double) memory / found;
+    }
+
+    /**
+     * @return the duplicates times the average memory a stored receipt takes
+     * */
+    private double dedupSavedBytes() {
+        int size = _receiptDao.size();
+        return size == 0 ? 0 : (double) _deduplicator.getHits() * _receiptDao.estimatedMemoryBytes() / size;
+    }
+}
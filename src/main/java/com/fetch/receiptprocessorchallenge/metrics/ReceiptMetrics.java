@@ -0,0 +1,152 @@
+package com.fetch.receiptprocessorchallenge.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records the receipt hot-path metrics: request latency per endpoint, time spent in
+ * validation, scoring and storage, time per scoring rule, validation failures by reason and
+ * the lag of asynchronous scoring.
+ *
+ * Every timer is registered once up front, so recording is a clock read and a few
+ * atomic bucket updates with no meter lookup or allocation. Timers publish histogram
+ * buckets, so percentiles are computed by Prometheus across instances rather than
+ * in the service. With `receipts.metrics.enabled=false` nothing is timed at all,
+ * not even the clock is read.
+ */
+@Component
+public class ReceiptMetrics {
+    private final MeterRegistry _registry;
+    private final boolean _enabled;
+    private final Timer _processSuccess;
+    private final Timer _processFailure;
+    private final Timer _pointsSuccess;
+    private final Timer _pointsFailure;
+    private final Timer _validation;
+    private final Timer _scoring;
+    private final Timer _storage;
+    private final Timer _scoringLag;
+    private final Map<String, Counter> _validationFailures = new ConcurrentHashMap<>();
+
+    @Autowired
+    public ReceiptMetrics(MeterRegistry registry, @Value("${receipts.metrics.enabled:true}") boolean enabled) {
+        _registry = registry;
+        _enabled = enabled;
+        _processSuccess = requestTimer("process", "success");
+        _processFailure = requestTimer("process", "failure");
+        _pointsSuccess = requestTimer("points", "success");
+        _pointsFailure = requestTimer("points", "failure");
+        _validation = stageTimer("validation");
+        _scoring = stageTimer("scoring");
+        _storage = stageTimer("storage");
+        _scoringLag = Timer.builder("receipts.scoring.lag")
+                .description("Time from storing a receipt to storing its points, in ASYNC scoring mode")
+                .publishPercentileHistogram()
+                .register(_registry);
+    }
+
+    /**
+     * @return metrics that record nothing, for use outside of a Spring context
+     * */
+    public static ReceiptMetrics disabled() {
+        return new ReceiptMetrics(new CompositeMeterRegistry(), false);
+    }
+
+    public boolean isEnabled() {
+        return _enabled;
+    }
+
+    /**
+     * @return the start time to pass to one of the `record` methods, 0 when metrics are disabled
+     * */
+    public long start() {
+        return _enabled ? System.nanoTime() : 0;
+    }
+
+    public void recordProcessRequest(long started, boolean success) {
+        record(success ? _processSuccess : _processFailure, started);
+    }
+
+    public void recordPointsRequest(long started, boolean success) {
+        record(success ? _pointsSuccess : _pointsFailure, started);
+    }
+
+    public void recordValidation(long started) {
+        record(_validation, started);
+    }
+
+    public void recordScoring(long started) {
+        record(_scoring, started);
+    }
+
+    public void recordStorage(long started) {
+        record(_storage, started);
+    }
+
+    /**
+     * @param enqueued the `start()` time at which the receipt was queued for scoring
+     * */
+    public void recordScoringLag(long enqueued) {
+        record(_scoringLag, enqueued);
+    }
+
+    /**
+     * Counts a rejected receipt or id.
+     * @param reason short, fixed name of the failed check, e.g. `missing-retailer`
+     * */
+    public void validationFailed(String reason) {
+        if (_enabled) {
+            _validationFailures.computeIfAbsent(reason, key -> Counter.builder("receipts.validation.failures")
+                    .description("Receipts and ids rejected by validation")
+                    .tag("reason", key)
+                    .register(_registry)).increment();
+        }
+    }
+
+    /**
+     * @param rule name of a points rule
+     * @return the timer of the rule, or null when metrics are disabled
+     * */
+    public Timer ruleTimer(String rule) {
+        if (!_enabled) {
+            return null;
+        }
+        return Timer.builder("receipts.scoring.rule")
+                .description("Time to apply one points rule to a receipt, sampled")
+                .tag("rule", rule)
+                .publishPercentileHistogram()
+                .register(_registry);
+    }
+
+    private void record(Timer timer, long started) {
+        if (_enabled) {
+            timer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private Timer requestTimer(String endpoint, String outcome) {
+        return Timer.builder("receipts.requests")
+                .description("Latency of receipt API requests")
+                .tag("endpoint", endpoint)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(_registry);
+    }
+
+    private Timer stageTimer(String stage) {
+        return Timer.builder("receipts.stage")
+                .description("Time spent in each stage of processing a receipt")
+                .tag("stage", stage)
+                .publishPercentileHistogram()
+                .register(_registry);
+    }
+}
@@ -1,13 +1,25 @@
 package com.fetch.receiptprocessorchallenge.models;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fetch.receiptprocessorchallenge.json.CentsDeserializer;
+import com.fetch.receiptprocessorchallenge.json.CentsSerializer;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 
 @Data
 @Builder
+@NoArgsConstructor
 @AllArgsConstructor
 public class Item {
     private String shortDescription;
-    private Double price;
+    // Price in cents, exchanged in JSON as the decimal "price" ("2.25").
+    @JsonProperty("price")
+    @JsonDeserialize(using = CentsDeserializer.class)
+    @JsonSerialize(using = CentsSerializer.class)
+    @Builder.Default
+    private long priceCents = Money.MISSING;
 }
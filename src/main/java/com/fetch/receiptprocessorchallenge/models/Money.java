@@ -0,0 +1,121 @@
+package com.fetch.receiptprocessorchallenge.models;
+
+/**
+ * Money amounts are carried as a `long` number of cents.
+ *
+ * Decimal strings such as "2.25" are parsed exactly, digit by digit,
+ * without going through `double`, so no amount is ever subject to
+ * binary rounding.
+ */
+public final class Money {
+    // Sentinel for an amount that was not provided.
+    public static final long MISSING = Long.MIN_VALUE;
+    // Sentinel for an amount that is not a decimal with at most two decimal places.
+    public static final long INVALID = Long.MIN_VALUE + 1;
+
+    // Keeps whole * 100 + cents well inside the range of a long.
+    private static final int MAX_WHOLE_DIGITS = 15;
+
+    private Money() {
+    }
+
+    /**
+     * Parses a decimal amount into cents. Digits after the second decimal place
+     * are only accepted when they are zeros, so "2.250" is 225 and "2.255" is INVALID.
+     *
+     * @param amount decimal amount such as "2.25", "-1", "9." or ".50"
+     * @return the amount in cents, MISSING for a null or blank amount, or INVALID
+     */
+    public static long parseCents(String amount) {
+        if (amount == null) {
+            return MISSING;
+        }
+        return parseCents(amount.toCharArray(), 0, amount.length());
+    }
+
+    /**
+     * Parses a decimal amount into cents like `parseCents(String)`, straight from a
+     * character buffer such as a JSON parser's, without building a string.
+     *
+     * @param chars buffer holding the amount
+     * @param offset index of the first character of the amount
+     * @param length number of characters of the amount
+     * @return the amount in cents, MISSING for a blank amount, or INVALID
+     */
+    public static long parseCents(char[] chars, int offset, int length) {
+        // Surrounding whitespace is ignored, like String.trim() does.
+        int i = offset;
+        int end = offset + length;
+        while (i < end && chars[i] <= ' ') {
+            i++;
+        }
+        while (end > i && chars[end - 1] <= ' ') {
+            end--;
+        }
+        if (i == end) {
+            return MISSING;
+        }
+
+        boolean negative = false;
+        if (chars[i] == '-' || chars[i] == '+') {
+            negative = chars[i] == '-';
+            i++;
+        }
+
+        long whole = 0;
+        int wholeDigits = 0;
+        while (i < end && isDigit(chars[i])) {
+            if (++wholeDigits > MAX_WHOLE_DIGITS) {
+                return INVALID;
+            }
+            whole = whole * 10 + (chars[i] - '0');
+            i++;
+        }
+
+        long fraction = 0;
+        int fractionDigits = 0;
+        if (i < end && chars[i] == '.') {
+            i++;
+            while (i < end && isDigit(chars[i])) {
+                int digit = chars[i] - '0';
+                if (fractionDigits < 2) {
+                    fraction = fraction * 10 + digit;
+                } else if (digit != 0) {
+                    return INVALID;
+                }
+                fractionDigits++;
+                i++;
+            }
+        }
+
+        if (i != end || (wholeDigits == 0 && fractionDigits == 0)) {
+            return INVALID;
+        }
+        if (fractionDigits == 1) {
+            fraction *= 10;
+        }
+        long cents = whole * 100 + fraction;
+        return negative ? -cents : cents;
+    }
+
+    /**
+     * @param cents amount in cents
+     * @return the amount as a decimal string with two decimal places, e.g. "2.25"
+     */
+    public static String format(long cents) {
+        long absolute = Math.abs(cents);
+        long fraction = absolute % 100;
+        return (cents < 0 ? "-" : "") + absolute / 100 + (fraction < 10 ? ".0" : ".") + fraction;
+    }
+
+    /**
+     * @return true when the amount holds a real value rather than MISSING or INVALID
+     */
+    public static boolean isPresent(long cents) {
+        return cents != MISSING && cents != INVALID;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+}
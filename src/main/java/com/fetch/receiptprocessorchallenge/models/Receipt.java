@@ -3,17 +3,41 @@ package com.fetch.receiptprocessorchallenge.models;
 import lombok.Builder;
 import lombok.Data;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 import java.time.LocalDate;
 import java.time.LocalTime;
 import java.util.List;
+import java.util.UUID;
 
 @Data
-@Builder
+@Builder(toBuilder = true)
 public class Receipt {
-    private String id;
+    private static final VarHandle POINTS;
+
+    static {
+        try {
+            POINTS = MethodHandles.lookup().findVarHandle(Receipt.class, "points", Integer.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private UUID id;
     private String retailer;
     private LocalDate purchaseDate;
     private LocalTime purchaseTime;
     private List<Item> items;
-    private Double total;
+    private long totalCents;
+    // Memoized reward points, null until scored.
+    private volatile Integer points;
+
+    /**
+     * Sets the points with a compare-and-set, unless the receipt has points already.
+     * @param points calculated points
+     * @return true when this call set them
+     * */
+    public boolean memoizePoints(int points) {
+        return POINTS.compareAndSet(this, (Integer) null, Integer.valueOf(points));
+    }
 }
@@ -0,0 +1,28 @@
+package com.fetch.receiptprocessorchallenge.rules;
+
+import com.fetch.receiptprocessorchallenge.models.Receipt;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalTime;
+
+/**
+ * 10 points if the time of purchase is after 2:00pm and before 4:00pm.
+ */
+@Component
+@Order(7)
+public class AfternoonPurchaseRule implements PointsRule {
+    private static final LocalTime BONUS_WINDOW_START = LocalTime.of(14, 0);
+    private static final LocalTime BONUS_WINDOW_END = LocalTime.of(16, 0);
+
+    @Override
+    public String name() {
+        return "afternoon-purchase";
+    }
+
+    @Override
+    public int points(Receipt receipt) {
+        LocalTime time = receipt.getPurchaseTime();
+        return time.isAfter(BONUS_WINDOW_START) && time.isBefore(BONUS_WINDOW_END) ? 10 : 0;
+    }
+}
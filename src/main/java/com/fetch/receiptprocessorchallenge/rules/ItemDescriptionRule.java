@@ -0,0 +1,55 @@
+package com.fetch.receiptprocessorchallenge.rules;
+
+import com.fetch.receiptprocessorchallenge.models.Item;
+import com.fetch.receiptprocessorchallenge.models.Receipt;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * If the trimmed length of the item description is a multiple of 3,
+ * multiply the price by 0.2 and round up to the nearest integer.
+ * The result is the number of points earned.
+ */
+@Component
+@Order(5)
+public class ItemDescriptionRule implements PointsRule {
+
+    @Override
+    public String name() {
+        return "item-description";
+    }
+
+    @Override
+    public int points(Receipt receipt) {
+        int points = 0;
+        List<Item> items = receipt.getItems();
+        for (int i = 0; i < items.size(); i++) {
+            Item item = items.get(i);
+            if (trimmedLength(item.getShortDescription()) % 3 == 0) {
+                // In cents that is ceil(priceCents / 500); prices are validated to be non-negative.
+                points += (int) ((item.getPriceCents() + 499) / 500);
+            }
+        }
+        return points;
+    }
+
+    /**
+     * Helper method returning the length `String.trim()` would produce, without creating the trimmed string.
+     *
+     * @param value The input string to evaluate.
+     * @return The length of the string without leading and trailing whitespace.
+     */
+    private static int trimmedLength(String value) {
+        int start = 0;
+        int end = value.length();
+        while (start < end && value.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && value.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        return end - start;
+    }
+}
@@ -0,0 +1,23 @@
+package com.fetch.receiptprocessorchallenge.rules;
+
+import com.fetch.receiptprocessorchallenge.models.Receipt;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * 5 points for every two items on the receipt.
+ */
+@Component
+@Order(4)
+public class ItemPairsRule implements PointsRule {
+
+    @Override
+    public String name() {
+        return "item-pairs";
+    }
+
+    @Override
+    public int points(Receipt receipt) {
+        return (receipt.getItems().size() / 2) * 5;
+    }
+}
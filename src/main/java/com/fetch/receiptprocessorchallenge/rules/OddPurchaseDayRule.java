@@ -0,0 +1,23 @@
+package com.fetch.receiptprocessorchallenge.rules;
+
+import com.fetch.receiptprocessorchallenge.models.Receipt;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * 6 points if the day in the purchase date is odd.
+ */
+@Component
+@Order(6)
+public class OddPurchaseDayRule implements PointsRule {
+
+    @Override
+    public String name() {
+        return "odd-purchase-day";
+    }
+
+    @Override
+    public int points(Receipt receipt) {
+        return receipt.getPurchaseDate().getDayOfMonth() % 2 != 0 ? 6 : 0;
+    }
+}
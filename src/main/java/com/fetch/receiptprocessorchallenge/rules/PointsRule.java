@@ -0,0 +1,26 @@
+package com.fetch.receiptprocessorchallenge.rules;
+
+import com.fetch.receiptprocessorchallenge.models.Receipt;
+
+/**
+ * A single reward points rule.
+ *
+ * Rules are Spring beans; every `PointsRule` in the context is picked up by the
+ * `PointsRuleEngine`, which can enable, disable and weight it by its name.
+ * Implementations must be stateless and thread safe, and should not allocate,
+ * as they run on every scored receipt.
+ */
+public interface PointsRule {
+
+    /**
+     * @return the name the rule is configured by, e.g. `receipts.scoring.rules.<name>.weight`
+     * */
+    String name();
+
+    /**
+     * Calculates the unweighted points this rule awards to a validated receipt.
+     * @param receipt the receipt to score
+     * @return the points awarded, 0 when the rule does not apply
+     * */
+    int points(Receipt receipt);
+}
@@ -0,0 +1,342 @@
+package com.fetch.receiptprocessorchallenge.rules;
+
+import com.fetch.receiptprocessorchallenge.metrics.ReceiptMetrics;
+import com.fetch.receiptprocessorchallenge.models.Receipt;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Scores receipts with the configured set of `PointsRule`s.
+ *
+ * Every rule is enabled with weight 1 unless configured otherwise through
+ * `receipts.scoring.rules.<name>.enabled` and `receipts.scoring.rules.<name>.weight`.
+ * The enabled rules are compiled into one immutable pair of flat arrays
+ * (rules and weights), so scoring is a single indexed loop with no lookups,
+ * reflection or allocation per call.
+ *
+ * When `receipts.scoring.rules-file` points to a properties file, the rule
+ * settings in it override the application configuration and the file is
+ * polled for changes every `receipts.scoring.rules-reload-interval-seconds`, or
+ * only loaded once when that is 0. A changed file is compiled into a new rule set that
+ * replaces the old one atomically; receipts already scored keep their points.
+ * A file that fails to load or compile is logged and the previous rule set stays active.
+ *
+ * With metrics enabled, one in every `RULE_TIMING_SAMPLE` receipts is scored rule by
+ * rule with a timer per rule; the others take the plain loop, so timing rules adds
+ * next to nothing to the average score.
+ */
+@Slf4j
+@Component
+public class PointsRuleEngine {
+    static final String PROPERTY_PREFIX = "receipts.scoring.rules.";
+    static final int RULE_TIMING_SAMPLE = 64;
+    // Keeps weighted points far from int overflow; a larger weight is rejected, so a reload cannot set one.
+    static final int MAX_WEIGHT = 1_000;
+
+    private final List<PointsRule> _rules;
+    private final ReceiptMetrics _receiptMetrics;
+    private final Function<String, String> _defaults;
+    private final Path _rulesFile;
+    private final ScheduledExecutorService _reloader;
+    private volatile CompiledRules _compiled;
+    // Only touched by the reloader thread after construction.
+    private long _rulesFileModified = Long.MIN_VALUE;
+
+    /**
+     * Creates an engine running all the given rules with weight 1.
+     * @param rules the rules to score with, in order
+     * */
+    public PointsRuleEngine(List<PointsRule> rules) {
+        this(rules, ReceiptMetrics.disabled());
+    }
+
+    /**
+     * Creates an engine running all the given rules with weight 1, timing them with the given metrics.
+     * @param rules the rules to score with, in order
+     * @param receiptMetrics where rule timings are recorded
+     * */
+    public PointsRuleEngine(List<PointsRule> rules, ReceiptMetrics receiptMetrics) {
+        this(rules, receiptMetrics, key -> null, null, 0);
+    }
+
+    public PointsRuleEngine(List<PointsRule> rules, Environment environment, String rulesFile,
+                            long reloadIntervalSeconds) {
+        this(rules, ReceiptMetrics.disabled(), environment, rulesFile, reloadIntervalSeconds);
+    }
+
+    @Autowired
+    public PointsRuleEngine(List<PointsRule> rules,
+                            ReceiptMetrics receiptMetrics,
+                            Environment environment,
+                            @Value("${receipts.scoring.rules-file:}") String rulesFile,
+                            @Value("${receipts.scoring.rules-reload-interval-seconds:5}") long reloadIntervalSeconds) {
+        this(rules, receiptMetrics, environment::getProperty,
+                rulesFile == null || rulesFile.isBlank() ? null : Path.of(rulesFile), reloadIntervalSeconds);
+    }
+
+    private PointsRuleEngine(List<PointsRule> rules, ReceiptMetrics receiptMetrics, Function<String, String> defaults,
+                             Path rulesFile, long reloadIntervalSeconds) {
+        Set<String> names = new HashSet<>();
+        for (PointsRule rule : rules) {
+            if (!names.add(rule.name())) {
+                throw new IllegalArgumentException(String.format("Duplicate points rule name %s.", rule.name()));
+            }
+        }
+        if (reloadIntervalSeconds < 0) {
+            throw new IllegalArgumentException("The points rules reload interval must not be negative.");
+        }
+        _rules = List.copyOf(rules);
+        _receiptMetrics = receiptMetrics;
+        _defaults = defaults;
+        _rulesFile = rulesFile;
+        if (_rulesFile == null) {
+            _compiled = compile(_defaults);
+            _reloader = null;
+        } else if (reloadIntervalSeconds == 0) {
+            _compiled = compile(withRulesFile(loadRulesFile(_rulesFile)));
+            _reloader = null;
+        } else {
+            _rulesFileModified = lastModified(_rulesFile);
+            _compiled = compile(withRulesFile(loadRulesFile(_rulesFile)));
+            _reloader = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "points-rules-reloader");
+                thread.setDaemon(true);
+                return thread;
+            });
+            _reloader.scheduleWithFixedDelay(this::reloadIfModified, reloadIntervalSeconds,
+                    reloadIntervalSeconds, TimeUnit.SECONDS);
+        }
+        log.info("Active points rules: {}", _compiled.weights());
+    }
+
+    /**
+     * @return an engine running the built-in rules with weight 1
+     * */
+    public static PointsRuleEngine withDefaultRules() {
+        return new PointsRuleEngine(defaultRules());
+    }
+
+    /**
+     * @return a new instance of every built-in rule, in scoring order
+     * */
+    public static List<PointsRule> defaultRules() {
+        return List.of(new RetailerNameRule(), new RoundDollarTotalRule(), new QuarterTotalRule(),
+                new ItemPairsRule(), new ItemDescriptionRule(), new OddPurchaseDayRule(),
+                new AfternoonPurchaseRule());
+    }
+
+    /**
+     * Calculates the reward points for a validated receipt with the active rules.
+     * @param receipt the receipt to score
+     * @return the sum of the weighted points of every active rule
+     * */
+    public int score(Receipt receipt) {
+        CompiledRules compiled = _compiled;
+        if (compiled.timers != null && ThreadLocalRandom.current().nextInt(RULE_TIMING_SAMPLE) == 0) {
+            return scoreTimed(compiled, receipt);
+        }
+        PointsRule[] rules = compiled.rules;
+        int[] weights = compiled.weightValues;
+        int points = 0;
+        for (int i = 0; i < rules.length; i++) {
+            points += weights[i] * rules[i].points(receipt);
+        }
+        return points;
+    }
+
+    private static int scoreTimed(CompiledRules compiled, Receipt receipt) {
+        int points = 0;
+        for (int i = 0; i < compiled.rules.length; i++) {
+            long started = System.nanoTime();
+            points += compiled.weightValues[i] * compiled.rules[i].points(receipt);
+            compiled.timers[i].record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+        return points;
+    }
+
+    /**
+     * Calculates the weighted points of every active rule separately.
+     * @param receipt the receipt to score
+     * @return the weighted points per rule name, in scoring order
+     * */
+    public Map<String, Integer> breakdown(Receipt receipt) {
+        CompiledRules compiled = _compiled;
+        Map<String, Integer> breakdown = new LinkedHashMap<>();
+        for (int i = 0; i < compiled.rules.length; i++) {
+            breakdown.put(compiled.rules[i].name(), compiled.weightValues[i] * compiled.rules[i].points(receipt));
+        }
+        return breakdown;
+    }
+
+    /**
+     * @return the weight of every active rule by name, in scoring order
+     * */
+    public Map<String, Integer> activeRules() {
+        return _compiled.weights();
+    }
+
+    /**
+     * Recompiles the rule set from the application configuration and the rules file, if any.
+     * @throws IllegalArgumentException if the rules file cannot be read or the settings are invalid;
+     * the active rule set is then kept
+     * */
+    public void reload() {
+        Function<String, String> settings = _rulesFile == null ? _defaults : withRulesFile(loadRulesFile(_rulesFile));
+        _compiled = compile(settings);
+        log.info("Reloaded points rules: {}", _compiled.weights());
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (_reloader != null) {
+            _reloader.shutdown();
+        }
+    }
+
+    private void reloadIfModified() {
+        try {
+            long modified = lastModified(_rulesFile);
+            if (modified == _rulesFileModified) {
+                return;
+            }
+            _rulesFileModified = modified;
+            reload();
+        } catch (Exception e) {
+            log.warn("Points rules were not reloaded from {}, keeping the active rules: {}", _rulesFile, e.getMessage());
+        }
+    }
+
+    private CompiledRules compile(Function<String, String> settings) {
+        List<PointsRule> active = new ArrayList<>(_rules.size());
+        List<Integer> weights = new ArrayList<>(_rules.size());
+        for (PointsRule rule : _rules) {
+            boolean enabled = parseEnabled(rule, settings.apply(PROPERTY_PREFIX + rule.name() + ".enabled"));
+            int weight = parseWeight(rule, settings.apply(PROPERTY_PREFIX + rule.name() + ".weight"));
+            if (enabled && weight != 0) {
+                active.add(rule);
+                weights.add(weight);
+            }
+        }
+        int[] weightValues = new int[weights.size()];
+        for (int i = 0; i < weightValues.length; i++) {
+            weightValues[i] = weights.get(i);
+        }
+        Timer[] timers = null;
+        if (_receiptMetrics.isEnabled()) {
+            timers = new Timer[active.size()];
+            for (int i = 0; i < timers.length; i++) {
+                timers[i] = _receiptMetrics.ruleTimer(active.get(i).name());
+            }
+        }
+        return new CompiledRules(active.toArray(new PointsRule[0]), weightValues, timers);
+    }
+
+    private Function<String, String> withRulesFile(Properties rulesFile) {
+        return key -> {
+            String value = rulesFile.getProperty(key);
+            return value != null ? value : _defaults.apply(key);
+        };
+    }
+
+    private static boolean parseEnabled(PointsRule rule, String value) {
+        if (value == null || value.isBlank()) {
+            return true;
+        }
+        if (value.trim().equalsIgnoreCase("true")) {
+            return true;
+        }
+        if (value.trim().equalsIgnoreCase("false")) {
+            return false;
+        }
+        throw new IllegalArgumentException(
+                String.format("Points rule %s must be enabled with true or false, not %s.", rule.name(), value));
+    }
+
+    private static int parseWeight(PointsRule rule, String value) {
+        if (value == null || value.isBlank()) {
+            return 1;
+        }
+        int weight;
+        try {
+            weight = Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(
+                    String.format("Weight of points rule %s must be a whole number, not %s.", rule.name(), value));
+        }
+        if (weight < 0) {
+            throw new IllegalArgumentException(
+                    String.format("Weight of points rule %s must not be negative.", rule.name()));
+        }
+        if (weight > MAX_WEIGHT) {
+            throw new IllegalArgumentException(
+                    String.format("Weight of points rule %s must be at most %d, not %d.", rule.name(), MAX_WEIGHT, weight));
+        }
+        return weight;
+    }
+
+    private static Properties loadRulesFile(Path rulesFile) {
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(rulesFile, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        } catch (IOException e) {
+            throw new IllegalArgumentException(String.format("Points rules file %s cannot be read.", rulesFile), e);
+        }
+        return properties;
+    }
+
+    private static long lastModified(Path rulesFile) {
+        try {
+            return Files.getLastModifiedTime(rulesFile).toMillis();
+        } catch (IOException e) {
+            throw new IllegalArgumentException(String.format("Points rules file %s cannot be read.", rulesFile), e);
+        }
+    }
+
+    /**
+     * An immutable, compiled rule set; replaced as a whole on reload.
+     * */
+    private static final class CompiledRules {
+        final PointsRule[] rules;
+        final int[] weightValues;
+        // Null when metrics are disabled.
+        final Timer[] timers;
+
+        CompiledRules(PointsRule[] rules, int[] weightValues, Timer[] timers) {
+            this.rules = rules;
+            this.weightValues = weightValues;
+            this.timers = timers;
+        }
+
+        Map<String, Integer> weights() {
+            Map<String, Integer> weights = new LinkedHashMap<>();
+            for (int i = 0; i < rules.length; i++) {
+                weights.put(rules[i].name(), weightValues[i]);
+            }
+            return Collections.unmodifiableMap(weights);
+        }
+    }
+}
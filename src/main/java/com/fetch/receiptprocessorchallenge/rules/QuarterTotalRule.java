@@ -0,0 +1,23 @@
+package com.fetch.receiptprocessorchallenge.rules;
+
+import com.fetch.receiptprocessorchallenge.models.Receipt;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * 25 points if the total is a multiple of 0.25.
+ */
+@Component
+@Order(3)
+public class QuarterTotalRule implements PointsRule {
+
+    @Override
+    public String name() {
+        return "quarter-total";
+    }
+
+    @Override
+    public int points(Receipt receipt) {
+        return receipt.getTotalCents() % 25 == 0 ? 25 : 0;
+    }
+}
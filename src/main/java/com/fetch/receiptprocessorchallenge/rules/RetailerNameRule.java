@@ -0,0 +1,30 @@
+package com.fetch.receiptprocessorchallenge.rules;
+
+import com.fetch.receiptprocessorchallenge.models.Receipt;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * One point for every alphanumeric character in the retailer name.
+ */
+@Component
+@Order(1)
+public class RetailerNameRule implements PointsRule {
+
+    @Override
+    public String name() {
+        return "retailer-name";
+    }
+
+    @Override
+    public int points(Receipt receipt) {
+        String name = receipt.getRetailer();
+        int response = 0;
+        for (int i = 0; i < name.length(); i++) {
+            if (Character.isLetterOrDigit(name.charAt(i))) {
+                response++;
+            }
+        }
+        return response;
+    }
+}
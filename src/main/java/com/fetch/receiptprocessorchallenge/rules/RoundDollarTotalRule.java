@@ -0,0 +1,23 @@
+package com.fetch.receiptprocessorchallenge.rules;
+
+import com.fetch.receiptprocessorchallenge.models.Receipt;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * 50 points if the total is a round dollar amount with no cents.
+ */
+@Component
+@Order(2)
+public class RoundDollarTotalRule implements PointsRule {
+
+    @Override
+    public String name() {
+        return "round-dollar-total";
+    }
+
+    @Override
+    public int points(Receipt receipt) {
+        return receipt.getTotalCents() % 100 == 0 ? 50 : 0;
+    }
+}
@@ -0,0 +1,20 @@
+package com.fetch.receiptprocessorchallenge.service;
+
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * Outcome of a bulk NDJSON import.
+ */
+@Data
+@Builder
+public class ImportSummary {
+    private long records;
+    private long imported;
+    private long failed;
+    private long elapsedNanos;
+
+    public double getRecordsPerSecond() {
+        return elapsedNanos == 0 ? 0 : records / (elapsedNanos / 1e9);
+    }
+}
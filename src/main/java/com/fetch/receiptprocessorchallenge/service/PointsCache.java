@@ -0,0 +1,152 @@
+package com.fetch.receiptprocessorchallenge.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Small cache of the points of recently read receipts, so polling a hot receipt does not
+ * go to the store every time. A receipt's points never change once it is scored, so an
+ * entry only goes stale when its receipt leaves the store, evicted over the memory budget
+ * or expired with its spill file, and the service removes it then.
+ *
+ * The cache is direct-mapped: each id has a single slot, picked from its bits, and an id
+ * mapped to a taken slot replaces the entry there. A lookup is one array read, without
+ * locks or allocation. Entries are immutable, so a read racing a write sees either entry
+ * whole, and a lost write only costs a store lookup later.
+ *
+ * A read that found a receipt can cache its points after the receipt was removed. So it
+ * takes a `stamp()` before reading the store, and a `put` with a stamp some removal has
+ * moved on from takes its entry back out.
+ */
+@Component
+public class PointsCache {
+    static final int DEFAULT_SIZE = 4096;
+    private static final int MAX_SIZE = 1 << 30;
+    private static final VarHandle ENTRIES = MethodHandles.arrayElementVarHandle(Entry[].class);
+
+    private final Entry[] _entries;
+    private final int _mask;
+    private final LongAdder _hits = new LongAdder();
+    private final LongAdder _misses = new LongAdder();
+    private final AtomicLong _removals = new AtomicLong();
+
+    /**
+     * @param size how many receipts to keep the points of, rounded up to a power of 2, or 0 to cache nothing
+     * */
+    @Autowired
+    PointsCache(@Value("${receipts.points.cache.size:" + DEFAULT_SIZE + "}") int size) {
+        if (size < 0) {
+            throw new IllegalArgumentException("The points cache size must not be negative.");
+        }
+        int slots = size <= 1 ? size : Integer.highestOneBit(Math.min(size, MAX_SIZE) - 1) << 1;
+        _entries = slots == 0 ? null : new Entry[slots];
+        _mask = slots - 1;
+    }
+
+    /**
+     * @return a cache that keeps nothing, for services created outside Spring
+     * */
+    static PointsCache disabled() {
+        return new PointsCache(0);
+    }
+
+    /**
+     * @return the cached points of the receipt with this id, or null when they are not cached
+     * */
+    Integer get(long mostSignificantBits, long leastSignificantBits) {
+        if (_entries == null) {
+            return null;
+        }
+        Entry entry = _entries[slot(mostSignificantBits, leastSignificantBits)];
+        if (entry != null && entry.mostSignificantBits() == mostSignificantBits
+                && entry.leastSignificantBits() == leastSignificantBits) {
+            _hits.increment();
+            return entry.points();
+        }
+        _misses.increment();
+        return null;
+    }
+
+    /**
+     * @return the stamp to `put` the points of a receipt read from the store after this call
+     * */
+    long stamp() {
+        return _removals.get();
+    }
+
+    /**
+     * Caches the points of a scored receipt, replacing the receipt that had its slot, unless
+     * a receipt was removed since the stamp was taken, which may have been this one.
+     *
+     * @param stamp the `stamp()` taken before the receipt was read from the store
+     * */
+    void put(long mostSignificantBits, long leastSignificantBits, int points, long stamp) {
+        if (_entries == null) {
+            return;
+        }
+        int slot = slot(mostSignificantBits, leastSignificantBits);
+        Entry entry = new Entry(mostSignificantBits, leastSignificantBits, points);
+        ENTRIES.setVolatile(_entries, slot, entry);
+        // Either the removal sees the entry, or the entry sees the removal.
+        if (_removals.get() != stamp) {
+            ENTRIES.compareAndSet(_entries, slot, entry, null);
+        }
+    }
+
+    /**
+     * Forgets the points of a receipt that left the store.
+     * */
+    void remove(long mostSignificantBits, long leastSignificantBits) {
+        if (_entries == null) {
+            return;
+        }
+        _removals.incrementAndGet();
+        int slot = slot(mostSignificantBits, leastSignificantBits);
+        Entry entry = (Entry) ENTRIES.getVolatile(_entries, slot);
+        if (entry != null && entry.mostSignificantBits() == mostSignificantBits
+                && entry.leastSignificantBits() == leastSignificantBits) {
+            ENTRIES.compareAndSet(_entries, slot, entry, null);
+        }
+    }
+
+    public boolean isEnabled() {
+        return _entries != null;
+    }
+
+    /**
+     * @return how many receipts the cache keeps the points of
+     * */
+    public int getSize() {
+        return _entries == null ? 0 : _entries.length;
+    }
+
+    /**
+     * @return the number of lookups answered from the cache
+     * */
+    public long getHits() {
+        return _hits.sum();
+    }
+
+    /**
+     * @return the number of lookups that had to go to the store
+     * */
+    public long getMisses() {
+        return _misses.sum();
+    }
+
+    private int slot(long mostSignificantBits, long leastSignificantBits) {
+        // Random UUIDs are uniform in the low bits already; the mix spreads sequential ids too.
+        long hash = (mostSignificantBits ^ leastSignificantBits) * 0x9E3779B97F4A7C15L;
+        return (int) (hash >>> 32) & _mask;
+    }
+
+    // Points are boxed once, when cached, so a hit returns them without allocating.
+    private record Entry(long mostSignificantBits, long leastSignificantBits, Integer points) {
+    }
+}
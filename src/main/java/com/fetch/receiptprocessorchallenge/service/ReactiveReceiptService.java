@@ -0,0 +1,327 @@
+package com.fetch.receiptprocessorchallenge.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fetch.receiptprocessorchallenge.dao.ReactiveReceiptDAO;
+import com.fetch.receiptprocessorchallenge.dao.ReceiptIds;
+import com.fetch.receiptprocessorchallenge.dtos.ImportLineResponse;
+import com.fetch.receiptprocessorchallenge.dtos.ProcessReceiptBatchResponse;
+import com.fetch.receiptprocessorchallenge.dtos.ProcessReceiptRequest;
+import com.fetch.receiptprocessorchallenge.dtos.ProcessReceiptResponse;
+import com.fetch.receiptprocessorchallenge.dtos.ReceiptPageResponse;
+import com.fetch.receiptprocessorchallenge.dtos.ReceiptPointResponse;
+import com.fetch.receiptprocessorchallenge.dtos.ReceiptPointsBatchResponse;
+import com.fetch.receiptprocessorchallenge.dtos.ReceiptStatsResponse;
+import com.fetch.receiptprocessorchallenge.metrics.ReceiptMetrics;
+import com.fetch.receiptprocessorchallenge.models.Receipt;
+import com.fetch.receiptprocessorchallenge.validation.ReceiptValidator;
+import com.fetch.receiptprocessorchallenge.validation.ValidationResult;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Non-blocking counterpart of `ReceiptService`, `ReceiptBatchService` and
+ * `ReceiptImportService` for the reactive stack of the `reactive` profile.
+ *
+ * Receipts are built, scored and turned into responses by the same code as on the
+ * servlet stack, so both stacks give identical results; only the store calls go
+ * through `ReactiveReceiptDAO`. Bulk endpoints pull their input as they process it:
+ * a batch is read up to one receipt past the configured maximum, and an NDJSON
+ * import requests more lines only once earlier ones are stored, so a slow store
+ * slows down reading the request body instead of buffering it.
+ * In ASYNC scoring mode a points request waits for a receipt still in the `ScoringQueue`
+ * without blocking: it subscribes to the receipt's pending points, up to the configured wait.
+ */
+@Service
+@Profile("reactive")
+public class ReactiveReceiptService {
+    private final ReceiptService _receiptService;
+    private final ReceiptBatchService _receiptBatchService;
+    private final ReceiptValidator _receiptValidator;
+    private final ReactiveReceiptDAO _receiptDao;
+    private final ReceiptMetrics _receiptMetrics;
+    private final ObjectReader _requestReader;
+
+    @Autowired
+    ReactiveReceiptService(ReceiptService receiptService,
+                           ReceiptBatchService receiptBatchService,
+                           ReceiptValidator receiptValidator,
+                           ReactiveReceiptDAO reactiveReceiptDAO,
+                           ReceiptMetrics receiptMetrics,
+                           ObjectMapper objectMapper) {
+        _receiptService = receiptService;
+        _receiptBatchService = receiptBatchService;
+        _receiptValidator = receiptValidator;
+        _receiptDao = reactiveReceiptDAO;
+        _receiptMetrics = receiptMetrics;
+        _requestReader = objectMapper.readerFor(ProcessReceiptRequest.class);
+    }
+
+    /**
+     * Builds a receipt from a validated request, scoring it in EAGER mode, and stores it.
+     *
+     * @param request The validated `ProcessReceiptRequest`.
+     * @return the id of the stored receipt
+     */
+    public Mono<ProcessReceiptResponse> processReceipt(ProcessReceiptRequest request) {
+        return processReceipt(request, null);
+    }
+
+    /**
+     * Like `ReceiptService.processReceipt(request, idempotencyKey)`: a receipt processed before,
+     * by its content in dedup mode or by its idempotency key, is not stored again, and the id
+     * of the original is emitted once the original is stored.
+     *
+     * @param request The validated `ProcessReceiptRequest`.
+     * @param idempotencyKey The `Idempotency-Key` sent with the request, or null.
+     * @return the id of the stored receipt, or an error if the key was used for a different receipt
+     */
+    public Mono<ProcessReceiptResponse> processReceipt(ProcessReceiptRequest request, String idempotencyKey) {
+        ReceiptDeduplicator deduplicator = _receiptService.getDeduplicator();
+        if (!deduplicator.applies(idempotencyKey)) {
+            return Mono.fromCallable(() -> _receiptService.buildReceipt(request)).flatMap(this::save);
+        }
+        return Mono.defer(() -> {
+            ReceiptDeduplicator.Claim claim = deduplicator.claim(request, idempotencyKey);
+            if (claim.isDuplicate()) {
+                return Mono.fromFuture(claim.whenStored(), true)
+                        .map(id -> ProcessReceiptResponse.builder().id(id.toString()).build());
+            }
+            return Mono.fromCallable(() -> _receiptService.buildReceipt(request, claim.getId()))
+                    .flatMap(this::save)
+                    .doOnSuccess(response -> claim.stored())
+                    .doOnError(claim::failed)
+                    // Duplicates waiting on an abandoned claim fail instead of hanging; the next retry stores the receipt.
+                    .doOnCancel(() -> claim.failed(new CancellationException("The receipt was not stored.")));
+        });
+    }
+
+    private Mono<ProcessReceiptResponse> save(Receipt receipt) {
+        List<Receipt> receipts = List.of(receipt);
+        return Mono.defer(() -> {
+            _receiptService.reserveScoring(receipts);
+            long started = _receiptMetrics.start();
+            return _receiptDao.save(receipt)
+                    .doOnSuccess(saved -> {
+                        _receiptMetrics.recordStorage(started);
+                        _receiptService.submitScoring(receipts);
+                    })
+                    .doOnError(e -> _receiptService.cancelScoring(receipts))
+                    .doOnCancel(() -> _receiptService.cancelScoring(receipts))
+                    .map(saved -> ProcessReceiptResponse.builder().id(saved.getId().toString()).build());
+        });
+    }
+
+    /**
+     * Returns the points for a given receipt, calculating and memoizing them on the
+     * first read in LAZY mode, exactly like `ReceiptService.getReceiptPoints`.
+     * Points in the `PointsCache` are answered without subscribing to the store.
+     *
+     * @param receiptId the validated ID of the receipt
+     * @param breakdown whether to include the points per rule
+     * @return the points, or an error if the receipt with the specified ID is not found
+     */
+    public Mono<ReceiptPointResponse> getReceiptPoints(String receiptId, boolean breakdown) {
+        return Mono.defer(() -> getReceiptPoints(ReceiptIds.toUuid(receiptId), breakdown));
+    }
+
+    /**
+     * Like `getReceiptPoints(receiptId, breakdown)`, for an id the caller has parsed already.
+     *
+     * @param receiptId the ID of the receipt
+     * @param breakdown whether to include the points per rule
+     * @return the points, or an error if the receipt with the specified ID is not found
+     */
+    public Mono<ReceiptPointResponse> getReceiptPoints(UUID receiptId, boolean breakdown) {
+        return Mono.defer(() -> {
+            ReceiptPointResponse cached = _receiptService.cachedPointsResponse(receiptId.getMostSignificantBits(),
+                    receiptId.getLeastSignificantBits(), breakdown);
+            return cached != null ? Mono.just(cached) : readPoints(receiptId, breakdown);
+        });
+    }
+
+    private Mono<ReceiptPointResponse> readPoints(UUID receiptId, boolean breakdown) {
+        long cacheStamp = _receiptService.getPointsCache().stamp();
+        long lookupStarted = _receiptMetrics.start();
+        return _receiptDao.findById(receiptId.getMostSignificantBits(), receiptId.getLeastSignificantBits())
+                .doFinally(signal -> _receiptMetrics.recordStorage(lookupStarted))
+                .switchIfEmpty(Mono.error(() -> ReceiptService.notFound(receiptId.toString())))
+                .flatMap(receipt -> receipt.getPoints() == null && _receiptService.getScoringMode() == ScoringMode.ASYNC
+                        ? awaitScoring(receipt)
+                        : Mono.just(receipt))
+                .flatMap(receipt -> {
+                    Integer points = _receiptService.scoreIfMissing(receipt);
+                    if (points == null) {
+                        return Mono.just(receipt);
+                    }
+                    long started = _receiptMetrics.start();
+                    return _receiptDao.savePoints(receipt, points)
+                            .doFinally(signal -> _receiptMetrics.recordStorage(started))
+                            .then(Mono.fromSupplier(() -> {
+                                receipt.memoizePoints(points);
+                                return receipt;
+                            }));
+                })
+                .map(receipt -> _receiptService.pointsResponse(receipt, breakdown, cacheStamp));
+    }
+
+    /**
+     * Returns the points of many receipts, like `ReceiptService.getReceiptPoints(receiptIds)`,
+     * on the scheduler of the store calls. Receipts still in the scoring queue are not waited for.
+     *
+     * @param receiptIds the ids, at most `ReceiptService.MAX_POINTS_IDS`
+     * @return one result per id, in the same order, or an error if there are too many ids
+     */
+    public Mono<ReceiptPointsBatchResponse> getReceiptPoints(List<String> receiptIds) {
+        return _receiptDao.call(() -> _receiptService.getReceiptPoints(receiptIds));
+    }
+
+    /**
+     * Like `ReceiptService`'s wait for a receipt in the scoring queue, but subscribed to its
+     * pending points instead of blocking on them.
+     */
+    private Mono<Receipt> awaitScoring(Receipt receipt) {
+        ScoringQueue scoringQueue = _receiptService.getScoringQueue();
+        Mono<Receipt> current = Mono.defer(() -> _receiptDao.findById(receipt.getId().getMostSignificantBits(),
+                        receipt.getId().getLeastSignificantBits()))
+                .defaultIfEmpty(receipt);
+        CompletableFuture<Integer> points = scoringQueue.pending(receipt.getId());
+        if (points == null) {
+            return current;
+        }
+        // A cancelled reservation completes with no points, and the receipt is read again.
+        return Mono.fromFuture(points, true)
+                .timeout(Duration.ofMillis(scoringQueue.getWaitMillis()),
+                        Mono.error(() -> scoringQueue.stillScoring(receipt.getId())))
+                .map(scored -> {
+                    receipt.setPoints(scored);
+                    return receipt;
+                })
+                .switchIfEmpty(current);
+    }
+
+    /**
+     * Returns a page of the receipts purchased in a range, like `ReceiptService.findReceipts`,
+     * on the scheduler of the store calls.
+     *
+     * @param from first purchase date or date and time, or null for no bound
+     * @param to last purchase date or date and time, inclusive, or null for no bound
+     * @param retailer only the receipts of this retailer, or null for all
+     * @param cursor the `next` cursor of the previous page, or null for the first page
+     * @param pageSize most receipts on the page
+     * @return the page, or an error if a parameter is not valid
+     */
+    public Mono<ReceiptPageResponse> findReceipts(String from, String to, String retailer, String cursor, int pageSize) {
+        return _receiptDao.call(() -> _receiptService.findReceipts(from, to, retailer, cursor, pageSize));
+    }
+
+    /**
+     * Returns the receipt and points counts, like `ReceiptService.getStats`. They are read from
+     * counters kept at every save, without touching the store, so this runs on the calling thread.
+     *
+     * @param retailers how many retailers to include, those with the most receipts
+     * @return the stats, or an error if retailers is negative
+     */
+    public Mono<ReceiptStatsResponse> getStats(int retailers) {
+        return Mono.fromSupplier(() -> _receiptService.getStats(retailers));
+    }
+
+    /**
+     * Validates, scores and stores a batch of receipts, like `ReceiptBatchService.processReceipts`.
+     * Slices of a large batch are validated and scored in parallel on Reactor's parallel
+     * scheduler instead of on the calling event loop.
+     *
+     * @param requests The receipts to process, as decoded from the request body.
+     * @return One `ProcessReceiptResponse` per request, in input order, or an error if the
+     * batch is empty or larger than the configured maximum.
+     */
+    public Mono<ProcessReceiptBatchResponse> processReceipts(Flux<ProcessReceiptRequest> requests) {
+        // One receipt past the maximum is enough to reject the batch without reading the rest.
+        return requests.take(_receiptBatchService.getMaxBatchSize() + 1L)
+                .collectList()
+                .flatMap(this::processBatch);
+    }
+
+    private Mono<ProcessReceiptBatchResponse> processBatch(List<ProcessReceiptRequest> requests) {
+        _receiptBatchService.checkBatchSize(requests);
+        int size = requests.size();
+        Receipt[] receipts = new Receipt[size];
+        ReceiptDeduplicator.Claim[] claims = _receiptBatchService.newClaims(size);
+        ProcessReceiptResponse[] results = new ProcessReceiptResponse[size];
+        int sliceSize = _receiptBatchService.sliceSize(size);
+
+        Mono<Void> processed;
+        if (sliceSize == size) {
+            _receiptBatchService.processSlice(requests, 0, size, receipts, claims, results);
+            processed = Mono.empty();
+        } else {
+            processed = Flux.range(0, (size + sliceSize - 1) / sliceSize)
+                    .flatMap(slice -> Mono.fromRunnable(() -> _receiptBatchService.processSlice(requests,
+                                    slice * sliceSize, Math.min(size, (slice + 1) * sliceSize), receipts, claims, results))
+                            .subscribeOn(Schedulers.parallel()))
+                    .then();
+        }
+        return processed
+                .then(Mono.defer(() -> saveBatch(ReceiptBatchService.validReceipts(receipts))))
+                .doOnSuccess(stored -> ReceiptBatchService.settleClaims(claims, null))
+                .doOnError(e -> ReceiptBatchService.settleClaims(claims, e))
+                .then(Mono.fromCallable(() -> ProcessReceiptBatchResponse.builder()
+                        .results(Arrays.asList(results)).build()));
+    }
+
+    private Mono<Void> saveBatch(List<Receipt> receipts) {
+        _receiptService.reserveScoring(receipts);
+        return _receiptDao.saveAll(receipts)
+                .doOnSuccess(stored -> _receiptService.submitScoring(receipts))
+                .doOnError(e -> _receiptService.cancelScoring(receipts))
+                .doOnCancel(() -> _receiptService.cancelScoring(receipts));
+    }
+
+    /**
+     * Imports every receipt of an NDJSON input and emits one result per non-blank line,
+     * like `ReceiptImportService.importReceipts`. Lines are processed one at a time, in order.
+     *
+     * @param lines The lines of the NDJSON input.
+     * @return the result of each non-blank line: its number and a receipt id or an error message
+     */
+    public Flux<ImportLineResponse> importReceipts(Flux<String> lines) {
+        return lines.index()
+                .filter(line -> !line.getT2().isBlank())
+                .concatMap(line -> importLine(line.getT1() + 1, line.getT2()));
+    }
+
+    private Mono<ImportLineResponse> importLine(long lineNumber, String line) {
+        return Mono.defer(() -> {
+                    ProcessReceiptRequest request = readRequest(line);
+                    ValidationResult validation = _receiptValidator.validate(request);
+                    if (!validation.isValid()) {
+                        return Mono.just(ImportLineResponse.builder().line(lineNumber)
+                                .errorMessage(validation.getErrorMessage()).errors(validation.getErrors()).build());
+                    }
+                    return processReceipt(request)
+                            .map(response -> ImportLineResponse.builder().line(lineNumber).id(response.getId()).build());
+                })
+                .onErrorResume(RuntimeException.class, e -> Mono.just(ImportLineResponse.builder()
+                        .line(lineNumber).errorMessage(e.getMessage()).build()));
+    }
+
+    private ProcessReceiptRequest readRequest(String line) {
+        try {
+            return _requestReader.readValue(line);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Malformed receipt: " + e.getOriginalMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,250 @@
+package com.fetch.receiptprocessorchallenge.service;
+
+import com.fetch.receiptprocessorchallenge.dao.ReceiptDAO;
+import com.fetch.receiptprocessorchallenge.dtos.ProcessReceiptBatchResponse;
+import com.fetch.receiptprocessorchallenge.dtos.ProcessReceiptRequest;
+import com.fetch.receiptprocessorchallenge.dtos.ProcessReceiptResponse;
+import com.fetch.receiptprocessorchallenge.models.Receipt;
+import com.fetch.receiptprocessorchallenge.validation.ReceiptValidator;
+import com.fetch.receiptprocessorchallenge.validation.ValidationResult;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Service class for ingesting many receipts in a single call.
+ *
+ * The batch is split into contiguous slices that are validated and scored
+ * in parallel on a bounded worker pool. When the pool queue is full the
+ * submitting request thread runs the slice itself, which throttles callers
+ * instead of queueing unbounded work. All valid receipts of the batch are
+ * then stored with a single bulk insert.
+ * In dedup mode, a receipt processed before gets the id of the original without
+ * waiting for it to be stored, as the original may be stored by this same batch.
+ */
+@Service
+public class ReceiptBatchService {
+    // Below this many receipts per slice, handing work to the pool costs more than it saves.
+    static final int MIN_SLICE_SIZE = 64;
+
+    private final ReceiptService _receiptService;
+    private final ReceiptValidator _receiptValidator;
+    private final ReceiptDAO _receiptDao;
+    private final ThreadPoolExecutor _executor;
+    private final int _parallelism;
+    private final int _maxBatchSize;
+
+    @Autowired
+    ReceiptBatchService(ReceiptService receiptService,
+                        ReceiptValidator receiptValidator,
+                        ReceiptDAO receiptDAO,
+                        @Value("${receipts.batch.parallelism:0}") int parallelism,
+                        @Value("${receipts.batch.queue-capacity:256}") int queueCapacity,
+                        @Value("${receipts.batch.max-size:10000}") int maxBatchSize) {
+        _receiptService = receiptService;
+        _receiptValidator = receiptValidator;
+        _receiptDao = receiptDAO;
+        _parallelism = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        _maxBatchSize = maxBatchSize;
+        AtomicInteger threadCount = new AtomicInteger();
+        _executor = new ThreadPoolExecutor(_parallelism, _parallelism, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "receipt-batch-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    /**
+     * Validates, scores and stores a batch of receipts.
+     *
+     * Invalid receipts do not fail the batch; they get an error message
+     * in their position of the result list while the valid ones are stored.
+     *
+     * @param requests The receipts to process.
+     * @return One `ProcessReceiptResponse` per request, in input order.
+     * @throws IllegalArgumentException if the batch is empty or larger than the configured maximum.
+     * @throws ServiceOverloadedException in ASYNC mode, if the scoring queue has no room for the batch.
+     */
+    public ProcessReceiptBatchResponse processReceipts(List<ProcessReceiptRequest> requests) {
+        checkBatchSize(requests);
+
+        int size = requests.size();
+        Receipt[] receipts = new Receipt[size];
+        ReceiptDeduplicator.Claim[] claims = newClaims(size);
+        ProcessReceiptResponse[] results = new ProcessReceiptResponse[size];
+
+        int sliceSize = sliceSize(size);
+        if (sliceSize == size) {
+            processSlice(requests, 0, size, receipts, claims, results);
+        } else {
+            List<Future<?>> futures = new ArrayList<>((size + sliceSize - 1) / sliceSize);
+            for (int from = 0; from < size; from += sliceSize) {
+                int start = from;
+                int end = Math.min(size, from + sliceSize);
+                futures.add(_executor.submit(() -> processSlice(requests, start, end, receipts, claims, results)));
+            }
+            awaitAll(futures);
+        }
+
+        List<Receipt> valid = validReceipts(receipts);
+        try {
+            // In ASYNC mode a full scoring queue rejects the whole batch before anything is stored.
+            _receiptService.reserveScoring(valid);
+            try {
+                _receiptDao.saveAll(valid);
+            } catch (RuntimeException e) {
+                _receiptService.cancelScoring(valid);
+                throw e;
+            }
+        } catch (RuntimeException e) {
+            settleClaims(claims, e);
+            throw e;
+        }
+        settleClaims(claims, null);
+        _receiptService.submitScoring(valid);
+
+        return ProcessReceiptBatchResponse.builder()
+                .results(Arrays.asList(results)).build();
+    }
+
+    /**
+     * @return the largest number of receipts a batch may contain
+     */
+    int getMaxBatchSize() {
+        return _maxBatchSize;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the batch is empty or larger than the configured maximum.
+     */
+    void checkBatchSize(List<ProcessReceiptRequest> requests) {
+        if (requests == null || requests.isEmpty()) {
+            throw new IllegalArgumentException("At least one receipt is required.");
+        }
+        if (requests.size() > _maxBatchSize) {
+            throw new IllegalArgumentException(
+                    String.format("A batch can contain at most %d receipts.", _maxBatchSize));
+        }
+    }
+
+    /**
+     * @param size number of receipts in the batch
+     * @return the number of receipts per parallel slice, `size` when the batch is processed as one slice
+     */
+    int sliceSize(int size) {
+        int slices = Math.min(_parallelism, (size + MIN_SLICE_SIZE - 1) / MIN_SLICE_SIZE);
+        return slices <= 1 ? size : (size + slices - 1) / slices;
+    }
+
+    /**
+     * @return an array for the claims of a batch of this size, or null when not in dedup mode
+     */
+    ReceiptDeduplicator.Claim[] newClaims(int size) {
+        return _receiptService.getDeduplicator().isEnabled() ? new ReceiptDeduplicator.Claim[size] : null;
+    }
+
+    /**
+     * Marks the claimed receipts of a batch as stored, or drops their claims when storing failed.
+     * @param claims the claims of the batch, or null when not in dedup mode
+     * @param error what storing the batch failed with, or null once it is stored
+     */
+    static void settleClaims(ReceiptDeduplicator.Claim[] claims, Throwable error) {
+        if (claims == null) {
+            return;
+        }
+        for (ReceiptDeduplicator.Claim claim : claims) {
+            if (claim == null) {
+                continue;
+            }
+            if (error == null) {
+                claim.stored();
+            } else {
+                claim.failed(error);
+            }
+        }
+    }
+
+    /**
+     * Helper method to validate and score the receipts in `[from, to)`.
+     * Each slice writes only its own array positions, so no synchronization is needed.
+     * Duplicates get the id of their original and leave their `receipts` position empty.
+     */
+    void processSlice(List<ProcessReceiptRequest> requests, int from, int to,
+                      Receipt[] receipts, ReceiptDeduplicator.Claim[] claims, ProcessReceiptResponse[] results) {
+        for (int i = from; i < to; i++) {
+            ProcessReceiptRequest request = requests.get(i);
+            ValidationResult validation = _receiptValidator.validate(request);
+            if (!validation.isValid()) {
+                results[i] = ProcessReceiptResponse.builder()
+                        .errorMessage(validation.getErrorMessage()).errors(validation.getErrors()).build();
+                continue;
+            }
+            ReceiptDeduplicator.Claim claim = null;
+            try {
+                if (claims != null) {
+                    claim = _receiptService.getDeduplicator().claim(request, null);
+                    if (claim.isDuplicate()) {
+                        results[i] = ProcessReceiptResponse.builder().id(claim.getId().toString()).build();
+                        continue;
+                    }
+                }
+                Receipt receipt = claim == null
+                        ? _receiptService.buildReceipt(request)
+                        : _receiptService.buildReceipt(request, claim.getId());
+                receipts[i] = receipt;
+                if (claim != null) {
+                    claims[i] = claim;
+                }
+                results[i] = ProcessReceiptResponse.builder().id(receipt.getId().toString()).build();
+            } catch (RuntimeException e) {
+                if (claim != null && !claim.isDuplicate()) {
+                    claim.failed(e);
+                }
+                results[i] = ProcessReceiptResponse.builder().errorMessage(e.getMessage()).build();
+            }
+        }
+    }
+
+    static List<Receipt> validReceipts(Receipt[] receipts) {
+        List<Receipt> valid = new ArrayList<>(receipts.length);
+        for (Receipt receipt : receipts) {
+            if (receipt != null) {
+                valid.add(receipt);
+            }
+        }
+        return valid;
+    }
+
+    private void awaitAll(List<Future<?>> futures) {
+        try {
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            futures.forEach(future -> future.cancel(true));
+            throw new IllegalStateException("Batch processing was interrupted.", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Batch processing failed.", e.getCause());
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        _executor.shutdown();
+    }
+}
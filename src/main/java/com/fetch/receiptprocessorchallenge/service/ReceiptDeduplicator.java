@@ -0,0 +1,331 @@
+package com.fetch.receiptprocessorchallenge.service;
+
+import com.fetch.receiptprocessorchallenge.dtos.ProcessReceiptRequest;
+import com.fetch.receiptprocessorchallenge.models.Receipt;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Recognizes receipts that were already processed, so a client retrying a request
+ * gets the id of the receipt it sent first instead of storing it again.
+ *
+ * Two indexes map to the receipt stored first:
+ * - With `receipts.dedup.enabled`, the `ReceiptFingerprint` of the receipt's content.
+ *   This is off by default, as two real purchases can be identical. The most recent
+ *   `receipts.dedup.fingerprints` fingerprints are kept, and the fingerprint of a
+ *   receipt dropped from the store is forgotten, so its resubmission is stored again.
+ * - The `Idempotency-Key` header, whenever a client sends one. Reusing a key for a
+ *   different receipt is rejected. The most recent `receipts.dedup.idempotency-keys`
+ *   keys are kept.
+ *
+ * A receipt is claimed in the indexes before it is stored, so of concurrent duplicates
+ * only one is stored; the others wait until it is stored and then return its id.
+ * If storing it fails, the claim is dropped and the next duplicate is stored instead.
+ */
+@Component
+public class ReceiptDeduplicator {
+    public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    static final int DEFAULT_MAX_ENTRIES = 1_000_000;
+    // Heap per entry: the map node and its share of the table, the claim with its id and
+    // future, the fingerprint, and the node remembering the order.
+    private static final long FINGERPRINT_ENTRY_BYTES = 184;
+    // The same, plus a key of the length of a UUID.
+    private static final long KEY_ENTRY_BYTES = 264;
+
+    private final boolean _enabled;
+    private final Index<ReceiptFingerprint> _byContent;
+    private final Index<String> _byKey;
+    private final LongAdder _hits = new LongAdder();
+    private final LongAdder _misses = new LongAdder();
+
+    @Autowired
+    ReceiptDeduplicator(@Value("${receipts.dedup.enabled:false}") boolean enabled,
+                        @Value("${receipts.dedup.fingerprints:" + DEFAULT_MAX_ENTRIES + "}") int maxFingerprints,
+                        @Value("${receipts.dedup.idempotency-keys:" + DEFAULT_MAX_ENTRIES + "}") int maxIdempotencyKeys) {
+        if (maxFingerprints < 0 || maxIdempotencyKeys < 0) {
+            throw new IllegalArgumentException("The number of fingerprints and keys kept must not be negative.");
+        }
+        _enabled = enabled;
+        _byContent = new Index<>(maxFingerprints);
+        _byKey = new Index<>(maxIdempotencyKeys);
+    }
+
+    /**
+     * @return a deduplicator that only honors idempotency keys
+     * */
+    static ReceiptDeduplicator keysOnly() {
+        return new ReceiptDeduplicator(false, 0, DEFAULT_MAX_ENTRIES);
+    }
+
+    public boolean isEnabled() {
+        return _enabled;
+    }
+
+    /**
+     * @param idempotencyKey the `Idempotency-Key` of the request, or null
+     * @return whether the request has to be claimed before it is stored
+     * */
+    boolean applies(String idempotencyKey) {
+        return _enabled || idempotencyKey != null;
+    }
+
+    /**
+     * Claims a validated receipt in the indexes.
+     *
+     * @param request The validated `ProcessReceiptRequest`.
+     * @param idempotencyKey the `Idempotency-Key` of the request, or null
+     * @return a claim the caller owns and must store under `getId()`, or a duplicate of a
+     * receipt claimed before
+     * @throws IllegalArgumentException if the key was used before for a different receipt
+     */
+    Claim claim(ProcessReceiptRequest request, String idempotencyKey) {
+        ReceiptFingerprint fingerprint = ReceiptFingerprint.of(request);
+        Original candidate = new Original(UUID.randomUUID(), fingerprint, idempotencyKey);
+        if (idempotencyKey != null) {
+            Original previous = _byKey.putIfAbsent(idempotencyKey, candidate);
+            if (previous != null) {
+                if (!previous.fingerprint.equals(fingerprint)) {
+                    throw new IllegalArgumentException(String.format(
+                            "Idempotency-Key %s was already used for a different receipt.", idempotencyKey));
+                }
+                _hits.increment();
+                return new Claim(previous, true);
+            }
+        }
+        if (_enabled) {
+            Original previous = _byContent.putIfAbsent(fingerprint, candidate);
+            if (previous != null) {
+                if (idempotencyKey != null) {
+                    // Requests reusing the key wait on the candidate, which now ends like the original.
+                    _byKey.replace(idempotencyKey, candidate, previous);
+                    previous.stored.whenComplete((id, e) -> {
+                        if (e == null) {
+                            candidate.stored.complete(id);
+                        } else {
+                            candidate.stored.completeExceptionally(e);
+                        }
+                    });
+                }
+                _hits.increment();
+                return new Claim(previous, true);
+            }
+        }
+        _misses.increment();
+        return new Claim(candidate, false);
+    }
+
+    /**
+     * Forgets the fingerprint of a receipt dropped from the store, so a resubmission is
+     * stored again instead of getting an id that no longer resolves. Idempotency keys
+     * keep answering with the id they were first used for until they are forgotten.
+     * Called on the thread that dropped the receipt.
+     * */
+    void forget(Receipt receipt) {
+        if (_enabled) {
+            _byContent.remove(ReceiptFingerprint.of(receipt), receipt.getId());
+        }
+    }
+
+    /**
+     * @return the number of receipts answered with the id of a receipt processed before
+     * */
+    public long getHits() {
+        return _hits.sum();
+    }
+
+    /**
+     * @return the number of receipts claimed and stored as new ones
+     * */
+    public long getMisses() {
+        return _misses.sum();
+    }
+
+    /**
+     * @return the number of fingerprints and idempotency keys held
+     * */
+    public int size() {
+        return _byContent.size() + _byKey.size();
+    }
+
+    /**
+     * @return the estimated heap held by the fingerprints and idempotency keys
+     * */
+    public long estimatedMemoryBytes() {
+        return _byContent.remembered() * FINGERPRINT_ENTRY_BYTES + _byKey.remembered() * KEY_ENTRY_BYTES;
+    }
+
+    private void release(Original original) {
+        _byContent.release(original.fingerprint, original);
+        if (original.idempotencyKey != null) {
+            _byKey.release(original.idempotencyKey, original);
+        }
+    }
+
+    /**
+     * Claims by fingerprint or key, forgetting the oldest beyond a maximum number. A claim
+     * is not forgotten before it is stored, or its duplicates would be stored as well, so
+     * while claims are pending the index can hold more than the maximum.
+     * */
+    private static final class Index<K> {
+        private final ConcurrentHashMap<K, Original> originals = new ConcurrentHashMap<>();
+        private final int max;
+        // Keys in the order they were claimed, to forget the oldest.
+        private final Queue<K> order = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger count = new AtomicInteger();
+
+        Index(int max) {
+            this.max = max;
+        }
+
+        /**
+         * Puts the candidate unless a claim that has not failed is there already.
+         * @return the live claim found, or null when the candidate was put
+         * */
+        Original putIfAbsent(K key, Original candidate) {
+            while (true) {
+                Original previous = originals.putIfAbsent(key, candidate);
+                if (previous != null && !previous.stored.isCompletedExceptionally()) {
+                    return previous;
+                }
+                if (previous == null || originals.replace(key, previous, candidate)) {
+                    remember(key);
+                    return null;
+                }
+            }
+        }
+
+        void replace(K key, Original claimed, Original original) {
+            originals.replace(key, claimed, original);
+        }
+
+        void release(K key, Original original) {
+            originals.remove(key, original);
+        }
+
+        /**
+         * Removes the claim of the receipt with this id, leaving a later claim of the key.
+         * */
+        void remove(K key, UUID id) {
+            originals.computeIfPresent(key, (k, original) -> original.id.equals(id) ? null : original);
+        }
+
+        int size() {
+            return originals.size();
+        }
+
+        /**
+         * @return the keys remembered in claim order, at least as many as claims held
+         * */
+        int remembered() {
+            return count.get();
+        }
+
+        private void remember(K key) {
+            order.add(key);
+            int excess = count.incrementAndGet() - max;
+            // One more than the excess, so keys skipped earlier are forgotten once stored.
+            for (int attempts = excess + 1; attempts > 0 && count.get() > max; attempts--) {
+                K oldest = order.poll();
+                if (oldest == null) {
+                    return;
+                }
+                Original original = originals.get(oldest);
+                if (original != null && !original.stored.isDone()) {
+                    order.add(oldest);
+                    continue;
+                }
+                if (original != null) {
+                    // Not a claim put for the key since.
+                    originals.remove(oldest, original);
+                }
+                count.decrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * The receipt claimed first for a fingerprint or key, and whether it has been stored yet.
+     * */
+    private static final class Original {
+        final UUID id;
+        final ReceiptFingerprint fingerprint;
+        final String idempotencyKey;
+        // Completes with the id once the receipt is stored.
+        final CompletableFuture<UUID> stored = new CompletableFuture<>();
+
+        Original(UUID id, ReceiptFingerprint fingerprint, String idempotencyKey) {
+            this.id = id;
+            this.fingerprint = fingerprint;
+            this.idempotencyKey = idempotencyKey;
+        }
+    }
+
+    /**
+     * Result of `claim`: either a receipt to store, or a duplicate of one claimed before.
+     * */
+    final class Claim {
+        private final Original original;
+        private final boolean duplicate;
+
+        private Claim(Original original, boolean duplicate) {
+            this.original = original;
+            this.duplicate = duplicate;
+        }
+
+        boolean isDuplicate() {
+            return duplicate;
+        }
+
+        /**
+         * @return the id to store the receipt under, or the id of the original for a duplicate
+         * */
+        UUID getId() {
+            return original.id;
+        }
+
+        /**
+         * Waits until the original of a duplicate is stored.
+         * @return the id of the original
+         * @throws RuntimeException the error storing the original failed with
+         * */
+        UUID awaitStored() {
+            try {
+                return original.stored.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+
+        /**
+         * @return completes with the id of the original once it is stored
+         * */
+        CompletableFuture<UUID> whenStored() {
+            return original.stored;
+        }
+
+        /**
+         * Marks an owned receipt as stored, releasing the duplicates waiting for it.
+         * */
+        void stored() {
+            original.stored.complete(original.id);
+        }
+
+        /**
+         * Drops the claim of an owned receipt that could not be stored.
+         * */
+        void failed(Throwable error) {
+            release(original);
+            original.stored.completeExceptionally(error);
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.fetch.receiptprocessorchallenge.service;
+
+import com.fetch.receiptprocessorchallenge.dtos.ProcessReceiptRequest;
+import com.fetch.receiptprocessorchallenge.models.Item;
+import com.fetch.receiptprocessorchallenge.models.Receipt;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+
+/**
+ * 128-bit fingerprint of the content of a receipt: retailer, purchase date and time,
+ * items in order and total.
+ *
+ * It is computed from the parsed request, so it does not depend on how the JSON was
+ * written ("9" and "9.00", key order, whitespace). Every field is mixed into two
+ * independent 64-bit lanes with the MurmurHash3 finalizer, which is a handful of
+ * multiplications per field. It allocates a small hasher and the result; the hasher
+ * never escapes, so the JIT usually removes it, though nothing guarantees that. With
+ * 128 bits, two different receipts share a fingerprint with a probability around
+ * n² / 2^129 for n stored receipts.
+ */
+final class ReceiptFingerprint {
+    private static final long SEED_HIGH = 0x9E3779B97F4A7C15L;
+    private static final long SEED_LOW = 0xC2B2AE3D27D4EB4FL;
+    private static final long NULL_LENGTH = -1;
+
+    private final long high;
+    private final long low;
+
+    private ReceiptFingerprint(long high, long low) {
+        this.high = high;
+        this.low = low;
+    }
+
+    static ReceiptFingerprint of(ProcessReceiptRequest request) {
+        return of(request.getRetailer(), request.getPurchaseDate(), request.getPurchaseTime(),
+                request.getItems(), request.getTotalCents());
+    }
+
+    /**
+     * @return the fingerprint of the request the receipt was stored from
+     * */
+    static ReceiptFingerprint of(Receipt receipt) {
+        return of(receipt.getRetailer(), receipt.getPurchaseDate(), receipt.getPurchaseTime(),
+                receipt.getItems(), receipt.getTotalCents());
+    }
+
+    private static ReceiptFingerprint of(String retailer, LocalDate purchaseDate, LocalTime purchaseTime,
+                                         List<Item> items, long totalCents) {
+        Hasher hasher = new Hasher();
+        hasher.add(retailer);
+        hasher.add(purchaseDate == null ? Long.MIN_VALUE : purchaseDate.toEpochDay());
+        hasher.add(purchaseTime == null ? Long.MIN_VALUE : purchaseTime.toNanoOfDay());
+        hasher.add(items == null ? NULL_LENGTH : items.size());
+        if (items != null) {
+            for (int i = 0; i < items.size(); i++) {
+                hasher.add(items.get(i).getShortDescription());
+                hasher.add(items.get(i).getPriceCents());
+            }
+        }
+        hasher.add(totalCents);
+        return hasher.finish();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof ReceiptFingerprint other && other.high == high && other.low == low;
+    }
+
+    @Override
+    public int hashCode() {
+        // The bits are already mixed, so any 32 of them spread well.
+        return (int) low;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%016x%016x", high, low);
+    }
+
+    private static final class Hasher {
+        private long high = SEED_HIGH;
+        private long low = SEED_LOW;
+        private long count;
+
+        void add(long value) {
+            count++;
+            high = Long.rotateLeft(high ^ mix(value), 31) * 0x87C37B91114253D5L;
+            low = Long.rotateLeft(low ^ mix(value ^ SEED_LOW), 33) * 0x4CF5AD432745937FL;
+        }
+
+        void add(String value) {
+            if (value == null) {
+                add(NULL_LENGTH);
+                return;
+            }
+            int length = value.length();
+            add(length);
+            // Four UTF-16 chars per value, so strings cost a quarter of a mix per char.
+            int i = 0;
+            for (; i + 4 <= length; i += 4) {
+                add((long) value.charAt(i) << 48 | (long) value.charAt(i + 1) << 32
+                        | (long) value.charAt(i + 2) << 16 | value.charAt(i + 3));
+            }
+            long tail = 0;
+            for (; i < length; i++) {
+                tail = tail << 16 | value.charAt(i);
+            }
+            if (length % 4 != 0) {
+                add(tail);
+            }
+        }
+
+        ReceiptFingerprint finish() {
+            long h = mix(high ^ count);
+            long l = mix(low ^ h);
+            return new ReceiptFingerprint(h, l);
+        }
+
+        // MurmurHash3's 64-bit finalizer.
+        private static long mix(long z) {
+            z = (z ^ (z >>> 33)) * 0xFF51AFD7ED558CCDL;
+            z = (z ^ (z >>> 33)) * 0xC4CEB9FE1A85EC53L;
+            return z ^ (z >>> 33);
+        }
+    }
+}
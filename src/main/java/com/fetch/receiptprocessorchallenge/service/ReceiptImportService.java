@@ -0,0 +1,225 @@
+package com.fetch.receiptprocessorchallenge.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fetch.receiptprocessorchallenge.dtos.ProcessReceiptRequest;
+import com.fetch.receiptprocessorchallenge.validation.ReceiptValidator;
+import com.fetch.receiptprocessorchallenge.validation.ValidationResult;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Service class for bulk importing receipts from NDJSON (one receipt per line).
+ *
+ * The input is read and parsed one line at a time and every receipt is stored
+ * as soon as it is validated, while the result of each line is streamed out as
+ * NDJSON. Nothing is retained per record, so the job's working memory stays flat
+ * regardless of the input size. A malformed line only fails that line.
+ *
+ * A line longer than `receipts.import.max-line-length` characters fails too, without
+ * being held: the rest of it is skipped, so a stream without newlines cannot make
+ * the job buffer it whole.
+ */
+@Slf4j
+@Service
+public class ReceiptImportService {
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+    // Output is flushed, and progress checked, every this many lines.
+    private static final int FLUSH_INTERVAL = 1024;
+    static final int DEFAULT_MAX_LINE_LENGTH = 1024 * 1024;
+
+    private final ReceiptService _receiptService;
+    private final ReceiptValidator _receiptValidator;
+    private final ObjectMapper _objectMapper;
+    private final ObjectReader _requestReader;
+    private final long _progressIntervalNanos;
+    private final int _maxLineLength;
+
+    ReceiptImportService(ReceiptService receiptService,
+                         ReceiptValidator receiptValidator,
+                         ObjectMapper objectMapper,
+                         long progressIntervalSeconds) {
+        this(receiptService, receiptValidator, objectMapper, progressIntervalSeconds, DEFAULT_MAX_LINE_LENGTH);
+    }
+
+    @Autowired
+    ReceiptImportService(ReceiptService receiptService,
+                         ReceiptValidator receiptValidator,
+                         ObjectMapper objectMapper,
+                         @Value("${receipts.import.progress-interval-seconds:5}") long progressIntervalSeconds,
+                         @Value("${receipts.import.max-line-length:" + DEFAULT_MAX_LINE_LENGTH + "}") int maxLineLength) {
+        if (maxLineLength <= 0) {
+            throw new IllegalArgumentException("The import line length limit must be greater than 0.");
+        }
+        _receiptService = receiptService;
+        _receiptValidator = receiptValidator;
+        _objectMapper = objectMapper;
+        _requestReader = objectMapper.readerFor(ProcessReceiptRequest.class);
+        _progressIntervalNanos = TimeUnit.SECONDS.toNanos(progressIntervalSeconds);
+        _maxLineLength = maxLineLength;
+    }
+
+    /**
+     * Imports every receipt of the NDJSON input and writes one NDJSON result per
+     * non-blank input line: `{"line":n,"id":"..."}` or `{"line":n,"errorMessage":"..."}`.
+     * Lines are ended by `\n`, `\r` or `\r\n`, like `BufferedReader.readLine`.
+     *
+     * The streams are not closed; they belong to the caller.
+     *
+     * @param input The NDJSON receipts.
+     * @param output Where the per-line results are written.
+     * @return The import counters.
+     * @throws IOException if reading the input or writing the results fails.
+     */
+    public ImportSummary importReceipts(InputStream input, OutputStream output) throws IOException {
+        LineReader reader = new LineReader(new InputStreamReader(input, StandardCharsets.UTF_8), _maxLineLength);
+        long started = System.nanoTime();
+        long lastReport = started;
+        long lineNumber = 0;
+        long records = 0;
+        long imported = 0;
+
+        try (JsonGenerator generator = _objectMapper.getFactory().createGenerator(output)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setRootValueSeparator(null);
+
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (!reader.isTooLong() && line.isBlank()) {
+                    continue;
+                }
+                records++;
+                generator.writeStartObject();
+                generator.writeNumberField("line", lineNumber);
+                try {
+                    if (reader.isTooLong()) {
+                        throw new IllegalArgumentException(String.format(
+                                "Line is longer than %d characters.", _maxLineLength));
+                    }
+                    ProcessReceiptRequest request = _requestReader.readValue(line);
+                    ValidationResult validation = _receiptValidator.validate(request);
+                    if (validation.isValid()) {
+                        generator.writeStringField("id", _receiptService.processReceipt(request).getId());
+                        imported++;
+                    } else {
+                        generator.writeStringField("errorMessage", validation.getErrorMessage());
+                        generator.writeObjectField("errors", validation.getErrors());
+                    }
+                } catch (JsonProcessingException e) {
+                    generator.writeStringField("errorMessage", "Malformed receipt: " + e.getOriginalMessage());
+                } catch (RuntimeException e) {
+                    generator.writeStringField("errorMessage", e.getMessage());
+                }
+                generator.writeEndObject();
+                generator.writeRaw('\n');
+
+                if (records % FLUSH_INTERVAL == 0) {
+                    generator.flush();
+                    long now = System.nanoTime();
+                    if (now - lastReport >= _progressIntervalNanos) {
+                        lastReport = now;
+                        logProgress("Importing receipts", records, imported, now - started);
+                    }
+                }
+            }
+            generator.flush();
+        }
+
+        ImportSummary summary = ImportSummary.builder()
+                .records(records)
+                .imported(imported)
+                .failed(records - imported)
+                .elapsedNanos(System.nanoTime() - started)
+                .build();
+        logProgress("Imported receipts", records, imported, summary.getElapsedNanos());
+        return summary;
+    }
+
+    /**
+     * Reads lines into one reused buffer, holding at most the configured length of each.
+     * */
+    private static final class LineReader {
+        private final Reader reader;
+        private final int maxLength;
+        private final char[] buffer = new char[READ_BUFFER_SIZE];
+        private final StringBuilder line = new StringBuilder();
+        private int position;
+        private int limit;
+        // A line ended by \r may continue with the \n of a \r\n in the next read.
+        private boolean skipLineFeed;
+        private boolean tooLong;
+
+        private LineReader(Reader reader, int maxLength) {
+            this.reader = reader;
+            this.maxLength = maxLength;
+        }
+
+        /**
+         * @return the next line without its terminator, empty when it was too long, or null at the end of the input
+         * */
+        private String readLine() throws IOException {
+            line.setLength(0);
+            tooLong = false;
+            boolean started = false;
+            while (true) {
+                if (position == limit) {
+                    limit = Math.max(0, reader.read(buffer, 0, buffer.length));
+                    position = 0;
+                    if (limit == 0) {
+                        return started ? line.toString() : null;
+                    }
+                }
+                if (skipLineFeed) {
+                    skipLineFeed = false;
+                    if (buffer[position] == '\n') {
+                        position++;
+                        continue;
+                    }
+                }
+                started = true;
+                int from = position;
+                while (position < limit && buffer[position] != '\n' && buffer[position] != '\r') {
+                    position++;
+                }
+                if (!tooLong) {
+                    if (position - from > maxLength - line.length()) {
+                        tooLong = true;
+                        line.setLength(0);
+                    } else {
+                        line.append(buffer, from, position - from);
+                    }
+                }
+                if (position < limit) {
+                    skipLineFeed = buffer[position] == '\r';
+                    position++;
+                    return line.toString();
+                }
+            }
+        }
+
+        /**
+         * @return true when the line just read was longer than the limit and was skipped
+         * */
+        private boolean isTooLong() {
+            return tooLong;
+        }
+    }
+
+    private void logProgress(String stage, long records, long imported, long elapsedNanos) {
+        log.info("{}: {} records, {} imported, {} failed, {} records/s", stage, records, imported,
+                records - imported, Math.round(records / Math.max(elapsedNanos / 1e9, 1e-9)));
+    }
+}
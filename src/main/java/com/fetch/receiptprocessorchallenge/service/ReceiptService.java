@@ -1,31 +1,98 @@
 package com.fetch.receiptprocessorchallenge.service;
 
+import com.fetch.receiptprocessorchallenge.dao.PurchaseKey;
 import com.fetch.receiptprocessorchallenge.dao.ReceiptDAO;
+import com.fetch.receiptprocessorchallenge.dao.ReceiptIds;
+import com.fetch.receiptprocessorchallenge.dao.ReceiptStatistics;
 import com.fetch.receiptprocessorchallenge.dtos.ProcessReceiptRequest;
 import com.fetch.receiptprocessorchallenge.dtos.ProcessReceiptResponse;
+import com.fetch.receiptprocessorchallenge.dtos.ReceiptCounts;
+import com.fetch.receiptprocessorchallenge.dtos.ReceiptPageResponse;
 import com.fetch.receiptprocessorchallenge.dtos.ReceiptPointResponse;
-import com.fetch.receiptprocessorchallenge.models.Item;
+import com.fetch.receiptprocessorchallenge.dtos.ReceiptPointsBatchResponse;
+import com.fetch.receiptprocessorchallenge.dtos.ReceiptResponse;
+import com.fetch.receiptprocessorchallenge.dtos.ReceiptStatsResponse;
+import com.fetch.receiptprocessorchallenge.metrics.ReceiptMetrics;
 import com.fetch.receiptprocessorchallenge.models.Receipt;
+import com.fetch.receiptprocessorchallenge.rules.PointsRuleEngine;
+import com.fetch.receiptprocessorchallenge.validation.ValidationError;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.time.LocalTime;
-import java.time.ZoneOffset;
-import java.util.Optional;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
 import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Service class for handling business logic related to receipts.
  * This class processes receipt data and calculates reward points
- * based on predefined rules.
+ * with the configured `PointsRule`s. Time spent scoring and in the
+ * store is recorded in `ReceiptMetrics`. Resubmitted receipts are
+ * recognized by the `ReceiptDeduplicator` and not stored twice.
+ * In ASYNC scoring mode receipts are scored by the `ScoringQueue`
+ * after they are stored, and a full queue rejects new receipts.
+ * The points of recently read receipts are kept in the `PointsCache`.
  */
 @Service
 public class ReceiptService {
+    public static final int MAX_PAGE_SIZE = 1000;
+    public static final int MAX_POINTS_IDS = 10_000;
+    private static final List<ValidationError> MISSING_ID = List.of(ValidationError.MISSING_ID);
+    private static final List<ValidationError> INVALID_ID = List.of(ValidationError.INVALID_ID);
+    // The purchase dates the validator accepts.
+    private static final LocalDateTime FIRST_PURCHASE = LocalDate.of(1, 1, 1).atStartOfDay();
+    private static final LocalDateTime LAST_PURCHASE = LocalDate.of(9999, 12, 31).atTime(LocalTime.MAX);
+
     private final ReceiptDAO _receiptDao;
+    private final PointsRuleEngine _pointsRuleEngine;
+    private final ScoringMode _scoringMode;
+    private final ReceiptMetrics _receiptMetrics;
+    private final ReceiptDeduplicator _deduplicator;
+    private final ScoringQueue _scoringQueue;
+    private final PointsCache _pointsCache;
+    private final LongAdder _scoringHits = new LongAdder();
+    private final LongAdder _scoringMisses = new LongAdder();
 
     @Autowired
-    ReceiptService(ReceiptDAO receiptDAO){
+    ReceiptService(ReceiptDAO receiptDAO,
+                   PointsRuleEngine pointsRuleEngine,
+                   @Value("${receipts.scoring.mode:EAGER}") ScoringMode scoringMode,
+                   ReceiptMetrics receiptMetrics,
+                   ReceiptDeduplicator deduplicator,
+                   ScoringQueue scoringQueue,
+                   PointsCache pointsCache){
         _receiptDao = receiptDAO;
+        _pointsRuleEngine = pointsRuleEngine;
+        _scoringMode = scoringMode;
+        _receiptMetrics = receiptMetrics;
+        _deduplicator = deduplicator;
+        _scoringQueue = scoringQueue;
+        _pointsCache = pointsCache;
+        receiptDAO.addDropListener(deduplicator::forget);
+        if (pointsCache.isEnabled()) {
+            receiptDAO.addDropListener(receipt -> pointsCache.remove(receipt.getId().getMostSignificantBits(),
+                    receipt.getId().getLeastSignificantBits()));
+        }
+    }
+
+    /**
+     * @return a builder of a service outside Spring, by default in EAGER scoring mode with the
+     * default rules, no metrics, deduplication by idempotency key only and no points cache
+     * */
+    static Builder builder(ReceiptDAO receiptDAO) {
+        return new Builder(receiptDAO);
     }
 
     /**
@@ -33,102 +100,556 @@ public class ReceiptService {
      * and storing it in the database.
      *
      * A new UUID is generated for the receipt to simulate database behavior.
+     * In EAGER scoring mode the points are calculated here, once, and stored with the receipt.
+     * In ASYNC mode they are calculated by the `ScoringQueue` once the receipt is stored.
      *
      * @param request The `ProcessReceiptRequest` containing receipt details.
      * @return `ProcessReceiptResponse` containing the stored receipt's details.
+     * @throws ServiceOverloadedException in ASYNC mode, if the scoring queue is full.
      */
     public ProcessReceiptResponse processReceipt(ProcessReceiptRequest request){
+        return processReceipt(request, null);
+    }
+
+    /**
+     * Processes the receipt request like `processReceipt(request)`, unless it repeats a receipt
+     * processed before: by its content, in dedup mode, or by its idempotency key. A repeated
+     * receipt is not stored again; once the original is stored, its id is returned.
+     *
+     * @param request The `ProcessReceiptRequest` containing receipt details.
+     * @param idempotencyKey The `Idempotency-Key` sent with the request, or null.
+     * @return `ProcessReceiptResponse` containing the stored receipt's details.
+     * @throws IllegalArgumentException if the key was used before for a different receipt.
+     * @throws ServiceOverloadedException in ASYNC mode, if the scoring queue is full.
+     */
+    public ProcessReceiptResponse processReceipt(ProcessReceiptRequest request, String idempotencyKey){
+        if (!_deduplicator.applies(idempotencyKey)) {
+            return save(buildReceipt(request));
+        }
+        ReceiptDeduplicator.Claim claim = _deduplicator.claim(request, idempotencyKey);
+        if (claim.isDuplicate()) {
+            return ProcessReceiptResponse.builder().id(claim.awaitStored().toString()).build();
+        }
+        try {
+            ProcessReceiptResponse response = save(buildReceipt(request, claim.getId()));
+            claim.stored();
+            return response;
+        } catch (RuntimeException e) {
+            claim.failed(e);
+            throw e;
+        }
+    }
+
+    private ProcessReceiptResponse save(Receipt newReceipt) {
+        List<Receipt> receipts = List.of(newReceipt);
+        reserveScoring(receipts);
+        long started = _receiptMetrics.start();
+        Receipt savedReceipt;
+        try {
+            savedReceipt = _receiptDao.save(newReceipt);
+        } catch (RuntimeException e) {
+            cancelScoring(receipts);
+            throw e;
+        }
+        _receiptMetrics.recordStorage(started);
+        submitScoring(receipts);
+        return ProcessReceiptResponse.builder()
+                .id(savedReceipt.getId().toString()).build();
+    }
+
+    /**
+     * In ASYNC mode, takes places in the scoring queue for receipts about to be stored;
+     * call `submitScoring` once they are stored, or `cancelScoring` if storing them fails.
+     *
+     * @param receipts the unscored receipts
+     * @throws ServiceOverloadedException if the scoring queue has no room for all of them
+     */
+    void reserveScoring(List<Receipt> receipts) {
+        if (_scoringMode == ScoringMode.ASYNC) {
+            _scoringQueue.reserve(receipts);
+        }
+    }
+
+    void submitScoring(List<Receipt> receipts) {
+        if (_scoringMode == ScoringMode.ASYNC) {
+            _scoringQueue.submit(receipts, this::scoreQueued);
+        }
+    }
+
+    void cancelScoring(List<Receipt> receipts) {
+        if (_scoringMode == ScoringMode.ASYNC) {
+            _scoringQueue.cancel(receipts);
+        }
+    }
+
+    /**
+     * Scores a stored receipt on a `ScoringQueue` worker and stores its points.
+     */
+    private void scoreQueued(Receipt receipt) {
+        memoize(receipt, calculatePoints(receipt));
+    }
+
+    /**
+     * Transforms a validated request into a new `Receipt` with a fresh UUID,
+     * scoring it when running in EAGER mode. The receipt is not stored.
+     *
+     * @param request The validated `ProcessReceiptRequest`.
+     * @return the new receipt
+     */
+    Receipt buildReceipt(ProcessReceiptRequest request) {
+        return buildReceipt(request, UUID.randomUUID());
+    }
+
+    /**
+     * Like `buildReceipt(request)`, with the id claimed for it by the `ReceiptDeduplicator`.
+     */
+    Receipt buildReceipt(ProcessReceiptRequest request, UUID id) {
         Receipt newReceipt = Receipt.builder()
                 .items(request.getItems())
                 .retailer(request.getRetailer())
                 .purchaseDate(request.getPurchaseDate())
                 .purchaseTime(request.getPurchaseTime())
-                .total(request.getTotal())
-                .id(UUID.randomUUID().toString())
+                .totalCents(request.getTotalCents())
+                .id(id)
                 .build();
-        Receipt savedReceipt = _receiptDao.save(newReceipt);
-        return ProcessReceiptResponse.builder()
-                .id(savedReceipt.getId()).build();
+        if (_scoringMode == ScoringMode.EAGER) {
+            newReceipt.setPoints(calculatePoints(newReceipt));
+        }
+        return newReceipt;
     }
 
     /**
-     * Calculates the points for a given receipt.
+     * Returns the points for a given receipt.
+     *
+     * Points stored with the receipt are returned as is (a scoring hit).
+     * Otherwise they are calculated and memoized in the store (a scoring miss),
+     * unless the receipt is waiting in the scoring queue, whose points are awaited.
      *
      * @param receiptId the ID of the receipt to calculate points for
      * @return the calculated points for the receipt
      * @throws RuntimeException if the receipt with the specified ID is not found
      */
     public ReceiptPointResponse getReceiptPoints(String receiptId){
-        Optional<Receipt> receiptOptional = _receiptDao.findById(receiptId);
-        if(receiptOptional.isEmpty()) {
-            throw new RuntimeException(String.format("Receipt with Id %s is not found.", receiptId));
+        return getReceiptPoints(receiptId, false);
+    }
+
+    /**
+     * Returns the points for a given receipt, optionally with the points
+     * each active rule awards it.
+     *
+     * The breakdown is calculated with the rules active now, while the points
+     * are those awarded when the receipt was scored, so the two can differ
+     * after the rule set has been reloaded.
+     * Points without a breakdown are answered from the `PointsCache` when it has them.
+     *
+     * @param receiptId the ID of the receipt to calculate points for
+     * @param breakdown whether to include the points per rule
+     * @return the calculated points for the receipt
+     * @throws RuntimeException if the receipt with the specified ID is not found
+     * @throws ServiceOverloadedException if the receipt waits in the scoring queue longer than the configured wait
+     */
+    public ReceiptPointResponse getReceiptPoints(String receiptId, boolean breakdown){
+        return getReceiptPoints(ReceiptIds.toUuid(receiptId), breakdown);
+    }
+
+    /**
+     * Like `getReceiptPoints(receiptId, breakdown)`, for an id the caller has parsed already.
+     *
+     * @param receiptId the ID of the receipt to calculate points for
+     * @param breakdown whether to include the points per rule
+     * @return the calculated points for the receipt
+     * @throws RuntimeException if the receipt with the specified ID is not found
+     * @throws ServiceOverloadedException if the receipt waits in the scoring queue longer than the configured wait
+     */
+    public ReceiptPointResponse getReceiptPoints(UUID receiptId, boolean breakdown){
+        long mostSignificantBits = receiptId.getMostSignificantBits();
+        long leastSignificantBits = receiptId.getLeastSignificantBits();
+        ReceiptPointResponse cached = cachedPointsResponse(mostSignificantBits, leastSignificantBits, breakdown);
+        if (cached != null) {
+            return cached;
         }
-        return ReceiptPointResponse.builder()
-                .points(calculatePoints(receiptOptional.get())).build();
+        long cacheStamp = _pointsCache.stamp();
+        long started = _receiptMetrics.start();
+        Receipt receipt = _receiptDao.findById(mostSignificantBits, leastSignificantBits);
+        _receiptMetrics.recordStorage(started);
+        if(receipt == null) {
+            throw notFound(receiptId.toString());
+        }
+        if (receipt.getPoints() == null && _scoringMode == ScoringMode.ASYNC) {
+            receipt = awaitScoring(receipt);
+        }
+        scoreAndMemoizeIfMissing(receipt);
+        return pointsResponse(receipt, breakdown, cacheStamp);
     }
 
     /**
-     * Helper method to calculate reward points for a given receipt.
+     * Scores a stored receipt that has no points yet (a scoring miss),
+     * or counts a scoring hit when it has.
      *
-     * The calculation is based on predefined rules,
-     * such as retailer name length, total amount, item count,
-     * and purchase date/time conditions.
+     * The points are not set on the receipt: they are memoized with `ReceiptDAO.savePoints`,
+     * which compares and sets them in the store, so of concurrent first reads of a receipt
+     * only one stores its points and counts them in the `ReceiptStatistics`, whether the
+     * reads share the stored instance or each decoded a copy. Nothing is locked, so a
+     * virtual thread scoring a receipt never pins its carrier.
      *
-     * @param receipt The receipt for which points are to be calculated.
-     * @return The total points awarded for the receipt.
+     * @param receipt the receipt read from the store
+     * @return the points calculated now, still to be memoized, or null when the receipt has points
      */
-    private int calculatePoints(Receipt receipt) {
-        int points = 0;
+    Integer scoreIfMissing(Receipt receipt) {
+        if (receipt.getPoints() != null) {
+            _scoringHits.increment();
+            return null;
+        }
+        _scoringMisses.increment();
+        return calculatePoints(receipt);
+    }
 
-        //One point for every alphanumeric character in the retailer name.
-        points += countAlphaNumeric(receipt.getRetailer());
+    private void scoreAndMemoizeIfMissing(Receipt receipt) {
+        Integer points = scoreIfMissing(receipt);
+        if (points != null) {
+            memoize(receipt, points);
+        }
+    }
+
+    /**
+     * Stores the points of a receipt read unscored and sets them on it. A receipt whose
+     * points another read stored first keeps those when it is the stored instance, and
+     * takes the ones calculated here when it is a copy.
+     */
+    private void memoize(Receipt receipt, int points) {
+        long started = _receiptMetrics.start();
+        _receiptDao.savePoints(receipt, points);
+        _receiptMetrics.recordStorage(started);
+        receipt.memoizePoints(points);
+    }
+
+    /**
+     * Waits for the points of a receipt in the scoring queue.
+     *
+     * @param receipt an unscored receipt read from the store
+     * @return the receipt with its points, or read again when it is not in the queue: scored
+     * since it was read, or stored unscored before a restart and so left to `scoreIfMissing`
+     */
+    private Receipt awaitScoring(Receipt receipt) {
+        Integer points = _scoringQueue.awaitPoints(receipt.getId());
+        if (points != null) {
+            receipt.setPoints(points);
+            return receipt;
+        }
+        Receipt current = _receiptDao.findById(receipt.getId().getMostSignificantBits(),
+                receipt.getId().getLeastSignificantBits());
+        return current != null ? current : receipt;
+    }
 
-        // 50 points if the total is a round dollar amount with no cents.
-        if (receipt.getTotal() % 1 == 0) points += 50;
+    /**
+     * Builds the points response of a scored receipt and caches its points for the next read.
+     *
+     * @param receipt a scored receipt
+     * @param breakdown whether to include the points per rule
+     * @param cacheStamp the `PointsCache.stamp()` taken before the receipt was read
+     * @return the points response for the receipt
+     */
+    ReceiptPointResponse pointsResponse(Receipt receipt, boolean breakdown, long cacheStamp) {
+        if (receipt.getPoints() != null) {
+            _pointsCache.put(receipt.getId().getMostSignificantBits(), receipt.getId().getLeastSignificantBits(),
+                    receipt.getPoints(), cacheStamp);
+        }
+        return ReceiptPointResponse.builder()
+                .points(receipt.getPoints())
+                .breakdown(breakdown ? _pointsRuleEngine.breakdown(receipt) : null).build();
+    }
 
-        // 25 points if the total is a multiple of 0.25.
-        if (receipt.getTotal() % 0.25 == 0) points += 25;
+    /**
+     * @param breakdown whether the points per rule were asked for, which are never cached
+     * @return the points response of the receipt with this id from the `PointsCache`, or null when it has to be read
+     */
+    ReceiptPointResponse cachedPointsResponse(long mostSignificantBits, long leastSignificantBits, boolean breakdown) {
+        if (breakdown || !_pointsCache.isEnabled()) {
+            return null;
+        }
+        Integer points = _pointsCache.get(mostSignificantBits, leastSignificantBits);
+        return points == null ? null : ReceiptPointResponse.builder().points(points).build();
+    }
 
-        // 5 points for every two items on the receipt.
-        points += (receipt.getItems().size() / 2) * 5;
+    /**
+     * Returns the points of many receipts, looked up in one pass over the store.
+     *
+     * Unlike `getReceiptPoints(receiptId)`, an id without a receipt is not an error:
+     * its result is marked `notFound`, and an id that is not a UUID carries the rule it
+     * breaks. Points are memoized like for a single read. Receipts still in the ASYNC
+     * scoring queue are listed without points, without waiting, like in `findReceipts`.
+     *
+     * @param receiptIds the ids, at most `MAX_POINTS_IDS`
+     * @return one result per id, in the same order
+     * @throws IllegalArgumentException if there are more than `MAX_POINTS_IDS` ids
+     */
+    public ReceiptPointsBatchResponse getReceiptPoints(List<String> receiptIds) {
+        if (receiptIds.size() > MAX_POINTS_IDS) {
+            throw new IllegalArgumentException(
+                    String.format("At most %d receipt ids can be read at once.", MAX_POINTS_IDS));
+        }
+        int count = receiptIds.size();
+        boolean[] valid = new boolean[count];
+        long[] msbs = new long[count];
+        long[] lsbs = new long[count];
+        int lookups = 0;
+        for (int i = 0; i < count; i++) {
+            String receiptId = receiptIds.get(i);
+            valid[i] = ReceiptIds.isValid(receiptId);
+            if (valid[i]) {
+                msbs[lookups] = ReceiptIds.mostSignificantBits(receiptId);
+                lsbs[lookups++] = ReceiptIds.leastSignificantBits(receiptId);
+            }
+        }
+        long started = _receiptMetrics.start();
+        Receipt[] receipts = lookups == count
+                ? _receiptDao.findAllById(msbs, lsbs)
+                : _receiptDao.findAllById(Arrays.copyOf(msbs, lookups), Arrays.copyOf(lsbs, lookups));
+        _receiptMetrics.recordStorage(started);
 
-        // If the trimmed length of the item description is a multiple of 3,
-        // multiply the price by 0.2 and round up to the nearest integer.
-        // The result is the number of points earned.
-        for (Item item : receipt.getItems()) {
-            String desc = item.getShortDescription().trim();
-            if (desc.length() % 3 == 0) {
-                points += Math.ceil(item.getPrice() * 0.2);
+        List<ReceiptPointResponse> results = new ArrayList<>(count);
+        int next = 0;
+        for (int i = 0; i < count; i++) {
+            String receiptId = receiptIds.get(i);
+            ReceiptPointResponse.ReceiptPointResponseBuilder result = ReceiptPointResponse.builder().id(receiptId);
+            if (!valid[i]) {
+                result.errors(receiptId == null ? MISSING_ID : INVALID_ID);
+            } else {
+                Receipt receipt = receipts[next++];
+                if (receipt == null) {
+                    result.notFound(true);
+                } else {
+                    if (!isQueued(receipt)) {
+                        scoreAndMemoizeIfMissing(receipt);
+                    }
+                    result.points(receipt.getPoints());
+                }
             }
+            results.add(result.build());
+        }
+        return ReceiptPointsBatchResponse.builder().results(results).build();
+    }
+
+    static RuntimeException notFound(String receiptId) {
+        return new RuntimeException(String.format("Receipt with Id %s is not found.", receiptId));
+    }
+
+    /**
+     * Returns a page of the receipts purchased in a range, ordered by purchase date and time,
+     * with their points; in LAZY mode receipts not read before are scored and memoized.
+     * Receipts still in the ASYNC scoring queue are listed without points, without waiting.
+     *
+     * The receipts are read from the purchase time index of the store, so a page costs the
+     * same however many receipts are stored or come before it. Pages are chained by cursor:
+     * the next page starts after the last receipt of this one, even if receipts were saved since.
+     *
+     * @param from first purchase date (`2022-01-01`) or date and time (`2022-01-01T13:00`), or null for no bound
+     * @param to last purchase date or date and time, inclusive, or null for no bound
+     * @param retailer only the receipts of this retailer, or null for all
+     * @param cursor the `next` cursor of the previous page, or null for the first page
+     * @param pageSize most receipts on the page, 1 to `MAX_PAGE_SIZE`
+     * @return the page, with the cursor of the next one when there are more receipts
+     * @throws IllegalArgumentException if a bound, the cursor or the page size is not valid
+     */
+    public ReceiptPageResponse findReceipts(String from, String to, String retailer, String cursor, int pageSize) {
+        if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException(String.format("The page size must be between 1 and %d.", MAX_PAGE_SIZE));
         }
+        LocalDateTime first = from == null ? FIRST_PURCHASE : parsePurchase(from, "from", LocalTime.MIN);
+        LocalDateTime last = to == null ? LAST_PURCHASE : parsePurchase(to, "to", LocalTime.MAX);
+        PurchaseKey after = cursor == null ? null : PurchaseKey.fromCursor(cursor);
 
-        // 6 points if the day in the purchase date is odd.
-        if (receipt.getPurchaseDate().getDayOfMonth() % 2 != 0) points += 6;
+        long started = _receiptMetrics.start();
+        // One more than the page tells whether there is a next page.
+        List<Receipt> receipts = _receiptDao.findByPurchaseTime(first, last, retailer, after, pageSize + 1);
+        _receiptMetrics.recordStorage(started);
+        String next = null;
+        if (receipts.size() > pageSize) {
+            receipts = receipts.subList(0, pageSize);
+            next = PurchaseKey.of(receipts.get(pageSize - 1)).toCursor();
+        }
+        List<ReceiptResponse> page = new ArrayList<>(receipts.size());
+        for (Receipt receipt : receipts) {
+            if (!isQueued(receipt)) {
+                scoreAndMemoizeIfMissing(receipt);
+            }
+            page.add(ReceiptResponse.builder()
+                    .id(receipt.getId().toString())
+                    .retailer(receipt.getRetailer())
+                    .purchaseDate(receipt.getPurchaseDate())
+                    .purchaseTime(receipt.getPurchaseTime())
+                    .totalCents(receipt.getTotalCents())
+                    .points(receipt.getPoints()).build());
+        }
+        return ReceiptPageResponse.builder().receipts(page).next(next).build();
+    }
 
-        // 10 points if the time of purchase is after 2:00pm and before 4:00pm.
-        LocalTime time = receipt.getPurchaseTime();
-        LocalTime fixedStart = LocalTime.of(14, 0, 0).atOffset(ZoneOffset.UTC).toLocalTime();
-        LocalTime fixedEnd = LocalTime.of(16, 0, 0).atOffset(ZoneOffset.UTC).toLocalTime();
-        if (receipt.getPurchaseTime().isAfter(fixedStart) && time.isBefore(fixedEnd)) points += 10;
+    private boolean isQueued(Receipt receipt) {
+        return receipt.getPoints() == null && _scoringMode == ScoringMode.ASYNC
+                && _scoringQueue.pending(receipt.getId()) != null;
+    }
 
-        return points;
+    private static LocalDateTime parsePurchase(String value, String name, LocalTime timeOfDate) {
+        try {
+            return value.indexOf('T') < 0 ? LocalDate.parse(value).atTime(timeOfDate) : LocalDateTime.parse(value);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException(String.format(
+                    "%s must be a date (yyyy-MM-dd) or a date and time (yyyy-MM-ddTHH:mm).", name));
+        }
     }
 
     /**
-     * Helper method to count the number of alphanumeric characters in a given string.
+     * Returns the receipt and points counts kept by the `ReceiptStatistics` of the store.
      *
-     * Alphanumeric characters include letters (A-Z, a-z) and digits (0-9).
+     * Nothing is computed from the stored receipts, so the cost does not grow with their number,
+     * only with the number of purchase dates and distinct retailers, of which the top ones are picked.
+     * Right after a restart from a snapshot the counts are marked as warming until they include it.
      *
-     * @param name The input string to evaluate.
-     * @return The count of alphanumeric characters in the string.
+     * @param retailers how many retailers to include, those with the most receipts
+     * @return the totals and the counts per retailer, purchase date and hour of purchase
+     * @throws IllegalArgumentException if retailers is negative
      */
-    private int countAlphaNumeric(String name){
-        int response = 0;
-        for(Character c: name.toCharArray()) {
-            if(Character.isLetterOrDigit(c)){
-                response++;
-            }
+    public ReceiptStatsResponse getStats(int retailers) {
+        if (retailers < 0) {
+            throw new IllegalArgumentException("The number of retailers must not be negative.");
+        }
+        ReceiptStatistics statistics = _receiptDao.statistics();
+        Map<String, ReceiptCounts> byDate = new LinkedHashMap<>();
+        new TreeMap<>(statistics.getByDate()).forEach((date, counts) -> byDate.put(date.toString(), counts(counts)));
+        Map<Integer, ReceiptCounts> byHour = new LinkedHashMap<>();
+        for (int hour = 0; hour < ReceiptStatistics.HOURS; hour++) {
+            byHour.put(hour, counts(statistics.getByHour(hour)));
+        }
+        return ReceiptStatsResponse.builder()
+                .receipts(statistics.getTotal().getReceipts())
+                .scoredReceipts(statistics.getScoredReceipts())
+                .points(statistics.getTotal().getPoints())
+                .byRetailer(topRetailers(statistics, retailers))
+                .byDate(byDate)
+                .byHour(byHour)
+                .warming(_receiptDao.isWarming() ? Boolean.TRUE : null).build();
+    }
+
+    private static Map<String, ReceiptCounts> topRetailers(ReceiptStatistics statistics, int retailers) {
+        // A bounded min-heap keeps the top ones without sorting every retailer.
+        Comparator<Map.Entry<String, ReceiptCounts>> byReceipts = Comparator.comparingLong(
+                (Map.Entry<String, ReceiptCounts> entry) -> entry.getValue().getReceipts())
+                .thenComparing(Map.Entry::getKey, Comparator.reverseOrder());
+        PriorityQueue<Map.Entry<String, ReceiptCounts>> top = new PriorityQueue<>(Math.max(1, retailers + 1), byReceipts);
+        if (retailers > 0) {
+            statistics.getByRetailer().forEach((retailer, counts) -> {
+                top.add(Map.entry(retailer, counts(counts)));
+                if (top.size() > retailers) {
+                    top.poll();
+                }
+            });
+        }
+        List<Map.Entry<String, ReceiptCounts>> ordered = new ArrayList<>(top);
+        ordered.sort(byReceipts.reversed());
+        Map<String, ReceiptCounts> byRetailer = new LinkedHashMap<>();
+        for (Map.Entry<String, ReceiptCounts> entry : ordered) {
+            byRetailer.put(entry.getKey(), entry.getValue());
+        }
+        return byRetailer;
+    }
+
+    private static ReceiptCounts counts(ReceiptStatistics.Counts counts) {
+        return ReceiptCounts.builder().receipts(counts.getReceipts()).points(counts.getPoints()).build();
+    }
+
+    /**
+     * @return the number of points requests answered from a stored score
+     */
+    public long getScoringHits() {
+        return _scoringHits.sum();
+    }
+
+    /**
+     * @return the number of points requests that had to calculate the score
+     */
+    public long getScoringMisses() {
+        return _scoringMisses.sum();
+    }
+
+    ReceiptDeduplicator getDeduplicator() {
+        return _deduplicator;
+    }
+
+    public ScoringMode getScoringMode() {
+        return _scoringMode;
+    }
+
+    public ScoringQueue getScoringQueue() {
+        return _scoringQueue;
+    }
+
+    public PointsCache getPointsCache() {
+        return _pointsCache;
+    }
+
+    /**
+     * Helper method to calculate reward points for a given receipt
+     * with the rules currently active in the `PointsRuleEngine`.
+     *
+     * @param receipt The receipt for which points are to be calculated.
+     * @return The total points awarded for the receipt.
+     */
+    private int calculatePoints(Receipt receipt) {
+        long started = _receiptMetrics.start();
+        int points = _pointsRuleEngine.score(receipt);
+        _receiptMetrics.recordScoring(started);
+        return points;
+    }
+
+    static final class Builder {
+        private final ReceiptDAO _receiptDao;
+        private PointsRuleEngine _pointsRuleEngine = PointsRuleEngine.withDefaultRules();
+        private ScoringMode _scoringMode = ScoringMode.EAGER;
+        private ReceiptMetrics _receiptMetrics = ReceiptMetrics.disabled();
+        private ReceiptDeduplicator _deduplicator = ReceiptDeduplicator.keysOnly();
+        private ScoringQueue _scoringQueue;
+        private PointsCache _pointsCache = PointsCache.disabled();
+
+        private Builder(ReceiptDAO receiptDAO) {
+            _receiptDao = receiptDAO;
+        }
+
+        Builder pointsRuleEngine(PointsRuleEngine pointsRuleEngine) {
+            _pointsRuleEngine = pointsRuleEngine;
+            return this;
+        }
+
+        Builder scoringMode(ScoringMode scoringMode) {
+            _scoringMode = scoringMode;
+            return this;
+        }
+
+        Builder receiptMetrics(ReceiptMetrics receiptMetrics) {
+            _receiptMetrics = receiptMetrics;
+            return this;
+        }
+
+        Builder deduplicator(ReceiptDeduplicator deduplicator) {
+            _deduplicator = deduplicator;
+            return this;
+        }
+
+        /**
+         * Without one, the service gets a queue of its own that records in its metrics.
+         * */
+        Builder scoringQueue(ScoringQueue scoringQueue) {
+            _scoringQueue = scoringQueue;
+            return this;
+        }
+
+        Builder pointsCache(PointsCache pointsCache) {
+            _pointsCache = pointsCache;
+            return this;
+        }
+
+        ReceiptService build() {
+            return new ReceiptService(_receiptDao, _pointsRuleEngine, _scoringMode, _receiptMetrics, _deduplicator,
+                    _scoringQueue != null ? _scoringQueue : new ScoringQueue(_receiptMetrics), _pointsCache);
         }
-        return response;
     }
 }
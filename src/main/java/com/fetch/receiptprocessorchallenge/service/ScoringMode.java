@@ -0,0 +1,15 @@
+package com.fetch.receiptprocessorchallenge.service;
+
+/**
+ * Controls when the reward points of a receipt are calculated.
+ *
+ * EAGER scores the receipt once while it is processed, so reads are a single lookup.
+ * LAZY scores the receipt on its first points request and memoizes the result.
+ * ASYNC stores the receipt unscored and scores it on the `ScoringQueue`'s workers;
+ * a points request for a receipt still in the queue waits for it.
+ */
+public enum ScoringMode {
+    EAGER,
+    LAZY,
+    ASYNC
+}
@@ -0,0 +1,234 @@
+package com.fetch.receiptprocessorchallenge.service;
+
+import com.fetch.receiptprocessorchallenge.metrics.ReceiptMetrics;
+import com.fetch.receiptprocessorchallenge.models.Receipt;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Bounded queue of stored receipts waiting to be scored, drained by a pool of workers,
+ * for the ASYNC scoring mode.
+ *
+ * A receipt takes a place in the queue before it is stored, so a full queue rejects it
+ * with a `ServiceOverloadedException` and nothing is stored. Its pending points are
+ * registered at the same time, so any read of the stored receipt finds them and can wait
+ * for the worker instead of scoring the receipt again. Places are permits of a semaphore;
+ * the executor's own queue is unbounded and never holds more tasks than there are permits.
+ *
+ * The workers are started on the first submitted receipt, so in other scoring modes the
+ * queue costs nothing.
+ *
+ * Pending points always complete normally: with the points, or with null when the receipt
+ * was cancelled or its scoring failed, which sends the read to score it itself.
+ */
+@Slf4j
+@Component
+public class ScoringQueue {
+    static final int DEFAULT_CAPACITY = 10_000;
+    static final long DEFAULT_WAIT_MILLIS = 1_000;
+    private static final long RETRY_AFTER_SECONDS = 1;
+
+    private final int _capacity;
+    private final long _waitMillis;
+    private final ReceiptMetrics _receiptMetrics;
+    private final Semaphore _places;
+    private final ThreadPoolExecutor _executor;
+    private final ConcurrentHashMap<UUID, Pending> _pending = new ConcurrentHashMap<>();
+    private final LongAdder _rejected = new LongAdder();
+
+    ScoringQueue(ReceiptMetrics receiptMetrics) {
+        this(0, DEFAULT_CAPACITY, DEFAULT_WAIT_MILLIS, receiptMetrics);
+    }
+
+    @Autowired
+    ScoringQueue(@Value("${receipts.scoring.async.workers:0}") int workers,
+                 @Value("${receipts.scoring.async.queue-capacity:" + DEFAULT_CAPACITY + "}") int capacity,
+                 @Value("${receipts.scoring.async.wait-ms:" + DEFAULT_WAIT_MILLIS + "}") long waitMillis,
+                 ReceiptMetrics receiptMetrics) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Scoring queue capacity must be greater than 0.");
+        }
+        int threads = workers > 0 ? workers : Runtime.getRuntime().availableProcessors();
+        _capacity = capacity;
+        _waitMillis = waitMillis;
+        _receiptMetrics = receiptMetrics;
+        _places = new Semaphore(capacity);
+        AtomicInteger threadCount = new AtomicInteger();
+        _executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "receipt-scoring-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /**
+     * Takes a place in the queue for each receipt about to be stored, for all of them or none,
+     * and registers their points as pending.
+     * @param receipts unscored receipts, not stored yet
+     * @throws ServiceOverloadedException if the queue has no room for all of them
+     * */
+    void reserve(Collection<Receipt> receipts) {
+        if (receipts.isEmpty()) {
+            return;
+        }
+        if (!_places.tryAcquire(receipts.size())) {
+            _rejected.add(receipts.size());
+            throw new ServiceOverloadedException(String.format(
+                    "The scoring queue is full; retry in %d second(s).", RETRY_AFTER_SECONDS), RETRY_AFTER_SECONDS);
+        }
+        long enqueued = _receiptMetrics.start();
+        for (Receipt receipt : receipts) {
+            _pending.put(receipt.getId(), new Pending(enqueued));
+        }
+    }
+
+    /**
+     * Hands reserved receipts, now stored, to the workers.
+     * @param receipts receipts passed to `reserve`
+     * @param scorer scores a receipt and stores its points
+     * */
+    void submit(Collection<Receipt> receipts, Consumer<Receipt> scorer) {
+        for (Receipt receipt : receipts) {
+            Pending pending = _pending.get(receipt.getId());
+            if (pending != null && pending.settle()) {
+                _executor.execute(() -> score(receipt, pending, scorer));
+            }
+        }
+    }
+
+    /**
+     * Gives back the places of reserved receipts that were not stored. Receipts already
+     * submitted are left to the workers.
+     * @param receipts receipts passed to `reserve`
+     * */
+    void cancel(Collection<Receipt> receipts) {
+        for (Receipt receipt : receipts) {
+            Pending pending = _pending.get(receipt.getId());
+            if (pending != null && pending.settle()) {
+                _pending.remove(receipt.getId(), pending);
+                _places.release();
+                pending.points.complete(null);
+            }
+        }
+    }
+
+    /**
+     * @param id receipt id
+     * @return the points the receipt will have once scored, or null when it is not waiting to be scored
+     * */
+    CompletableFuture<Integer> pending(UUID id) {
+        Pending pending = _pending.get(id);
+        return pending == null ? null : pending.points;
+    }
+
+    /**
+     * Waits for the points of a receipt waiting to be scored, up to the configured wait.
+     * @param id receipt id
+     * @return its points, or null when it is not waiting to be scored or its scoring failed
+     * @throws ServiceOverloadedException if it is not scored within the wait
+     * */
+    Integer awaitPoints(UUID id) {
+        CompletableFuture<Integer> points = pending(id);
+        if (points == null) {
+            return null;
+        }
+        try {
+            return points.get(_waitMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw stillScoring(id);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Waiting for the points was interrupted.", e);
+        } catch (ExecutionException e) {
+            // Workers never fail the future; whoever did, the read scores the receipt itself.
+            return null;
+        }
+    }
+
+    /**
+     * @return the error for a points request that waited the whole configured wait
+     * */
+    ServiceOverloadedException stillScoring(UUID id) {
+        return new ServiceOverloadedException(String.format(
+                "The points of receipt %s are still being calculated.", id), RETRY_AFTER_SECONDS);
+    }
+
+    long getWaitMillis() {
+        return _waitMillis;
+    }
+
+    /**
+     * @return receipts waiting to be scored, or being scored
+     * */
+    public int getDepth() {
+        return _capacity - _places.availablePermits();
+    }
+
+    public int getCapacity() {
+        return _capacity;
+    }
+
+    /**
+     * @return receipts turned away because the queue was full
+     * */
+    public long getRejected() {
+        return _rejected.sum();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        _executor.shutdown();
+    }
+
+    private void score(Receipt receipt, Pending pending, Consumer<Receipt> scorer) {
+        try {
+            scorer.accept(receipt);
+            pending.points.complete(receipt.getPoints());
+        } catch (RuntimeException e) {
+            // Left unscored, the receipt is scored by the reads waiting for it, as after a cancel.
+            log.warn("Receipt {} could not be scored in the background: {}", receipt.getId(), e.getMessage());
+            pending.points.complete(null);
+        } finally {
+            _receiptMetrics.recordScoringLag(pending.enqueued);
+            _pending.remove(receipt.getId(), pending);
+            _places.release();
+        }
+    }
+
+    /**
+     * Points of a reserved receipt, settled once: either submitted or cancelled.
+     * */
+    private static final class Pending {
+        private final CompletableFuture<Integer> points = new CompletableFuture<>();
+        private final long enqueued;
+        private final AtomicBoolean settled = new AtomicBoolean();
+
+        private Pending(long enqueued) {
+            this.enqueued = enqueued;
+        }
+
+        private boolean settle() {
+            return settled.compareAndSet(false, true);
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.fetch.receiptprocessorchallenge.service;
+
+/**
+ * Thrown when a request would have to wait for work queued ahead of it longer than the
+ * service allows. Controllers answer it with 503 and a `Retry-After` header, so clients
+ * back off instead of piling more requests onto a growing queue.
+ */
+public class ServiceOverloadedException extends RuntimeException {
+    private final long retryAfterSeconds;
+
+    public ServiceOverloadedException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    /**
+     * @return how long the client should wait before it retries
+     * */
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,209 @@
+package com.fetch.receiptprocessorchallenge.validation;
+
+import com.fetch.receiptprocessorchallenge.dao.ReceiptIds;
+import com.fetch.receiptprocessorchallenge.dtos.ProcessReceiptRequest;
+import com.fetch.receiptprocessorchallenge.metrics.ReceiptMetrics;
+import com.fetch.receiptprocessorchallenge.models.Item;
+import com.fetch.receiptprocessorchallenge.models.Money;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.UUID;
+
+import static com.fetch.receiptprocessorchallenge.validation.ValidationError.*;
+
+/**
+ * Validates incoming receipt API requests.
+ * Shared by the single, batch and bulk import endpoints so that
+ * every ingest path applies exactly the same rules.
+ * The validator is stateless and safe to call from multiple threads.
+ * Every rejection is counted in `ReceiptMetrics` by the reason it failed.
+ *
+ * `validate` and `validateId` report every broken rule at once in a `ValidationResult`
+ * without throwing, so a flood of invalid requests costs no stack traces; the request
+ * paths use them. The throwing `validate...Request` methods wrap them for callers that
+ * prefer an exception, and throw with the message of the first broken rule.
+ */
+@Component
+public class ReceiptValidator {
+    // Years that print as four digits, the only ones "yyyy-MM-dd" can carry.
+    private static final int MIN_YEAR = 1;
+    private static final int MAX_YEAR = 9999;
+
+    private final ReceiptMetrics _receiptMetrics;
+
+    public ReceiptValidator() {
+        this(ReceiptMetrics.disabled());
+    }
+
+    @Autowired
+    public ReceiptValidator(ReceiptMetrics receiptMetrics) {
+        _receiptMetrics = receiptMetrics;
+    }
+
+    /**
+     * Validates the `getReceiptPoint` request using the following logic:
+     * 1. Ensures the receipt ID is present.
+     * 2. Verifies that the provided ID is a valid UUID format.
+     *
+     * The receipt ID follows the UUID format for uniqueness and consistency.
+     *
+     * @param id The receipt ID to validate.
+     * @return `ValidationResult.VALID`, or the rule the ID breaks.
+     */
+    public ValidationResult validateId(String id) {
+        if (id == null) {
+            return failed(MISSING_ID.bit());
+        }
+        if (!ReceiptIds.isValid(id)) {
+            return failed(INVALID_ID.bit());
+        }
+        return ValidationResult.VALID;
+    }
+
+    /**
+     * Validates the `getReceiptPoint` request like `validateId(id)`, for an ID the caller
+     * has parsed already, so it is read once.
+     *
+     * @param id The receipt ID to validate.
+     * @param receiptId The ID parsed with `ReceiptIds.parse`, null when it is not a UUID.
+     * @return `ValidationResult.VALID`, or the rule the ID breaks.
+     */
+    public ValidationResult validateId(String id, UUID receiptId) {
+        if (id == null) {
+            return failed(MISSING_ID.bit());
+        }
+        if (receiptId == null) {
+            return failed(INVALID_ID.bit());
+        }
+        return ValidationResult.VALID;
+    }
+
+    /**
+     * Validates the `processReceipt` request based on the following criteria:
+     *
+     * 1. Ensures the retailer name is provided and valid.
+     * 2. Validates the purchase date format (yyyy-MM-dd).
+     * 3. Validates the purchase time format (HH:mm).
+     * 4. Ensures at least one item is present in the receipt.
+     * 5. Validates that each item has a description and a price greater than zero.
+     * 6. Ensures the total amount is greater than zero.
+     * 7. Verifies that the total amount matches the sum of all item prices.
+     *
+     * Every rule is checked, so the result lists all the rules the request breaks.
+     * The total is only compared with the items when every amount is valid.
+     *
+     * @param request The receipt object to validate.
+     * @return `ValidationResult.VALID`, or every rule the request breaks.
+     */
+    public ValidationResult validate(ProcessReceiptRequest request) {
+        if (request == null) {
+            return failed(MISSING_RECEIPT.bit());
+        }
+        long errors = 0;
+
+        if (request.getRetailer() == null || request.getRetailer().isEmpty()) {
+            errors |= MISSING_RETAILER.bit();
+        }
+
+        // Jackson already parsed the date and time, so only what "yyyy-MM-dd" and
+        // "HH:mm" cannot express is left to reject: other years, seconds and nanos.
+        // Dates and times that do not exist arrive as such values from the deserializer.
+        LocalDate purchaseDate = request.getPurchaseDate();
+        if (purchaseDate == null) {
+            errors |= MISSING_PURCHASE_DATE.bit();
+        } else if (purchaseDate.getYear() < MIN_YEAR || purchaseDate.getYear() > MAX_YEAR) {
+            errors |= INVALID_PURCHASE_DATE.bit();
+        }
+
+        LocalTime purchaseTime = request.getPurchaseTime();
+        if (purchaseTime == null) {
+            errors |= MISSING_PURCHASE_TIME.bit();
+        } else if (purchaseTime.getSecond() != 0 || purchaseTime.getNano() != 0) {
+            errors |= INVALID_PURCHASE_TIME.bit();
+        }
+
+        List<Item> items = request.getItems();
+        long calculatedTotal = 0;
+        boolean amountsValid = true;
+        if (items == null || items.isEmpty()) {
+            errors |= MISSING_ITEMS.bit();
+            amountsValid = false;
+        } else {
+            for (int i = 0; i < items.size(); i++) {
+                Item item = items.get(i);
+                if (item.getShortDescription() == null || item.getShortDescription().isEmpty()) {
+                    errors |= MISSING_ITEM_DESCRIPTION.bit();
+                }
+                long priceCents = item.getPriceCents();
+                if (priceCents == Money.INVALID) {
+                    errors |= INVALID_ITEM_PRICE.bit();
+                    amountsValid = false;
+                } else if (priceCents < 0) {
+                    errors |= NEGATIVE_ITEM_PRICE.bit();
+                    amountsValid = false;
+                } else if (calculatedTotal > Long.MAX_VALUE - priceCents) {
+                    // No total can match a sum past the range of a long.
+                    errors |= TOTAL_MISMATCH.bit();
+                    amountsValid = false;
+                } else {
+                    calculatedTotal += priceCents;
+                }
+            }
+        }
+
+        if (request.getTotalCents() == Money.INVALID) {
+            errors |= INVALID_TOTAL.bit();
+            amountsValid = false;
+        } else if (request.getTotalCents() < 0) {
+            errors |= NEGATIVE_TOTAL.bit();
+            amountsValid = false;
+        }
+
+        // Amounts are exact cents, so the sum must match exactly.
+        if (amountsValid && calculatedTotal != request.getTotalCents()) {
+            errors |= TOTAL_MISMATCH.bit();
+        }
+        return failed(errors);
+    }
+
+    /**
+     * Validates the `getReceiptPoint` request like `validateId`.
+     *
+     * @param id The receipt ID to validate.
+     * @throws IllegalArgumentException if the ID is missing or not a valid UUID.
+     */
+    public void validateGetReceiptPointRequest(String id) {
+        throwIfInvalid(validateId(id));
+    }
+
+    /**
+     * Validates the `processReceipt` request like `validate`.
+     *
+     * @param request The receipt object to validate.
+     * @throws IllegalArgumentException with the message of the first rule the request breaks.
+     */
+    public void validateProcessReceiptRequest(ProcessReceiptRequest request) {
+        throwIfInvalid(validate(request));
+    }
+
+    /**
+     * Counts every rejection and wraps them in a result.
+     * @param errors bit set of the broken rules, zero when there are none
+     * */
+    private ValidationResult failed(long errors) {
+        for (long remaining = errors; remaining != 0; remaining &= remaining - 1) {
+            _receiptMetrics.validationFailed(ValidationResult.errorAt(Long.numberOfTrailingZeros(remaining)).getCode());
+        }
+        return ValidationResult.of(errors);
+    }
+
+    private static void throwIfInvalid(ValidationResult result) {
+        if (!result.isValid()) {
+            throw new IllegalArgumentException(result.getErrorMessage());
+        }
+    }
+}
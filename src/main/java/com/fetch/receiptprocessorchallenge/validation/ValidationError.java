@@ -0,0 +1,49 @@
+package com.fetch.receiptprocessorchallenge.validation;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+
+/**
+ * A rule a receipt API request can break, in the order `ReceiptValidator` checks them.
+ * The code is stable and meant for clients and the `receipts.validation.failures`
+ * metric, the message is the one returned as `errorMessage`.
+ * Serialized as `{"code": ..., "message": ...}`.
+ */
+@JsonFormat(shape = JsonFormat.Shape.OBJECT)
+public enum ValidationError {
+    MISSING_ID("missing-id", "Id should be present."),
+    INVALID_ID("invalid-id", "The provided id is not a valid uuid."),
+    MISSING_RECEIPT("missing-receipt", "Receipt is required."),
+    MISSING_RETAILER("missing-retailer", "Retailer name is required."),
+    MISSING_PURCHASE_DATE("missing-purchase-date", "Purchase date is required."),
+    INVALID_PURCHASE_DATE("invalid-purchase-date", "Purchase date must be in the format yyyy-MM-dd"),
+    MISSING_PURCHASE_TIME("missing-purchase-time", "Purchase time is required."),
+    INVALID_PURCHASE_TIME("invalid-purchase-time", "Purchase time must be in the format HH:mm"),
+    MISSING_ITEMS("missing-items", "At least one item is required."),
+    MISSING_ITEM_DESCRIPTION("missing-item-description", "Item description is required."),
+    INVALID_ITEM_PRICE("invalid-item-price", "Item price must be an amount with at most two decimal places."),
+    NEGATIVE_ITEM_PRICE("negative-item-price", "Item price must be greater than 0."),
+    INVALID_TOTAL("invalid-total", "Total amount must be an amount with at most two decimal places."),
+    NEGATIVE_TOTAL("negative-total", "Total amount must be greater than 0."),
+    TOTAL_MISMATCH("total-mismatch", "Total amount does not match the sum of item prices.");
+
+    private final String code;
+    private final String message;
+
+    ValidationError(String code, String message) {
+        this.code = code;
+        this.message = message;
+    }
+
+    public String getCode() {
+        return code;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    // Bit of this error in a `ValidationResult`.
+    long bit() {
+        return 1L << ordinal();
+    }
+}
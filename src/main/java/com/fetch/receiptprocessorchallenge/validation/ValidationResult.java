@@ -0,0 +1,96 @@
+package com.fetch.receiptprocessorchallenge.validation;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Outcome of validating a receipt API request: every `ValidationError` found, or none.
+ *
+ * The errors are kept as a bit set over the enum, so a valid request shares the
+ * `VALID` instance and an invalid one costs a single small object; nothing is
+ * thrown and no stack trace is filled in. Errors are reported in check order,
+ * so the first one is the error the validator used to throw.
+ */
+public final class ValidationResult {
+    public static final ValidationResult VALID = new ValidationResult(0);
+
+    // `values()` copies the array on every call.
+    private static final ValidationError[] ERRORS = ValidationError.values();
+
+    static {
+        if (ERRORS.length > Long.SIZE) {
+            throw new IllegalStateException("ValidationError no longer fits in a long bit set.");
+        }
+    }
+
+    private final long errors;
+
+    private ValidationResult(long errors) {
+        this.errors = errors;
+    }
+
+    /**
+     * @param errors bit set of `ValidationError.bit()`s
+     * @return `VALID` when no bit is set, otherwise a result with those errors
+     * */
+    static ValidationResult of(long errors) {
+        return errors == 0 ? VALID : new ValidationResult(errors);
+    }
+
+    // The error whose `bit()` is `1L << index`.
+    static ValidationError errorAt(int index) {
+        return ERRORS[index];
+    }
+
+    public boolean isValid() {
+        return errors == 0;
+    }
+
+    public boolean has(ValidationError error) {
+        return (errors & error.bit()) != 0;
+    }
+
+    /**
+     * @return the first error in check order, or null when the request is valid
+     * */
+    public ValidationError getFirstError() {
+        return errors == 0 ? null : errorAt(Long.numberOfTrailingZeros(errors));
+    }
+
+    /**
+     * @return the message of the first error, or null when the request is valid
+     * */
+    public String getErrorMessage() {
+        return errors == 0 ? null : getFirstError().getMessage();
+    }
+
+    /**
+     * @return every error found, in check order; empty when the request is valid
+     * */
+    public List<ValidationError> getErrors() {
+        if (errors == 0) {
+            return Collections.emptyList();
+        }
+        List<ValidationError> found = new ArrayList<>(Long.bitCount(errors));
+        for (long remaining = errors; remaining != 0; remaining &= remaining - 1) {
+            found.add(errorAt(Long.numberOfTrailingZeros(remaining)));
+        }
+        return found;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof ValidationResult other && other.errors == errors;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(errors);
+    }
+
+    @Override
+    public String toString() {
+        return isValid() ? "ValidationResult[VALID]" : "ValidationResult" + getErrors();
+    }
+}
@@ -0,0 +1,53 @@
+package com.fetch.receiptprocessorchallenge.controller;
+
+import com.fetch.receiptprocessorchallenge.dao.ReceiptIds;
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Unit test class for PointsHttpCache.class
+ * */
+class PointsHttpCacheTest {
+    private final PointsHttpCache cache = new PointsHttpCache(true, 60);
+
+    @Test
+    void shouldTagEverySpellingOfAnIdAlike() {
+        UUID id = UUID.randomUUID();
+
+        assertThat(cache.etag(ReceiptIds.parse(id.toString().toUpperCase()), false, null)).isEqualTo("\"" + id + "\"");
+        assertThat(cache.etag(id, true, null)).isNull();
+        assertThat(PointsHttpCache.disabled().etag(id, false, null)).isNull();
+        assertThatThrownBy(() -> new PointsHttpCache(true, -1)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void shouldMatchAnyListedTagWeakly() {
+        String etag = "\"" + UUID.randomUUID() + "\"";
+
+        assertThat(PointsHttpCache.matches(etag, etag)).isTrue();
+        assertThat(PointsHttpCache.matches("\"a\", W/" + etag + " ,\"b\"", etag)).isTrue();
+        assertThat(PointsHttpCache.matches("\"a\"", etag)).isFalse();
+        assertThat(PointsHttpCache.matches("*", etag)).isFalse();
+        assertThat(PointsHttpCache.matches(null, etag)).isFalse();
+        assertThat(PointsHttpCache.matches(etag, null)).isFalse();
+    }
+
+    @Test
+    void shouldPickTheFormatLikeContentNegotiation() {
+        String smile = SmileCodecConfiguration.APPLICATION_SMILE_VALUE;
+
+        assertThat(PointsHttpCache.prefersSmile(null)).isFalse();
+        assertThat(PointsHttpCache.prefersSmile("*/*")).isFalse();
+        assertThat(PointsHttpCache.prefersSmile(smile)).isTrue();
+        assertThat(PointsHttpCache.prefersSmile(smile + ", application/json")).isTrue();
+        assertThat(PointsHttpCache.prefersSmile("application/json, " + smile)).isFalse();
+        assertThat(PointsHttpCache.prefersSmile("application/json;q=0.5, " + smile)).isTrue();
+        assertThat(PointsHttpCache.prefersSmile("application/*, " + smile)).isFalse();
+        assertThat(PointsHttpCache.prefersSmile(smile + ";q=0")).isFalse();
+        assertThat(PointsHttpCache.prefersSmile("smile/")).isFalse();
+    }
+}
@@ -0,0 +1,186 @@
+package com.fetch.receiptprocessorchallenge.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.embedded.netty.NettyWebServer;
+import org.springframework.boot.web.reactive.context.ReactiveWebServerApplicationContext;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test class for ReactiveReceiptsController.class, served by Netty with the `reactive` profile
+ * */
+// The test context picks its web application type before profile properties are read, so it is repeated here.
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "spring.main.web-application-type=reactive")
+@ActiveProfiles("reactive")
+class ReactiveReceiptsControllerTest {
+    private static final String VALID_RECEIPT = "{\"retailer\":\"M&M Corner Market\",\"purchaseDate\":\"2022-03-20\","
+            + "\"purchaseTime\":\"14:33\",\"items\":[{\"shortDescription\":\"Gatorade\",\"price\":\"2.25\"},"
+            + "{\"shortDescription\":\"Gatorade\",\"price\":\"2.25\"},{\"shortDescription\":\"Gatorade\",\"price\":\"2.25\"},"
+            + "{\"shortDescription\":\"Gatorade\",\"price\":\"2.25\"}],\"total\":\"9.00\"}";
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Autowired
+    private ReactiveWebServerApplicationContext context;
+
+    @Test
+    void shouldServeFromNetty() {
+        assertThat(context.getWebServer()).isInstanceOf(NettyWebServer.class);
+        assertThat(context.getBeansOfType(ReceiptsController.class)).isEmpty();
+    }
+
+    @Test
+    void shouldProcessReceiptAndReturnPoints() {
+        JsonNode processed = webTestClient.post().uri("/receipts/process")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(VALID_RECEIPT)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(JsonNode.class)
+                .returnResult().getResponseBody();
+
+        webTestClient.get().uri("/receipts/{id}/points", processed.get("id").asText())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.points").isEqualTo(109);
+    }
+
+    @Test
+    void shouldReturnSameErrorsAsServletStack() {
+        webTestClient.post().uri("/receipts/process")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(VALID_RECEIPT.replace("M&M Corner Market", ""))
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody().jsonPath("$.errorMessage").isEqualTo("Retailer name is required.");
+
+        webTestClient.get().uri("/receipts/id-invalid-uuid/points")
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody().jsonPath("$.errorMessage").isEqualTo("The provided id is not a valid uuid.");
+
+        String unknown = UUID.randomUUID().toString();
+        webTestClient.get().uri("/receipts/{id}/points", unknown)
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody().jsonPath("$.errorMessage")
+                .isEqualTo(String.format("Receipt with Id %s is not found.", unknown));
+    }
+
+    @Test
+    void shouldProcessBatchInInputOrder() {
+        webTestClient.post().uri("/receipts/process/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("[" + VALID_RECEIPT + "," + VALID_RECEIPT.replace("9.00", "1.00") + "," + VALID_RECEIPT + "]")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.results.length()").isEqualTo(3)
+                .jsonPath("$.results[0].id").isNotEmpty()
+                .jsonPath("$.results[1].errorMessage").isEqualTo("Total amount does not match the sum of item prices.")
+                .jsonPath("$.results[2].id").isNotEmpty();
+    }
+
+    @Test
+    void shouldRejectEmptyBatch() {
+        webTestClient.post().uri("/receipts/process/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("[]")
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody().jsonPath("$.errorMessage").isEqualTo("At least one receipt is required.");
+    }
+
+    @Test
+    void shouldReturnPointsOfManyReceipts() {
+        String id = webTestClient.post().uri("/receipts/process")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(VALID_RECEIPT)
+                .exchange()
+                .expectBody(JsonNode.class)
+                .returnResult().getResponseBody().get("id").asText();
+        String missing = UUID.randomUUID().toString();
+
+        webTestClient.get().uri("/receipts/points?ids={ids}", id + "," + missing)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.results[0].id").isEqualTo(id)
+                .jsonPath("$.results[0].points").isEqualTo(109)
+                .jsonPath("$.results[1].id").isEqualTo(missing)
+                .jsonPath("$.results[1].notFound").isEqualTo(true);
+
+        webTestClient.post().uri("/receipts/points")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("[\"" + missing + "\",\"id-invalid-uuid\",\"" + id + "\"]")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.results.length()").isEqualTo(3)
+                .jsonPath("$.results[1].errors[0].code").isEqualTo("invalid-id")
+                .jsonPath("$.results[2].points").isEqualTo(109);
+    }
+
+    @Test
+    void shouldRevalidateCachedPointsWithoutTheBody() {
+        String id = webTestClient.post().uri("/receipts/process")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(VALID_RECEIPT)
+                .exchange()
+                .expectBody(JsonNode.class)
+                .returnResult().getResponseBody().get("id").asText();
+
+        String etag = webTestClient.get().uri("/receipts/{id}/points", id)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"" + id + "\"")
+                .expectHeader().value(HttpHeaders.CACHE_CONTROL, value -> assertThat(value).contains("immutable"))
+                .expectBody().jsonPath("$.points").isEqualTo(109)
+                .returnResult().getResponseHeaders().getETag();
+
+        webTestClient.get().uri("/receipts/{id}/points", id)
+                .ifNoneMatch(etag)
+                .exchange()
+                .expectStatus().isNotModified()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, etag)
+                .expectBody().isEmpty();
+
+        webTestClient.get().uri("/receipts/{id}/points?breakdown=true", id)
+                .ifNoneMatch(etag)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().doesNotExist(HttpHeaders.ETAG);
+    }
+
+    @Test
+    void shouldStreamImportResults() {
+        List<JsonNode> results = webTestClient.post().uri("/receipts/import")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .accept(MediaType.APPLICATION_NDJSON)
+                .bodyValue(VALID_RECEIPT + "\n\n{\"retailer\":\n" + VALID_RECEIPT + "\n")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(JsonNode.class)
+                .returnResult().getResponseBody();
+
+        assertThat(results).hasSize(3);
+        assertThat(results.get(0).get("line").asLong()).isEqualTo(1);
+        assertThat(results.get(0).get("id").asText()).isNotBlank();
+        assertThat(results.get(1).get("line").asLong()).isEqualTo(3);
+        assertThat(results.get(1).get("errorMessage").asText()).startsWith("Malformed receipt");
+        assertThat(results.get(2).get("line").asLong()).isEqualTo(4);
+        assertThat(results.get(2).get("id").asText()).isNotBlank();
+    }
+}
@@ -1,19 +1,31 @@
 package com.fetch.receiptprocessorchallenge.controller;
 
+import com.fetch.receiptprocessorchallenge.dtos.ProcessReceiptBatchResponse;
 import com.fetch.receiptprocessorchallenge.dtos.ProcessReceiptRequest;
 import com.fetch.receiptprocessorchallenge.dtos.ProcessReceiptResponse;
 import com.fetch.receiptprocessorchallenge.dtos.ReceiptPointResponse;
+import com.fetch.receiptprocessorchallenge.dtos.ReceiptPointsBatchResponse;
+import com.fetch.receiptprocessorchallenge.metrics.ReceiptMetrics;
 import com.fetch.receiptprocessorchallenge.models.Item;
+import com.fetch.receiptprocessorchallenge.models.Money;
+import com.fetch.receiptprocessorchallenge.service.ReceiptBatchService;
+import com.fetch.receiptprocessorchallenge.service.ReceiptImportService;
 import com.fetch.receiptprocessorchallenge.service.ReceiptService;
+import com.fetch.receiptprocessorchallenge.service.ServiceOverloadedException;
+import com.fetch.receiptprocessorchallenge.validation.ReceiptValidator;
+import com.fetch.receiptprocessorchallenge.validation.ValidationError;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 
 import java.time.LocalDate;
 import java.time.LocalTime;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
 import java.util.UUID;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -26,22 +38,26 @@ import static org.mockito.ArgumentMatchers.any;
 class ReceiptsControllerTest {
     private ReceiptsController receiptsController;
     private ReceiptService receiptService;
+    private ReceiptBatchService receiptBatchService;
 
     @BeforeEach
     void setUp() {
         receiptService = Mockito.mock(ReceiptService.class);
-        receiptsController = new ReceiptsController(receiptService);
+        receiptBatchService = Mockito.mock(ReceiptBatchService.class);
+        receiptsController = new ReceiptsController(receiptService, receiptBatchService,
+                Mockito.mock(ReceiptImportService.class), new ReceiptValidator(), ReceiptMetrics.disabled(),
+                PointsHttpCache.disabled());
     }
 
     @Test
     void shouldThrowErrorWhenNoReceiptId() {
-        ResponseEntity<ReceiptPointResponse> response = receiptsController.getReceiptPoints(null);
+        ResponseEntity<ReceiptPointResponse> response = receiptsController.getReceiptPoints(null, false);
         assertThat("Id should be present.").isEqualTo(response.getBody().getErrorMessage());
     }
 
     @Test
     void shouldThrowErrorWhenProvidedInvalidUUID() {
-        ResponseEntity<ReceiptPointResponse> response = receiptsController.getReceiptPoints("id-invalid-uuid");
+        ResponseEntity<ReceiptPointResponse> response = receiptsController.getReceiptPoints("id-invalid-uuid", false);
         assertThat("The provided id is not a valid uuid.").isEqualTo(response.getBody().getErrorMessage());
     }
 
@@ -50,8 +66,8 @@ class ReceiptsControllerTest {
         ProcessReceiptRequest request = new ProcessReceiptRequest();
         request.setPurchaseDate(LocalDate.parse("2022-03-20"));
         request.setPurchaseTime(LocalTime.parse("14:33"));
-        request.setItems(Collections.singletonList(new Item("Item 1", 10.0)));
-        request.setTotal(10.0);
+        request.setItems(Collections.singletonList(new Item("Item 1", 1000)));
+        request.setTotalCents(1000);
 
         ResponseEntity<ProcessReceiptResponse> response = receiptsController.processReceipt(request);
         assertThat("Retailer name is required.").isEqualTo(response.getBody().getErrorMessage());
@@ -96,21 +112,57 @@ class ReceiptsControllerTest {
     @Test
     void shouldThrowExceptionWhenItemPriceIsNegative() {
         ProcessReceiptRequest request = createValidRequest();
-        request.getItems().get(0).setPrice(-1.0);
+        request.getItems().get(0).setPriceCents(-100);
 
         ResponseEntity<ProcessReceiptResponse> response = receiptsController.processReceipt(request);
         assertThat("Item price must be greater than 0.").isEqualTo(response.getBody().getErrorMessage());
     }
 
+    @Test
+    void shouldThrowExceptionWhenItemPriceHasSubCentPrecision() {
+        ProcessReceiptRequest request = createValidRequest();
+        request.getItems().get(0).setPriceCents(Money.INVALID);
+
+        ResponseEntity<ProcessReceiptResponse> response = receiptsController.processReceipt(request);
+        assertThat("Item price must be an amount with at most two decimal places.").isEqualTo(response.getBody().getErrorMessage());
+    }
+
+    @Test
+    void shouldThrowExceptionWhenTotalIsOffByOneCent() {
+        ProcessReceiptRequest request = createValidRequest();
+        request.setTotalCents(request.getTotalCents() + 1);
+
+        ResponseEntity<ProcessReceiptResponse> response = receiptsController.processReceipt(request);
+        assertThat("Total amount does not match the sum of item prices.").isEqualTo(response.getBody().getErrorMessage());
+    }
+
     @Test
     void shouldThrowExceptionWhenTotalAmountDoesNotMatchItemsSum() {
         ProcessReceiptRequest request = createValidRequest();
-        request.setTotal(5.00); // Incorrect total
+        request.setTotalCents(500); // Incorrect total
 
         ResponseEntity<ProcessReceiptResponse> response = receiptsController.processReceipt(request);
         assertThat("Total amount does not match the sum of item prices.").isEqualTo(response.getBody().getErrorMessage());
     }
 
+    @Test
+    void shouldReportEveryViolationAtOnce() {
+        ProcessReceiptRequest request = createValidRequest();
+        request.setRetailer("");
+        request.setPurchaseTime(null);
+        request.getItems().get(1).setShortDescription(null);
+        request.setTotalCents(Money.INVALID);
+
+        ResponseEntity<ProcessReceiptResponse> response = receiptsController.processReceipt(request);
+
+        assertThat(response.getStatusCode().is4xxClientError()).isTrue();
+        assertThat(response.getBody().getErrorMessage()).isEqualTo("Retailer name is required.");
+        assertThat(response.getBody().getErrors()).containsExactly(ValidationError.MISSING_RETAILER,
+                ValidationError.MISSING_PURCHASE_TIME, ValidationError.MISSING_ITEM_DESCRIPTION,
+                ValidationError.INVALID_TOTAL);
+        Mockito.verifyNoInteractions(receiptService);
+    }
+
     @Test
     void shouldPassValidationForValidRequest() {
         ProcessReceiptRequest request = createValidRequest();
@@ -120,7 +172,7 @@ class ReceiptsControllerTest {
     @Test
     void shouldProcessReceiptSuccessfully() {
         ProcessReceiptRequest request = createValidRequest();
-        Mockito.when(receiptService.processReceipt(any())).thenReturn(ProcessReceiptResponse.builder()
+        Mockito.when(receiptService.processReceipt(any(), any())).thenReturn(ProcessReceiptResponse.builder()
                 .id(UUID.randomUUID().toString()).build());
 
         ResponseEntity<ProcessReceiptResponse> response = receiptsController.processReceipt(request);
@@ -130,16 +182,154 @@ class ReceiptsControllerTest {
         assertThat(response.getBody().getId()).isNotBlank();
     }
 
+    @Test
+    void shouldReturnServiceUnavailableWhenScoringQueueIsFull() {
+        Mockito.when(receiptService.processReceipt(any(), any()))
+                .thenThrow(new ServiceOverloadedException("The scoring queue is full; retry in 1 second(s).", 1));
+        Mockito.when(receiptService.getReceiptPoints(any(UUID.class), Mockito.anyBoolean()))
+                .thenThrow(new ServiceOverloadedException("Still being calculated.", 1));
+
+        ResponseEntity<ProcessReceiptResponse> response = receiptsController.processReceipt(createValidRequest());
+        ResponseEntity<ReceiptPointResponse> points = receiptsController.getReceiptPoints(UUID.randomUUID().toString(), false);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        assertThat(response.getHeaders().getFirst(HttpHeaders.RETRY_AFTER)).isEqualTo("1");
+        assertThat(response.getBody().getErrorMessage()).isEqualTo("The scoring queue is full; retry in 1 second(s).");
+        assertThat(points.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        assertThat(points.getHeaders().getFirst(HttpHeaders.RETRY_AFTER)).isEqualTo("1");
+    }
+
+    @Test
+    void shouldReturnBadRequestWhenBatchIsRejected() {
+        Mockito.when(receiptBatchService.processReceipts(any()))
+                .thenThrow(new IllegalArgumentException("At least one receipt is required."));
+
+        ResponseEntity<ProcessReceiptBatchResponse> response = receiptsController.processReceiptBatch(Collections.emptyList());
+
+        assertThat(response.getStatusCode().is4xxClientError()).isTrue();
+        assertThat("At least one receipt is required.").isEqualTo(response.getBody().getErrorMessage());
+    }
+
+    @Test
+    void shouldProcessReceiptBatchSuccessfully() {
+        Mockito.when(receiptBatchService.processReceipts(any())).thenReturn(ProcessReceiptBatchResponse.builder()
+                .results(Collections.singletonList(ProcessReceiptResponse.builder()
+                        .id(UUID.randomUUID().toString()).build())).build());
+
+        ResponseEntity<ProcessReceiptBatchResponse> response =
+                receiptsController.processReceiptBatch(Collections.singletonList(createValidRequest()));
+
+        assertThat(response.getStatusCode().is2xxSuccessful()).isTrue();
+        assertThat(response.getBody().getResults()).hasSize(1);
+    }
+
+    @Test
+    void shouldReturnPointsOfManyReceiptsWithMissingOnesMarked() {
+        String found = UUID.randomUUID().toString();
+        String missing = UUID.randomUUID().toString();
+        ReceiptPointsBatchResponse results = ReceiptPointsBatchResponse.builder().results(List.of(
+                ReceiptPointResponse.builder().id(found).points(28).build(),
+                ReceiptPointResponse.builder().id(missing).notFound(true).build())).build();
+        Mockito.when(receiptService.getReceiptPoints(List.of(found, missing))).thenReturn(results);
+
+        ResponseEntity<ReceiptPointsBatchResponse> get = receiptsController.getReceiptPointsBatch(List.of(found, missing));
+        ResponseEntity<ReceiptPointsBatchResponse> post = receiptsController.postReceiptPointsBatch(List.of(found, missing));
+
+        assertThat(get.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(get.getBody()).isEqualTo(results);
+        assertThat(post.getBody()).isEqualTo(results);
+    }
+
+    @Test
+    void shouldReturnBadRequestWhenTooManyReceiptIdsAreRequested() {
+        Mockito.when(receiptService.getReceiptPoints(Mockito.<List<String>>any()))
+                .thenThrow(new IllegalArgumentException("At most 10000 receipt ids can be read at once."));
+
+        ResponseEntity<ReceiptPointsBatchResponse> response = receiptsController.getReceiptPointsBatch(List.of("a"));
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+        assertThat(response.getBody().getErrorMessage()).isEqualTo("At most 10000 receipt ids can be read at once.");
+        assertThat(response.getBody().getResults()).isNull();
+    }
+
+    @Test
+    void shouldAnswerAMatchingIfNoneMatchWithNotModifiedWithoutALookup() {
+        ReceiptsController caching = cachingController();
+        String id = UUID.randomUUID().toString();
+        Mockito.when(receiptService.getReceiptPoints(UUID.fromString(id), false))
+                .thenReturn(ReceiptPointResponse.builder().points(28).build());
+
+        ResponseEntity<ReceiptPointResponse> first = caching.getReceiptPoints(id, false, null, null);
+        String etag = first.getHeaders().getETag();
+        ResponseEntity<ReceiptPointResponse> again = caching.getReceiptPoints(id, false, "\"other\", W/" + etag, null);
+
+        assertThat(first.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(first.getBody().getPoints()).isEqualTo(28);
+        assertThat(etag).isEqualTo("\"" + id + "\"");
+        assertThat(first.getHeaders().getCacheControl()).contains("max-age=60", "public", "immutable");
+        assertThat(first.getHeaders().getVary()).containsExactly(HttpHeaders.ACCEPT);
+        assertThat(again.getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+        assertThat(again.getBody()).isNull();
+        assertThat(again.getHeaders().getETag()).isEqualTo(etag);
+        assertThat(again.getHeaders().getCacheControl()).isEqualTo(first.getHeaders().getCacheControl());
+        Mockito.verify(receiptService, Mockito.times(1)).getReceiptPoints(UUID.fromString(id), false);
+    }
+
+    @Test
+    void shouldNotCacheBreakdownsErrorsOrInvalidIds() {
+        ReceiptsController caching = cachingController();
+        String id = UUID.randomUUID().toString();
+        Mockito.when(receiptService.getReceiptPoints(UUID.fromString(id), true))
+                .thenReturn(ReceiptPointResponse.builder().points(28).build());
+        Mockito.when(receiptService.getReceiptPoints(UUID.fromString(id), false))
+                .thenThrow(new RuntimeException("No receipt found for that ID."));
+
+        ResponseEntity<ReceiptPointResponse> breakdown = caching.getReceiptPoints(id, true, "\"" + id + "\"", null);
+        ResponseEntity<ReceiptPointResponse> missing = caching.getReceiptPoints(id, false, "\"other\"", null);
+        ResponseEntity<ReceiptPointResponse> invalid = caching.getReceiptPoints("id-invalid-uuid", false, "*", null);
+
+        assertThat(breakdown.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(breakdown.getHeaders().getETag()).isNull();
+        assertThat(missing.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+        assertThat(missing.getHeaders().getETag()).isNull();
+        assertThat(missing.getHeaders().getCacheControl()).isNull();
+        assertThat(invalid.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+        assertThat(invalid.getHeaders().getETag()).isNull();
+    }
+
+    @Test
+    void shouldTagSmilePointsApartFromJson() {
+        ReceiptsController caching = cachingController();
+        String id = UUID.randomUUID().toString();
+        Mockito.when(receiptService.getReceiptPoints(UUID.fromString(id), false))
+                .thenReturn(ReceiptPointResponse.builder().points(28).build());
+
+        String json = caching.getReceiptPoints(id, false, null, "application/json").getHeaders().getETag();
+        String smile = caching.getReceiptPoints(id, false, null, SmileCodecConfiguration.APPLICATION_SMILE_VALUE)
+                .getHeaders().getETag();
+        ResponseEntity<ReceiptPointResponse> jsonTagForSmile =
+                caching.getReceiptPoints(id, false, json, SmileCodecConfiguration.APPLICATION_SMILE_VALUE);
+
+        assertThat(smile).isNotEqualTo(json);
+        assertThat(jsonTagForSmile.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(receiptsController.getReceiptPoints(id, false).getHeaders().getETag()).isNull();
+    }
+
+    private ReceiptsController cachingController() {
+        return new ReceiptsController(receiptService, receiptBatchService, Mockito.mock(ReceiptImportService.class),
+                new ReceiptValidator(), ReceiptMetrics.disabled(), new PointsHttpCache(true, 60));
+    }
+
     private ProcessReceiptRequest createValidRequest() {
         ProcessReceiptRequest request = new ProcessReceiptRequest();
         request.setRetailer("BestBuy");
         request.setPurchaseDate(LocalDate.parse("2022-03-20"));
         request.setPurchaseTime(LocalTime.parse("14:33"));
         request.setItems(Arrays.asList(
-                new Item("Laptop", 500.0),
-                new Item("Mouse", 20.0)
+                new Item("Laptop", 50000),
+                new Item("Mouse", 2000)
         ));
-        request.setTotal(520.0);
+        request.setTotalCents(52000);
         return request;
     }
 }
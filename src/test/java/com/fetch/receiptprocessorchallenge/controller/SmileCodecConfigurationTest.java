@@ -0,0 +1,120 @@
+package com.fetch.receiptprocessorchallenge.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fetch.receiptprocessorchallenge.dtos.ProcessReceiptRequest;
+import com.fetch.receiptprocessorchallenge.dtos.ReceiptPointResponse;
+import com.fetch.receiptprocessorchallenge.models.Item;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.http.HttpMessageConverters;
+import org.springframework.http.codec.DecoderHttpMessageReader;
+import org.springframework.http.codec.HttpMessageReader;
+import org.springframework.http.codec.ServerCodecConfigurer;
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
+import org.springframework.http.codec.json.Jackson2SmileDecoder;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit test class for SmileCodecConfiguration.class
+ * */
+class SmileCodecConfigurationTest {
+    private final SmileCodecConfiguration configuration = new SmileCodecConfiguration();
+
+    @Test
+    void shouldEncodeTheSameDocumentsAsJson() throws Exception {
+        ObjectMapper json = bootBuilder().build();
+        ObjectMapper smile = SmileCodecConfiguration.smileMapper(bootBuilder());
+        ProcessReceiptRequest request = createValidRequest();
+
+        byte[] encoded = smile.writeValueAsBytes(request);
+
+        assertThat(smile.readValue(encoded, ProcessReceiptRequest.class)).isEqualTo(request);
+        assertThat(smile.readTree(encoded)).isEqualTo(json.readTree(json.writeValueAsBytes(request)));
+        assertThat(encoded.length).isLessThan(json.writeValueAsBytes(request).length);
+        // Dates, times and amounts keep their JSON text form.
+        assertThat(smile.readTree(encoded).get("purchaseDate").asText()).isEqualTo("2022-03-20");
+        assertThat(smile.readTree(encoded).get("total").asText()).isEqualTo("35.35");
+
+        ReceiptPointResponse points = ReceiptPointResponse.builder().points(28).breakdown(Map.of("item-pairs", 10)).build();
+        assertThat(smile.readTree(smile.writeValueAsBytes(points))).isEqualTo(json.readTree(json.writeValueAsBytes(points)));
+    }
+
+    @Test
+    void shouldKeepJsonTheDefaultOnTheServletStack() {
+        MappingJackson2SmileHttpMessageConverter smile = configuration.smileHttpMessageConverter(bootBuilder());
+
+        List<HttpMessageConverter<?>> converters = new HttpMessageConverters(smile).getConverters();
+
+        int jsonIndex = indexOf(converters, MappingJackson2HttpMessageConverter.class);
+        assertThat(jsonIndex).isNotNegative();
+        assertThat(converters.indexOf(smile)).isGreaterThan(jsonIndex);
+        assertThat(converters.indexOf(smile)).isLessThan(indexOf(converters, MappingJackson2SmileHttpMessageConverter.class, smile));
+        assertThat(smile.getSupportedMediaTypes()).contains(SmileCodecConfiguration.APPLICATION_SMILE);
+    }
+
+    @Test
+    void shouldReplaceTheDefaultSmileCodecsOnTheReactiveStack() {
+        ServerCodecConfigurer configurer = ServerCodecConfigurer.create();
+
+        configuration.smileCodecCustomizer(bootBuilder()).customize(configurer);
+
+        List<HttpMessageReader<?>> readers = configurer.getReaders();
+        int jsonIndex = -1;
+        int smileIndex = -1;
+        for (int i = 0; i < readers.size(); i++) {
+            if (readers.get(i) instanceof DecoderHttpMessageReader<?> reader) {
+                if (reader.getDecoder() instanceof Jackson2JsonDecoder) {
+                    jsonIndex = i;
+                } else if (reader.getDecoder() instanceof Jackson2SmileDecoder decoder) {
+                    smileIndex = i;
+                    assertThat(decoder.getObjectMapper().isEnabled(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)).isFalse();
+                }
+            }
+        }
+        assertThat(jsonIndex).isNotNegative();
+        assertThat(smileIndex).isGreaterThan(jsonIndex);
+    }
+
+    /**
+     * @return a builder configured like the one Spring Boot injects
+     * */
+    private static Jackson2ObjectMapperBuilder bootBuilder() {
+        return new Jackson2ObjectMapperBuilder().featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    }
+
+    private static int indexOf(List<HttpMessageConverter<?>> converters, Class<?> type) {
+        return indexOf(converters, type, null);
+    }
+
+    /**
+     * @return the index of the first converter of exactly this type, other than the one excluded, or -1
+     * */
+    private static int indexOf(List<HttpMessageConverter<?>> converters, Class<?> type, Object excluded) {
+        for (int i = 0; i < converters.size(); i++) {
+            if (converters.get(i).getClass() == type && converters.get(i) != excluded) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static ProcessReceiptRequest createValidRequest() {
+        ProcessReceiptRequest request = new ProcessReceiptRequest();
+        request.setRetailer("M&M Corner Market");
+        request.setPurchaseDate(LocalDate.of(2022, 3, 20));
+        request.setPurchaseTime(LocalTime.of(14, 33));
+        request.setItems(List.of(new Item("Gatorade", 225), new Item("Emils Cheese Pizza", 3310)));
+        request.setTotalCents(3535);
+        return request;
+    }
+}
@@ -0,0 +1,94 @@
+package com.fetch.receiptprocessorchallenge.dao;
+
+import com.fetch.receiptprocessorchallenge.models.Item;
+import com.fetch.receiptprocessorchallenge.models.Receipt;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit test class for ReactiveReceiptDAO.class
+ * */
+class ReactiveReceiptDAOTest {
+
+    @Test
+    void testInMemoryStore_RunsOnSubscribingThread() {
+        ReactiveReceiptDAO reactiveReceiptDAO = new ReactiveReceiptDAO(new ReceiptDAO(ReceiptStoreProperties.defaults()));
+        Receipt receipt = createReceipt();
+
+        String thread = reactiveReceiptDAO.save(receipt).map(saved -> Thread.currentThread().getName()).block();
+
+        assertEquals(Thread.currentThread().getName(), thread);
+    }
+
+    @Test
+    void testBlockingStore_MovesOffSubscribingThread() {
+        ReceiptDAO receiptDAO = new ReceiptDAO(ReceiptStoreProperties.defaults().toBuilder()
+                .initialCapacity(16)
+                .simulatedLatencyMs(1)
+                .build());
+        assertTrue(receiptDAO.mayBlock());
+        ReactiveReceiptDAO reactiveReceiptDAO = new ReactiveReceiptDAO(receiptDAO);
+        Receipt receipt = createReceipt();
+
+        String thread = reactiveReceiptDAO.save(receipt).map(saved -> Thread.currentThread().getName()).block();
+
+        assertTrue(thread.startsWith("boundedElastic"), thread);
+        assertSame(receipt, reactiveReceiptDAO.findById(receipt.getId().getMostSignificantBits(),
+                receipt.getId().getLeastSignificantBits()).block());
+    }
+
+    @Test
+    void testMayBlock_WhenTheTieredStoreSpillsToDisk(@TempDir Path spillDirectory) {
+        ReceiptDAO spilling = new ReceiptDAO(ReceiptStoreProperties.defaults().toBuilder()
+                .memoryBudgetBytes(1024 * 1024)
+                .spill(new ReceiptStoreProperties.Spill(spillDirectory.toString(), 0))
+                .build());
+        ReceiptDAO dropping = new ReceiptDAO(ReceiptStoreProperties.defaults().toBuilder()
+                .memoryBudgetBytes(1024 * 1024)
+                .build());
+        try {
+            assertTrue(spilling.mayBlock());
+            assertFalse(dropping.mayBlock());
+        } finally {
+            spilling.close();
+            dropping.close();
+        }
+    }
+
+    @Test
+    void testFindById_EmptyWhenMissing() {
+        ReactiveReceiptDAO reactiveReceiptDAO = new ReactiveReceiptDAO(new ReceiptDAO(ReceiptStoreProperties.defaults()));
+
+        assertNull(reactiveReceiptDAO.findById(1, 2).block());
+    }
+
+    @Test
+    void testSavePoints_StoresPoints() {
+        ReceiptDAO receiptDAO = new ReceiptDAO(ReceiptStoreProperties.defaults());
+        ReactiveReceiptDAO reactiveReceiptDAO = new ReactiveReceiptDAO(receiptDAO);
+        Receipt receipt = createReceipt();
+
+        reactiveReceiptDAO.save(receipt).then(reactiveReceiptDAO.savePoints(receipt.getId(), 42)).block();
+
+        assertEquals(42, receiptDAO.findById(receipt.getId().toString()).get().getPoints());
+    }
+
+    private Receipt createReceipt() {
+        return Receipt.builder()
+                .id(UUID.randomUUID())
+                .retailer("Target")
+                .purchaseDate(LocalDate.of(2022, 1, 1))
+                .purchaseTime(LocalTime.of(13, 1))
+                .items(List.of(new Item("Mountain Dew 12PK", 649)))
+                .totalCents(649)
+                .build();
+    }
+}
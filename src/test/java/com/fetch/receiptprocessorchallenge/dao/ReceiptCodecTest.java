@@ -0,0 +1,89 @@
+package com.fetch.receiptprocessorchallenge.dao;
+
+import com.fetch.receiptprocessorchallenge.models.Item;
+import com.fetch.receiptprocessorchallenge.models.Money;
+import com.fetch.receiptprocessorchallenge.models.Receipt;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jol.info.GraphLayout;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit test class for ReceiptCodec.class
+ * */
+class ReceiptCodecTest {
+
+    @Test
+    void testEncodeDecode_RoundTrip() {
+        Receipt receipt = createReceipt(4);
+        receipt.setPoints(109);
+
+        Receipt decoded = decode(ReceiptCodec.encode(receipt));
+
+        assertEquals(receipt, decoded);
+    }
+
+    @Test
+    void testEncodeDecode_AbsentValues() {
+        Receipt receipt = Receipt.builder()
+                .id(UUID.randomUUID())
+                .items(List.of(new Item(null, Money.MISSING)))
+                .build();
+
+        Receipt decoded = decode(ReceiptCodec.encode(receipt));
+
+        assertEquals(receipt, decoded);
+        assertNull(decoded.getPoints());
+    }
+
+    @Test
+    void testEncode_RecordLengthPrefix() {
+        byte[] record = ReceiptCodec.encode(createReceipt(2));
+        assertEquals(record.length, ReceiptCodec.recordLength(ByteBuffer.wrap(record), 0));
+    }
+
+    /**
+     * Checks the binary record is under half the retained heap of the `Receipt` object
+     * graph, for a typical receipt and one with many items.
+     * */
+    @Test
+    void testEncode_BytesPerReceipt() {
+        for (int itemCount : new int[]{2, 5, 20}) {
+            Receipt receipt = createReceipt(itemCount);
+            long objectGraphBytes = GraphLayout.parseInstance(receipt).totalSize();
+            int recordBytes = ReceiptCodec.encode(receipt).length;
+
+            assertTrue(recordBytes * 2 < objectGraphBytes, String.format(
+                    "Binary record of %d bytes should be less than half the %d-byte object graph of %d items",
+                    recordBytes, objectGraphBytes, itemCount));
+        }
+    }
+
+    private Receipt decode(byte[] record) {
+        ByteBuffer slab = ByteBuffer.allocate(record.length + 16);
+        slab.put(16, record);
+        return ReceiptCodec.decode(slab, 16);
+    }
+
+    private Receipt createReceipt(int itemCount) {
+        List<Item> items = new ArrayList<>();
+        for (int i = 0; i < itemCount; i++) {
+            items.add(new Item("Emils Cheese Pizza " + i, 1225));
+        }
+        return Receipt.builder()
+                .id(UUID.randomUUID())
+                .retailer("M&M Corner Market")
+                .purchaseDate(LocalDate.of(2022, 3, 20))
+                .purchaseTime(LocalTime.of(14, 33))
+                .items(items)
+                .totalCents(1225L * itemCount)
+                .build();
+    }
+}
@@ -1,14 +1,31 @@
 package com.fetch.receiptprocessorchallenge.dao;
 
+import com.fetch.receiptprocessorchallenge.models.Item;
 import com.fetch.receiptprocessorchallenge.models.Receipt;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingStream;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.openjdk.jol.info.GraphLayout;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 /**
@@ -18,19 +35,19 @@ class ReceiptDAOTest {
 
     private ReceiptDAO receiptDAO;
     private Receipt receipt;
-    private String receiptId;
+    private UUID receiptId;
 
     @BeforeEach
     void setUp() {
-        receiptDAO = new ReceiptDAO();
-        receiptId = UUID.randomUUID().toString();
+        receiptDAO = new ReceiptDAO(ReceiptStoreProperties.defaults());
+        receiptId = UUID.randomUUID();
         receipt = Receipt.builder()
                 .id(receiptId)
                 .retailer("TestStore")
                 .purchaseDate(LocalDate.of(2022, 3, 20))
                 .purchaseTime(LocalTime.of(14, 33))
                 .items(List.of())
-                .total(25.0)
+                .totalCents(2500)
                 .build();
     }
 
@@ -44,7 +61,7 @@ class ReceiptDAOTest {
     @Test
     void testFindById_Found() {
         receiptDAO.save(receipt);
-        Optional<Receipt> foundReceipt = receiptDAO.findById(receiptId);
+        Optional<Receipt> foundReceipt = receiptDAO.findById(receiptId.toString());
         assertTrue(foundReceipt.isPresent());
         assertEquals(receiptId, foundReceipt.get().getId());
     }
@@ -54,4 +71,396 @@ class ReceiptDAOTest {
         Optional<Receipt> foundReceipt = receiptDAO.findById(UUID.randomUUID().toString());
         assertFalse(foundReceipt.isPresent());
     }
+
+    @Test
+    void testFindById_InvalidId() {
+        receiptDAO.save(receipt);
+        assertFalse(receiptDAO.findById("not-a-uuid").isPresent());
+    }
+
+    @Test
+    void testFindById_ByUuidHalves() {
+        receiptDAO.save(receipt);
+        assertSame(receipt, receiptDAO.findById(receiptId.getMostSignificantBits(), receiptId.getLeastSignificantBits()));
+        assertNull(receiptDAO.findById(receiptId.getMostSignificantBits(), receiptId.getLeastSignificantBits() + 1));
+    }
+
+    @Test
+    void testFindAllById_MarksMissingIdsInEveryMode() {
+        UUID missingId = UUID.randomUUID();
+        for (StoreMode mode : StoreMode.values()) {
+            ReceiptDAO dao = new ReceiptDAO(inMemory(mode, 1024 * 1024, false));
+            dao.save(receipt);
+
+            Receipt[] found = dao.findAllById(
+                    new long[]{missingId.getMostSignificantBits(), receiptId.getMostSignificantBits()},
+                    new long[]{missingId.getLeastSignificantBits(), receiptId.getLeastSignificantBits()});
+
+            assertNull(found[0], mode.name());
+            assertEquals(receipt, found[1], mode.name());
+            assertEquals(0, dao.findAllById(new long[0], new long[0]).length);
+        }
+    }
+
+    @Test
+    void testFindAllById_PaysTheSimulatedLatencyOnce() {
+        ReceiptDAO slowDAO = new ReceiptDAO(ReceiptStoreProperties.defaults().toBuilder()
+                .initialCapacity(16)
+                .simulatedLatencyMs(200)
+                .build());
+        slowDAO.save(receipt);
+        long[] msbs = new long[10];
+        long[] lsbs = new long[10];
+        Arrays.fill(msbs, receiptId.getMostSignificantBits());
+        Arrays.fill(lsbs, receiptId.getLeastSignificantBits());
+
+        long started = System.nanoTime();
+        Receipt[] found = slowDAO.findAllById(msbs, lsbs);
+
+        assertTrue(System.nanoTime() - started < TimeUnit.MILLISECONDS.toNanos(2 * 200));
+        assertSame(receipt, found[9]);
+    }
+
+    @Test
+    void testBinaryMode_FindById_Found() {
+        ReceiptDAO binaryDAO = new ReceiptDAO(inMemory(StoreMode.BINARY, 1024 * 1024, false));
+        binaryDAO.save(receipt);
+        Optional<Receipt> foundReceipt = binaryDAO.findById(receiptId.toString());
+        assertTrue(foundReceipt.isPresent());
+        assertEquals(receipt, foundReceipt.get());
+    }
+
+    @Test
+    void testBinaryMode_SavePoints() {
+        ReceiptDAO binaryDAO = new ReceiptDAO(inMemory(StoreMode.BINARY, 1024 * 1024, true));
+        binaryDAO.save(receipt);
+        assertTrue(binaryDAO.savePoints(receiptId, 31));
+        assertEquals(31, binaryDAO.findById(receiptId.toString()).get().getPoints());
+    }
+
+    @Test
+    void testSavePoints_OnlyTheFirstCallStoresPoints() {
+        for (StoreMode mode : StoreMode.values()) {
+            ReceiptDAO receiptDAO = new ReceiptDAO(inMemory(mode, 1024 * 1024, false));
+            Receipt saved = receiptDAO.save(receipt.toBuilder().build());
+            assertTrue(receiptDAO.savePoints(saved, 31), mode.name());
+            assertFalse(receiptDAO.savePoints(saved, 32), mode.name());
+            assertFalse(receiptDAO.savePoints(receiptId, 33), mode.name());
+            assertFalse(receiptDAO.savePoints(UUID.randomUUID(), 34), mode.name());
+            assertEquals(31, receiptDAO.findById(receiptId.toString()).get().getPoints(), mode.name());
+            assertEquals(1, receiptDAO.statistics().getScoredReceipts(), mode.name());
+            assertEquals(31, receiptDAO.statistics().getTotal().getPoints(), mode.name());
+        }
+    }
+
+    @Test
+    void testEstimatedMemoryBytes_ObjectMode_CloseToMeasured() {
+        ReceiptDAO objectDAO = new ReceiptDAO(ReceiptStoreProperties.defaults().toBuilder()
+                .initialCapacity(10_000)
+                .build());
+        for (int i = 0; i < 10_000; i++) {
+            objectDAO.save(Receipt.builder()
+                    .id(UUID.randomUUID())
+                    .retailer("Retailer " + i)
+                    .purchaseDate(LocalDate.of(2022, 1, 1).plusDays(i % 365))
+                    .purchaseTime(LocalTime.of(i % 24, 1 + i % 59))
+                    .items(new ArrayList<>(List.of(new Item("Item " + i, 100), new Item("Other item " + i, 200))))
+                    .totalCents(300)
+                    .points(1_000 + i)
+                    .build());
+        }
+
+        long measured = GraphLayout.parseInstance(objectDAO).totalSize();
+        long estimated = objectDAO.estimatedMemoryBytes();
+        assertTrue(Math.abs(estimated - measured) < measured / 5,
+                String.format("Store memory: estimated %d bytes, measured %d bytes", estimated, measured));
+    }
+
+    @Test
+    void testEstimatedMemoryBytes_BinaryMode_CoversRecords() {
+        ReceiptDAO binaryDAO = new ReceiptDAO(inMemory(StoreMode.BINARY, 1024 * 1024, false));
+        binaryDAO.save(receipt);
+        assertTrue(binaryDAO.estimatedMemoryBytes() >= 1024 * 1024);
+    }
+
+    @Test
+    void testBinaryMode_ConcurrentSave_NoLostWrites() throws Exception {
+        // Small slabs force many concurrent slab rollovers.
+        ReceiptDAO binaryDAO = new ReceiptDAO(inMemory(StoreMode.BINARY, 4096, false));
+        List<List<String>> ids = saveConcurrently(binaryDAO, 4, 5_000);
+
+        assertEquals(20_000, binaryDAO.size());
+        for (List<String> threadIds : ids) {
+            for (String id : threadIds) {
+                assertEquals(id, binaryDAO.findById(id).get().getId().toString());
+            }
+        }
+    }
+
+    @Test
+    void testConcurrentSave_NoLostWrites() throws Exception {
+        int threads = Math.max(4, Runtime.getRuntime().availableProcessors());
+        int perThread = 20_000;
+        List<List<String>> ids = saveConcurrently(receiptDAO, threads, perThread);
+
+        assertEquals(threads * perThread, receiptDAO.size());
+        for (List<String> threadIds : ids) {
+            for (String id : threadIds) {
+                assertTrue(receiptDAO.findById(id).isPresent(), "Lost write for receipt " + id);
+            }
+        }
+    }
+
+    @Test
+    void testDurableMode_ReceiptsSurviveRestart(@TempDir Path walDirectory) {
+        ReceiptDAO durableDAO = new ReceiptDAO(durable(StoreMode.OBJECT, walDirectory, WalDurability.SYNC));
+        durableDAO.save(receipt);
+        durableDAO.savePoints(receiptId, 42);
+        durableDAO.close();
+
+        ReceiptDAO restartedDAO = new ReceiptDAO(durable(StoreMode.BINARY, walDirectory, WalDurability.SYNC));
+        try {
+            assertEquals(1, restartedDAO.size());
+            Receipt restored = restartedDAO.findById(receiptId.toString()).get();
+            assertEquals(receipt.getRetailer(), restored.getRetailer());
+            assertEquals(receipt.getTotalCents(), restored.getTotalCents());
+            assertEquals(42, restored.getPoints());
+        } finally {
+            restartedDAO.close();
+        }
+    }
+
+    @Test
+    void testDurableMode_VirtualThreadsAreNotPinned(@TempDir Path walDirectory) {
+        List<RecordedEvent> pinned = new CopyOnWriteArrayList<>();
+        ReceiptDAO durableDAO = new ReceiptDAO(durable(StoreMode.OBJECT, walDirectory, WalDurability.SYNC));
+        try (RecordingStream recording = new RecordingStream()) {
+            recording.enable("jdk.VirtualThreadPinned").withThreshold(Duration.ZERO).withStackTrace();
+            recording.onEvent("jdk.VirtualThreadPinned", pinned::add);
+            recording.startAsync();
+            // Saves block on the log's group commit, so many of them park at the same time.
+            try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                for (int i = 0; i < 1_000; i++) {
+                    executor.submit(() -> {
+                        Receipt saved = durableDAO.save(receipt.toBuilder().id(UUID.randomUUID()).build());
+                        durableDAO.findById(saved.getId().toString());
+                        durableDAO.savePoints(saved.getId(), 7);
+                    });
+                }
+            }
+            recording.stop();
+        } finally {
+            durableDAO.close();
+        }
+
+        assertEquals(1_000, durableDAO.size());
+        assertTrue(pinned.isEmpty(), "Virtual threads were pinned: " + pinned);
+    }
+
+    @Test
+    void testDurableMode_ConcurrentSave_NoLostWrites(@TempDir Path walDirectory) throws Exception {
+        ReceiptDAO durableDAO = new ReceiptDAO(durable(StoreMode.OBJECT, walDirectory, WalDurability.BATCH));
+        saveConcurrently(durableDAO, 4, 2_000);
+        durableDAO.close();
+
+        ReceiptDAO restartedDAO = new ReceiptDAO(durable(StoreMode.OBJECT, walDirectory, WalDurability.BATCH));
+        assertEquals(8_000, restartedDAO.size());
+        restartedDAO.close();
+    }
+
+    @Test
+    void testDurableMode_RestartServesSnapshotAndNewerLog(@TempDir Path walDirectory) throws Exception {
+        ReceiptDAO durableDAO = new ReceiptDAO(durable(StoreMode.OBJECT, walDirectory, WalDurability.SYNC));
+        durableDAO.save(receipt);
+        durableDAO.snapshot();
+        UUID newerId = UUID.randomUUID();
+        durableDAO.save(receipt.toBuilder().id(newerId).build());
+        durableDAO.close();
+        // A file of someone else sorting after the snapshot is neither read nor deleted.
+        Path foreign = walDirectory.resolve("spill-00000000000000000001" + ReceiptSnapshot.SUFFIX);
+        Files.writeString(foreign, "not a snapshot");
+
+        ReceiptDAO restartedDAO = new ReceiptDAO(durable(StoreMode.OBJECT, walDirectory, WalDurability.SYNC));
+        try {
+            assertEquals(2, restartedDAO.size());
+            assertTrue(restartedDAO.findById(receiptId.toString()).isPresent());
+            assertTrue(restartedDAO.findById(newerId.toString()).isPresent());
+            Receipt[] found = restartedDAO.findAllById(
+                    new long[]{receiptId.getMostSignificantBits(), newerId.getMostSignificantBits()},
+                    new long[]{receiptId.getLeastSignificantBits(), newerId.getLeastSignificantBits()});
+            assertEquals(List.of(receiptId, newerId), Arrays.stream(found).map(Receipt::getId).toList());
+            restartedDAO.savePoints(receiptId, 17);
+            assertEquals(17, restartedDAO.findById(receiptId.toString()).get().getPoints());
+            restartedDAO.snapshot();
+            assertTrue(Files.exists(foreign));
+        } finally {
+            restartedDAO.close();
+        }
+    }
+
+    @Test
+    void testFindByPurchaseTime_OrderedRangeOfRetailer() {
+        for (StoreMode mode : StoreMode.values()) {
+            ReceiptDAO dao = new ReceiptDAO(inMemory(mode, 1024 * 1024, false));
+            for (int day = 9; day >= 0; day--) {
+                dao.save(receipt.toBuilder().id(UUID.randomUUID()).retailer(day % 2 == 0 ? "Target" : "Walgreens")
+                        .purchaseDate(LocalDate.of(2022, 1, 1).plusDays(day)).purchaseTime(LocalTime.of(13, 1)).build());
+            }
+            LocalDateTime from = LocalDate.of(2022, 1, 3).atStartOfDay();
+            LocalDateTime to = LocalDate.of(2022, 1, 8).atTime(LocalTime.MAX);
+
+            List<Receipt> all = dao.findByPurchaseTime(from, to, null, null, 100);
+            List<Receipt> target = dao.findByPurchaseTime(from, to, "Target", null, 100);
+
+            assertEquals(6, all.size(), mode.name());
+            for (int i = 0; i < all.size(); i++) {
+                assertEquals(LocalDate.of(2022, 1, 3).plusDays(i), all.get(i).getPurchaseDate(), mode.name());
+            }
+            assertEquals(List.of(LocalDate.of(2022, 1, 3), LocalDate.of(2022, 1, 5), LocalDate.of(2022, 1, 7)),
+                    target.stream().map(Receipt::getPurchaseDate).toList(), mode.name());
+            assertTrue(dao.findByPurchaseTime(from, to, "Unknown", null, 100).isEmpty(), mode.name());
+            assertTrue(dao.findByPurchaseTime(to, from, null, null, 100).isEmpty(), mode.name());
+        }
+    }
+
+    @Test
+    void testFindByPurchaseTime_PagesContinueAfterTheCursor() throws Exception {
+        LocalDateTime from = LocalDate.of(2022, 3, 20).atStartOfDay();
+        LocalDateTime to = from.plusDays(1);
+        // The receipts share one purchase time, so the pages are ordered by id within it.
+        saveConcurrently(receiptDAO, 4, 1_000);
+        List<Receipt> walked = new ArrayList<>();
+        PurchaseKey after = null;
+        while (true) {
+            List<Receipt> page = receiptDAO.findByPurchaseTime(from, to, null, after, 300);
+            walked.addAll(page);
+            if (page.size() < 300) {
+                break;
+            }
+            after = PurchaseKey.of(page.get(page.size() - 1));
+        }
+
+        assertEquals(4_000, walked.size());
+        assertEquals(4_000, walked.stream().map(Receipt::getId).distinct().count());
+        for (int i = 1; i < walked.size(); i++) {
+            assertTrue(PurchaseKey.of(walked.get(i - 1)).compareTo(PurchaseKey.of(walked.get(i))) < 0);
+        }
+        assertEquals(after, PurchaseKey.fromCursor(after.toCursor()));
+        assertThrows(IllegalArgumentException.class, () -> PurchaseKey.fromCursor("not a cursor"));
+    }
+
+    @Test
+    void testDurableMode_RestartIndexesRecoveredReceipts(@TempDir Path walDirectory) {
+        ReceiptDAO durableDAO = new ReceiptDAO(durable(StoreMode.OBJECT, walDirectory, WalDurability.SYNC));
+        durableDAO.save(receipt);
+        durableDAO.close();
+
+        ReceiptDAO restartedDAO = new ReceiptDAO(durable(StoreMode.OBJECT, walDirectory, WalDurability.SYNC));
+        try {
+            // Without a snapshot every receipt is indexed as the log is replayed.
+            assertFalse(restartedDAO.isWarming());
+            LocalDateTime purchased = LocalDateTime.of(receipt.getPurchaseDate(), receipt.getPurchaseTime());
+            List<Receipt> found = restartedDAO.findByPurchaseTime(purchased, purchased, "TestStore", null, 10);
+            assertEquals(1, found.size());
+            assertEquals(receiptId, found.get(0).getId());
+        } finally {
+            restartedDAO.close();
+        }
+    }
+
+    @Test
+    void testSnapshot_RequiresWriteAheadLog() {
+        assertThrows(IllegalStateException.class, () -> receiptDAO.snapshot());
+    }
+
+    /**
+     * Saves the same number of receipts from 8 threads with each WAL durability level and
+     * checks that none is lost, before and after a restart. Throughput by durability is
+     * measured in `WalIngestBenchmark`.
+     * */
+    @Test
+    void testDurableMode_NoLostWritesByDurability(@TempDir Path walDirectory) throws Exception {
+        int threads = 8;
+        int perThread = 1_000;
+        for (WalDurability durability : WalDurability.values()) {
+            Path directory = walDirectory.resolve(durability.name());
+            ReceiptDAO dao = new ReceiptDAO(durable(StoreMode.OBJECT, directory, durability));
+            saveConcurrently(dao, threads, perThread);
+            dao.close();
+            assertEquals(threads * perThread, dao.size());
+
+            ReceiptDAO restartedDAO = new ReceiptDAO(durable(StoreMode.OBJECT, directory, durability));
+            assertEquals(threads * perThread, restartedDAO.size());
+            restartedDAO.close();
+        }
+    }
+
+    /**
+     * Stress test that saves the same number of receipts per thread with 1..N threads
+     * and checks that no write is lost. Throughput by thread count is measured in
+     * `ReceiptSaveScalingBenchmark`.
+     * */
+    @Test
+    void testConcurrentSave_NoLostWritesByThreadCount() throws Exception {
+        int maxThreads = Math.max(2, Runtime.getRuntime().availableProcessors());
+        int perThread = 50_000;
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            ReceiptDAO dao = new ReceiptDAO(ReceiptStoreProperties.defaults().toBuilder()
+                    .initialCapacity(threads * perThread)
+                    .build());
+            List<List<String>> saved = saveConcurrently(dao, threads, perThread);
+
+            assertEquals(threads * perThread, dao.size());
+            for (List<String> ids : saved) {
+                assertTrue(dao.findById(ids.get(ids.size() - 1)).isPresent());
+            }
+        }
+    }
+
+    private static ReceiptStoreProperties inMemory(StoreMode mode, int slabSize, boolean direct) {
+        return ReceiptStoreProperties.defaults().toBuilder()
+                .mode(mode)
+                .initialCapacity(16)
+                .binary(new ReceiptStoreProperties.Binary(slabSize, direct))
+                .build();
+    }
+
+    private static ReceiptStoreProperties durable(StoreMode mode, Path directory, WalDurability durability) {
+        return ReceiptStoreProperties.defaults().toBuilder()
+                .mode(mode)
+                .wal(ReceiptStoreProperties.Wal.defaults().toBuilder()
+                        .directory(directory.toString())
+                        .durability(durability)
+                        .build())
+                .build();
+    }
+
+    private List<List<String>> saveConcurrently(ReceiptDAO dao, int threads, int perThread) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<List<String>>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                long threadBits = t;
+                futures.add(executor.submit(() -> {
+                    List<String> saved = new ArrayList<>(perThread);
+                    start.await();
+                    for (int i = 0; i < perThread; i++) {
+                        UUID id = new UUID(threadBits, i + 1);
+                        dao.save(receipt.toBuilder().id(id).build());
+                        saved.add(id.toString());
+                    }
+                    return saved;
+                }));
+            }
+            start.countDown();
+            List<List<String>> ids = new ArrayList<>();
+            for (Future<List<String>> future : futures) {
+                ids.add(future.get(60, TimeUnit.SECONDS));
+            }
+            return ids;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
 }
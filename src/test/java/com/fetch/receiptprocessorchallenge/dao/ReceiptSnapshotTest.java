@@ -0,0 +1,147 @@
+package com.fetch.receiptprocessorchallenge.dao;
+
+import com.fetch.receiptprocessorchallenge.models.Item;
+import com.fetch.receiptprocessorchallenge.models.Receipt;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit test class for ReceiptSnapshot.class
+ * */
+class ReceiptSnapshotTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testWriteAndOpen_FindsEveryReceipt() {
+        List<Receipt> receipts = receipts(1_000);
+        Path file = directory.resolve("receipts.snapshot");
+        ReceiptSnapshot.write(file, 7, receipts.size(), receipts::forEach);
+
+        ReceiptSnapshot snapshot = ReceiptSnapshot.open(file);
+
+        assertEquals(1_000, snapshot.size());
+        assertEquals(7, snapshot.walSegment());
+        for (Receipt receipt : receipts) {
+            UUID id = receipt.getId();
+            assertEquals(receipt, snapshot.findById(id.getMostSignificantBits(), id.getLeastSignificantBits()));
+        }
+        assertNull(snapshot.findById(1, 1));
+        assertFalse(snapshot.contains(0, 0));
+    }
+
+    @Test
+    void testDuplicateReceiptsKeepLastVersion() {
+        Receipt receipt = receipts(1).get(0);
+        Receipt scored = receipt.toBuilder().points(12).build();
+        Path file = directory.resolve("receipts.snapshot");
+        ReceiptSnapshot.write(file, 0, 2, action -> {
+            action.accept(receipt);
+            action.accept(scored);
+        });
+
+        ReceiptSnapshot snapshot = ReceiptSnapshot.open(file);
+
+        assertEquals(1, snapshot.size());
+        assertEquals(12, snapshot.findById(receipt.getId().getMostSignificantBits(),
+                receipt.getId().getLeastSignificantBits()).getPoints());
+    }
+
+    @Test
+    void testSavePointsDoesNotChangeTheFile() throws IOException {
+        Receipt receipt = receipts(1).get(0);
+        UUID id = receipt.getId();
+        Path file = directory.resolve("receipts.snapshot");
+        ReceiptSnapshot.write(file, 0, 1, action -> action.accept(receipt));
+        byte[] written = Files.readAllBytes(file);
+
+        ReceiptSnapshot snapshot = ReceiptSnapshot.open(file);
+        assertTrue(snapshot.savePoints(id.getMostSignificantBits(), id.getLeastSignificantBits(), 40));
+        assertFalse(snapshot.savePoints(id.getMostSignificantBits(), id.getLeastSignificantBits(), 41));
+        assertFalse(snapshot.savePoints(1, 1, 40));
+
+        assertEquals(40, snapshot.findById(id.getMostSignificantBits(), id.getLeastSignificantBits()).getPoints());
+        assertArrayEquals(written, Files.readAllBytes(file));
+    }
+
+    @Test
+    void testForEachVisitsEveryReceipt() {
+        List<Receipt> receipts = receipts(100);
+        Path file = directory.resolve("receipts.snapshot");
+        ReceiptSnapshot.write(file, 0, receipts.size(), receipts::forEach);
+        ReceiptSnapshot snapshot = ReceiptSnapshot.open(file);
+        snapshot.warmUp();
+
+        List<Receipt> visited = new ArrayList<>();
+        snapshot.forEach(visited::add);
+
+        assertEquals(100, visited.size());
+        assertTrue(visited.containsAll(receipts));
+    }
+
+    @Test
+    void testOpenRejectsOtherFiles() throws IOException {
+        Path file = directory.resolve("other.snapshot");
+        Files.write(file, new byte[64]);
+
+        assertThrows(IllegalStateException.class, () -> ReceiptSnapshot.open(file));
+    }
+
+    @Test
+    void testTableOverTwoGigabytes_IsMappedInChunks() {
+        List<Receipt> receipts = receipts(1_000);
+        Path file = directory.resolve("receipts.snapshot");
+        // Beyond the 44M receipts one 24-byte slot buffer could index; the file is sparse.
+        ReceiptSnapshot.write(file, 0, 50_000_000, receipts::forEach);
+
+        ReceiptSnapshot snapshot = ReceiptSnapshot.open(file);
+        try {
+            assertTrue(snapshot.mappedBytes() > Integer.MAX_VALUE);
+            for (Receipt receipt : receipts) {
+                UUID id = receipt.getId();
+                assertEquals(receipt, snapshot.findById(id.getMostSignificantBits(), id.getLeastSignificantBits()));
+            }
+            List<Receipt> visited = new ArrayList<>();
+            snapshot.forEach(visited::add);
+            assertEquals(1_000, visited.size());
+        } finally {
+            snapshot.close();
+        }
+    }
+
+    @Test
+    void testWriteRejectsMoreReceiptsThanASnapshotHolds() {
+        Path file = directory.resolve("receipts.snapshot");
+
+        assertThrows(IllegalArgumentException.class,
+                () -> ReceiptSnapshot.write(file, 0, ReceiptSnapshot.MAX_RECEIPTS + 1, action -> { }));
+        assertFalse(Files.exists(file));
+    }
+
+    private List<Receipt> receipts(int count) {
+        List<Receipt> receipts = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            receipts.add(Receipt.builder()
+                    .id(UUID.randomUUID())
+                    .retailer("Retailer " + i)
+                    .purchaseDate(LocalDate.of(2022, 3, 20))
+                    .purchaseTime(LocalTime.of(14, 33))
+                    .items(List.of(new Item("Gatorade", 225 + i)))
+                    .totalCents(225 + i)
+                    .build());
+        }
+        return receipts;
+    }
+}
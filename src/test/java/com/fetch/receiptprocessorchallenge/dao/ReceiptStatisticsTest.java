@@ -0,0 +1,219 @@
+package com.fetch.receiptprocessorchallenge.dao;
+
+import com.fetch.receiptprocessorchallenge.models.Item;
+import com.fetch.receiptprocessorchallenge.models.Receipt;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit test class for ReceiptStatistics.class
+ * */
+class ReceiptStatisticsTest {
+    private static final int RETAILERS = 7;
+    private static final int DAYS = 30;
+    private static final LocalDate FIRST_DAY = LocalDate.of(2022, 1, 1);
+
+    @Test
+    void testConcurrentSave_CountsEveryReceipt() throws Exception {
+        for (StoreMode mode : StoreMode.values()) {
+            ReceiptDAO receiptDAO = new ReceiptDAO(ReceiptStoreProperties.defaults().toBuilder()
+                    .mode(mode)
+                    .binary(new ReceiptStoreProperties.Binary(1024 * 1024, false))
+                    .build());
+            int threads = Math.max(4, Runtime.getRuntime().availableProcessors());
+            int perThread = 5_000;
+            saveConcurrently(receiptDAO, threads, perThread);
+
+            // Every thread saves the same mix of receipts, so the expected counts are those of one thread times threads.
+            long[] retailerReceipts = new long[RETAILERS];
+            long[] retailerPoints = new long[RETAILERS];
+            long[] dayReceipts = new long[DAYS];
+            long[] hourReceipts = new long[ReceiptStatistics.HOURS];
+            long[] hourPoints = new long[ReceiptStatistics.HOURS];
+            long points = 0;
+            for (int i = 0; i < perThread; i++) {
+                retailerReceipts[i % RETAILERS] += threads;
+                retailerPoints[i % RETAILERS] += (long) threads * points(i);
+                dayReceipts[i % DAYS] += threads;
+                hourReceipts[i % ReceiptStatistics.HOURS] += threads;
+                hourPoints[i % ReceiptStatistics.HOURS] += (long) threads * points(i);
+                points += (long) threads * points(i);
+            }
+
+            ReceiptStatistics statistics = receiptDAO.statistics();
+            assertEquals((long) threads * perThread, statistics.getTotal().getReceipts(), mode.name());
+            assertEquals(points, statistics.getTotal().getPoints(), mode.name());
+            assertEquals((long) threads * perThread, statistics.getScoredReceipts(), mode.name());
+            assertEquals(RETAILERS, statistics.getByRetailer().size(), mode.name());
+            for (int r = 0; r < RETAILERS; r++) {
+                ReceiptStatistics.Counts counts = statistics.getByRetailer().get("Retailer " + r);
+                assertEquals(retailerReceipts[r], counts.getReceipts(), mode.name());
+                assertEquals(retailerPoints[r], counts.getPoints(), mode.name());
+            }
+            assertEquals(DAYS, statistics.getByDate().size(), mode.name());
+            for (int d = 0; d < DAYS; d++) {
+                assertEquals(dayReceipts[d], statistics.getByDate().get(FIRST_DAY.plusDays(d)).getReceipts(), mode.name());
+            }
+            for (int h = 0; h < ReceiptStatistics.HOURS; h++) {
+                assertEquals(hourReceipts[h], statistics.getByHour(h).getReceipts(), mode.name());
+                assertEquals(hourPoints[h], statistics.getByHour(h).getPoints(), mode.name());
+            }
+        }
+    }
+
+    @Test
+    void testSavePoints_CountsPointsOfLazyScoredReceipts() {
+        ReceiptDAO receiptDAO = new ReceiptDAO(ReceiptStoreProperties.defaults());
+        Receipt receipt = receipt(0).toBuilder().points(null).build();
+        receiptDAO.save(receipt);
+
+        ReceiptStatistics statistics = receiptDAO.statistics();
+        assertEquals(1, statistics.getTotal().getReceipts());
+        assertEquals(0, statistics.getScoredReceipts());
+        assertEquals(0, statistics.getTotal().getPoints());
+
+        assertTrue(receiptDAO.savePoints(receipt, 25));
+        // A read that lost the race to score the receipt does not count it again.
+        assertFalse(receiptDAO.savePoints(receipt, 25));
+
+        assertEquals(1, statistics.getTotal().getReceipts());
+        assertEquals(1, statistics.getScoredReceipts());
+        assertEquals(25, statistics.getTotal().getPoints());
+        assertEquals(25, statistics.getByRetailer().get("Retailer 0").getPoints());
+        assertEquals(1, statistics.getByRetailer().get("Retailer 0").getReceipts());
+        assertEquals(25, statistics.getByHour(0).getPoints());
+    }
+
+    @Test
+    void testDurableMode_RestartCountsRecoveredReceipts(@TempDir Path walDirectory) throws InterruptedException {
+        ReceiptDAO durableDAO = new ReceiptDAO(durable(StoreMode.OBJECT, walDirectory));
+        durableDAO.save(receipt(1));
+        durableDAO.snapshot();
+        durableDAO.save(receipt(2));
+        durableDAO.close();
+
+        ReceiptDAO restartedDAO = new ReceiptDAO(durable(StoreMode.BINARY, walDirectory));
+        try {
+            awaitWarmed(restartedDAO);
+            ReceiptStatistics statistics = restartedDAO.statistics();
+            assertEquals(2, statistics.getTotal().getReceipts());
+            assertEquals(points(1) + points(2), statistics.getTotal().getPoints());
+            assertEquals(1, statistics.getByRetailer().get("Retailer 2").getReceipts());
+            assertEquals(1, statistics.getByDate().get(FIRST_DAY.plusDays(1)).getReceipts());
+        } finally {
+            restartedDAO.close();
+        }
+    }
+
+    @Test
+    void testDurableMode_RestartFromSnapshotCountsPointsOnce(@TempDir Path walDirectory) throws InterruptedException {
+        ReceiptDAO durableDAO = new ReceiptDAO(durable(StoreMode.OBJECT, walDirectory));
+        Receipt scoredBeforeRestart = receipt(1).toBuilder().points(null).build();
+        Receipt scoredAfterRestart = receipt(2).toBuilder().points(null).build();
+        durableDAO.save(scoredBeforeRestart);
+        durableDAO.save(scoredAfterRestart);
+        durableDAO.save(receipt(3));
+        durableDAO.snapshot();
+        // Logged after the snapshot, so replayed into a receipt the snapshot holds unscored.
+        assertTrue(durableDAO.savePoints(scoredBeforeRestart, 10));
+        durableDAO.save(receipt(4));
+        durableDAO.close();
+
+        ReceiptDAO restartedDAO = new ReceiptDAO(durable(StoreMode.BINARY, walDirectory));
+        try {
+            // Scored while the snapshot may still be counted in the background.
+            assertTrue(restartedDAO.savePoints(scoredAfterRestart, 20));
+            awaitWarmed(restartedDAO);
+            ReceiptStatistics statistics = restartedDAO.statistics();
+            assertEquals(4, statistics.getTotal().getReceipts());
+            assertEquals(4, statistics.getScoredReceipts());
+            assertEquals(10 + 20 + points(3) + points(4), statistics.getTotal().getPoints());
+            assertEquals(10, statistics.getByRetailer().get("Retailer 1").getPoints());
+        } finally {
+            restartedDAO.close();
+        }
+    }
+
+    private static ReceiptStoreProperties durable(StoreMode mode, Path directory) {
+        return ReceiptStoreProperties.defaults().toBuilder()
+                .mode(mode)
+                .wal(ReceiptStoreProperties.Wal.defaults().toBuilder().directory(directory.toString()).build())
+                .build();
+    }
+
+    private static void awaitWarmed(ReceiptDAO dao) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (dao.isWarming()) {
+            assertTrue(System.nanoTime() < deadline, "The snapshot was not counted in time.");
+            Thread.sleep(1);
+        }
+    }
+
+    /**
+     * Saves receipts from many threads at once, half of them one by one and half in small batches.
+     * */
+    private static void saveConcurrently(ReceiptDAO dao, int threads, int perThread) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                long threadBits = t;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    List<Receipt> batch = new ArrayList<>();
+                    for (int i = 0; i < perThread; i++) {
+                        Receipt receipt = receipt(i).toBuilder().id(new UUID(threadBits, i + 1)).build();
+                        if (i % 2 == 0) {
+                            dao.save(receipt);
+                        } else {
+                            batch.add(receipt);
+                        }
+                        if (batch.size() == 16) {
+                            dao.saveAll(batch);
+                            batch = new ArrayList<>();
+                        }
+                    }
+                    dao.saveAll(batch);
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static Receipt receipt(int i) {
+        return Receipt.builder()
+                .id(UUID.randomUUID())
+                .retailer("Retailer " + i % RETAILERS)
+                .purchaseDate(FIRST_DAY.plusDays(i % DAYS))
+                .purchaseTime(LocalTime.of(i % ReceiptStatistics.HOURS, 1))
+                .items(List.of(new Item("Gatorade", 225)))
+                .totalCents(225)
+                .points(points(i))
+                .build();
+    }
+
+    private static int points(int i) {
+        return 5 + i % 50;
+    }
+}
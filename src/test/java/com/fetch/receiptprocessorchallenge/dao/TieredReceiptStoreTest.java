@@ -0,0 +1,356 @@
+package com.fetch.receiptprocessorchallenge.dao;
+
+import com.fetch.receiptprocessorchallenge.models.Item;
+import com.fetch.receiptprocessorchallenge.models.Receipt;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit test class for TieredReceiptStore.class
+ * */
+class TieredReceiptStoreTest {
+    private static final long BUDGET = 2 * 1024 * 1024;
+    private static final LocalDate FIRST_DAY = LocalDate.of(2022, 1, 1);
+
+    /**
+     * Ingests far more receipts than the budget holds from several threads, checking the
+     * resident memory all along, and the heap after collections, against the budget.
+     * */
+    @Test
+    void testSoak_ContinuousIngestKeepsHeapBounded() throws Exception {
+        for (StoreMode mode : StoreMode.values()) {
+            ReceiptDAO receiptDAO = new ReceiptDAO(ReceiptStoreProperties.defaults().toBuilder()
+                    .mode(mode)
+                    .memoryBudgetBytes(BUDGET)
+                    .build());
+            TierStatistics tiers = receiptDAO.tierStatistics();
+            MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+            int threads = 4;
+            int rounds = 20;
+            int perRound = 10_000;
+            long baseline = usedHeapAfterGc(memory);
+            long peakResident = 0;
+            long peakHeapGrowth = 0;
+            for (int round = 0; round < rounds; round++) {
+                saveConcurrently(receiptDAO, threads, perRound, (long) round * threads * perRound);
+                peakResident = Math.max(peakResident, tiers.getResidentBytes());
+                if (round >= rounds / 2) {
+                    peakHeapGrowth = Math.max(peakHeapGrowth, usedHeapAfterGc(memory) - baseline);
+                }
+            }
+
+            long saved = (long) rounds * threads * perRound;
+            // A generation may overshoot until a save samples its size, and the newest one fills while the oldest is evicted.
+            receiptDAO.enforceMemoryBudget();
+            assertTrue(peakResident <= BUDGET + 2 * TieredReceiptStore.generationBytes(BUDGET),
+                    mode + " resident " + peakResident);
+            assertEquals(saved, tiers.getResidentReceipts() + tiers.getDroppedReceipts(), mode.name());
+            assertTrue(tiers.getDroppedReceipts() > saved / 2, mode.name());
+            assertEquals(saved, receiptDAO.statistics().getTotal().getReceipts(), mode.name());
+            // Unbounded, 800k receipts take hundreds of megabytes.
+            assertTrue(peakHeapGrowth < 32L * 1024 * 1024, mode + " heap grew by " + peakHeapGrowth);
+            receiptDAO.close();
+        }
+    }
+
+    /**
+     * Ingests into a store whose spill files expire, checking that each expiry gives back
+     * the disk space of the spill files and the memory they had mapped at once, instead of
+     * leaving them until the collector finds the buffers.
+     * */
+    @Test
+    void testSoak_ExpiredSpillFilesFreeDiskAndMappings(@TempDir Path spillDirectory) throws Exception {
+        BufferPoolMXBean mapped = ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class).stream()
+                .filter(pool -> pool.getName().equals("mapped"))
+                .findFirst().orElseThrow();
+        long baseline = mapped.getMemoryUsed();
+        TieredReceiptStore store = new TieredReceiptStore(() -> new ObjectReceiptStore(16, 4), BUDGET, spillDirectory,
+                1, receipt -> {});
+        try {
+            for (int round = 0; round < 5; round++) {
+                for (int i = 0; i < 20_000; i++) {
+                    store.save(receipt(i, new UUID(6, round * 20_000L + i + 1)));
+                }
+                store.enforceBudget();
+                assertTrue(store.spillFiles() > 0, "round " + round);
+                assertTrue(spillBytes(spillDirectory) > 0, "round " + round);
+                assertTrue(mapped.getMemoryUsed() > baseline, "round " + round);
+
+                TimeUnit.MILLISECONDS.sleep(1100);
+                store.expire();
+                assertEquals(0, store.spillFiles(), "round " + round);
+                assertEquals(0, spillBytes(spillDirectory), "round " + round);
+                assertTrue(mapped.getMemoryUsed() <= baseline,
+                        "round " + round + " left " + (mapped.getMemoryUsed() - baseline) + " bytes mapped");
+            }
+            assertTrue(store.statistics().getExpiredReceipts() > 0);
+        } finally {
+            store.close();
+        }
+    }
+
+    @Test
+    void testSpill_EvictedReceiptsAreReadBackFromDisk(@TempDir Path spillDirectory) throws Exception {
+        for (StoreMode mode : StoreMode.values()) {
+            Path directory = spillDirectory.resolve(mode.name());
+            ReceiptDAO receiptDAO = new ReceiptDAO(ReceiptStoreProperties.defaults().toBuilder()
+                    .mode(mode)
+                    .memoryBudgetBytes(BUDGET)
+                    .spill(new ReceiptStoreProperties.Spill(directory.toString(), 0))
+                    .build());
+            List<Receipt> receipts = new ArrayList<>();
+            for (int i = 0; i < 50_000; i++) {
+                receipts.add(receiptDAO.save(receipt(i, new UUID(1, i + 1))));
+            }
+            receiptDAO.enforceMemoryBudget();
+            TierStatistics tiers = receiptDAO.tierStatistics();
+            assertTrue(tiers.getSpilledReceipts() > 0, mode.name());
+            assertTrue(tiers.getSpillFiles() > 0, mode.name());
+            assertEquals(50_000, tiers.getResidentReceipts() + tiers.getSpilledReceipts(), mode.name());
+            assertEquals(tiers.getSpilledReceipts(), tiers.getSpillWrittenReceipts(), mode.name());
+            assertTrue(tiers.getSpillWrittenBytes() > 0, mode.name());
+            assertEquals(0, tiers.getDroppedReceipts(), mode.name());
+
+            // The first receipt saved was evicted long ago, but is still found with its points.
+            Receipt first = receiptDAO.findById(receipts.get(0).getId().toString()).orElseThrow();
+            assertEquals(receipts.get(0).getRetailer(), first.getRetailer());
+            assertEquals(receipts.get(0).getPoints(), first.getPoints());
+            assertEquals(1, tiers.getDiskHits(), mode.name());
+            for (Receipt receipt : receipts) {
+                assertTrue(receiptDAO.findById(receipt.getId().toString()).isPresent(), mode.name());
+            }
+            assertEquals(50_001, tiers.getMemoryHits() + tiers.getDiskHits(), mode.name());
+
+            // Points saved after a receipt was spilled are read back.
+            receiptDAO.savePoints(first.getId(), 99);
+            assertEquals(99, receiptDAO.findById(first.getId().toString()).orElseThrow().getPoints());
+
+            // Spilled receipts stay in the purchase time index.
+            LocalDateTime purchased = LocalDateTime.of(first.getPurchaseDate(), first.getPurchaseTime());
+            assertTrue(receiptDAO.findByPurchaseTime(purchased, purchased, first.getRetailer(), null, 100_000)
+                    .stream().anyMatch(r -> r.getId().equals(first.getId())), mode.name());
+
+            receiptDAO.close();
+            assertEquals(0, spillFiles(directory), mode.name());
+        }
+    }
+
+    @Test
+    void testEviction_KeepsReceiptsThatAreRead() {
+        ReceiptDAO receiptDAO = new ReceiptDAO(ReceiptStoreProperties.defaults().toBuilder()
+                .memoryBudgetBytes(BUDGET)
+                .build());
+        Receipt hot = receiptDAO.save(receipt(0, new UUID(2, 1)));
+        Receipt cold = receiptDAO.save(receipt(1, new UUID(2, 2)));
+        for (int i = 2; i < 100_000; i++) {
+            receiptDAO.save(receipt(i, new UUID(2, i + 1)));
+            if (i % 100 == 0) {
+                assertTrue(receiptDAO.findById(hot.getId().toString()).isPresent());
+            }
+        }
+        receiptDAO.enforceMemoryBudget();
+
+        TierStatistics tiers = receiptDAO.tierStatistics();
+        assertTrue(tiers.getDroppedReceipts() > 0);
+        assertTrue(tiers.getPromotedReceipts() > 0);
+        assertSame(hot, receiptDAO.findById(hot.getId().toString()).orElseThrow());
+        assertTrue(receiptDAO.findById(cold.getId().toString()).isEmpty());
+        assertEquals(0, tiers.getDiskHits());
+    }
+
+    @Test
+    void testDrop_RemovesReceiptsFromThePurchaseTimeIndexAndTellsTheListeners() {
+        ReceiptDAO receiptDAO = new ReceiptDAO(ReceiptStoreProperties.defaults().toBuilder()
+                .mode(StoreMode.BINARY)
+                .memoryBudgetBytes(BUDGET)
+                .build());
+        List<Receipt> dropped = new CopyOnWriteArrayList<>();
+        receiptDAO.addDropListener(dropped::add);
+        for (int i = 0; i < 50_000; i++) {
+            receiptDAO.save(receipt(i, new UUID(3, i + 1)));
+        }
+        receiptDAO.enforceMemoryBudget();
+
+        LocalDateTime from = FIRST_DAY.atStartOfDay();
+        LocalDateTime to = FIRST_DAY.plusYears(1).atStartOfDay();
+        List<Receipt> found = receiptDAO.findByPurchaseTime(from, to, null, null, 100_000);
+        assertEquals(receiptDAO.tierStatistics().getResidentReceipts(), found.size());
+        assertEquals(50_000 - receiptDAO.tierStatistics().getDroppedReceipts(), found.size());
+        assertEquals(receiptDAO.tierStatistics().getDroppedReceipts(), dropped.size());
+        assertNull(receiptDAO.findById(dropped.get(0).getId().getMostSignificantBits(),
+                dropped.get(0).getId().getLeastSignificantBits()));
+    }
+
+    @Test
+    void testExpire_DropsSpillFilesOlderThanTheTtl(@TempDir Path spillDirectory) throws Exception {
+        List<Receipt> dropped = new CopyOnWriteArrayList<>();
+        TieredReceiptStore store = new TieredReceiptStore(() -> new ObjectReceiptStore(16, 4), BUDGET, spillDirectory,
+                2, dropped::add);
+        for (int i = 0; i < 50_000; i++) {
+            store.save(receipt(i, new UUID(4, i + 1)));
+        }
+        store.enforceBudget();
+        long spilled = store.spilledReceipts();
+        assertTrue(spilled > 0);
+        assertNotNull(store.findById(4, 1));
+
+        TimeUnit.MILLISECONDS.sleep(2100);
+        store.expire();
+
+        assertEquals(0, store.spilledReceipts());
+        assertEquals(0, store.spillFiles());
+        assertEquals(0, spillFiles(spillDirectory));
+        assertEquals(spilled, dropped.size());
+        assertEquals(spilled, store.statistics().getExpiredReceipts());
+        assertNull(store.findById(4, 1));
+        store.close();
+    }
+
+    @Test
+    void testNewStore_DeletesSpillFilesOfAnEarlierRun(@TempDir Path spillDirectory) throws Exception {
+        Files.writeString(spillDirectory.resolve("spill-00000000000000000001" + TieredReceiptStore.SPILL_SUFFIX), "stale");
+        Files.writeString(spillDirectory.resolve("notes.txt"), "kept");
+
+        TieredReceiptStore store = new TieredReceiptStore(() -> new ObjectReceiptStore(16, 4), BUDGET, spillDirectory,
+                0, receipt -> {});
+
+        assertEquals(0, spillFiles(spillDirectory));
+        assertTrue(Files.exists(spillDirectory.resolve("notes.txt")));
+        store.close();
+    }
+
+    @Test
+    void testSave_OnlySignalsTheEvictorWithinTheHardLimit() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        List<String> evictingThreads = new CopyOnWriteArrayList<>();
+        TieredReceiptStore store = new TieredReceiptStore(() -> new ObjectReceiptStore(16, 4), BUDGET, null, 0,
+                receipt -> {
+                    evictingThreads.add(Thread.currentThread().getName());
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+        ExecutorService saver = Executors.newSingleThreadExecutor();
+        try {
+            // The first drop holds the evictor, so saves run ahead of it until the hard limit holds them back.
+            Future<?> saves = saver.submit(() -> {
+                for (int i = 0; i < 100_000; i++) {
+                    store.save(receipt(i, new UUID(5, i + 1)));
+                }
+            });
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+            while (evictingThreads.isEmpty() || store.residentBytes() <= BUDGET + TieredReceiptStore.generationBytes(BUDGET)) {
+                assertTrue(System.nanoTime() < deadline, "Saves were not held back at the hard limit.");
+                TimeUnit.MILLISECONDS.sleep(1);
+            }
+            assertFalse(saves.isDone());
+
+            release.countDown();
+            saves.get(60, TimeUnit.SECONDS);
+            assertTrue(evictingThreads.stream().allMatch("receipt-eviction"::equals), evictingThreads.toString());
+            store.enforceBudget();
+            assertTrue(store.residentBytes() <= BUDGET);
+        } finally {
+            release.countDown();
+            saver.shutdownNow();
+            store.close();
+        }
+    }
+
+    @Test
+    void testSpillDirectory_MustNotBeTheWriteAheadLogDirectory(@TempDir Path directory) {
+        ReceiptStoreProperties properties = ReceiptStoreProperties.defaults().toBuilder()
+                .memoryBudgetBytes(BUDGET)
+                .wal(ReceiptStoreProperties.Wal.defaults().toBuilder().directory(directory.toString()).build())
+                .spill(new ReceiptStoreProperties.Spill(directory.resolve(".").toString(), 0))
+                .build();
+
+        assertThrows(IllegalArgumentException.class, () -> new ReceiptDAO(properties));
+    }
+
+    @Test
+    void testInvalidBudget() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new TieredReceiptStore(() -> new ObjectReceiptStore(16, 4), 0, null, 0, receipt -> {}));
+    }
+
+    private static void saveConcurrently(ReceiptDAO dao, int threads, int perThread, long firstId) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                long threadFirstId = firstId + (long) t * perThread;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < perThread; i++) {
+                        dao.save(receipt(i, new UUID(0, threadFirstId + i + 1)));
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static long usedHeapAfterGc(MemoryMXBean memory) {
+        System.gc();
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+
+    private static long spillFiles(Path directory) throws Exception {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().startsWith("spill-")).count();
+        }
+    }
+
+    private static long spillBytes(Path directory) throws Exception {
+        try (Stream<Path> files = Files.list(directory)) {
+            long bytes = 0;
+            for (Path file : files.filter(file -> file.getFileName().toString().startsWith("spill-")).toList()) {
+                bytes += Files.size(file);
+            }
+            return bytes;
+        }
+    }
+
+    private static Receipt receipt(int i, UUID id) {
+        return Receipt.builder()
+                .id(id)
+                .retailer("Retailer " + i % 10)
+                .purchaseDate(FIRST_DAY.plusDays(i % 365))
+                .purchaseTime(LocalTime.of(i % 24, i % 60))
+                .items(List.of(new Item("Gatorade", 225), new Item("Emils Cheese Pizza", 1225)))
+                .totalCents(1450)
+                .points(i == 0 ? null : i % 100)
+                .build();
+    }
+}
@@ -0,0 +1,138 @@
+package com.fetch.receiptprocessorchallenge.dao;
+
+import com.fetch.receiptprocessorchallenge.models.Receipt;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jol.info.GraphLayout;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit test class for UuidIndex.class and ReceiptIds.class
+ * */
+class UuidIndexTest {
+
+    @Test
+    void testPutGet_GrowsPastInitialCapacity() {
+        UuidIndex index = new UuidIndex(1, 4);
+        List<UUID> ids = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            UUID id = UUID.randomUUID();
+            ids.add(id);
+            assertEquals(UuidIndex.MISSING, index.put(id.getMostSignificantBits(), id.getLeastSignificantBits(), i));
+        }
+
+        assertEquals(10_000, index.size());
+        for (int i = 0; i < ids.size(); i++) {
+            assertEquals(i, index.get(ids.get(i).getMostSignificantBits(), ids.get(i).getLeastSignificantBits()));
+        }
+        assertEquals(UuidIndex.MISSING, index.get(1, 2));
+    }
+
+    @Test
+    void testPut_ReplacesExistingValue() {
+        UuidIndex index = new UuidIndex(16, 1);
+        assertEquals(UuidIndex.MISSING, index.put(7, 9, 1));
+        assertEquals(1, index.put(7, 9, 2));
+        assertEquals(2, index.get(7, 9));
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    void testPut_RejectsNilUuid() {
+        UuidIndex index = new UuidIndex(16, 1);
+        assertThrows(IllegalArgumentException.class, () -> index.put(0, 0, 1));
+        assertEquals(UuidIndex.MISSING, index.get(0, 0));
+    }
+
+    @Test
+    void testConcurrentPutGet_ReadersSeeEveryPublishedKey() throws Exception {
+        UuidIndex index = new UuidIndex(16, 8);
+        int threads = 4;
+        int perThread = 50_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                long msb = t + 1;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < perThread; i++) {
+                        index.put(msb, i, i);
+                        // Reading back right away exercises optimistic reads racing with resizes.
+                        assertEquals(i, index.get(msb, i));
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(threads * perThread, index.size());
+    }
+
+    @Test
+    void testReceiptIds_ParsesCanonicalAndLenientForms() {
+        UUID id = UUID.randomUUID();
+        assertEquals(id.getMostSignificantBits(), ReceiptIds.mostSignificantBits(id.toString()));
+        assertEquals(id.getLeastSignificantBits(), ReceiptIds.leastSignificantBits(id.toString().toUpperCase()));
+
+        assertTrue(ReceiptIds.isValid("1-1-1-1-1"));
+        assertEquals(UUID.fromString("1-1-1-1-1").getLeastSignificantBits(), ReceiptIds.leastSignificantBits("1-1-1-1-1"));
+        UUID shortForm = UUID.fromString("abc-12-F-0-1234567890ab");
+        assertEquals(shortForm.getMostSignificantBits(), ReceiptIds.mostSignificantBits("abc-12-F-0-1234567890ab"));
+        assertEquals(shortForm.getLeastSignificantBits(), ReceiptIds.leastSignificantBits("abc-12-F-0-1234567890ab"));
+
+        assertFalse(ReceiptIds.isValid(null));
+        assertFalse(ReceiptIds.isValid("id-invalid-uuid"));
+        assertFalse(ReceiptIds.isValid(id.toString().replace('-', 'x')));
+        assertFalse(ReceiptIds.isValid(id.toString().substring(0, 35) + "g"));
+        assertFalse(ReceiptIds.isValid("1-1-1-1"));
+        assertFalse(ReceiptIds.isValid("1-1-1-1-1-1"));
+        assertFalse(ReceiptIds.isValid("1--1-1-1"));
+        assertFalse(ReceiptIds.isValid("123456789-1-1-1-1"));
+        assertFalse(ReceiptIds.isValid(id + "0"));
+        assertThrows(IllegalArgumentException.class, () -> ReceiptIds.leastSignificantBits("1-1-1-1-x"));
+        assertThrows(IllegalArgumentException.class, () -> ReceiptIds.mostSignificantBits(id.toString().replace('-', 'x')));
+
+        assertEquals(id, ReceiptIds.parse(id.toString().toUpperCase()));
+        assertEquals(shortForm, ReceiptIds.parse("abc-12-F-0-1234567890ab"));
+        assertNull(ReceiptIds.parse(null));
+        assertNull(ReceiptIds.parse("id-invalid-uuid"));
+        assertNull(ReceiptIds.parse(id.toString().replace('-', 'x')));
+        assertEquals(id, ReceiptIds.toUuid(id.toString()));
+        assertThrows(IllegalArgumentException.class, () -> ReceiptIds.toUuid("1-1-1-1"));
+    }
+
+    /**
+     * Checks each key costs under half the memory in the index that it does in a
+     * `HashMap<String, Receipt>` holding the same ids (receipts themselves excluded).
+     * */
+    @Test
+    void testMemoryPerKey_ComparedToStringHashMap() {
+        int keys = 100_000;
+        Receipt receipt = Receipt.builder().build();
+        UuidIndex index = new UuidIndex(keys, 16);
+        Map<String, Receipt> map = new HashMap<>();
+        for (int i = 0; i < keys; i++) {
+            UUID id = UUID.randomUUID();
+            index.put(id.getMostSignificantBits(), id.getLeastSignificantBits(), i);
+            map.put(id.toString(), receipt);
+        }
+
+        long indexBytes = GraphLayout.parseInstance(index).totalSize();
+        long mapBytes = GraphLayout.parseInstance(map).totalSize() - GraphLayout.parseInstance(receipt).totalSize();
+        assertTrue(indexBytes * 2 < mapBytes, String.format("Bytes per key: UuidIndex=%.1f, HashMap<String, Receipt>=%.1f",
+                indexBytes / (double) keys, mapBytes / (double) keys));
+    }
+}
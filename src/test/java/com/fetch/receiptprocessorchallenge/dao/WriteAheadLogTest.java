@@ -0,0 +1,135 @@
+package com.fetch.receiptprocessorchallenge.dao;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit test class for WriteAheadLog.class
+ * */
+class WriteAheadLogTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testReplayReturnsRecordsInOrder() {
+        WriteAheadLog wal = open(WalDurability.SYNC, 1024 * 1024);
+        for (int i = 0; i < 100; i++) {
+            wal.awaitDurable(wal.append(WriteAheadLog.SAVE, ("record-" + i).getBytes(StandardCharsets.UTF_8)));
+        }
+        wal.close();
+
+        List<String> records = replay();
+
+        assertEquals(100, records.size());
+        assertEquals("record-0", records.get(0));
+        assertEquals("record-99", records.get(99));
+    }
+
+    @Test
+    void testSmallSegmentsRollOver() throws IOException {
+        WriteAheadLog wal = open(WalDurability.BATCH, 256);
+        for (int i = 0; i < 100; i++) {
+            wal.awaitDurable(wal.append(WriteAheadLog.SAVE, ("record-" + i).getBytes(StandardCharsets.UTF_8)));
+        }
+        wal.close();
+
+        assertTrue(segments().size() > 1);
+        assertEquals(100, replay().size());
+    }
+
+    @Test
+    void testAsyncRecordsAreWrittenOnClose() {
+        WriteAheadLog wal = open(WalDurability.ASYNC, 1024 * 1024);
+        for (int i = 0; i < 1000; i++) {
+            wal.awaitDurable(wal.append(WriteAheadLog.SAVE, new byte[64]));
+        }
+        wal.close();
+
+        assertEquals(1000, replay().size());
+    }
+
+    @Test
+    void testTornTailIsTruncated() throws IOException {
+        WriteAheadLog wal = open(WalDurability.SYNC, 1024 * 1024);
+        wal.awaitDurable(wal.append(WriteAheadLog.SAVE, "complete".getBytes(StandardCharsets.UTF_8)));
+        wal.close();
+        Path segment = segments().get(0);
+        long validSize = Files.size(segment);
+        // A record header promising more bytes than were written before the crash.
+        Files.write(segment, new byte[]{0, 0, 0, 100, 1, 2, 3, 4, WriteAheadLog.SAVE, 'x'}, StandardOpenOption.APPEND);
+
+        assertEquals(List.of("complete"), replay());
+        assertEquals(validSize, Files.size(segment));
+    }
+
+    @Test
+    void testChecksumMismatchIsTreatedAsTornTail() throws IOException {
+        WriteAheadLog wal = open(WalDurability.SYNC, 1024 * 1024);
+        wal.awaitDurable(wal.append(WriteAheadLog.SAVE, "first".getBytes(StandardCharsets.UTF_8)));
+        wal.awaitDurable(wal.append(WriteAheadLog.SAVE, "second".getBytes(StandardCharsets.UTF_8)));
+        wal.close();
+        Path segment = segments().get(0);
+        byte[] bytes = Files.readAllBytes(segment);
+        bytes[bytes.length - 1] ^= 1;
+        Files.write(segment, bytes);
+
+        assertEquals(List.of("first"), replay());
+    }
+
+    @Test
+    void testCorruptSealedSegmentFailsReplay() throws IOException {
+        WriteAheadLog wal = open(WalDurability.SYNC, 256);
+        for (int i = 0; i < 100; i++) {
+            wal.awaitDurable(wal.append(WriteAheadLog.SAVE, ("record-" + i).getBytes(StandardCharsets.UTF_8)));
+        }
+        wal.close();
+        Path first = segments().get(0);
+        byte[] bytes = Files.readAllBytes(first);
+        bytes[bytes.length - 1] ^= 1;
+        Files.write(first, bytes);
+
+        assertThrows(IllegalStateException.class, this::replay);
+    }
+
+    @Test
+    void testAppendAfterCloseFails() {
+        WriteAheadLog wal = open(WalDurability.SYNC, 1024 * 1024);
+        wal.close();
+
+        assertThrows(IllegalStateException.class, () -> wal.append(WriteAheadLog.SAVE, new byte[1]));
+    }
+
+    private WriteAheadLog open(WalDurability durability, long segmentSize) {
+        WriteAheadLog wal = new WriteAheadLog(directory, segmentSize, durability, 10);
+        wal.replay((type, buffer, offset, length) -> { });
+        wal.start();
+        return wal;
+    }
+
+    private List<String> replay() {
+        List<String> records = new ArrayList<>();
+        new WriteAheadLog(directory, 1024 * 1024, WalDurability.SYNC, 10).replay((type, buffer, offset, length) -> {
+            assertEquals(WriteAheadLog.SAVE, type);
+            records.add(new String(buffer.array(), offset, length, StandardCharsets.UTF_8));
+        });
+        return records;
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.sorted().toList();
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.fetch.receiptprocessorchallenge.json;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.exc.MismatchedInputException;
+import com.fasterxml.jackson.databind.exc.UnrecognizedPropertyException;
+import com.fetch.receiptprocessorchallenge.dtos.ProcessReceiptRequest;
+import com.fetch.receiptprocessorchallenge.models.Item;
+import com.fetch.receiptprocessorchallenge.models.Money;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit test class for ProcessReceiptRequestDeserializer.class
+ * */
+class ProcessReceiptRequestDeserializerTest {
+    // Configured like Spring Boot's mapper, which ignores unknown fields.
+    private final ObjectMapper streaming = new ObjectMapper().findAndRegisterModules()
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+    private final ObjectMapper dataBinding = new ObjectMapper().findAndRegisterModules()
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+            .addMixIn(ProcessReceiptRequest.class, DataBound.class);
+
+    @JsonDeserialize(using = JsonDeserializer.None.class)
+    private abstract static class DataBound {
+    }
+
+    @Test
+    void testDeserialize_SameResultAsDataBinding() throws Exception {
+        List<String> payloads = List.of(
+                "{\"retailer\":\"M&M Corner Market\",\"purchaseDate\":\"2022-03-20\",\"purchaseTime\":\"14:33\","
+                        + "\"items\":[{\"shortDescription\":\"Gatorade\",\"price\":\"2.25\"},"
+                        + "{\"shortDescription\":\"Gatorade\",\"price\":\"2.25\"}],\"total\":\"4.50\"}",
+                // Any field order, amounts as numbers, and unknown fields at every level.
+                "{\"total\":9.00,\"items\":[{\"price\":9,\"note\":[1,{\"a\":2}],\"shortDescription\":\"Pepsi\"}],"
+                        + "\"purchaseTime\":\"08:13\",\"store\":{\"id\":7},\"retailer\":\"Target\",\"purchaseDate\":\"2024-02-29\"}",
+                // Seconds, which only the validator rejects, and a retailer sent as a number.
+                "{\"retailer\":7,\"purchaseDate\":\"2022-01-01\",\"purchaseTime\":\"13:01:30\",\"items\":[],\"total\":\"0\"}",
+                "{\"retailer\":null,\"purchaseDate\":null,\"purchaseTime\":null,\"items\":null,\"total\":null}",
+                "{}");
+        for (String payload : payloads) {
+            assertEquals(dataBinding.readValue(payload, ProcessReceiptRequest.class),
+                    streaming.readValue(payload, ProcessReceiptRequest.class), payload);
+        }
+    }
+
+    @Test
+    void testDeserialize_KeepsValuesThatBreakARuleForTheValidator() throws Exception {
+        ProcessReceiptRequest request = read("{\"purchaseDate\":\"2022-02-30\",\"purchaseTime\":\"24:00\","
+                + "\"items\":[{\"shortDescription\":\"Pepsi\",\"price\":\"2.255\"},null,{\"price\":{}}],\"total\":\"abc\"}");
+
+        assertEquals(ProcessReceiptRequestDeserializer.INVALID_DATE, request.getPurchaseDate());
+        assertEquals(ProcessReceiptRequestDeserializer.INVALID_TIME, request.getPurchaseTime());
+        assertEquals(List.of(new Item("Pepsi", Money.INVALID), new Item(null, Money.MISSING), new Item(null, Money.INVALID)),
+                request.getItems());
+        assertEquals(Money.INVALID, request.getTotalCents());
+
+        assertEquals(ProcessReceiptRequestDeserializer.INVALID_DATE, read("{\"purchaseDate\":\"2022/01/01\"}").getPurchaseDate());
+        assertEquals(ProcessReceiptRequestDeserializer.INVALID_DATE, read("{\"purchaseDate\":\"20220101\"}").getPurchaseDate());
+        assertEquals(ProcessReceiptRequestDeserializer.INVALID_TIME, read("{\"purchaseTime\":\"1:05\"}").getPurchaseTime());
+        assertEquals(ProcessReceiptRequestDeserializer.INVALID_TIME, read("{\"purchaseTime\":\"12:60\"}").getPurchaseTime());
+    }
+
+    @Test
+    void testDeserialize_ParsesDatesTimesAndAmountsFromTheTextBuffer() throws Exception {
+        ProcessReceiptRequest request = read("{\"purchaseDate\":\"0001-12-31\",\"purchaseTime\":\"00:00\","
+                + "\"items\":[{\"price\":\" 2.25 \"},{\"price\":0.5},{\"price\":\"\"}],\"total\":-1}");
+
+        assertEquals(LocalDate.of(1, 12, 31), request.getPurchaseDate());
+        assertEquals(LocalTime.MIDNIGHT, request.getPurchaseTime());
+        assertEquals(List.of(225L, 50L, Money.MISSING), request.getItems().stream().map(Item::getPriceCents).toList());
+        assertEquals(-100, request.getTotalCents());
+        assertEquals(LocalDate.of(2023, 2, 28), ProcessReceiptRequestDeserializer.parseDate("x2023-02-28".toCharArray(), 1));
+        assertEquals(ProcessReceiptRequestDeserializer.INVALID_DATE,
+                ProcessReceiptRequestDeserializer.parseDate("2023-02-29".toCharArray(), 0));
+    }
+
+    @Test
+    void testDeserialize_RejectsWrongShapesAtTheOffendingToken() throws Exception {
+        // The body is cut short after the offending token, so failing there proves the rest is never read.
+        assertThrows(MismatchedInputException.class, () -> read("{\"items\":\"Pepsi\",\"retailer\":"));
+        assertThrows(MismatchedInputException.class, () -> read("{\"items\":[\"Pepsi\",{"));
+        assertThrows(MismatchedInputException.class, () -> read("{\"retailer\":{\"name\":\"Target\"}}"));
+        assertThrows(MismatchedInputException.class, () -> read("[{\"retailer\":\"Target\"}]"));
+        assertNull(streaming.readValue("null", ProcessReceiptRequest.class));
+
+        ObjectMapper strict = new ObjectMapper().findAndRegisterModules();
+        assertThrows(UnrecognizedPropertyException.class,
+                () -> strict.readValue("{\"items\":[{\"price\":\"1.00\",\"sku\":1}]}", ProcessReceiptRequest.class));
+    }
+
+    private ProcessReceiptRequest read(String json) throws Exception {
+        return streaming.readValue(json, ProcessReceiptRequest.class);
+    }
+}
@@ -0,0 +1,182 @@
+package com.fetch.receiptprocessorchallenge.metrics;
+
+import com.fetch.receiptprocessorchallenge.dao.ReceiptDAO;
+import com.fetch.receiptprocessorchallenge.dao.ReceiptStoreProperties;
+import com.fetch.receiptprocessorchallenge.dtos.ProcessReceiptRequest;
+import com.fetch.receiptprocessorchallenge.models.Item;
+import com.fetch.receiptprocessorchallenge.models.Receipt;
+import com.fetch.receiptprocessorchallenge.rules.PointsRuleEngine;
+import com.fetch.receiptprocessorchallenge.service.ReceiptService;
+import com.fetch.receiptprocessorchallenge.service.ScoringMode;
+import com.fetch.receiptprocessorchallenge.service.ScoringQueue;
+import com.fetch.receiptprocessorchallenge.validation.ReceiptValidator;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit test class for ReceiptMetrics.class and ReceiptMeterBinder.class
+ * */
+class ReceiptMetricsTest {
+
+    private SimpleMeterRegistry registry;
+    private ReceiptMetrics receiptMetrics;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        receiptMetrics = new ReceiptMetrics(registry, true);
+    }
+
+    @Test
+    void testRecordsRequestsByEndpointAndOutcome() {
+        receiptMetrics.recordProcessRequest(receiptMetrics.start(), true);
+        receiptMetrics.recordProcessRequest(receiptMetrics.start(), false);
+        receiptMetrics.recordPointsRequest(receiptMetrics.start(), true);
+
+        assertEquals(1, registry.get("receipts.requests").tags("endpoint", "process", "outcome", "success").timer().count());
+        assertEquals(1, registry.get("receipts.requests").tags("endpoint", "process", "outcome", "failure").timer().count());
+        assertEquals(1, registry.get("receipts.requests").tags("endpoint", "points", "outcome", "success").timer().count());
+        assertEquals(0, registry.get("receipts.requests").tags("endpoint", "points", "outcome", "failure").timer().count());
+    }
+
+    @Test
+    void testRecordsStages() {
+        receiptMetrics.recordValidation(receiptMetrics.start());
+        receiptMetrics.recordScoring(receiptMetrics.start());
+        receiptMetrics.recordStorage(receiptMetrics.start());
+        receiptMetrics.recordStorage(receiptMetrics.start());
+
+        assertEquals(1, registry.get("receipts.stage").tag("stage", "validation").timer().count());
+        assertEquals(1, registry.get("receipts.stage").tag("stage", "scoring").timer().count());
+        assertEquals(2, registry.get("receipts.stage").tag("stage", "storage").timer().count());
+    }
+
+    @Test
+    void testValidatorCountsFailuresByReason() {
+        ReceiptValidator validator = new ReceiptValidator(receiptMetrics);
+        ProcessReceiptRequest request = new ProcessReceiptRequest();
+
+        assertThrows(IllegalArgumentException.class, () -> validator.validateProcessReceiptRequest(request));
+        assertThrows(IllegalArgumentException.class, () -> validator.validateProcessReceiptRequest(request));
+        assertThrows(RuntimeException.class, () -> validator.validateGetReceiptPointRequest("not-a-uuid"));
+
+        assertEquals(2, registry.get("receipts.validation.failures").tag("reason", "missing-retailer").counter().count());
+        assertEquals(1, registry.get("receipts.validation.failures").tag("reason", "invalid-id").counter().count());
+    }
+
+    @Test
+    void testRuleEngineTimesASampleOfScores() {
+        PointsRuleEngine engine = new PointsRuleEngine(PointsRuleEngine.defaultRules(), receiptMetrics);
+        Receipt receipt = Receipt.builder()
+                .id(UUID.randomUUID())
+                .retailer("Target")
+                .purchaseDate(LocalDate.of(2022, 1, 1))
+                .purchaseTime(LocalTime.of(13, 1))
+                .items(List.of(new Item("Mountain Dew 12PK", 649)))
+                .totalCents(649)
+                .build();
+
+        int expected = PointsRuleEngine.withDefaultRules().score(receipt);
+        int scores = 64 * 1_000;
+        for (int i = 0; i < scores; i++) {
+            assertEquals(expected, engine.score(receipt));
+        }
+
+        long timed = registry.get("receipts.scoring.rule").tag("rule", "item-pairs").timer().count();
+        assertTrue(timed > 0 && timed < scores / 16, "Timed " + timed + " of " + scores + " scores");
+    }
+
+    @Test
+    void testDisabledMetricsRecordNothing() {
+        ReceiptMetrics disabled = new ReceiptMetrics(registry, false);
+        disabled.recordProcessRequest(disabled.start(), true);
+        disabled.validationFailed("missing-retailer");
+
+        assertEquals(0, disabled.start());
+        assertNull(disabled.ruleTimer("item-pairs"));
+        assertEquals(0, registry.get("receipts.requests").tags("endpoint", "process", "outcome", "success").timer().count());
+        assertNull(registry.find("receipts.validation.failures").counter());
+    }
+
+    @Test
+    void testBinderExposesStoreAndScoringMeters() {
+        ReceiptDAO receiptDAO = new ReceiptDAO(ReceiptStoreProperties.defaults());
+        receiptDAO.save(Receipt.builder().id(UUID.randomUUID()).retailer("Target").items(List.of()).build());
+        ReceiptService receiptService = Mockito.mock(ReceiptService.class);
+        when(receiptService.getScoringHits()).thenReturn(3L);
+        when(receiptService.getScoringMisses()).thenReturn(1L);
+
+        new ReceiptMeterBinder(receiptDAO, receiptService).bindTo(registry);
+
+        assertEquals(1, registry.get("receipts.store.size").gauge().value());
+        assertEquals(receiptDAO.estimatedMemoryBytes(), registry.get("receipts.store.memory").gauge().value());
+        assertEquals(3, registry.get("receipts.scoring.hits").functionCounter().count());
+        assertEquals(1, registry.get("receipts.scoring.misses").functionCounter().count());
+    }
+
+    @Test
+    void testBinderExposesTierMetersOfABudgetedStore() {
+        ReceiptDAO receiptDAO = new ReceiptDAO(ReceiptStoreProperties.defaults().toBuilder()
+                .memoryBudgetBytes(16 * 1024 * 1024)
+                .build());
+        Receipt receipt = Receipt.builder().id(UUID.randomUUID()).retailer("Target").items(List.of()).build();
+        receiptDAO.save(receipt);
+        receiptDAO.findById(receipt.getId().toString());
+        receiptDAO.findById(UUID.randomUUID().toString());
+
+        new ReceiptMeterBinder(receiptDAO, Mockito.mock(ReceiptService.class)).bindTo(registry);
+
+        assertEquals(1, registry.get("receipts.store.resident").gauge().value());
+        assertEquals(0, registry.get("receipts.store.spilled").gauge().value());
+        assertEquals(1, registry.get("receipts.store.lookups").tag("tier", "memory").functionCounter().count());
+        assertEquals(0, registry.get("receipts.store.lookups").tag("tier", "disk").functionCounter().count());
+        assertEquals(1, registry.get("receipts.store.lookups").tag("tier", "none").functionCounter().count());
+        assertEquals(1, registry.get("receipts.store.hit.ratio").gauge().value());
+        assertEquals(0, registry.get("receipts.store.spill.written.bytes").functionCounter().count());
+    }
+
+    @Test
+    void testBinderSkipsTierMetersOfAnUnboundedStore() {
+        new ReceiptMeterBinder(new ReceiptDAO(ReceiptStoreProperties.defaults()), Mockito.mock(ReceiptService.class))
+                .bindTo(registry);
+
+        assertNull(registry.find("receipts.store.resident").gauge());
+    }
+
+    @Test
+    void testBinderExposesScoringQueueMetersInAsyncMode() {
+        ReceiptService receiptService = Mockito.mock(ReceiptService.class);
+        ScoringQueue scoringQueue = Mockito.mock(ScoringQueue.class);
+        when(receiptService.getScoringMode()).thenReturn(ScoringMode.ASYNC);
+        when(receiptService.getScoringQueue()).thenReturn(scoringQueue);
+        when(scoringQueue.getDepth()).thenReturn(7);
+        when(scoringQueue.getCapacity()).thenReturn(100);
+        when(scoringQueue.getRejected()).thenReturn(2L);
+
+        new ReceiptMeterBinder(new ReceiptDAO(ReceiptStoreProperties.defaults()), receiptService).bindTo(registry);
+        receiptMetrics.recordScoringLag(receiptMetrics.start());
+
+        assertEquals(7, registry.get("receipts.scoring.queue.depth").gauge().value());
+        assertEquals(100, registry.get("receipts.scoring.queue.capacity").gauge().value());
+        assertEquals(2, registry.get("receipts.scoring.queue.rejected").functionCounter().count());
+        assertEquals(1, registry.get("receipts.scoring.lag").timer().count());
+    }
+
+    @Test
+    void testBinderSkipsScoringQueueMetersInOtherModes() {
+        new ReceiptMeterBinder(new ReceiptDAO(ReceiptStoreProperties.defaults()), Mockito.mock(ReceiptService.class))
+                .bindTo(registry);
+
+        assertNull(registry.find("receipts.scoring.queue.depth").gauge());
+    }
+}
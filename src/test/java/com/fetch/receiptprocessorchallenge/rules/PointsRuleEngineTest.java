@@ -0,0 +1,191 @@
+package com.fetch.receiptprocessorchallenge.rules;
+
+import com.fetch.receiptprocessorchallenge.models.Item;
+import com.fetch.receiptprocessorchallenge.models.Receipt;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit test class for PointsRuleEngine.class
+ * */
+class PointsRuleEngineTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testDefaultRulesScoreReferenceReceipts() {
+        PointsRuleEngine engine = PointsRuleEngine.withDefaultRules();
+
+        assertEquals(28, engine.score(targetReceipt()));
+        assertEquals(109, engine.score(cornerMarketReceipt()));
+    }
+
+    @Test
+    void testBreakdownSumsToScore() {
+        PointsRuleEngine engine = PointsRuleEngine.withDefaultRules();
+
+        Map<String, Integer> breakdown = engine.breakdown(cornerMarketReceipt());
+
+        assertEquals(List.of("retailer-name", "round-dollar-total", "quarter-total", "item-pairs",
+                "item-description", "odd-purchase-day", "afternoon-purchase"), List.copyOf(breakdown.keySet()));
+        assertEquals(14, breakdown.get("retailer-name"));
+        assertEquals(10, breakdown.get("afternoon-purchase"));
+        assertEquals(109, breakdown.values().stream().mapToInt(Integer::intValue).sum());
+    }
+
+    @Test
+    void testConfigurationDisablesAndWeightsRules() {
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("receipts.scoring.rules.round-dollar-total.enabled", "false")
+                .withProperty("receipts.scoring.rules.afternoon-purchase.weight", "3");
+
+        PointsRuleEngine engine = new PointsRuleEngine(PointsRuleEngine.defaultRules(), environment, "", 5);
+
+        assertFalse(engine.activeRules().containsKey("round-dollar-total"));
+        assertEquals(3, engine.activeRules().get("afternoon-purchase"));
+        assertEquals(109 - 50 + 20, engine.score(cornerMarketReceipt()));
+    }
+
+    @Test
+    void testZeroWeightDeactivatesRule() {
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("receipts.scoring.rules.retailer-name.weight", "0");
+
+        PointsRuleEngine engine = new PointsRuleEngine(PointsRuleEngine.defaultRules(), environment, "", 5);
+
+        assertFalse(engine.activeRules().containsKey("retailer-name"));
+    }
+
+    @Test
+    void testInvalidConfigurationIsRejected() {
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("receipts.scoring.rules.item-pairs.weight", "-1");
+
+        Exception exception = assertThrows(IllegalArgumentException.class,
+                () -> new PointsRuleEngine(PointsRuleEngine.defaultRules(), environment, "", 5));
+
+        assertEquals("Weight of points rule item-pairs must not be negative.", exception.getMessage());
+    }
+
+    @Test
+    void testDuplicateRuleNamesAreRejected() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new PointsRuleEngine(List.of(new ItemPairsRule(), new ItemPairsRule())));
+    }
+
+    @Test
+    void testReloadAppliesRulesFile() throws IOException {
+        Path rulesFile = tempDir.resolve("rules.properties");
+        Files.writeString(rulesFile, "receipts.scoring.rules.odd-purchase-day.weight=2\n");
+        PointsRuleEngine engine = new PointsRuleEngine(PointsRuleEngine.defaultRules(), new MockEnvironment(),
+                rulesFile.toString(), 3600);
+        try {
+            assertEquals(2, engine.activeRules().get("odd-purchase-day"));
+
+            Files.writeString(rulesFile, "receipts.scoring.rules.odd-purchase-day.enabled=false\n");
+            engine.reload();
+
+            assertFalse(engine.activeRules().containsKey("odd-purchase-day"));
+            assertEquals(6, engine.activeRules().size());
+        } finally {
+            engine.shutdown();
+        }
+    }
+
+    @Test
+    void testFailedReloadKeepsActiveRules() throws IOException {
+        Path rulesFile = tempDir.resolve("rules.properties");
+        Files.writeString(rulesFile, "receipts.scoring.rules.item-pairs.weight=2\n");
+        PointsRuleEngine engine = new PointsRuleEngine(PointsRuleEngine.defaultRules(), new MockEnvironment(),
+                rulesFile.toString(), 3600);
+        try {
+            Files.writeString(rulesFile, "receipts.scoring.rules.item-pairs.weight=many\n");
+
+            assertThrows(IllegalArgumentException.class, engine::reload);
+            assertEquals(2, engine.activeRules().get("item-pairs"));
+        } finally {
+            engine.shutdown();
+        }
+    }
+
+    @Test
+    void testHugeWeightIsRejected() throws IOException {
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("receipts.scoring.rules.item-pairs.weight", "1001");
+        Exception exception = assertThrows(IllegalArgumentException.class,
+                () -> new PointsRuleEngine(PointsRuleEngine.defaultRules(), environment, "", 5));
+        assertEquals("Weight of points rule item-pairs must be at most 1000, not 1001.", exception.getMessage());
+
+        Path rulesFile = tempDir.resolve("rules.properties");
+        Files.writeString(rulesFile, "receipts.scoring.rules.item-pairs.weight=2\n");
+        PointsRuleEngine engine = new PointsRuleEngine(PointsRuleEngine.defaultRules(), new MockEnvironment(),
+                rulesFile.toString(), 3600);
+        try {
+            // Would overflow the score of a receipt with a single pair of items.
+            Files.writeString(rulesFile, "receipts.scoring.rules.item-pairs.weight=" + Integer.MAX_VALUE + "\n");
+
+            assertThrows(IllegalArgumentException.class, engine::reload);
+            assertEquals(2, engine.activeRules().get("item-pairs"));
+        } finally {
+            engine.shutdown();
+        }
+    }
+
+    @Test
+    void testZeroReloadIntervalLoadsRulesFileOnce() throws IOException {
+        Path rulesFile = tempDir.resolve("rules.properties");
+        Files.writeString(rulesFile, "receipts.scoring.rules.item-pairs.weight=2\n");
+        PointsRuleEngine engine = new PointsRuleEngine(PointsRuleEngine.defaultRules(), new MockEnvironment(),
+                rulesFile.toString(), 0);
+
+        assertEquals(2, engine.activeRules().get("item-pairs"));
+        engine.shutdown();
+        assertThrows(IllegalArgumentException.class, () -> new PointsRuleEngine(PointsRuleEngine.defaultRules(),
+                new MockEnvironment(), rulesFile.toString(), -1));
+    }
+
+    @Test
+    void testEmptyRuleSetScoresZero() {
+        PointsRuleEngine engine = new PointsRuleEngine(Collections.emptyList());
+
+        assertEquals(0, engine.score(targetReceipt()));
+    }
+
+    private Receipt targetReceipt() {
+        return Receipt.builder()
+                .retailer("Target")
+                .purchaseDate(LocalDate.of(2022, 1, 1))
+                .purchaseTime(LocalTime.of(13, 1))
+                .items(List.of(new Item("Mountain Dew 12PK", 649),
+                        new Item("Emils Cheese Pizza", 1225),
+                        new Item("Knorr Creamy Chicken", 126),
+                        new Item("Doritos Nacho Cheese", 335),
+                        new Item("   Klarbrunn 12-PK 12 FL OZ  ", 1200)))
+                .totalCents(3535)
+                .build();
+    }
+
+    private Receipt cornerMarketReceipt() {
+        return Receipt.builder()
+                .retailer("M&M Corner Market")
+                .purchaseDate(LocalDate.of(2022, 3, 20))
+                .purchaseTime(LocalTime.of(14, 33))
+                .items(List.of(new Item("Gatorade", 225), new Item("Gatorade", 225),
+                        new Item("Gatorade", 225), new Item("Gatorade", 225)))
+                .totalCents(900)
+                .build();
+    }
+}
@@ -0,0 +1,83 @@
+package com.fetch.receiptprocessorchallenge.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit test class for PointsCache.class
+ * */
+class PointsCacheTest {
+
+    @Test
+    void testGet_ReturnsTheCachedPointsOfTheSameIdOnly() {
+        PointsCache cache = new PointsCache(16);
+        UUID id = UUID.randomUUID();
+
+        assertNull(cache.get(id.getMostSignificantBits(), id.getLeastSignificantBits()));
+        cache.put(id.getMostSignificantBits(), id.getLeastSignificantBits(), 109, cache.stamp());
+
+        assertEquals(109, cache.get(id.getMostSignificantBits(), id.getLeastSignificantBits()));
+        assertNull(cache.get(id.getMostSignificantBits(), id.getLeastSignificantBits() + 1));
+        assertEquals(1, cache.getHits());
+        assertEquals(2, cache.getMisses());
+    }
+
+    @Test
+    void testPut_ReplacesTheIdInTheSameSlot() {
+        PointsCache cache = new PointsCache(1);
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+
+        cache.put(first.getMostSignificantBits(), first.getLeastSignificantBits(), 28, cache.stamp());
+        cache.put(second.getMostSignificantBits(), second.getLeastSignificantBits(), 109, cache.stamp());
+
+        assertNull(cache.get(first.getMostSignificantBits(), first.getLeastSignificantBits()));
+        assertEquals(109, cache.get(second.getMostSignificantBits(), second.getLeastSignificantBits()));
+    }
+
+    @Test
+    void testRemove_ForgetsTheIdOnly() {
+        PointsCache cache = new PointsCache(1);
+        UUID cached = UUID.randomUUID();
+        UUID other = UUID.randomUUID();
+        cache.put(cached.getMostSignificantBits(), cached.getLeastSignificantBits(), 28, cache.stamp());
+
+        cache.remove(other.getMostSignificantBits(), other.getLeastSignificantBits());
+        assertEquals(28, cache.get(cached.getMostSignificantBits(), cached.getLeastSignificantBits()));
+
+        cache.remove(cached.getMostSignificantBits(), cached.getLeastSignificantBits());
+        assertNull(cache.get(cached.getMostSignificantBits(), cached.getLeastSignificantBits()));
+    }
+
+    @Test
+    void testPut_SkippedWhenAReceiptWasRemovedSinceTheStamp() {
+        PointsCache cache = new PointsCache(16);
+        UUID id = UUID.randomUUID();
+
+        long stamp = cache.stamp();
+        cache.remove(id.getMostSignificantBits(), id.getLeastSignificantBits());
+        cache.put(id.getMostSignificantBits(), id.getLeastSignificantBits(), 109, stamp);
+        assertNull(cache.get(id.getMostSignificantBits(), id.getLeastSignificantBits()));
+
+        cache.put(id.getMostSignificantBits(), id.getLeastSignificantBits(), 109, cache.stamp());
+        assertEquals(109, cache.get(id.getMostSignificantBits(), id.getLeastSignificantBits()));
+    }
+
+    @Test
+    void testSize_RoundedUpToAPowerOfTwoOrDisabled() {
+        assertEquals(4096, new PointsCache(4096).getSize());
+        assertEquals(8, new PointsCache(5).getSize());
+        assertEquals(1, new PointsCache(1).getSize());
+
+        PointsCache disabled = PointsCache.disabled();
+        disabled.put(1, 2, 3, disabled.stamp());
+        disabled.remove(1, 2);
+        assertFalse(disabled.isEnabled());
+        assertNull(disabled.get(1, 2));
+        assertEquals(0, disabled.getMisses());
+        assertThrows(IllegalArgumentException.class, () -> new PointsCache(-1));
+    }
+}
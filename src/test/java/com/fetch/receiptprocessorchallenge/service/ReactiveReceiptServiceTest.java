@@ -0,0 +1,204 @@
+package com.fetch.receiptprocessorchallenge.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fetch.receiptprocessorchallenge.dao.ReactiveReceiptDAO;
+import com.fetch.receiptprocessorchallenge.dao.ReceiptDAO;
+import com.fetch.receiptprocessorchallenge.dao.ReceiptStoreProperties;
+import com.fetch.receiptprocessorchallenge.dtos.ImportLineResponse;
+import com.fetch.receiptprocessorchallenge.dtos.ProcessReceiptBatchResponse;
+import com.fetch.receiptprocessorchallenge.dtos.ProcessReceiptRequest;
+import com.fetch.receiptprocessorchallenge.dtos.ProcessReceiptResponse;
+import com.fetch.receiptprocessorchallenge.metrics.ReceiptMetrics;
+import com.fetch.receiptprocessorchallenge.models.Item;
+import com.fetch.receiptprocessorchallenge.validation.ReceiptValidator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit test class for ReactiveReceiptService.class
+ * */
+class ReactiveReceiptServiceTest {
+    private static final String VALID_RECEIPT = "{\"retailer\":\"Target\",\"purchaseDate\":\"2022-01-01\","
+            + "\"purchaseTime\":\"13:01\",\"items\":[{\"shortDescription\":\"Mountain Dew 12PK\",\"price\":\"6.49\"}],"
+            + "\"total\":\"6.49\"}";
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private ReceiptDAO receiptDAO;
+    private ReceiptService receiptService;
+    private ReceiptBatchService receiptBatchService;
+    private ReactiveReceiptService reactiveReceiptService;
+
+    @BeforeEach
+    void setUp() {
+        createServices(ScoringMode.EAGER, 10_000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        receiptBatchService.shutdown();
+    }
+
+    @Test
+    void testProcessReceipt_SameResultsAsServletStack() {
+        ProcessReceiptRequest request = createValidRequest();
+
+        String reactiveId = reactiveReceiptService.processReceipt(request).block().getId();
+        String servletId = receiptService.processReceipt(request).getId();
+
+        assertEquals(2, receiptDAO.size());
+        assertEquals(receiptService.getReceiptPoints(servletId, true),
+                reactiveReceiptService.getReceiptPoints(reactiveId, true).block());
+        assertEquals(reactiveReceiptService.getReceiptPoints(servletId, true).block(),
+                receiptService.getReceiptPoints(reactiveId, true));
+    }
+
+    @Test
+    void testGetReceiptPoints_LazyScoresOnceAndMemoizes() {
+        receiptBatchService.shutdown();
+        createServices(ScoringMode.LAZY, 10_000);
+        String id = reactiveReceiptService.processReceipt(createValidRequest()).block().getId();
+        assertNull(receiptDAO.findById(id).get().getPoints());
+
+        int points = reactiveReceiptService.getReceiptPoints(id, false).block().getPoints();
+        int again = reactiveReceiptService.getReceiptPoints(id, false).block().getPoints();
+
+        assertEquals(points, again);
+        assertEquals(points, receiptDAO.findById(id).get().getPoints());
+        assertEquals(1, receiptService.getScoringMisses());
+        assertEquals(1, receiptService.getScoringHits());
+    }
+
+    @Test
+    void testGetReceiptPoints_UnknownId() {
+        String id = UUID.randomUUID().toString();
+
+        StepVerifier.create(reactiveReceiptService.getReceiptPoints(id, false))
+                .expectErrorMessage(String.format("Receipt with Id %s is not found.", id))
+                .verify();
+    }
+
+    @Test
+    void testProcessReceipts_SameResultsAsServletStack() {
+        List<ProcessReceiptRequest> requests = new ArrayList<>();
+        for (int i = 0; i < 1_000; i++) {
+            ProcessReceiptRequest request = createValidRequest();
+            if (i % 10 == 0) {
+                request.setRetailer(null);
+            }
+            requests.add(request);
+        }
+
+        ProcessReceiptBatchResponse reactive = reactiveReceiptService.processReceipts(Flux.fromIterable(requests)).block();
+        ProcessReceiptBatchResponse servlet = receiptBatchService.processReceipts(requests);
+
+        assertEquals(requests.size(), reactive.getResults().size());
+        for (int i = 0; i < requests.size(); i++) {
+            ProcessReceiptResponse result = reactive.getResults().get(i);
+            assertEquals(servlet.getResults().get(i).getErrorMessage(), result.getErrorMessage());
+            if (result.getErrorMessage() == null) {
+                assertEquals(receiptService.getReceiptPoints(servlet.getResults().get(i).getId()),
+                        receiptService.getReceiptPoints(result.getId()));
+            }
+        }
+        assertEquals(1_800, receiptDAO.size());
+    }
+
+    @Test
+    void testProcessReceipts_OversizedBatchReadsOnlyPastTheMaximum() {
+        receiptBatchService.shutdown();
+        createServices(ScoringMode.EAGER, 2);
+        AtomicLong requested = new AtomicLong();
+        Flux<ProcessReceiptRequest> requests = Flux.range(0, 1_000)
+                .map(i -> createValidRequest())
+                .doOnRequest(n -> requested.addAndGet(Math.min(n, 1_000)));
+
+        StepVerifier.create(reactiveReceiptService.processReceipts(requests))
+                .expectErrorMessage("A batch can contain at most 2 receipts.")
+                .verify();
+        assertEquals(3, requested.get());
+        assertEquals(0, receiptDAO.size());
+    }
+
+    @Test
+    void testProcessReceipts_RejectsEmptyBatch() {
+        StepVerifier.create(reactiveReceiptService.processReceipts(Flux.empty()))
+                .expectErrorMessage("At least one receipt is required.")
+                .verify();
+    }
+
+    @Test
+    void testImportReceipts_SameResultsAsServletStack() throws Exception {
+        String input = VALID_RECEIPT + "\n"
+                + "\n"
+                + "{\"retailer\":\"Target\"\n"
+                + VALID_RECEIPT.replace("Target", "") + "\n"
+                + VALID_RECEIPT + "\n";
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        new ReceiptImportService(receiptService, new ReceiptValidator(), objectMapper, 5)
+                .importReceipts(new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)), output);
+        String[] servlet = output.toString(StandardCharsets.UTF_8).split("\n");
+
+        List<ImportLineResponse> reactive = reactiveReceiptService
+                .importReceipts(Flux.fromArray(input.split("\n", -1)))
+                .collectList().block();
+
+        assertEquals(servlet.length, reactive.size());
+        for (int i = 0; i < servlet.length; i++) {
+            JsonNode expected = objectMapper.readTree(servlet[i]);
+            JsonNode actual = objectMapper.valueToTree(reactive.get(i));
+            assertEquals(expected.get("line").asLong(), actual.get("line").asLong());
+            assertEquals(expected.has("id"), actual.has("id"));
+            assertEquals(expected.get("errorMessage"), actual.get("errorMessage"));
+        }
+        assertEquals(4, receiptDAO.size());
+    }
+
+    @Test
+    void testImportReceipts_ReadsLinesAsReceiptsAreStored() {
+        AtomicLong requested = new AtomicLong();
+        Flux<String> lines = Flux.range(0, 10_000)
+                .map(i -> VALID_RECEIPT)
+                .doOnRequest(n -> requested.addAndGet(Math.min(n, 10_000)));
+
+        StepVerifier.create(reactiveReceiptService.importReceipts(lines), 1)
+                .expectNextCount(1)
+                .thenCancel()
+                .verify();
+        assertTrue(requested.get() < 10_000, "Requested " + requested.get() + " lines for one result");
+    }
+
+    private void createServices(ScoringMode scoringMode, int maxBatchSize) {
+        receiptDAO = new ReceiptDAO(ReceiptStoreProperties.defaults());
+        receiptService = ReceiptService.builder(receiptDAO).scoringMode(scoringMode).build();
+        ReceiptValidator receiptValidator = new ReceiptValidator();
+        receiptBatchService = new ReceiptBatchService(receiptService, receiptValidator, receiptDAO, 4, 16, maxBatchSize);
+        reactiveReceiptService = new ReactiveReceiptService(receiptService, receiptBatchService, receiptValidator,
+                new ReactiveReceiptDAO(receiptDAO), ReceiptMetrics.disabled(), objectMapper);
+    }
+
+    private ProcessReceiptRequest createValidRequest() {
+        ProcessReceiptRequest request = new ProcessReceiptRequest();
+        request.setRetailer("Target");
+        request.setPurchaseDate(LocalDate.of(2022, 1, 1));
+        request.setPurchaseTime(LocalTime.of(13, 1));
+        request.setItems(List.of(new Item("Mountain Dew 12PK", 649), new Item("Emils Cheese Pizza", 1225)));
+        request.setTotalCents(1874);
+        return request;
+    }
+}
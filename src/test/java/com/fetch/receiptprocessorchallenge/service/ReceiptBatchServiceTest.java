@@ -0,0 +1,105 @@
+package com.fetch.receiptprocessorchallenge.service;
+
+import com.fetch.receiptprocessorchallenge.dao.ReceiptDAO;
+import com.fetch.receiptprocessorchallenge.dao.ReceiptStoreProperties;
+import com.fetch.receiptprocessorchallenge.dtos.ProcessReceiptBatchResponse;
+import com.fetch.receiptprocessorchallenge.dtos.ProcessReceiptRequest;
+import com.fetch.receiptprocessorchallenge.dtos.ProcessReceiptResponse;
+import com.fetch.receiptprocessorchallenge.models.Item;
+import com.fetch.receiptprocessorchallenge.validation.ReceiptValidator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit test class for ReceiptBatchService.class
+ * */
+class ReceiptBatchServiceTest {
+
+    private ReceiptDAO receiptDAO;
+    private ReceiptBatchService receiptBatchService;
+
+    @BeforeEach
+    void setUp() {
+        receiptDAO = new ReceiptDAO(ReceiptStoreProperties.defaults());
+        ReceiptService receiptService = ReceiptService.builder(receiptDAO).build();
+        receiptBatchService = new ReceiptBatchService(receiptService, new ReceiptValidator(), receiptDAO, 4, 16, 10_000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        receiptBatchService.shutdown();
+    }
+
+    @Test
+    void testProcessReceipts_ResultsInInputOrder() {
+        List<ProcessReceiptRequest> requests = new ArrayList<>();
+        for (int i = 0; i < 1_000; i++) {
+            ProcessReceiptRequest request = createValidRequest();
+            if (i % 10 == 0) {
+                request.setRetailer(null);
+            }
+            requests.add(request);
+        }
+
+        ProcessReceiptBatchResponse response = receiptBatchService.processReceipts(requests);
+
+        assertEquals(requests.size(), response.getResults().size());
+        for (int i = 0; i < requests.size(); i++) {
+            ProcessReceiptResponse result = response.getResults().get(i);
+            if (i % 10 == 0) {
+                assertNull(result.getId());
+                assertEquals("Retailer name is required.", result.getErrorMessage());
+            } else {
+                assertNull(result.getErrorMessage());
+                assertTrue(receiptDAO.findById(result.getId()).isPresent());
+            }
+        }
+        assertEquals(900, receiptDAO.size());
+    }
+
+    @Test
+    void testProcessReceipts_SmallBatchRunsInline() {
+        ProcessReceiptBatchResponse response = receiptBatchService.processReceipts(
+                Collections.singletonList(createValidRequest()));
+
+        assertEquals(1, response.getResults().size());
+        assertNotNull(receiptDAO.findById(response.getResults().get(0).getId()).get().getPoints());
+    }
+
+    @Test
+    void testProcessReceipts_RejectsEmptyBatch() {
+        Exception exception = assertThrows(IllegalArgumentException.class,
+                () -> receiptBatchService.processReceipts(Collections.emptyList()));
+        assertEquals("At least one receipt is required.", exception.getMessage());
+    }
+
+    @Test
+    void testProcessReceipts_RejectsOversizedBatch() {
+        receiptBatchService.shutdown();
+        receiptBatchService = new ReceiptBatchService(ReceiptService.builder(receiptDAO).build(),
+                new ReceiptValidator(), receiptDAO, 4, 16, 1);
+
+        Exception exception = assertThrows(IllegalArgumentException.class,
+                () -> receiptBatchService.processReceipts(List.of(createValidRequest(), createValidRequest())));
+        assertEquals("A batch can contain at most 1 receipts.", exception.getMessage());
+    }
+
+    private ProcessReceiptRequest createValidRequest() {
+        ProcessReceiptRequest request = new ProcessReceiptRequest();
+        request.setRetailer("Target");
+        request.setPurchaseDate(LocalDate.of(2022, 1, 1));
+        request.setPurchaseTime(LocalTime.of(13, 1));
+        request.setItems(List.of(new Item("Mountain Dew 12PK", 649), new Item("Emils Cheese Pizza", 1225)));
+        request.setTotalCents(1874);
+        return request;
+    }
+}
@@ -0,0 +1,272 @@
+package com.fetch.receiptprocessorchallenge.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fetch.receiptprocessorchallenge.dao.ReceiptDAO;
+import com.fetch.receiptprocessorchallenge.dao.ReceiptStoreProperties;
+import com.fetch.receiptprocessorchallenge.dtos.ProcessReceiptBatchResponse;
+import com.fetch.receiptprocessorchallenge.dtos.ProcessReceiptRequest;
+import com.fetch.receiptprocessorchallenge.models.Item;
+import com.fetch.receiptprocessorchallenge.models.Receipt;
+import com.fetch.receiptprocessorchallenge.validation.ReceiptValidator;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit test class for ReceiptDeduplicator.class
+ * */
+class ReceiptDeduplicatorTest {
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    @Test
+    void testProcessReceipt_DedupModeStoresContentOnce() {
+        ReceiptDAO receiptDAO = new ReceiptDAO(ReceiptStoreProperties.defaults());
+        ReceiptDeduplicator deduplicator = new ReceiptDeduplicator(true, 100, 100);
+        ReceiptService receiptService = createService(receiptDAO, deduplicator);
+
+        String first = receiptService.processReceipt(createValidRequest()).getId();
+        String retry = receiptService.processReceipt(createValidRequest()).getId();
+        ProcessReceiptRequest other = createValidRequest();
+        other.setPurchaseTime(LocalTime.of(13, 2));
+        String different = receiptService.processReceipt(other).getId();
+
+        assertEquals(first, retry);
+        assertNotEquals(first, different);
+        assertEquals(2, receiptDAO.size());
+        assertEquals(1, deduplicator.getHits());
+        assertEquals(2, deduplicator.getMisses());
+    }
+
+    @Test
+    void testFingerprint_IgnoresJsonFormattingButNotContent() throws Exception {
+        String receipt = "{\"retailer\":\"Target\",\"purchaseDate\":\"2022-01-01\",\"purchaseTime\":\"13:01\","
+                + "\"items\":[{\"shortDescription\":\"Pepsi\",\"price\":\"1.25\"},"
+                + "{\"shortDescription\":\"Dasani\",\"price\":\"1.40\"}],\"total\":\"2.65\"}";
+        String reformatted = "{ \"total\": 2.65, \"retailer\": \"Target\", \"purchaseTime\": \"13:01\","
+                + " \"purchaseDate\": \"2022-01-01\", \"items\": [{\"price\": 1.25, \"shortDescription\": \"Pepsi\"},"
+                + " {\"price\": \"1.4\", \"shortDescription\": \"Dasani\"}] }";
+        String reordered = receipt.replace("Pepsi", "@").replace("Dasani", "Pepsi").replace("@", "Dasani")
+                .replace("1.25", "@").replace("1.40", "1.25").replace("@", "1.40");
+
+        ReceiptFingerprint fingerprint = ReceiptFingerprint.of(read(receipt));
+
+        assertEquals(fingerprint, ReceiptFingerprint.of(read(reformatted)));
+        assertNotEquals(fingerprint, ReceiptFingerprint.of(read(reordered)));
+        assertNotEquals(fingerprint, ReceiptFingerprint.of(read(receipt.replace("Target", "Targets"))));
+        assertNotEquals(fingerprint, ReceiptFingerprint.of(read(receipt.replace("Pepsi", "Peps"))));
+    }
+
+    @Test
+    void testProcessReceipt_IdempotencyKeyWithoutDedupMode() {
+        ReceiptDAO receiptDAO = new ReceiptDAO(ReceiptStoreProperties.defaults());
+        ReceiptService receiptService = createService(receiptDAO, ReceiptDeduplicator.keysOnly());
+
+        String first = receiptService.processReceipt(createValidRequest(), "order-1").getId();
+        String retry = receiptService.processReceipt(createValidRequest(), "order-1").getId();
+        String withoutKey = receiptService.processReceipt(createValidRequest()).getId();
+
+        assertEquals(first, retry);
+        assertNotEquals(first, withoutKey);
+        assertEquals(2, receiptDAO.size());
+
+        ProcessReceiptRequest other = createValidRequest();
+        other.setRetailer("Walgreens");
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> receiptService.processReceipt(other, "order-1"));
+        assertEquals("Idempotency-Key order-1 was already used for a different receipt.", e.getMessage());
+    }
+
+    @Test
+    void testProcessReceipt_NewKeyForKnownContentReturnsTheOriginal() {
+        ReceiptDAO receiptDAO = new ReceiptDAO(ReceiptStoreProperties.defaults());
+        ReceiptService receiptService = createService(receiptDAO, new ReceiptDeduplicator(true, 100, 100));
+
+        String first = receiptService.processReceipt(createValidRequest()).getId();
+        String keyed = receiptService.processReceipt(createValidRequest(), "order-2").getId();
+        String keyedRetry = receiptService.processReceipt(createValidRequest(), "order-2").getId();
+
+        assertEquals(first, keyed);
+        assertEquals(first, keyedRetry);
+        assertEquals(1, receiptDAO.size());
+    }
+
+    @Test
+    void testProcessReceipt_ConcurrentDuplicatesStoreOnce() throws Exception {
+        ReceiptDAO receiptDAO = new ReceiptDAO(ReceiptStoreProperties.defaults());
+        ReceiptService receiptService = createService(receiptDAO, new ReceiptDeduplicator(true, 100, 100));
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<String>> ids = new ArrayList<>();
+            for (int i = 0; i < 64; i++) {
+                ids.add(executor.submit(() -> {
+                    start.await();
+                    String id = receiptService.processReceipt(createValidRequest()).getId();
+                    // Every duplicate answers only once the original is stored.
+                    assertTrue(receiptDAO.findById(id).isPresent());
+                    return id;
+                }));
+            }
+            start.countDown();
+            Set<String> distinct = new HashSet<>();
+            for (Future<String> id : ids) {
+                distinct.add(id.get());
+            }
+            assertEquals(1, distinct.size());
+            assertEquals(1, receiptDAO.size());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testProcessReceipt_FailedOriginalIsStoredByTheNextDuplicate() {
+        ReceiptDAO receiptDAO = Mockito.mock(ReceiptDAO.class);
+        when(receiptDAO.save(any())).thenThrow(new IllegalStateException("Disk full"))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+        ReceiptService receiptService = createService(receiptDAO, new ReceiptDeduplicator(true, 100, 100));
+
+        assertThrows(IllegalStateException.class, () -> receiptService.processReceipt(createValidRequest(), "order-3"));
+        String retry = receiptService.processReceipt(createValidRequest(), "order-3").getId();
+
+        assertNotNull(retry);
+        Mockito.verify(receiptDAO, Mockito.times(2)).save(any(Receipt.class));
+    }
+
+    @Test
+    void testProcessReceipts_BatchDedupsWithinAndAcrossRequests() {
+        ReceiptDAO receiptDAO = new ReceiptDAO(ReceiptStoreProperties.defaults());
+        ReceiptService receiptService = createService(receiptDAO, new ReceiptDeduplicator(true, 100, 100));
+        ReceiptBatchService batchService = new ReceiptBatchService(receiptService, new ReceiptValidator(),
+                receiptDAO, 4, 16, 10_000);
+        try {
+            String single = receiptService.processReceipt(createValidRequest()).getId();
+            List<ProcessReceiptRequest> requests = new ArrayList<>();
+            for (int i = 0; i < 500; i++) {
+                ProcessReceiptRequest request = createValidRequest();
+                request.setPurchaseDate(LocalDate.of(2022, 1, 1).plusDays(i % 100));
+                requests.add(request);
+            }
+
+            ProcessReceiptBatchResponse response = batchService.processReceipts(requests);
+
+            assertEquals(single, response.getResults().get(0).getId());
+            for (int i = 100; i < requests.size(); i++) {
+                assertEquals(response.getResults().get(i % 100).getId(), response.getResults().get(i).getId());
+            }
+            assertEquals(100, receiptDAO.size());
+            assertTrue(receiptDAO.findById(response.getResults().get(99).getId()).isPresent());
+        } finally {
+            batchService.shutdown();
+        }
+    }
+
+    @Test
+    void testClaim_ForgetsTheOldestKeys() {
+        ReceiptDeduplicator deduplicator = new ReceiptDeduplicator(false, 100, 2);
+        ReceiptService receiptService = createService(new ReceiptDAO(ReceiptStoreProperties.defaults()), deduplicator);
+
+        String first = receiptService.processReceipt(createValidRequest(), "order-1").getId();
+        receiptService.processReceipt(createValidRequest(), "order-2");
+        receiptService.processReceipt(createValidRequest(), "order-3");
+
+        assertEquals(2, deduplicator.size());
+        assertNotEquals(first, receiptService.processReceipt(createValidRequest(), "order-1").getId());
+    }
+
+    @Test
+    void testClaim_ForgetsTheOldestFingerprints() {
+        ReceiptDeduplicator deduplicator = new ReceiptDeduplicator(true, 2, 100);
+        ReceiptService receiptService = createService(new ReceiptDAO(ReceiptStoreProperties.defaults()), deduplicator);
+        ProcessReceiptRequest second = createValidRequest();
+        second.setPurchaseTime(LocalTime.of(13, 2));
+        ProcessReceiptRequest third = createValidRequest();
+        third.setPurchaseTime(LocalTime.of(13, 3));
+
+        String first = receiptService.processReceipt(createValidRequest()).getId();
+        receiptService.processReceipt(second);
+        long estimated = deduplicator.estimatedMemoryBytes();
+        receiptService.processReceipt(third);
+
+        assertEquals(2, deduplicator.size());
+        assertTrue(estimated > 0);
+        assertEquals(estimated, deduplicator.estimatedMemoryBytes());
+        assertNotEquals(first, receiptService.processReceipt(createValidRequest()).getId());
+        assertThrows(IllegalArgumentException.class, () -> new ReceiptDeduplicator(true, -1, 100));
+    }
+
+    @Test
+    void testClaim_KeepsPendingClaimsOverTheMaximum() {
+        ReceiptDeduplicator deduplicator = new ReceiptDeduplicator(true, 2, 100);
+        ProcessReceiptRequest second = createValidRequest();
+        second.setPurchaseTime(LocalTime.of(13, 2));
+        ProcessReceiptRequest third = createValidRequest();
+        third.setPurchaseTime(LocalTime.of(13, 3));
+        ProcessReceiptRequest fourth = createValidRequest();
+        fourth.setPurchaseTime(LocalTime.of(13, 4));
+
+        ReceiptDeduplicator.Claim pending = deduplicator.claim(createValidRequest(), null);
+        deduplicator.claim(second, null).stored();
+        deduplicator.claim(third, null).stored();
+
+        // The oldest claim is still being stored, so the next oldest is forgotten instead.
+        ReceiptDeduplicator.Claim retry = deduplicator.claim(createValidRequest(), null);
+        assertTrue(retry.isDuplicate());
+        assertEquals(pending.getId(), retry.getId());
+        assertFalse(deduplicator.claim(second, null).isDuplicate());
+
+        pending.stored();
+        deduplicator.claim(fourth, null).stored();
+        assertEquals(2, deduplicator.size());
+        assertFalse(deduplicator.claim(createValidRequest(), null).isDuplicate());
+    }
+
+    @Test
+    void testForget_DroppedReceiptIsStoredAgain() {
+        ReceiptDAO receiptDAO = new ReceiptDAO(ReceiptStoreProperties.defaults());
+        ReceiptDeduplicator deduplicator = new ReceiptDeduplicator(true, 100, 100);
+        ReceiptService receiptService = createService(receiptDAO, deduplicator);
+        String first = receiptService.processReceipt(createValidRequest(), "order-1").getId();
+        Receipt original = receiptDAO.findById(first).orElseThrow();
+
+        deduplicator.forget(original.toBuilder().id(UUID.randomUUID()).build());
+        assertEquals(first, receiptService.processReceipt(createValidRequest()).getId());
+
+        deduplicator.forget(original);
+        assertNotEquals(first, receiptService.processReceipt(createValidRequest()).getId());
+        assertEquals(first, receiptService.processReceipt(createValidRequest(), "order-1").getId());
+    }
+
+    private ReceiptService createService(ReceiptDAO receiptDAO, ReceiptDeduplicator deduplicator) {
+        return ReceiptService.builder(receiptDAO).deduplicator(deduplicator).build();
+    }
+
+    private ProcessReceiptRequest read(String json) throws Exception {
+        return objectMapper.readValue(json, ProcessReceiptRequest.class);
+    }
+
+    private ProcessReceiptRequest createValidRequest() {
+        ProcessReceiptRequest request = new ProcessReceiptRequest();
+        request.setRetailer("Target");
+        request.setPurchaseDate(LocalDate.of(2022, 1, 1));
+        request.setPurchaseTime(LocalTime.of(13, 1));
+        request.setItems(List.of(new Item("Mountain Dew 12PK", 649), new Item("Emils Cheese Pizza", 1225)));
+        request.setTotalCents(1874);
+        return request;
+    }
+}
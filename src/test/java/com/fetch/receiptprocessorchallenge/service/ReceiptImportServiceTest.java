@@ -0,0 +1,90 @@
+package com.fetch.receiptprocessorchallenge.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fetch.receiptprocessorchallenge.dao.ReceiptDAO;
+import com.fetch.receiptprocessorchallenge.dao.ReceiptStoreProperties;
+import com.fetch.receiptprocessorchallenge.validation.ReceiptValidator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit test class for ReceiptImportService.class
+ * */
+class ReceiptImportServiceTest {
+    private static final String VALID_RECEIPT = "{\"retailer\":\"Target\",\"purchaseDate\":\"2022-01-01\","
+            + "\"purchaseTime\":\"13:01\",\"items\":[{\"shortDescription\":\"Mountain Dew 12PK\",\"price\":\"6.49\"}],"
+            + "\"total\":\"6.49\"}";
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private ReceiptDAO receiptDAO;
+    private ReceiptImportService receiptImportService;
+
+    @BeforeEach
+    void setUp() {
+        receiptDAO = new ReceiptDAO(ReceiptStoreProperties.defaults());
+        receiptImportService = new ReceiptImportService(ReceiptService.builder(receiptDAO).build(),
+                new ReceiptValidator(), objectMapper, 5);
+    }
+
+    @Test
+    void testImportReceipts_StreamsResultPerLine() throws Exception {
+        String input = VALID_RECEIPT + "\n"
+                + "\n"
+                + "{\"retailer\":\"Target\"\n"
+                + VALID_RECEIPT.replace("Target", "") + "\n"
+                + VALID_RECEIPT + "\n";
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        ImportSummary summary = receiptImportService.importReceipts(
+                new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)), output);
+
+        assertEquals(4, summary.getRecords());
+        assertEquals(2, summary.getImported());
+        assertEquals(2, summary.getFailed());
+        assertEquals(2, receiptDAO.size());
+
+        String[] lines = output.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(4, lines.length);
+        JsonNode first = objectMapper.readTree(lines[0]);
+        assertEquals(1, first.get("line").asInt());
+        assertTrue(receiptDAO.findById(first.get("id").asText()).isPresent());
+        JsonNode malformed = objectMapper.readTree(lines[1]);
+        assertEquals(3, malformed.get("line").asInt());
+        assertTrue(malformed.get("errorMessage").asText().startsWith("Malformed receipt"));
+        JsonNode invalid = objectMapper.readTree(lines[2]);
+        assertEquals("Retailer name is required.", invalid.get("errorMessage").asText());
+        assertEquals("missing-retailer", invalid.get("errors").get(0).get("code").asText());
+        assertEquals(5, objectMapper.readTree(lines[3]).get("line").asInt());
+    }
+
+    @Test
+    void testImportReceipts_FailsLinesOverTheLengthLimit() throws Exception {
+        receiptImportService = new ReceiptImportService(ReceiptService.builder(receiptDAO).build(),
+                new ReceiptValidator(), objectMapper, 5, VALID_RECEIPT.length());
+        String input = VALID_RECEIPT + "\r\n"
+                + VALID_RECEIPT.replace("Target", "Target Plus") + "\r"
+                + VALID_RECEIPT;
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        ImportSummary summary = receiptImportService.importReceipts(
+                new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)), output);
+
+        assertEquals(3, summary.getRecords());
+        assertEquals(2, summary.getImported());
+        String[] lines = output.toString(StandardCharsets.UTF_8).split("\n");
+        JsonNode tooLong = objectMapper.readTree(lines[1]);
+        assertEquals(2, tooLong.get("line").asInt());
+        assertEquals("Line is longer than " + VALID_RECEIPT.length() + " characters.",
+                tooLong.get("errorMessage").asText());
+        assertEquals(3, objectMapper.readTree(lines[2]).get("line").asInt());
+        assertThrows(IllegalArgumentException.class, () -> new ReceiptImportService(
+                ReceiptService.builder(receiptDAO).build(), new ReceiptValidator(), objectMapper, 5, 0));
+    }
+}
@@ -0,0 +1,128 @@
+package com.fetch.receiptprocessorchallenge.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fetch.receiptprocessorchallenge.dao.ReceiptDAO;
+import com.fetch.receiptprocessorchallenge.dao.ReceiptStoreProperties;
+import com.fetch.receiptprocessorchallenge.dtos.ProcessReceiptRequest;
+import com.fetch.receiptprocessorchallenge.models.Money;
+import com.fetch.receiptprocessorchallenge.validation.ReceiptValidator;
+import net.jqwik.api.*;
+import net.jqwik.api.constraints.IntRange;
+import net.jqwik.time.api.Dates;
+import net.jqwik.time.api.Times;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Property-based tests proving that money parsing and point calculation
+ * on integer cents give exactly the results of decimal arithmetic.
+ * The reference scores are computed with `BigDecimal` from the same amounts.
+ * */
+class ReceiptPointsPropertiesTest {
+    private static final BigDecimal QUARTER = new BigDecimal("0.25");
+    private static final BigDecimal ITEM_MULTIPLIER = new BigDecimal("0.2");
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    @Property
+    void parseCentsMatchesDecimalValue(@ForAll("amounts") BigDecimal amount) {
+        long cents = Money.parseCents(amount.toPlainString());
+        assertEquals(amount.movePointRight(2).longValueExact(), cents);
+        assertEquals(0, new BigDecimal(Money.format(cents)).compareTo(amount));
+    }
+
+    @Property
+    void parseCentsRejectsSubCentAmounts(@ForAll("amounts") BigDecimal amount, @ForAll @IntRange(min = 1, max = 9) int thousandths) {
+        String subCent = amount.add(BigDecimal.valueOf(thousandths, 3)).toPlainString();
+        assertEquals(Money.INVALID, Money.parseCents(subCent));
+    }
+
+    @Property(tries = 500)
+    void pointsMatchDecimalRules(@ForAll("retailers") String retailer,
+                                 @ForAll("dates") LocalDate date,
+                                 @ForAll("times") LocalTime time,
+                                 @ForAll("items") List<Tuple.Tuple2<String, BigDecimal>> items) throws Exception {
+        BigDecimal total = items.stream().map(Tuple.Tuple2::get2).reduce(BigDecimal.ZERO, BigDecimal::add);
+        ProcessReceiptRequest request = objectMapper.treeToValue(toJson(retailer, date, time, items, total), ProcessReceiptRequest.class);
+        new ReceiptValidator().validateProcessReceiptRequest(request);
+
+        ReceiptService receiptService = ReceiptService.builder(new ReceiptDAO(ReceiptStoreProperties.defaults())).build();
+        String id = receiptService.processReceipt(request).getId();
+
+        assertEquals(expectedPoints(retailer, date, time, items, total), receiptService.getReceiptPoints(id).getPoints());
+    }
+
+    private int expectedPoints(String retailer, LocalDate date, LocalTime time,
+                               List<Tuple.Tuple2<String, BigDecimal>> items, BigDecimal total) {
+        int points = (int) retailer.chars().filter(Character::isLetterOrDigit).count();
+        if (total.remainder(BigDecimal.ONE).signum() == 0) points += 50;
+        if (total.remainder(QUARTER).signum() == 0) points += 25;
+        points += items.size() / 2 * 5;
+        for (Tuple.Tuple2<String, BigDecimal> item : items) {
+            if (item.get1().trim().length() % 3 == 0) {
+                points += item.get2().multiply(ITEM_MULTIPLIER).setScale(0, RoundingMode.CEILING).intValueExact();
+            }
+        }
+        if (date.getDayOfMonth() % 2 != 0) points += 6;
+        if (time.isAfter(LocalTime.of(14, 0)) && time.isBefore(LocalTime.of(16, 0))) points += 10;
+        return points;
+    }
+
+    private ObjectNode toJson(String retailer, LocalDate date, LocalTime time,
+                              List<Tuple.Tuple2<String, BigDecimal>> items, BigDecimal total) {
+        ObjectNode receipt = objectMapper.createObjectNode();
+        receipt.put("retailer", retailer);
+        receipt.put("purchaseDate", date.toString());
+        receipt.put("purchaseTime", time.format(DateTimeFormatter.ofPattern("HH:mm")));
+        ArrayNode itemNodes = receipt.putArray("items");
+        for (Tuple.Tuple2<String, BigDecimal> item : items) {
+            itemNodes.addObject()
+                    .put("shortDescription", item.get1())
+                    .put("price", item.get2().toPlainString());
+        }
+        receipt.put("total", total.toPlainString());
+        return receipt;
+    }
+
+    @Provide
+    Arbitrary<BigDecimal> amounts() {
+        return Arbitraries.bigDecimals()
+                .between(BigDecimal.ZERO, new BigDecimal("100000"))
+                .ofScale(2);
+    }
+
+    @Provide
+    Arbitrary<String> retailers() {
+        return Arbitraries.strings().withChars("abcXYZ019 &-").ofMinLength(1).ofMaxLength(30)
+                .filter(retailer -> !retailer.isEmpty());
+    }
+
+    @Provide
+    Arbitrary<LocalDate> dates() {
+        return Dates.dates().between(LocalDate.of(2000, 1, 1), LocalDate.of(2030, 12, 31));
+    }
+
+    @Provide
+    Arbitrary<LocalTime> times() {
+        return Times.times().ofPrecision(java.time.temporal.ChronoUnit.MINUTES);
+    }
+
+    @Provide
+    Arbitrary<List<Tuple.Tuple2<String, BigDecimal>>> items() {
+        Arbitrary<String> descriptions = Arbitraries.strings().withChars("abc 12").ofMinLength(1).ofMaxLength(20)
+                .filter(description -> !description.isEmpty());
+        Arbitrary<BigDecimal> prices = Arbitraries.bigDecimals()
+                .between(BigDecimal.ZERO, new BigDecimal("1000"))
+                .ofScale(2);
+        return Combinators.combine(descriptions, prices).as(Tuple::of).list().ofMinSize(1).ofMaxSize(12);
+    }
+}
@@ -1,23 +1,39 @@
 package com.fetch.receiptprocessorchallenge.service;
 
 import com.fetch.receiptprocessorchallenge.dao.ReceiptDAO;
+import com.fetch.receiptprocessorchallenge.dao.ReceiptStoreProperties;
 import com.fetch.receiptprocessorchallenge.dtos.ProcessReceiptRequest;
 import com.fetch.receiptprocessorchallenge.dtos.ProcessReceiptResponse;
+import com.fetch.receiptprocessorchallenge.dtos.ReceiptPageResponse;
 import com.fetch.receiptprocessorchallenge.dtos.ReceiptPointResponse;
+import com.fetch.receiptprocessorchallenge.dtos.ReceiptResponse;
+import com.fetch.receiptprocessorchallenge.dtos.ReceiptStatsResponse;
+import com.fetch.receiptprocessorchallenge.metrics.ReceiptMetrics;
 import com.fetch.receiptprocessorchallenge.models.Item;
 import com.fetch.receiptprocessorchallenge.models.Receipt;
+import com.fetch.receiptprocessorchallenge.validation.ValidationError;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingStream;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
-import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -31,22 +47,22 @@ class ReceiptServiceTest {
     @Mock
     private ReceiptDAO receiptDAO;
 
-    @InjectMocks
     private ReceiptService receiptService;
 
     private ProcessReceiptRequest request;
     private Receipt receipt;
-    private String receiptId;
+    private UUID receiptId;
 
     @BeforeEach
     void setUp() {
-        receiptId = UUID.randomUUID().toString();
+        receiptService = ReceiptService.builder(receiptDAO).scoringMode(ScoringMode.LAZY).build();
+        receiptId = UUID.randomUUID();
         request = new ProcessReceiptRequest();
         request.setRetailer("TestStore");
         request.setPurchaseDate(LocalDate.of(2022, 3, 20));
         request.setPurchaseTime(LocalTime.of(14, 33));
-        request.setItems(List.of(new Item("Item1", 10.0), new Item("Item2", 15.0)));
-        request.setTotal(25.0);
+        request.setItems(List.of(new Item("Item1", 1000), new Item("Item2", 1500)));
+        request.setTotalCents(2500);
 
         receipt = Receipt.builder()
                 .id(receiptId)
@@ -54,7 +70,7 @@ class ReceiptServiceTest {
                 .purchaseDate(request.getPurchaseDate())
                 .purchaseTime(request.getPurchaseTime())
                 .items(request.getItems())
-                .total(request.getTotal())
+                .totalCents(request.getTotalCents())
                 .build();
     }
 
@@ -65,30 +81,325 @@ class ReceiptServiceTest {
         ProcessReceiptResponse response = receiptService.processReceipt(request);
 
         assertNotNull(response);
-        assertEquals(receiptId, response.getId());
+        assertEquals(receiptId.toString(), response.getId());
         verify(receiptDAO, times(1)).save(any(Receipt.class));
     }
 
     @Test
     void testGetReceiptPoints_Success() {
-        when(receiptDAO.findById(receiptId)).thenReturn(Optional.of(receipt));
+        when(receiptDAO.findById(receiptId.getMostSignificantBits(), receiptId.getLeastSignificantBits())).thenReturn(receipt);
 
-        ReceiptPointResponse response = receiptService.getReceiptPoints(receiptId);
+        ReceiptPointResponse response = receiptService.getReceiptPoints(receiptId.toString());
 
         assertNotNull(response);
         assertTrue(response.getPoints() > 0);
-        verify(receiptDAO, times(1)).findById(receiptId);
+        verify(receiptDAO, times(1)).findById(receiptId.getMostSignificantBits(), receiptId.getLeastSignificantBits());
     }
 
     @Test
     void testGetReceiptPoints_ReceiptNotFound() {
-        when(receiptDAO.findById(receiptId)).thenReturn(Optional.empty());
+        when(receiptDAO.findById(receiptId.getMostSignificantBits(), receiptId.getLeastSignificantBits())).thenReturn(null);
 
         Exception exception = assertThrows(RuntimeException.class, () -> {
-            receiptService.getReceiptPoints(receiptId);
+            receiptService.getReceiptPoints(receiptId.toString());
         });
 
         assertEquals("Receipt with Id " + receiptId + " is not found.", exception.getMessage());
-        verify(receiptDAO, times(1)).findById(receiptId);
+        verify(receiptDAO, times(1)).findById(receiptId.getMostSignificantBits(), receiptId.getLeastSignificantBits());
+    }
+
+    @Test
+    void testProcessReceipt_EagerModeStoresPoints() {
+        receiptService = ReceiptService.builder(receiptDAO).scoringMode(ScoringMode.EAGER).build();
+        ArgumentCaptor<Receipt> captor = ArgumentCaptor.forClass(Receipt.class);
+        when(receiptDAO.save(captor.capture())).thenReturn(receipt);
+
+        receiptService.processReceipt(request);
+
+        assertNotNull(captor.getValue().getPoints());
+    }
+
+    @Test
+    void testProcessReceipt_LazyModeDefersPoints() {
+        ArgumentCaptor<Receipt> captor = ArgumentCaptor.forClass(Receipt.class);
+        when(receiptDAO.save(captor.capture())).thenReturn(receipt);
+
+        receiptService.processReceipt(request);
+
+        assertNull(captor.getValue().getPoints());
+    }
+
+    @Test
+    void testGetReceiptPoints_MemoizesScore() {
+        when(receiptDAO.findById(receiptId.getMostSignificantBits(), receiptId.getLeastSignificantBits())).thenReturn(receipt);
+
+        ReceiptPointResponse first = receiptService.getReceiptPoints(receiptId.toString());
+        ReceiptPointResponse second = receiptService.getReceiptPoints(receiptId.toString());
+
+        assertEquals(first.getPoints(), second.getPoints());
+        assertEquals(first.getPoints(), receipt.getPoints());
+        assertEquals(1, receiptService.getScoringMisses());
+        assertEquals(1, receiptService.getScoringHits());
+    }
+
+    @Test
+    void testGetReceiptPoints_UsesStoredScore() {
+        receipt.setPoints(42);
+        when(receiptDAO.findById(receiptId.getMostSignificantBits(), receiptId.getLeastSignificantBits())).thenReturn(receipt);
+
+        ReceiptPointResponse response = receiptService.getReceiptPoints(receiptId.toString());
+
+        assertEquals(42, response.getPoints());
+        assertEquals(0, receiptService.getScoringMisses());
+    }
+
+    @Test
+    void testGetReceiptPoints_Breakdown() {
+        when(receiptDAO.findById(receiptId.getMostSignificantBits(), receiptId.getLeastSignificantBits())).thenReturn(receipt);
+
+        ReceiptPointResponse response = receiptService.getReceiptPoints(receiptId.toString(), true);
+
+        assertNotNull(response.getBreakdown());
+        assertEquals(response.getPoints(), response.getBreakdown().values().stream().mapToInt(Integer::intValue).sum());
+        assertNull(receiptService.getReceiptPoints(receiptId.toString()).getBreakdown());
+    }
+
+    @Test
+    void testGetReceiptPoints_AnswersRepeatReadsFromThePointsCache() {
+        ReceiptService cached = ReceiptService.builder(receiptDAO)
+                .scoringMode(ScoringMode.LAZY)
+                .pointsCache(new PointsCache(16))
+                .build();
+        when(receiptDAO.findById(receiptId.getMostSignificantBits(), receiptId.getLeastSignificantBits())).thenReturn(receipt);
+
+        ReceiptPointResponse first = cached.getReceiptPoints(receiptId.toString());
+        ReceiptPointResponse second = cached.getReceiptPoints(receiptId.toString().toUpperCase());
+        ReceiptPointResponse breakdown = cached.getReceiptPoints(receiptId.toString(), true);
+
+        assertEquals(first, second);
+        assertEquals(first.getPoints(), breakdown.getPoints());
+        assertNotNull(breakdown.getBreakdown());
+        // The first read and the breakdown go to the store, the second read does not.
+        verify(receiptDAO, times(2)).findById(receiptId.getMostSignificantBits(), receiptId.getLeastSignificantBits());
+        assertEquals(1, cached.getPointsCache().getHits());
+        assertEquals(1, cached.getPointsCache().getMisses());
+    }
+
+    @Test
+    void testGetStats_ConcurrentFirstReadsCountPointsOnce() throws Exception {
+        ReceiptDAO realDAO = new ReceiptDAO(ReceiptStoreProperties.defaults());
+        receiptService = ReceiptService.builder(realDAO).scoringMode(ScoringMode.LAZY).build();
+        String id = receiptService.processReceipt(request).getId();
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Integer>> reads = new ArrayList<>();
+            for (int i = 0; i < 64; i++) {
+                reads.add(executor.submit(() -> {
+                    start.await();
+                    return receiptService.getReceiptPoints(id).getPoints();
+                }));
+            }
+            start.countDown();
+            int points = reads.get(0).get();
+            for (Future<Integer> read : reads) {
+                assertEquals(points, read.get());
+            }
+
+            ReceiptStatsResponse stats = receiptService.getStats(10);
+            assertEquals(1, stats.getReceipts());
+            assertEquals(1, stats.getScoredReceipts());
+            assertEquals(points, stats.getPoints());
+            // Reads racing the first one may score the receipt too, but only one stores its points.
+            assertEquals(64, receiptService.getScoringHits() + receiptService.getScoringMisses());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testGetReceiptPoints_LazyModeVirtualThreadsAreNotPinned() {
+        // The simulated store latency parks the readers while they score, so many overlap.
+        ReceiptDAO realDAO = new ReceiptDAO(ReceiptStoreProperties.defaults().toBuilder()
+                .initialCapacity(1024)
+                .simulatedLatencyMs(1)
+                .build());
+        receiptService = ReceiptService.builder(realDAO).scoringMode(ScoringMode.LAZY).build();
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            ids.add(receiptService.processReceipt(request).getId());
+        }
+        List<RecordedEvent> pinned = new CopyOnWriteArrayList<>();
+        try (RecordingStream recording = new RecordingStream()) {
+            recording.enable("jdk.VirtualThreadPinned").withThreshold(Duration.ZERO).withStackTrace();
+            recording.onEvent("jdk.VirtualThreadPinned", pinned::add);
+            recording.startAsync();
+            try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                for (int i = 0; i < 1_000; i++) {
+                    String id = ids.get(i % ids.size());
+                    executor.submit(() -> receiptService.getReceiptPoints(id));
+                }
+            }
+            recording.stop();
+        }
+
+        assertTrue(pinned.isEmpty(), "Virtual threads were pinned: " + pinned);
+        assertEquals(10, receiptService.getStats(10).getScoredReceipts());
+    }
+
+    @Test
+    void testGetStats_TopRetailersDatesAndHours() {
+        receiptService = ReceiptService.builder(new ReceiptDAO(ReceiptStoreProperties.defaults())).build();
+        for (int i = 0; i < 6; i++) {
+            request.setRetailer(i < 3 ? "Target" : i < 5 ? "Walgreens" : "TestStore");
+            request.setPurchaseDate(LocalDate.of(2022, 3, 20 - i % 2));
+            receiptService.processReceipt(request);
+        }
+
+        ReceiptStatsResponse stats = receiptService.getStats(2);
+
+        assertEquals(6, stats.getReceipts());
+        assertEquals(List.of("Target", "Walgreens"), new ArrayList<>(stats.getByRetailer().keySet()));
+        assertEquals(3, stats.getByRetailer().get("Target").getReceipts());
+        assertEquals(List.of("2022-03-19", "2022-03-20"), new ArrayList<>(stats.getByDate().keySet()));
+        assertEquals(24, stats.getByHour().size());
+        assertEquals(6, stats.getByHour().get(14).getReceipts());
+        assertEquals(stats.getPoints(), stats.getByHour().get(14).getPoints());
+        assertTrue(receiptService.getStats(0).getByRetailer().isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> receiptService.getStats(-1));
+    }
+
+    @Test
+    void testFindReceipts_PagesThroughRangeAndScoresLazily() {
+        ReceiptDAO realDAO = new ReceiptDAO(ReceiptStoreProperties.defaults());
+        receiptService = ReceiptService.builder(realDAO).scoringMode(ScoringMode.LAZY).build();
+        for (int day = 1; day <= 5; day++) {
+            request.setPurchaseDate(LocalDate.of(2022, 1, day));
+            receiptService.processReceipt(request);
+        }
+
+        ReceiptPageResponse first = receiptService.findReceipts("2022-01-02", "2022-01-04", null, null, 2);
+        ReceiptPageResponse second = receiptService.findReceipts("2022-01-02", "2022-01-04", null, first.getNext(), 2);
+
+        assertEquals(List.of(LocalDate.of(2022, 1, 2), LocalDate.of(2022, 1, 3)),
+                first.getReceipts().stream().map(ReceiptResponse::getPurchaseDate).toList());
+        assertEquals(List.of(LocalDate.of(2022, 1, 4)),
+                second.getReceipts().stream().map(ReceiptResponse::getPurchaseDate).toList());
+        assertNull(second.getNext());
+        assertNotNull(first.getReceipts().get(0).getPoints());
+        assertEquals(3, receiptService.getStats(10).getScoredReceipts());
+        assertEquals(1, receiptService.findReceipts("2022-01-05T14:33", null, "TestStore", null, 10).getReceipts().size());
+        assertTrue(receiptService.findReceipts(null, "2022-01-05T14:32", "Target", null, 10).getReceipts().isEmpty());
+    }
+
+    @Test
+    void testFindReceipts_RejectsInvalidParameters() {
+        assertEquals("from must be a date (yyyy-MM-dd) or a date and time (yyyy-MM-ddTHH:mm).",
+                assertThrows(IllegalArgumentException.class,
+                        () -> receiptService.findReceipts("01/02/2022", null, null, null, 10)).getMessage());
+        assertEquals("The page size must be between 1 and 1000.",
+                assertThrows(IllegalArgumentException.class,
+                        () -> receiptService.findReceipts(null, null, null, null, 0)).getMessage());
+        assertEquals("The page cursor is not valid.",
+                assertThrows(IllegalArgumentException.class,
+                        () -> receiptService.findReceipts(null, null, null, "abc", 10)).getMessage());
+    }
+
+    @Test
+    void testGetReceiptPoints_MultiGetMarksIdsWithoutReceipts() {
+        ReceiptDAO realDAO = new ReceiptDAO(ReceiptStoreProperties.defaults());
+        receiptService = ReceiptService.builder(realDAO).scoringMode(ScoringMode.LAZY).build();
+        String stored = receiptService.processReceipt(request).getId();
+        String missing = UUID.randomUUID().toString();
+        int points = receiptService.getReceiptPoints(stored).getPoints();
+
+        List<ReceiptPointResponse> results = receiptService.getReceiptPoints(
+                Arrays.asList(missing, stored, "not-a-uuid", null, stored)).getResults();
+
+        assertEquals(List.of(
+                ReceiptPointResponse.builder().id(missing).notFound(true).build(),
+                ReceiptPointResponse.builder().id(stored).points(points).build(),
+                ReceiptPointResponse.builder().id("not-a-uuid").errors(List.of(ValidationError.INVALID_ID)).build(),
+                ReceiptPointResponse.builder().errors(List.of(ValidationError.MISSING_ID)).build(),
+                ReceiptPointResponse.builder().id(stored).points(points).build()), results);
+        assertTrue(receiptService.getReceiptPoints(List.of()).getResults().isEmpty());
+    }
+
+    @Test
+    void testGetReceiptPoints_MultiGetLooksUpInOnePassAndMemoizes() {
+        UUID otherId = UUID.randomUUID();
+        when(receiptDAO.findAllById(new long[]{receiptId.getMostSignificantBits(), otherId.getMostSignificantBits()},
+                new long[]{receiptId.getLeastSignificantBits(), otherId.getLeastSignificantBits()}))
+                .thenReturn(new Receipt[]{receipt, null});
+
+        List<ReceiptPointResponse> results = receiptService.getReceiptPoints(
+                List.of(receiptId.toString(), otherId.toString())).getResults();
+
+        assertEquals(receipt.getPoints(), results.get(0).getPoints());
+        assertEquals(Boolean.TRUE, results.get(1).getNotFound());
+        verify(receiptDAO).savePoints(eq(receipt), anyInt());
+        verify(receiptDAO, never()).findById(anyLong(), anyLong());
+        assertEquals("At most 10000 receipt ids can be read at once.",
+                assertThrows(IllegalArgumentException.class, () -> receiptService.getReceiptPoints(
+                        Collections.nCopies(ReceiptService.MAX_POINTS_IDS + 1, receiptId.toString()))).getMessage());
+    }
+
+    @Test
+    void testProcessReceipt_AsyncModeScoresInTheBackground() {
+        ReceiptDAO realDAO = new ReceiptDAO(ReceiptStoreProperties.defaults());
+        receiptService = asyncService(realDAO, new ScoringQueue(2, 100, 5_000, ReceiptMetrics.disabled()));
+        ReceiptService eagerService = ReceiptService.builder(new ReceiptDAO(ReceiptStoreProperties.defaults())).build();
+        int expected = eagerService.getReceiptPoints(eagerService.processReceipt(request).getId()).getPoints();
+
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            ids.add(receiptService.processReceipt(request).getId());
+        }
+
+        for (String id : ids) {
+            assertEquals(expected, receiptService.getReceiptPoints(id).getPoints());
+        }
+        assertEquals(0, receiptService.getScoringMisses());
+        assertEquals(50, receiptService.getStats(10).getScoredReceipts());
+        assertEquals(0, receiptService.getScoringQueue().getDepth());
+    }
+
+    @Test
+    void testProcessReceipt_AsyncModeRejectsWhenTheQueueIsFull() throws Exception {
+        ScoringQueue scoringQueue = new ScoringQueue(1, 1, 50, ReceiptMetrics.disabled());
+        receiptService = asyncService(receiptDAO, scoringQueue);
+        CountDownLatch scoring = new CountDownLatch(1);
+        when(receiptDAO.save(any(Receipt.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        doAnswer(invocation -> {
+            scoring.await();
+            return true;
+        }).when(receiptDAO).savePoints(any(Receipt.class), anyInt());
+
+        String id = receiptService.processReceipt(request).getId();
+        ArgumentCaptor<Receipt> captor = ArgumentCaptor.forClass(Receipt.class);
+        verify(receiptDAO).save(captor.capture());
+        Receipt stored = Receipt.builder().id(captor.getValue().getId()).retailer(request.getRetailer())
+                .purchaseDate(request.getPurchaseDate()).purchaseTime(request.getPurchaseTime())
+                .items(request.getItems()).totalCents(request.getTotalCents()).build();
+        when(receiptDAO.findById(stored.getId().getMostSignificantBits(), stored.getId().getLeastSignificantBits()))
+                .thenReturn(stored);
+
+        assertThrows(ServiceOverloadedException.class, () -> receiptService.processReceipt(request));
+        verify(receiptDAO, times(1)).save(any(Receipt.class));
+        // A read of a receipt still being scored waits out the configured wait instead of scoring it again.
+        assertThrows(ServiceOverloadedException.class, () -> receiptService.getReceiptPoints(id));
+        assertEquals(0, receiptService.getScoringMisses());
+
+        scoring.countDown();
+        assertEquals(captor.getValue().getPoints(), receiptService.getReceiptPoints(id).getPoints());
+        assertEquals(1, scoringQueue.getRejected());
+        scoringQueue.shutdown();
+    }
+
+    private static ReceiptService asyncService(ReceiptDAO receiptDAO, ScoringQueue scoringQueue) {
+        return ReceiptService.builder(receiptDAO)
+                .scoringMode(ScoringMode.ASYNC)
+                .scoringQueue(scoringQueue)
+                .build();
     }
 }
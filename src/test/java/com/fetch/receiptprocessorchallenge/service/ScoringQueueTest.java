@@ -0,0 +1,138 @@
+package com.fetch.receiptprocessorchallenge.service;
+
+import com.fetch.receiptprocessorchallenge.metrics.ReceiptMetrics;
+import com.fetch.receiptprocessorchallenge.models.Receipt;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit test class for ScoringQueue.class
+ * */
+class ScoringQueueTest {
+    private ScoringQueue scoringQueue;
+
+    @AfterEach
+    void tearDown() {
+        scoringQueue.shutdown();
+    }
+
+    @Test
+    void testReserve_FullQueueRejectsTheWholeBatch() {
+        scoringQueue = new ScoringQueue(1, 2, 1_000, ReceiptMetrics.disabled());
+
+        ServiceOverloadedException rejected = assertThrows(ServiceOverloadedException.class,
+                () -> scoringQueue.reserve(receipts(3)));
+
+        assertEquals("The scoring queue is full; retry in 1 second(s).", rejected.getMessage());
+        assertEquals(1, rejected.getRetryAfterSeconds());
+        assertEquals(0, scoringQueue.getDepth());
+        assertEquals(3, scoringQueue.getRejected());
+
+        List<Receipt> reserved = receipts(2);
+        scoringQueue.reserve(reserved);
+        assertEquals(2, scoringQueue.getDepth());
+        assertNotNull(scoringQueue.pending(reserved.get(0).getId()));
+        assertThrows(ServiceOverloadedException.class, () -> scoringQueue.reserve(receipts(1)));
+        assertEquals(4, scoringQueue.getRejected());
+    }
+
+    @Test
+    void testSubmit_WorkersCompleteThePendingPoints() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        scoringQueue = new ScoringQueue(1, 10, 50, new ReceiptMetrics(registry, true));
+        CountDownLatch scoring = new CountDownLatch(1);
+        List<Receipt> receipts = receipts(2);
+
+        scoringQueue.reserve(receipts);
+        scoringQueue.submit(receipts, receipt -> {
+            await(scoring);
+            receipt.setPoints(receipt.getRetailer().length());
+        });
+
+        // The worker is held, so a read waits out the configured wait.
+        UUID first = receipts.get(0).getId();
+        ServiceOverloadedException stillScoring = assertThrows(ServiceOverloadedException.class,
+                () -> scoringQueue.awaitPoints(first));
+        assertEquals("The points of receipt " + first + " are still being calculated.", stillScoring.getMessage());
+        assertEquals(2, scoringQueue.getDepth());
+        CompletableFuture<Integer> second = scoringQueue.pending(receipts.get(1).getId());
+
+        scoring.countDown();
+        assertEquals(receipts.get(1).getRetailer().length(), second.get(5, TimeUnit.SECONDS));
+        waitForDepth(0);
+        assertNull(scoringQueue.pending(first));
+        assertNull(scoringQueue.awaitPoints(first));
+        assertEquals(2, registry.get("receipts.scoring.lag").timer().count());
+    }
+
+    @Test
+    void testCancel_GivesBackThePlacesOfReceiptsNotStored() throws Exception {
+        scoringQueue = new ScoringQueue(1, 2, 1_000, ReceiptMetrics.disabled());
+        List<Receipt> receipts = receipts(2);
+        scoringQueue.reserve(receipts);
+        CompletableFuture<Integer> pending = scoringQueue.pending(receipts.get(0).getId());
+
+        scoringQueue.cancel(receipts);
+        scoringQueue.submit(receipts, receipt -> fail("A cancelled receipt is not scored."));
+
+        assertNull(pending.get(1, TimeUnit.SECONDS));
+        assertEquals(0, scoringQueue.getDepth());
+        assertNull(scoringQueue.pending(receipts.get(0).getId()));
+        scoringQueue.reserve(receipts(2));
+    }
+
+    @Test
+    void testSubmit_FailedScoringCompletesWithoutPoints() throws Exception {
+        scoringQueue = new ScoringQueue(1, 2, 1_000, ReceiptMetrics.disabled());
+        List<Receipt> receipts = receipts(1);
+        scoringQueue.reserve(receipts);
+        CompletableFuture<Integer> pending = scoringQueue.pending(receipts.get(0).getId());
+
+        scoringQueue.submit(receipts, receipt -> {
+            throw new IllegalStateException("The rules failed.");
+        });
+
+        assertNull(pending.get(5, TimeUnit.SECONDS));
+        waitForDepth(0);
+        assertNull(scoringQueue.awaitPoints(receipts.get(0).getId()));
+    }
+
+    @Test
+    void testInvalidCapacity() {
+        assertThrows(IllegalArgumentException.class, () -> new ScoringQueue(1, 0, 1_000, ReceiptMetrics.disabled()));
+        scoringQueue = new ScoringQueue(ReceiptMetrics.disabled());
+        assertEquals(ScoringQueue.DEFAULT_CAPACITY, scoringQueue.getCapacity());
+    }
+
+    private void waitForDepth(int depth) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (scoringQueue.getDepth() != depth && System.nanoTime() < deadline) {
+            TimeUnit.MILLISECONDS.sleep(5);
+        }
+        assertEquals(depth, scoringQueue.getDepth());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static List<Receipt> receipts(int count) {
+        return IntStream.range(0, count)
+                .mapToObj(i -> Receipt.builder().id(UUID.randomUUID()).retailer("Retailer " + i).build())
+                .toList();
+    }
+}
@@ -0,0 +1,128 @@
+package com.fetch.receiptprocessorchallenge.validation;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fetch.receiptprocessorchallenge.dtos.ProcessReceiptRequest;
+import com.fetch.receiptprocessorchallenge.models.Item;
+import com.fetch.receiptprocessorchallenge.models.Money;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit test class for ReceiptValidator.class
+ * */
+class ReceiptValidatorTest {
+    private final ReceiptValidator validator = new ReceiptValidator();
+
+    @Test
+    void testValidate_ValidRequestSharesTheValidResult() {
+        assertSame(ValidationResult.VALID, validator.validate(createValidRequest()));
+        assertSame(ValidationResult.VALID, validator.validateId(UUID.randomUUID().toString()));
+        assertTrue(ValidationResult.VALID.getErrors().isEmpty());
+        assertNull(ValidationResult.VALID.getErrorMessage());
+    }
+
+    @Test
+    void testValidate_ReportsEveryViolationInCheckOrder() {
+        ProcessReceiptRequest request = new ProcessReceiptRequest();
+        request.setItems(List.of(new Item("", -100), new Item(null, Money.INVALID)));
+        request.setTotalCents(-1);
+
+        ValidationResult result = validator.validate(request);
+
+        assertEquals(List.of(ValidationError.MISSING_RETAILER, ValidationError.MISSING_PURCHASE_DATE,
+                ValidationError.MISSING_PURCHASE_TIME, ValidationError.MISSING_ITEM_DESCRIPTION,
+                ValidationError.INVALID_ITEM_PRICE, ValidationError.NEGATIVE_ITEM_PRICE,
+                ValidationError.NEGATIVE_TOTAL), result.getErrors());
+        assertEquals(ValidationError.MISSING_RETAILER, result.getFirstError());
+        assertEquals("Retailer name is required.", result.getErrorMessage());
+    }
+
+    @Test
+    void testValidate_ComparesTheTotalOnlyWhenEveryAmountIsValid() {
+        ProcessReceiptRequest request = createValidRequest();
+        request.setTotalCents(1);
+        assertEquals(List.of(ValidationError.TOTAL_MISMATCH), validator.validate(request).getErrors());
+
+        request.setItems(List.of(new Item("Gatorade", Money.INVALID)));
+        assertEquals(List.of(ValidationError.INVALID_ITEM_PRICE), validator.validate(request).getErrors());
+    }
+
+    @Test
+    void testValidate_SumPastTheRangeOfALongIsAMismatch() {
+        ProcessReceiptRequest request = createValidRequest();
+        request.setItems(List.of(new Item("Gold", Long.MAX_VALUE), new Item("Gold", Long.MAX_VALUE)));
+        request.setTotalCents(Long.MAX_VALUE);
+
+        assertEquals(List.of(ValidationError.TOTAL_MISMATCH), validator.validate(request).getErrors());
+    }
+
+    @Test
+    void testValidate_RejectsWhatTheWireFormatsCannotCarry() throws Exception {
+        ProcessReceiptRequest request = createValidRequest();
+        request.setPurchaseDate(LocalDate.of(10_000, 1, 1));
+        request.setPurchaseTime(LocalTime.of(14, 33, 20));
+        assertEquals(List.of(ValidationError.INVALID_PURCHASE_DATE, ValidationError.INVALID_PURCHASE_TIME),
+                validator.validate(request).getErrors());
+
+        // Jackson accepts seconds in a time, which "HH:mm" does not.
+        ProcessReceiptRequest parsed = new ObjectMapper().findAndRegisterModules().readValue(
+                "{\"retailer\":\"Target\",\"purchaseDate\":\"2022-01-01\",\"purchaseTime\":\"13:01:30\","
+                        + "\"items\":[{\"shortDescription\":\"Pepsi\",\"price\":\"1.25\"}],\"total\":\"1.25\"}",
+                ProcessReceiptRequest.class);
+        assertEquals(List.of(ValidationError.INVALID_PURCHASE_TIME), validator.validate(parsed).getErrors());
+
+        // Dates, times and amounts that do not exist are read as values the validator rejects.
+        parsed = new ObjectMapper().findAndRegisterModules().readValue(
+                "{\"retailer\":\"Target\",\"purchaseDate\":\"2022-02-30\",\"purchaseTime\":\"25:00\","
+                        + "\"items\":[{\"shortDescription\":\"Pepsi\",\"price\":\"1.255\"}],\"total\":\"1.25\"}",
+                ProcessReceiptRequest.class);
+        assertEquals(List.of(ValidationError.INVALID_PURCHASE_DATE, ValidationError.INVALID_PURCHASE_TIME,
+                ValidationError.INVALID_ITEM_PRICE), validator.validate(parsed).getErrors());
+    }
+
+    @Test
+    void testValidate_MissingReceiptAndIds() {
+        assertEquals(List.of(ValidationError.MISSING_RECEIPT), validator.validate(null).getErrors());
+        assertEquals(List.of(ValidationError.MISSING_ID), validator.validateId(null).getErrors());
+        assertEquals(List.of(ValidationError.INVALID_ID), validator.validateId("not-a-uuid").getErrors());
+        assertEquals(List.of(ValidationError.MISSING_ID), validator.validateId(null, null).getErrors());
+        assertEquals(List.of(ValidationError.INVALID_ID), validator.validateId("not-a-uuid", null).getErrors());
+        UUID id = UUID.randomUUID();
+        assertSame(ValidationResult.VALID, validator.validateId(id.toString(), id));
+    }
+
+    @Test
+    void testThrowingValidators_UseTheFirstViolation() {
+        ProcessReceiptRequest request = createValidRequest();
+        request.setRetailer(null);
+        request.setTotalCents(1);
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> validator.validateProcessReceiptRequest(request));
+        assertEquals("Retailer name is required.", e.getMessage());
+        assertDoesNotThrow(() -> validator.validateProcessReceiptRequest(createValidRequest()));
+        assertThrows(IllegalArgumentException.class, () -> validator.validateGetReceiptPointRequest("not-a-uuid"));
+    }
+
+    @Test
+    void testValidationError_SerializesCodeAndMessage() throws Exception {
+        assertEquals("{\"code\":\"total-mismatch\",\"message\":\"Total amount does not match the sum of item prices.\"}",
+                new ObjectMapper().writeValueAsString(ValidationError.TOTAL_MISMATCH));
+    }
+
+    private ProcessReceiptRequest createValidRequest() {
+        ProcessReceiptRequest request = new ProcessReceiptRequest();
+        request.setRetailer("Target");
+        request.setPurchaseDate(LocalDate.of(2022, 1, 1));
+        request.setPurchaseTime(LocalTime.of(13, 1));
+        request.setItems(List.of(new Item("Mountain Dew 12PK", 649), new Item("Emils Cheese Pizza", 1225)));
+        request.setTotalCents(1874);
+        return request;
+    }
+}